@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.actuator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.store.AuditStore;
+import se.swedenconnect.signservice.audit.store.AuditStoreEntry;
+import se.swedenconnect.signservice.audit.store.AuditStoreQuery;
+
+/**
+ * An actuator endpoint ({@code auditstore}) for querying the audit events held by the configured
+ * {@link AuditStore}s, for example all events for a given request ID.
+ */
+@Endpoint(id = "auditstore")
+public class AuditStoreEndpoint {
+
+  /** Supplies the audit stores to query. */
+  private final Supplier<? extends Collection<AuditStore>> stores;
+
+  /** For parsing the stored JSON. */
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Constructor.
+   *
+   * @param stores supplies the audit stores to query
+   */
+  public AuditStoreEndpoint(@Nonnull final Supplier<? extends Collection<AuditStore>> stores) {
+    this.stores = Objects.requireNonNull(stores, "stores must not be null");
+  }
+
+  /**
+   * Finds the audit events matching the supplied criteria. All criteria are optional, and if no criteria is given,
+   * the most recent events are returned.
+   *
+   * @param requestId the request ID
+   * @param clientId the client ID
+   * @param eventId the audit event ID
+   * @param from ISO-8601 instant from which events are included
+   * @param to ISO-8601 instant before which events are included
+   * @param limit the maximum number of events to return
+   * @return a list of audit events (in chronological order)
+   */
+  @ReadOperation
+  @Nonnull
+  public List<Map<String, Object>> events(@Nullable final String requestId, @Nullable final String clientId,
+      @Nullable final String eventId, @Nullable final String from, @Nullable final String to,
+      @Nullable final Integer limit) {
+
+    final AuditStoreQuery query = new AuditStoreQuery();
+    query.setRequestId(requestId);
+    query.setClientId(clientId);
+    query.setEventId(eventId);
+    query.setFrom(parseInstant("from", from));
+    query.setTo(parseInstant("to", to));
+    if (limit != null) {
+      if (limit <= 0) {
+        throw new InvalidEndpointRequestException("Invalid limit", "limit must be greater than 0");
+      }
+      query.setLimit(limit);
+    }
+
+    final List<AuditStoreEntry> entries = new ArrayList<>();
+    try {
+      for (final AuditStore store : this.stores.get()) {
+        entries.addAll(store.find(query));
+      }
+    }
+    catch (final IOException e) {
+      throw new UncheckedIOException("Failed to read audit store", e);
+    }
+    entries.sort(Comparator.comparing(AuditStoreEntry::getTimestamp));
+
+    return entries.stream()
+        .skip(Math.max(0, entries.size() - query.getLimit()))
+        .map(this::toMap)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Parses the stored JSON of an entry into a map.
+   *
+   * @param entry the entry
+   * @return a map
+   */
+  @Nonnull
+  private Map<String, Object> toMap(@Nonnull final AuditStoreEntry entry) {
+    try {
+      return this.objectMapper.readValue(entry.getJson(), new TypeReference<Map<String, Object>>() {});
+    }
+    catch (final IOException e) {
+      throw new UncheckedIOException("Invalid audit store entry", e);
+    }
+  }
+
+  /**
+   * Parses an ISO-8601 instant.
+   *
+   * @param name the parameter name
+   * @param value the value
+   * @return the instant, or null if no value is given
+   */
+  @Nullable
+  private static Instant parseInstant(@Nonnull final String name, @Nullable final String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      return Instant.parse(value);
+    }
+    catch (final DateTimeParseException e) {
+      throw new InvalidEndpointRequestException("Invalid " + name, name + " must be an ISO-8601 instant");
+    }
+  }
+
+}
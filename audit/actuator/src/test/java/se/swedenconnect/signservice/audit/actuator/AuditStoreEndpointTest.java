@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.actuator;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import se.swedenconnect.signservice.audit.store.AuditStore;
+import se.swedenconnect.signservice.audit.store.AuditStoreEntry;
+import se.swedenconnect.signservice.audit.store.AuditStoreQuery;
+
+/**
+ * Test cases for AuditStoreEndpoint.
+ */
+public class AuditStoreEndpointTest {
+
+  private static final Instant TIME = Instant.parse("2025-01-24T09:00:00.00Z");
+
+  @Test
+  public void testEvents() throws Exception {
+    final AuditStore store1 = mock(AuditStore.class);
+    when(store1.find(any())).thenReturn(List.of(
+        createEntry(TIME, "id1"), createEntry(TIME.plusSeconds(2), "id3")));
+    final AuditStore store2 = mock(AuditStore.class);
+    when(store2.find(any())).thenReturn(List.of(createEntry(TIME.plusSeconds(1), "id2")));
+
+    final AuditStoreEndpoint endpoint = new AuditStoreEndpoint(() -> List.of(store1, store2));
+
+    final List<Map<String, Object>> events =
+        endpoint.events("req-1", null, null, "2025-01-24T08:00:00Z", null, null);
+    Assertions.assertEquals(3, events.size());
+    Assertions.assertEquals("id1", events.get(0).get("id"));
+    Assertions.assertEquals("id2", events.get(1).get("id"));
+    Assertions.assertEquals(Map.of("request-id", "req-1"), events.get(2).get("parameters"));
+
+    final ArgumentCaptor<AuditStoreQuery> captor = ArgumentCaptor.forClass(AuditStoreQuery.class);
+    Mockito.verify(store1).find(captor.capture());
+    Assertions.assertEquals("req-1", captor.getValue().getRequestId());
+    Assertions.assertEquals(Instant.parse("2025-01-24T08:00:00Z"), captor.getValue().getFrom());
+    Assertions.assertNull(captor.getValue().getTo());
+
+    // The limit applies to the merged result
+    final List<Map<String, Object>> limited = endpoint.events(null, null, null, null, null, 2);
+    Assertions.assertEquals(2, limited.size());
+    Assertions.assertEquals("id2", limited.get(0).get("id"));
+  }
+
+  @Test
+  public void testNoStores() {
+    final AuditStoreEndpoint endpoint = new AuditStoreEndpoint(List::of);
+    Assertions.assertTrue(endpoint.events("req-1", null, null, null, null, null).isEmpty());
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    final AuditStoreEndpoint endpoint = new AuditStoreEndpoint(List::of);
+    assertThatThrownBy(() -> endpoint.events(null, null, null, "yesterday", null, null))
+        .isInstanceOf(InvalidEndpointRequestException.class);
+    assertThatThrownBy(() -> endpoint.events(null, null, null, null, null, 0))
+        .isInstanceOf(InvalidEndpointRequestException.class);
+  }
+
+  private static AuditStoreEntry createEntry(final Instant timestamp, final String id) {
+    return new AuditStoreEntry(timestamp, String.format(
+        "{\"timestamp\":\"%s\",\"principal\":\"client\",\"id\":\"%s\",\"parameters\":{\"request-id\":\"req-1\"}}",
+        timestamp, id));
+  }
+
+}
@@ -23,6 +23,7 @@ import se.swedenconnect.signservice.audit.AuditEventParameter;
 import se.swedenconnect.signservice.audit.AuditLogger;
 import se.swedenconnect.signservice.audit.base.events.AuditEventFactory;
 import se.swedenconnect.signservice.audit.base.events.DefaultAuditEventFactory;
+import se.swedenconnect.signservice.audit.base.format.AuditEventFormatter;
 import se.swedenconnect.signservice.core.AbstractSignServiceHandler;
 
 /**
@@ -36,6 +37,18 @@ public abstract class AbstractAuditLogger extends AbstractSignServiceHandler imp
   /** The default principal name to assign to events. */
   private String defaultPrincipal;
 
+  /** The formatter to use when formatting events (null means that {@link AuditEvent#toString()} is used). */
+  private AuditEventFormatter formatter;
+
+  /** The event filter (null means that all events are logged). */
+  private AuditEventFilter eventFilter;
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isEnabled(@Nonnull final String eventId) {
+    return this.eventFilter == null || this.eventFilter.isEnabled(eventId);
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
@@ -85,14 +98,37 @@ public abstract class AbstractAuditLogger extends AbstractSignServiceHandler imp
   }
 
   /**
-   * Formats the supplied audit event. The default implementation invokes {@link AuditEvent#toString()}.
+   * Formats the supplied audit event. If a formatter has been assigned (see
+   * {@link #setFormatter(AuditEventFormatter)}), it is used, otherwise {@link AuditEvent#toString()} is invoked.
    *
    * @param event the event to be formatted
    * @return the string representation of the audit event
    */
   @Nonnull
   protected String formatAuditEvent(@Nonnull final AuditEvent event) {
-    return event.toString();
+    return this.formatter != null ? this.formatter.format(event) : event.toString();
+  }
+
+  /**
+   * Assigns the filter deciding which events to log. If not assigned, all events are logged.
+   * <p>
+   * Note that implementations of {@link #auditLog(AuditEvent)} should check {@link #isEnabled(String)} so that
+   * filtered events are not logged even if they are passed directly to the logger.
+   * </p>
+   *
+   * @param eventFilter the event filter
+   */
+  public void setEventFilter(@Nullable final AuditEventFilter eventFilter) {
+    this.eventFilter = eventFilter;
+  }
+
+  /**
+   * Assigns the formatter to use when formatting audit events. If not assigned, {@link AuditEvent#toString()} is used.
+   *
+   * @param formatter the formatter
+   */
+  public void setFormatter(@Nullable final AuditEventFormatter formatter) {
+    this.formatter = formatter;
   }
 
   /**
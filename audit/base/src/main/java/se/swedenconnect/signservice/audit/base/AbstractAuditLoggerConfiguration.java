@@ -15,6 +15,7 @@
  */
 package se.swedenconnect.signservice.audit.base;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.apache.commons.lang3.StringUtils;
@@ -43,6 +44,18 @@ public abstract class AbstractAuditLoggerConfiguration extends AbstractHandlerCo
    */
   private String principal;
 
+  /**
+   * Patterns for the event IDs that should be logged. A pattern is an event ID, or a prefix ending with {@code *}. If
+   * not assigned, all events (that are not excluded) are logged.
+   */
+  private List<String> includedEvents;
+
+  /**
+   * Patterns for the event IDs that should not be logged. A pattern is an event ID, or a prefix ending with
+   * {@code *}.
+   */
+  private List<String> excludedEvents;
+
   /**
    * If the default ({@link DefaultAuditEventFactory}) has been overridden (see {@link #setEventFactory(Class)}), this
    * method returns this class, otherwise it returns {@code null}.
@@ -90,4 +103,46 @@ public abstract class AbstractAuditLoggerConfiguration extends AbstractHandlerCo
         .orElseThrow(() -> new NullPointerException("principal must not be null or empty"));
   }
 
+  /**
+   * Gets the patterns for the event IDs that should be logged. A pattern is an event ID, or a prefix ending with
+   * {@code *}.
+   *
+   * @return the include patterns, or null if all events (that are not excluded) should be logged
+   */
+  @Nullable
+  public List<String> getIncludedEvents() {
+    return this.includedEvents;
+  }
+
+  /**
+   * Assigns the patterns for the event IDs that should be logged. A pattern is an event ID, or a prefix ending with
+   * {@code *}. If not assigned, all events (that are not excluded) are logged.
+   *
+   * @param includedEvents the include patterns
+   */
+  public void setIncludedEvents(@Nullable final List<String> includedEvents) {
+    this.includedEvents = includedEvents;
+  }
+
+  /**
+   * Gets the patterns for the event IDs that should not be logged. A pattern is an event ID, or a prefix ending with
+   * {@code *}.
+   *
+   * @return the exclude patterns, or null
+   */
+  @Nullable
+  public List<String> getExcludedEvents() {
+    return this.excludedEvents;
+  }
+
+  /**
+   * Assigns the patterns for the event IDs that should not be logged. A pattern is an event ID, or a prefix ending
+   * with {@code *}.
+   *
+   * @param excludedEvents the exclude patterns
+   */
+  public void setExcludedEvents(@Nullable final List<String> excludedEvents) {
+    this.excludedEvents = excludedEvents;
+  }
+
 }
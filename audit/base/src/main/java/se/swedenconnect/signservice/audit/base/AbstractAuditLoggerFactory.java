@@ -67,6 +67,9 @@ public abstract class AbstractAuditLoggerFactory extends AbstractHandlerFactory<
       if (conf.getPrincipal() != null) {
         logger.setDefaultPrincipal(conf.getPrincipal());
       }
+      if (conf.getIncludedEvents() != null || conf.getExcludedEvents() != null) {
+        logger.setEventFilter(new AuditEventFilter(conf.getIncludedEvents(), conf.getExcludedEvents()));
+      }
       if (conf.getEventFactory() != null) {
         try {
           final Class<? extends AuditEventFactory> eventClass = conf.getEventFactory();
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A filter deciding which audit events that should be logged based on their event ID.
+ * <p>
+ * The filter is configured with include and exclude patterns. A pattern is either an event ID, or a prefix ending
+ * with {@code *} (for example {@code audit.engine.*}). If include patterns are given, an event ID must match at least
+ * one of them to be logged. An event ID matching any of the exclude patterns is never logged.
+ * </p>
+ * <p>
+ * The decision for each event ID is cached, so checking an event ID that has been checked before is a single map
+ * lookup.
+ * </p>
+ */
+public class AuditEventFilter {
+
+  /** The maximum number of cached decisions. */
+  private static final int MAX_CACHED_DECISIONS = 1024;
+
+  /** The include patterns. */
+  private final List<String> includes;
+
+  /** The exclude patterns. */
+  private final List<String> excludes;
+
+  /** Cached decisions, indexed by event ID. */
+  private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param includes the include patterns (null or empty means that all events are included)
+   * @param excludes the exclude patterns (may be null)
+   */
+  public AuditEventFilter(@Nullable final List<String> includes, @Nullable final List<String> excludes) {
+    this.includes = normalize(includes);
+    this.excludes = normalize(excludes);
+  }
+
+  /**
+   * Tells whether events with the given event ID should be logged.
+   *
+   * @param eventId the event ID
+   * @return true if the event should be logged and false otherwise
+   */
+  public boolean isEnabled(@Nonnull final String eventId) {
+    final Boolean decision = this.decisions.get(eventId);
+    if (decision != null) {
+      return decision;
+    }
+    final boolean enabled = (this.includes.isEmpty() || matches(this.includes, eventId))
+        && !matches(this.excludes, eventId);
+    if (this.decisions.size() < MAX_CACHED_DECISIONS) {
+      this.decisions.put(eventId, enabled);
+    }
+    return enabled;
+  }
+
+  /**
+   * Tells whether the event ID matches any of the supplied patterns.
+   *
+   * @param patterns the patterns
+   * @param eventId the event ID
+   * @return true if there is a match, and false otherwise
+   */
+  private static boolean matches(@Nonnull final List<String> patterns, @Nonnull final String eventId) {
+    for (final String pattern : patterns) {
+      if (pattern.endsWith("*")
+          ? eventId.startsWith(pattern.substring(0, pattern.length() - 1))
+          : pattern.equals(eventId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes blank patterns and surrounding whitespace.
+   *
+   * @param patterns the patterns
+   * @return a (possibly empty) list of patterns
+   */
+  @Nonnull
+  private static List<String> normalize(@Nullable final List<String> patterns) {
+    return Optional.ofNullable(patterns)
+        .map(p -> p.stream()
+            .filter(s -> s != null && !s.isBlank())
+            .map(String::trim)
+            .collect(Collectors.toList()))
+        .orElseGet(Collections::emptyList);
+  }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.events;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.AuditEvent;
+
+/**
+ * An {@link AuditEventFactory} that creates {@link IndexedAuditEvent} objects.
+ */
+public class IndexedAuditEventFactory implements AuditEventFactory {
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public AuditEvent createAuditEvent(@Nonnull final String eventId) {
+    return new IndexedAuditEvent(eventId);
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.format;
+
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditEvent;
+
+/**
+ * Enumeration of the audit event formats that may be configured for audit loggers writing to files or log systems.
+ */
+public enum AuditEventFormat {
+
+  /** The default format given by the event's {@code toString} method. */
+  DEFAULT,
+
+  /** JSON Lines format, see {@link JsonLinesAuditEventFormatter}. */
+  JSON_LINES;
+
+  /**
+   * Creates a formatter for the format.
+   *
+   * @return a formatter, or null if the event's {@link AuditEvent#toString()} method should be used
+   */
+  @Nullable
+  public AuditEventFormatter createFormatter() {
+    return this == JSON_LINES ? new JsonLinesAuditEventFormatter() : null;
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.format;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.AuditEvent;
+
+/**
+ * Interface for formatting audit events into log entries.
+ */
+public interface AuditEventFormatter {
+
+  /**
+   * Appends the formatted audit event to the supplied buffer.
+   *
+   * @param event the event to format
+   * @param buffer the buffer to write to
+   */
+  void formatTo(@Nonnull final AuditEvent event, @Nonnull final StringBuilder buffer);
+
+  /**
+   * Formats the supplied audit event.
+   *
+   * @param event the event to format
+   * @return the formatted event
+   */
+  @Nonnull
+  default String format(@Nonnull final AuditEvent event) {
+    final StringBuilder buffer = new StringBuilder();
+    this.formatTo(event, buffer);
+    return buffer.toString();
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.format;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditEventParameter;
+
+/**
+ * An {@link AuditEventFormatter} that formats audit events as JSON objects, one per line (JSON Lines). Example:
+ *
+ * <pre>
+ * {"timestamp":"2025-01-24T09:12:45.123Z","principal":"client","id":"audit.engine.user.authenticated",
+ *   "parameters":{"sign-request-id":"abc123","authn-server-id":"https://idp.example.com"}}
+ * </pre>
+ * <p>
+ * (the above is written on one line). The event is written directly into the supplied buffer without building any
+ * intermediate strings. When {@link #format(AuditEvent)} is used, a per-thread buffer is re-used between calls, so the
+ * only allocation made for an event is the resulting string.
+ * </p>
+ * <p>
+ * Instances of this class are thread safe.
+ * </p>
+ */
+public class JsonLinesAuditEventFormatter implements AuditEventFormatter {
+
+  /** Buffers larger than this are not kept between calls. */
+  private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+  /** Initial size of the per-thread buffers. */
+  private static final int INITIAL_CAPACITY = 512;
+
+  /** Hex digits for escaping control characters. */
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** Per-thread buffers used by {@link #format(AuditEvent)}. */
+  private static final ThreadLocal<StringBuilder> buffers =
+      ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+  /** {@inheritDoc} */
+  @Override
+  public void formatTo(@Nonnull final AuditEvent event, @Nonnull final StringBuilder buffer) {
+    buffer.append("{\"timestamp\":\"");
+    DateTimeFormatter.ISO_INSTANT.formatTo(event.getTimestamp(), buffer);
+    buffer.append("\",\"principal\":");
+    appendString(event.getPrincipal(), buffer);
+    buffer.append(",\"id\":");
+    appendString(event.getId(), buffer);
+    buffer.append(",\"parameters\":{");
+    final List<AuditEventParameter> parameters = event.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      final AuditEventParameter parameter = parameters.get(i);
+      if (i > 0) {
+        buffer.append(',');
+      }
+      appendString(parameter.getName(), buffer);
+      buffer.append(':');
+      appendString(parameter.getValue(), buffer);
+    }
+    buffer.append("}}");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String format(@Nonnull final AuditEvent event) {
+    final StringBuilder buffer = buffers.get();
+    buffer.setLength(0);
+    this.formatTo(event, buffer);
+    final String result = buffer.toString();
+    if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+      buffers.remove();
+    }
+    return result;
+  }
+
+  /**
+   * Appends a JSON string (or {@code null}) to the buffer.
+   *
+   * @param value the string value
+   * @param buffer the buffer
+   */
+  private static void appendString(@Nullable final String value, @Nonnull final StringBuilder buffer) {
+    if (value == null) {
+      buffer.append("null");
+      return;
+    }
+    buffer.append('"');
+    int start = 0;
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      buffer.append(value, start, i);
+      switch (c) {
+      case '"':
+        buffer.append("\\\"");
+        break;
+      case '\\':
+        buffer.append("\\\\");
+        break;
+      case '\n':
+        buffer.append("\\n");
+        break;
+      case '\r':
+        buffer.append("\\r");
+        break;
+      case '\t':
+        buffer.append("\\t");
+        break;
+      default:
+        buffer.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+        break;
+      }
+      start = i + 1;
+    }
+    buffer.append(value, start, length).append('"');
+  }
+
+}
@@ -52,6 +52,9 @@ public class CallbackAuditLogger extends AbstractAuditLogger {
     if (event == null) {
       throw new AuditLoggerException("event must not be null");
     }
+    if (!this.isEnabled(event.getId())) {
+      return;
+    }
     try {
       log.debug("Audit logger '{}' publishing audit event '{}'", this.getName(), event.getId());
       this.listener.onAuditEvent(event);
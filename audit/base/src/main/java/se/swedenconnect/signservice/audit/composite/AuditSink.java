@@ -0,0 +1,279 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.composite.AuditSinkConfiguration.OverflowPolicy;
+import se.swedenconnect.signservice.audit.file.FileAuditLogger;
+
+/**
+ * A sink of a {@link CompositeAuditLogger}. Events are put on a bounded queue by the calling threads, and a dedicated
+ * thread drains the queue and passes the events to the underlying audit logger. This means that a slow audit logger
+ * does not hold up the calling thread, or the other sinks of the composite logger.
+ */
+public class AuditSink {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AuditSink.class);
+
+  /** How long the sink thread waits for new events before checking if the sink has been closed. */
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  /** Max time to wait for the sink thread to finish when closing. */
+  private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+  /** The underlying audit logger. */
+  private final AuditLogger logger;
+
+  /** The sink configuration. */
+  private final AuditSinkConfiguration configuration;
+
+  /** The queue of events waiting to be logged. */
+  private final BlockingQueue<AuditEvent> queue;
+
+  /** The sink thread. */
+  private final Thread sinkThread;
+
+  /** Number of events that were logged by the underlying logger. */
+  private final AtomicLong loggedCount = new AtomicLong(0);
+
+  /** Number of events that were dropped to make room for newer events. */
+  private final AtomicLong droppedCount = new AtomicLong(0);
+
+  /** Number of events that were rejected since the queue was full. */
+  private final AtomicLong rejectedCount = new AtomicLong(0);
+
+  /** Number of events for which the underlying logger reported an error. */
+  private final AtomicLong errorCount = new AtomicLong(0);
+
+  /** Whether the sink has been closed. */
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor setting up the sink and starting the sink thread.
+   *
+   * @param logger the underlying audit logger
+   * @param configuration the sink configuration (if null, the defaults of {@link AuditSinkConfiguration} are used)
+   */
+  public AuditSink(@Nonnull final AuditLogger logger, @Nullable final AuditSinkConfiguration configuration) {
+    this.logger = Objects.requireNonNull(logger, "logger must not be null");
+    this.configuration = Optional.ofNullable(configuration).orElseGet(AuditSinkConfiguration::new);
+    this.queue = new ArrayBlockingQueue<>(this.configuration.getQueueCapacity());
+
+    this.sinkThread = new Thread(this::run, "signservice-audit-sink-" + this.getName());
+    this.sinkThread.setDaemon(true);
+    this.sinkThread.start();
+  }
+
+  /**
+   * Gets the name of the sink, which is the name of the underlying audit logger.
+   *
+   * @return the sink name
+   */
+  @Nonnull
+  public String getName() {
+    return this.logger.getName();
+  }
+
+  /**
+   * Tells whether the underlying audit logger logs events having the supplied ID.
+   *
+   * @param eventId the event ID
+   * @return true if the event should be passed to the sink and false otherwise
+   */
+  public boolean isEnabled(@Nonnull final String eventId) {
+    return this.logger.isEnabled(eventId);
+  }
+
+  /**
+   * Puts an event on the queue. How a full queue is handled is determined by the configured overflow policy.
+   *
+   * @param event the event to log
+   * @throws AuditLoggerException if the sink is closed, or if the event could not be queued and the overflow policy
+   *           says that this is an error
+   */
+  public void submit(@Nonnull final AuditEvent event) throws AuditLoggerException {
+    if (this.closed) {
+      throw new AuditLoggerException("Audit sink " + this.getName() + " has been closed");
+    }
+    switch (this.configuration.getOverflowPolicy()) {
+    case DROP_OLDEST:
+      while (!this.queue.offer(event)) {
+        if (this.queue.poll() != null) {
+          final long dropped = this.droppedCount.incrementAndGet();
+          if (dropped == 1 || dropped % 1000 == 0) {
+            log.warn("Audit event queue for sink {} is full - dropping oldest events (total dropped: {})",
+                this.getName(), dropped);
+          }
+        }
+      }
+      break;
+    case FAIL:
+      if (!this.queue.offer(event)) {
+        this.rejectedCount.incrementAndGet();
+        throw new AuditLoggerException("Audit event queue for sink " + this.getName() + " is full");
+      }
+      break;
+    case BLOCK:
+    default:
+      try {
+        if (!this.queue.offer(event, this.configuration.getMaxBlockTime().toMillis(), TimeUnit.MILLISECONDS)) {
+          this.rejectedCount.incrementAndGet();
+          throw new AuditLoggerException(String.format(
+              "Audit event queue for sink %s is full - no space available within %s",
+              this.getName(), this.configuration.getMaxBlockTime()));
+        }
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.rejectedCount.incrementAndGet();
+        throw new AuditLoggerException("Interrupted while waiting for space in audit event queue", e);
+      }
+      break;
+    }
+  }
+
+  /**
+   * Closes the sink. All queued events are passed to the underlying audit logger before the sink is closed. If the
+   * underlying logger is {@link AutoCloseable} (for example a {@link FileAuditLogger}), it is also closed.
+   */
+  public void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.sinkThread.join(CLOSE_TIMEOUT_MILLIS);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (this.sinkThread.isAlive()) {
+      log.warn("Audit sink {} did not finish within {} ms - {} events may be lost",
+          this.getName(), CLOSE_TIMEOUT_MILLIS, this.queue.size());
+      return;
+    }
+    // Events may have been added after the sink thread made its last check ...
+    AuditEvent event;
+    while ((event = this.queue.poll()) != null) {
+      this.log(event);
+    }
+    if (AutoCloseable.class.isInstance(this.logger)) {
+      try {
+        AutoCloseable.class.cast(this.logger).close();
+      }
+      catch (final Exception e) {
+        log.warn("Failed to close audit logger of sink {} - {}", this.getName(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Gets the number of events currently waiting to be logged.
+   *
+   * @return the queue depth
+   */
+  public int getQueueDepth() {
+    return this.queue.size();
+  }
+
+  /**
+   * Gets the number of events that have been logged by the underlying audit logger.
+   *
+   * @return the number of logged events
+   */
+  public long getLoggedCount() {
+    return this.loggedCount.get();
+  }
+
+  /**
+   * Gets the number of events that were dropped to make room for newer events ({@link OverflowPolicy#DROP_OLDEST}).
+   *
+   * @return the number of dropped events
+   */
+  public long getDroppedCount() {
+    return this.droppedCount.get();
+  }
+
+  /**
+   * Gets the number of events that were rejected since the queue was full ({@link OverflowPolicy#BLOCK} and
+   * {@link OverflowPolicy#FAIL}).
+   *
+   * @return the number of rejected events
+   */
+  public long getRejectedCount() {
+    return this.rejectedCount.get();
+  }
+
+  /**
+   * Gets the number of events for which the underlying audit logger reported an error.
+   *
+   * @return the number of failed events
+   */
+  public long getErrorCount() {
+    return this.errorCount.get();
+  }
+
+  /**
+   * The sink thread loop.
+   */
+  private void run() {
+    while (true) {
+      AuditEvent event = null;
+      try {
+        event = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      catch (final InterruptedException e) {
+        // Continue until closed ...
+      }
+      if (event == null) {
+        if (this.closed) {
+          break;
+        }
+        continue;
+      }
+      this.log(event);
+    }
+  }
+
+  /**
+   * Passes the event to the underlying audit logger.
+   *
+   * @param event the event to log
+   */
+  private void log(@Nonnull final AuditEvent event) {
+    try {
+      this.logger.auditLog(event);
+      this.loggedCount.incrementAndGet();
+    }
+    catch (final RuntimeException e) {
+      this.errorCount.incrementAndGet();
+      log.error("Audit sink {} failed to log event {} - {}", this.getName(), event.getId(), e.getMessage(), e);
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.core.config.HandlerConfiguration;
+
+/**
+ * Configuration for one sink of a {@link CompositeAuditLogger}, i.e., the configuration of the underlying audit logger
+ * and how events are queued for it.
+ */
+public class AuditSinkConfiguration {
+
+  /** Default capacity of the event queue. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  /** Default maximum time to wait for space in the queue (for {@link OverflowPolicy#BLOCK}). */
+  public static final Duration DEFAULT_MAX_BLOCK_TIME = Duration.ofSeconds(5);
+
+  /**
+   * Policies for how to handle audit events when the queue of a sink is full.
+   */
+  public enum OverflowPolicy {
+
+    /**
+     * The calling thread waits at most {@code max-block-time} for space in the queue. If no space is available after
+     * this time, the audit logger reports an error.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued event is dropped (and counted) to make room for the new event.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The audit logger reports an error directly, meaning that the operation that is being audited fails.
+     */
+    FAIL
+  }
+
+  /**
+   * The configuration for the audit logger of this sink. Mutually exclusive with {@code config-ref}.
+   */
+  private HandlerConfiguration<AuditLogger> configuration;
+
+  /**
+   * A reference to an audit logger configuration, for example "file" or "actuator", that is resolved against the audit
+   * logger configurations given on the same level as the composite configuration. Mutually exclusive with
+   * {@code configuration}.
+   */
+  private String configRef;
+
+  /** The capacity of the event queue. */
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+  /** The overflow policy. */
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+  /** The maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used. */
+  private Duration maxBlockTime = DEFAULT_MAX_BLOCK_TIME;
+
+  /**
+   * Gets the configuration for the audit logger of this sink.
+   *
+   * @return the audit logger configuration, or null if not assigned (or not yet resolved)
+   */
+  @Nullable
+  public HandlerConfiguration<AuditLogger> getConfiguration() {
+    return this.configuration;
+  }
+
+  /**
+   * Assigns the configuration for the audit logger of this sink. Mutually exclusive with {@code config-ref}.
+   *
+   * @param configuration the audit logger configuration
+   */
+  public void setConfiguration(@Nullable final HandlerConfiguration<AuditLogger> configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Gets the reference to the audit logger configuration to use for this sink.
+   *
+   * @return the configuration reference, or null
+   */
+  @Nullable
+  public String getConfigRef() {
+    return this.configRef;
+  }
+
+  /**
+   * Assigns a reference to an audit logger configuration, for example "file" or "actuator", that is resolved against
+   * the audit logger configurations given on the same level as the composite configuration. Mutually exclusive with
+   * {@code configuration}.
+   *
+   * @param configRef the configuration reference
+   */
+  public void setConfigRef(@Nullable final String configRef) {
+    this.configRef = configRef;
+  }
+
+  /**
+   * Gets the capacity of the event queue.
+   *
+   * @return the queue capacity
+   */
+  public int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  /**
+   * Assigns the capacity of the event queue. The default is {@link #DEFAULT_QUEUE_CAPACITY}.
+   *
+   * @param queueCapacity the queue capacity
+   */
+  public void setQueueCapacity(final int queueCapacity) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be greater than 0");
+    }
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Gets the overflow policy.
+   *
+   * @return the overflow policy
+   */
+  @Nonnull
+  public OverflowPolicy getOverflowPolicy() {
+    return this.overflowPolicy;
+  }
+
+  /**
+   * Assigns the overflow policy. The default is {@link OverflowPolicy#BLOCK}.
+   *
+   * @param overflowPolicy the overflow policy
+   */
+  public void setOverflowPolicy(@Nonnull final OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+  }
+
+  /**
+   * Gets the maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used.
+   *
+   * @return the max block time
+   */
+  @Nonnull
+  public Duration getMaxBlockTime() {
+    return this.maxBlockTime;
+  }
+
+  /**
+   * Assigns the maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used. The default is
+   * {@link #DEFAULT_MAX_BLOCK_TIME}.
+   *
+   * @param maxBlockTime the max block time
+   */
+  public void setMaxBlockTime(@Nonnull final Duration maxBlockTime) {
+    this.maxBlockTime = Objects.requireNonNull(maxBlockTime, "maxBlockTime must not be null");
+  }
+
+}
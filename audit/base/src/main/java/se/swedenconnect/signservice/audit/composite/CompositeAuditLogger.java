@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
+
+/**
+ * An audit logger that fans out audit events to several audit loggers, for example a file logger, a log system logger
+ * and an actuator logger. Each underlying logger is wrapped in an {@link AuditSink} having its own bounded queue and
+ * thread, so that a slow logger does not stall the thread performing the audited operation or the other loggers.
+ * <p>
+ * Events are created by the composite logger, and the same event object is passed to all sinks. This means that the
+ * event factories and default principals of the underlying loggers are not used. However, the event filters of the
+ * underlying loggers are applied (on the calling thread) before an event is put on the queue of a sink.
+ * </p>
+ * <p>
+ * Since the sinks read the event on their own threads, an event must be treated as immutable once it has been passed
+ * to {@link #auditLog(AuditEvent)}. The caller must not change it after the call, and the underlying loggers must only
+ * read it. The audit loggers of this library never modify the events that they log.
+ * </p>
+ */
+public class CompositeAuditLogger extends AbstractAuditLogger implements AutoCloseable {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CompositeAuditLogger.class);
+
+  /** The sinks. */
+  private final List<AuditSink> sinks;
+
+  /**
+   * Constructor.
+   *
+   * @param sinks the sinks to fan out events to
+   */
+  public CompositeAuditLogger(@Nonnull final List<AuditSink> sinks) {
+    Objects.requireNonNull(sinks, "sinks must not be null");
+    if (sinks.isEmpty()) {
+      throw new IllegalArgumentException("At least one sink must be supplied");
+    }
+    this.sinks = Collections.unmodifiableList(new ArrayList<>(sinks));
+  }
+
+  /**
+   * Tells whether the event is logged by this logger, i.e., if it passes the filter of the composite logger and is
+   * enabled for at least one of the sinks.
+   */
+  @Override
+  public boolean isEnabled(@Nonnull final String eventId) {
+    if (!super.isEnabled(eventId)) {
+      return false;
+    }
+    for (final AuditSink sink : this.sinks) {
+      if (sink.isEnabled(eventId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Puts the event on the queues of all sinks for which the event is enabled. If a sink rejects the event (see
+   * {@link AuditSinkConfiguration.OverflowPolicy}), the event is still passed to the remaining sinks before an
+   * {@link AuditLoggerException} is thrown.
+   * <p>
+   * The event is shared by the sinks and must not be modified after this call.
+   * </p>
+   */
+  @Override
+  public void auditLog(@Nonnull final AuditEvent event) throws AuditLoggerException {
+    if (event == null) {
+      throw new AuditLoggerException("event must not be null");
+    }
+    if (!super.isEnabled(event.getId())) {
+      return;
+    }
+    log.debug("Audit logger '{}' publishing audit event '{}'", this.getName(), event.getId());
+
+    AuditLoggerException error = null;
+    for (final AuditSink sink : this.sinks) {
+      if (!sink.isEnabled(event.getId())) {
+        continue;
+      }
+      try {
+        sink.submit(event);
+      }
+      catch (final AuditLoggerException e) {
+        log.error("Audit logger '{}' failed to publish audit event '{}' to sink '{}' - {}",
+            this.getName(), event.getId(), sink.getName(), e.getMessage());
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Gets the sinks of this logger. The sinks expose metrics such as queue depth and the number of dropped events.
+   *
+   * @return an unmodifiable list of the sinks
+   */
+  @Nonnull
+  public List<AuditSink> getSinks() {
+    return this.sinks;
+  }
+
+  /**
+   * Closes all sinks. Queued events are logged before the sinks are closed, and underlying loggers that are
+   * {@link AutoCloseable} (for example file and store loggers) are closed. The method is annotated with
+   * {@code PreDestroy} meaning that the method will be automatically be invoked by frameworks supporting this
+   * annotation.
+   */
+  @Override
+  @PreDestroy
+  public void close() {
+    this.sinks.forEach(AuditSink::close);
+  }
+
+}
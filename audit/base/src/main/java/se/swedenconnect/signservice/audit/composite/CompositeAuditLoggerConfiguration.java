@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.core.config.HandlerConfiguration;
+
+/**
+ * Configuration class for configuring a {@link CompositeAuditLogger}.
+ */
+public class CompositeAuditLoggerConfiguration extends AbstractAuditLoggerConfiguration {
+
+  /**
+   * The sinks, i.e., the audit loggers that events are fanned out to.
+   */
+  private List<AuditSinkConfiguration> sinks;
+
+  /**
+   * Gets the sink configurations.
+   *
+   * @return the sink configurations
+   */
+  @Nullable
+  public List<AuditSinkConfiguration> getSinks() {
+    return this.sinks;
+  }
+
+  /**
+   * Assigns the sink configurations.
+   *
+   * @param sinks the sink configurations
+   */
+  public void setSinks(@Nonnull final List<AuditSinkConfiguration> sinks) {
+    this.sinks = sinks;
+  }
+
+  /**
+   * Tells whether any of the sink configurations holds a configuration reference that has not been resolved.
+   *
+   * @return true if {@link #resolveSinkConfigRefs(Function)} should be invoked and false otherwise
+   */
+  public boolean needsSinkConfigResolving() {
+    return this.sinks != null
+        && this.sinks.stream().anyMatch(s -> s.getConfiguration() == null && s.getConfigRef() != null);
+  }
+
+  /**
+   * Resolves the configuration references of the sinks (see {@link AuditSinkConfiguration#getConfigRef()}).
+   *
+   * @param resolver the resolver function
+   * @throws IllegalArgumentException if a reference can not be resolved, or if a sink has both a configuration and
+   *           a configuration reference
+   */
+  public void resolveSinkConfigRefs(@Nonnull final Function<String, HandlerConfiguration<AuditLogger>> resolver)
+      throws IllegalArgumentException {
+    Objects.requireNonNull(resolver, "resolver must not be null");
+    if (this.sinks == null) {
+      return;
+    }
+    for (final AuditSinkConfiguration sink : this.sinks) {
+      if (sink.getConfigRef() == null) {
+        continue;
+      }
+      if (sink.getConfiguration() != null) {
+        throw new IllegalArgumentException("Sink has both configuration and config-ref assigned");
+      }
+      final HandlerConfiguration<AuditLogger> conf = resolver.apply(sink.getConfigRef());
+      if (conf == null) {
+        throw new IllegalArgumentException("Sink configuration reference '" + sink.getConfigRef()
+            + "' could not be resolved");
+      }
+      sink.setConfiguration(conf);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  protected String getDefaultFactoryClass() {
+    return CompositeAuditLoggerFactory.class.getName();
+  }
+
+}
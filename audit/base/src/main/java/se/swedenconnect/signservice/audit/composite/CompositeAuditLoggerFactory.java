@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerFactory;
+import se.swedenconnect.signservice.core.config.BeanLoader;
+import se.swedenconnect.signservice.core.config.HandlerConfiguration;
+import se.swedenconnect.signservice.core.config.HandlerFactory;
+import se.swedenconnect.signservice.core.config.HandlerFactoryRegistry;
+
+/**
+ * A handler factory for creating {@link CompositeAuditLogger} instances. The audit loggers of the sinks are created
+ * using the factories given by their respective configurations.
+ */
+public class CompositeAuditLoggerFactory extends AbstractAuditLoggerFactory {
+
+  /** The registry used to find the factories for the sink loggers. */
+  private HandlerFactoryRegistry handlerFactoryRegistry = new HandlerFactoryRegistry();
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  protected AbstractAuditLogger createAuditLogger(
+      @Nullable final HandlerConfiguration<AuditLogger> configuration, @Nullable final BeanLoader beanLoader)
+      throws IllegalArgumentException {
+
+    if (configuration == null) {
+      throw new IllegalArgumentException("Missing configuration for " + CompositeAuditLogger.class.getSimpleName());
+    }
+    if (!CompositeAuditLoggerConfiguration.class.isInstance(configuration)) {
+      throw new IllegalArgumentException(
+          "Unknown configuration object supplied - " + configuration.getClass().getSimpleName());
+    }
+    final CompositeAuditLoggerConfiguration conf = CompositeAuditLoggerConfiguration.class.cast(configuration);
+    if (conf.getSinks() == null || conf.getSinks().isEmpty()) {
+      throw new IllegalArgumentException("No sinks assigned for " + CompositeAuditLogger.class.getSimpleName());
+    }
+    if (conf.needsSinkConfigResolving()) {
+      throw new IllegalArgumentException("Sink configuration references have not been resolved");
+    }
+
+    final List<AuditSink> sinks = new ArrayList<>();
+    try {
+      for (final AuditSinkConfiguration sinkConf : conf.getSinks()) {
+        sinks.add(new AuditSink(this.createSinkLogger(sinkConf, conf, beanLoader), sinkConf));
+      }
+    }
+    catch (final RuntimeException e) {
+      sinks.forEach(AuditSink::close);
+      throw e;
+    }
+    return new CompositeAuditLogger(sinks);
+  }
+
+  /**
+   * Creates the audit logger for a sink.
+   *
+   * @param sinkConfiguration the sink configuration
+   * @param configuration the composite configuration
+   * @param beanLoader the bean loader (may be null)
+   * @return an audit logger
+   * @throws IllegalArgumentException for configuration errors
+   */
+  @Nonnull
+  private AuditLogger createSinkLogger(@Nonnull final AuditSinkConfiguration sinkConfiguration,
+      @Nonnull final CompositeAuditLoggerConfiguration configuration, @Nullable final BeanLoader beanLoader)
+      throws IllegalArgumentException {
+
+    HandlerConfiguration<AuditLogger> loggerConf = sinkConfiguration.getConfiguration();
+    if (loggerConf == null) {
+      throw new IllegalArgumentException("Missing audit logger configuration for sink");
+    }
+    if (CompositeAuditLoggerConfiguration.class.isInstance(loggerConf)) {
+      throw new IllegalArgumentException("A sink can not be a " + CompositeAuditLogger.class.getSimpleName());
+    }
+    try {
+      loggerConf.init();
+      if (AbstractAuditLoggerConfiguration.class.isInstance(loggerConf) && configuration.getPrincipal() != null
+          && AbstractAuditLoggerConfiguration.class.cast(loggerConf).getPrincipal() == null) {
+        loggerConf = copyWithPrincipal(
+            AbstractAuditLoggerConfiguration.class.cast(loggerConf), configuration.getPrincipal());
+        loggerConf.init();
+      }
+    }
+    catch (final Exception e) {
+      throw new IllegalArgumentException("Failed to initialize sink configuration - " + e.getMessage(), e);
+    }
+    final HandlerFactory<AuditLogger> factory = this.handlerFactoryRegistry.getFactory(loggerConf.getFactoryClass());
+    return factory.create(loggerConf, beanLoader);
+  }
+
+  /**
+   * The sink configuration may be shared with other audit loggers (for example if it is a reference to the
+   * configuration of another audit logger), so instead of assigning the principal of the composite logger to it, a copy
+   * having the principal is created. The copy gets the settings of the original configuration by using it as its
+   * default configuration.
+   *
+   * @param loggerConf the sink logger configuration
+   * @param principal the principal to assign
+   * @return a copy of the configuration having the given principal
+   * @throws IllegalArgumentException if the configuration can not be copied
+   */
+  @Nonnull
+  private static AbstractAuditLoggerConfiguration copyWithPrincipal(
+      @Nonnull final AbstractAuditLoggerConfiguration loggerConf, @Nonnull final String principal)
+      throws IllegalArgumentException {
+    try {
+      final AbstractAuditLoggerConfiguration copy = loggerConf.getClass().getDeclaredConstructor().newInstance();
+      copy.setPrincipal(principal);
+      copy.setDefaultConfig(loggerConf);
+      return copy;
+    }
+    catch (final ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Failed to copy sink configuration of type "
+          + loggerConf.getClass().getSimpleName() + " - " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Assigns the registry used to find the factories for the audit loggers of the sinks. This should be the same
+   * registry as the one used to find this factory, so that pre-configured factories (for example for actuator audit
+   * logging) are used. If not assigned, a new registry is used.
+   *
+   * @param handlerFactoryRegistry the handler factory registry
+   */
+  public void setHandlerFactoryRegistry(@Nonnull final HandlerFactoryRegistry handlerFactoryRegistry) {
+    this.handlerFactoryRegistry =
+        Objects.requireNonNull(handlerFactoryRegistry, "handlerFactoryRegistry must not be null");
+  }
+
+}
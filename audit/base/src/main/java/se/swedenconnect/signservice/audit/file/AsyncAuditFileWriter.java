@@ -0,0 +1,488 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.file.AsyncFileWriterConfiguration.Durability;
+
+/**
+ * An asynchronous writer for audit log files. Formatted audit entries are put on a bounded queue by the calling
+ * threads, and a single writer thread drains the queue and writes the entries in batches using a {@link FileChannel}.
+ * <p>
+ * The log file is rolled per date, and optionally by size, in the same way as for {@link DateRollingFileHandler}, but
+ * the check is only made once per batch. This means that a file may exceed the configured max size by at most one
+ * batch.
+ * </p>
+ * <p>
+ * If the durability policy is {@link Durability#FSYNC_PER_EVENT} the calling thread waits until its entry has been
+ * forced to the storage device. All entries of a batch are forced together, so concurrent callers share one force
+ * operation.
+ * </p>
+ */
+class AsyncAuditFileWriter {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AsyncAuditFileWriter.class);
+
+  /** How long the writer thread waits for new entries before checking if the file should be forced or closed. */
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  /** Max time to wait for the writer thread to finish when closing. */
+  private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+  /** The log file. */
+  private final Path logFile;
+
+  /** The configuration. */
+  private final AsyncFileWriterConfiguration configuration;
+
+  /** The rotation configuration. */
+  private final FileRotationConfiguration rotation;
+
+  /** Processes rolled files (null if no processing is configured). */
+  private final RolledFileProcessor processor;
+
+  /** The queue of entries waiting to be written. */
+  private final BlockingQueue<QueuedEntry> queue;
+
+  /** The writer thread. */
+  private final Thread writerThread;
+
+  /** Number of entries that were dropped since the queue was full. */
+  private final AtomicLong droppedCount = new AtomicLong(0);
+
+  /** Number of entries that could not be written due to I/O errors. */
+  private final AtomicLong writeErrorCount = new AtomicLong(0);
+
+  /** Number of written entries. */
+  private final AtomicLong writtenCount = new AtomicLong(0);
+
+  /** Whether the writer has been closed. */
+  private volatile boolean closed = false;
+
+  /** The file channel (only accessed by the writer thread, or when closing after the writer thread has finished). */
+  private FileChannel channel;
+
+  /** The last-modified time of the log file. */
+  private Instant lastModified;
+
+  /** The size of the log file (only accessed by the writer thread). */
+  private long size;
+
+  /** Whether there are written entries that have not been forced to the storage device. */
+  private boolean unforced = false;
+
+  /** The time (in nanos) when the file was last forced to the storage device. */
+  private long lastForced = System.nanoTime();
+
+  /**
+   * Constructor setting up the writer and starting the writer thread.
+   *
+   * @param logFile the log file (including the path)
+   * @param configuration the writer configuration
+   * @throws IOException for file errors
+   */
+  AsyncAuditFileWriter(@Nonnull final String logFile, @Nonnull final AsyncFileWriterConfiguration configuration)
+      throws IOException {
+    this(logFile, configuration, null);
+  }
+
+  /**
+   * Constructor setting up the writer with a rotation configuration and starting the writer thread.
+   *
+   * @param logFile the log file (including the path)
+   * @param configuration the writer configuration
+   * @param rotation the rotation configuration (if null, the file is only rotated when the date changes)
+   * @throws IOException for file errors
+   */
+  AsyncAuditFileWriter(@Nonnull final String logFile, @Nonnull final AsyncFileWriterConfiguration configuration,
+      @Nullable final FileRotationConfiguration rotation) throws IOException {
+    this.logFile = Path.of(Objects.requireNonNull(logFile, "logFile must not be null"));
+    this.configuration = Objects.requireNonNull(configuration, "configuration must not be null");
+    this.rotation = Optional.ofNullable(rotation).orElseGet(FileRotationConfiguration::new);
+    this.lastModified = DateRollingFileHandler.prepareLogFile(this.logFile);
+    this.channel = this.openChannel();
+    this.size = this.channel.size();
+    this.processor = this.rotation.isProcessingRequired()
+        ? new RolledFileProcessor(this.logFile, this.rotation)
+        : null;
+    this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+
+    this.writerThread = new Thread(this::run, "signservice-audit-writer-" + this.logFile.getFileName());
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Puts an entry on the queue. How a full queue is handled is determined by the configured overflow policy.
+   *
+   * @param entry the entry to write
+   * @throws AuditLoggerException if the writer is closed, or if the entry could not be queued and the overflow policy
+   *           says that this is an error
+   */
+  void write(@Nonnull final String entry) throws AuditLoggerException {
+    if (this.closed) {
+      throw new AuditLoggerException("Audit writer for " + this.logFile + " has been closed");
+    }
+    final QueuedEntry queuedEntry = new QueuedEntry(entry,
+        this.configuration.getDurability() == Durability.FSYNC_PER_EVENT);
+    if (this.enqueue(queuedEntry) && queuedEntry.forced != null) {
+      this.awaitForced(queuedEntry.forced);
+    }
+  }
+
+  /**
+   * Puts an entry on the queue according to the configured overflow policy.
+   *
+   * @param entry the entry to queue
+   * @return true if the entry was queued and false if it was dropped
+   * @throws AuditLoggerException if the entry could not be queued and the overflow policy says that this is an error
+   */
+  private boolean enqueue(@Nonnull final QueuedEntry entry) throws AuditLoggerException {
+    switch (this.configuration.getOverflowPolicy()) {
+    case DROP:
+      if (!this.queue.offer(entry)) {
+        final long dropped = this.droppedCount.incrementAndGet();
+        if (dropped == 1 || dropped % 1000 == 0) {
+          log.warn("Audit event queue for {} is full - dropping entries (total dropped: {})", this.logFile, dropped);
+        }
+        return false;
+      }
+      return true;
+    case FAIL:
+      if (!this.queue.offer(entry)) {
+        this.droppedCount.incrementAndGet();
+        throw new AuditLoggerException("Audit event queue is full");
+      }
+      return true;
+    case BLOCK:
+    default:
+      try {
+        if (!this.queue.offer(entry, this.configuration.getMaxBlockTime().toMillis(), TimeUnit.MILLISECONDS)) {
+          this.droppedCount.incrementAndGet();
+          throw new AuditLoggerException(String.format("Audit event queue is full - no space available within %s",
+              this.configuration.getMaxBlockTime()));
+        }
+        return true;
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.droppedCount.incrementAndGet();
+        throw new AuditLoggerException("Interrupted while waiting for space in audit event queue", e);
+      }
+    }
+  }
+
+  /**
+   * Waits at most {@code max-block-time} for a queued entry to be forced to the storage device.
+   *
+   * @param forced the future that is completed when the entry has been forced
+   * @throws AuditLoggerException if the entry could not be written, or was not written in time
+   */
+  private void awaitForced(@Nonnull final CompletableFuture<Void> forced) throws AuditLoggerException {
+    try {
+      forced.get(this.configuration.getMaxBlockTime().toMillis(), TimeUnit.MILLISECONDS);
+    }
+    catch (final ExecutionException e) {
+      throw new AuditLoggerException("Failed to write audit entry to " + this.logFile, e.getCause());
+    }
+    catch (final TimeoutException e) {
+      throw new AuditLoggerException(String.format("Audit entry was not written to %s within %s",
+          this.logFile, this.configuration.getMaxBlockTime()));
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AuditLoggerException("Interrupted while waiting for audit entry to be written", e);
+    }
+  }
+
+  /**
+   * Closes the writer. All queued entries are written before the file is closed.
+   */
+  void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.writerThread.join(CLOSE_TIMEOUT_MILLIS);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (this.writerThread.isAlive()) {
+      log.warn("Audit writer for {} did not finish within {} ms - {} entries may be lost",
+          this.logFile, CLOSE_TIMEOUT_MILLIS, this.queue.size());
+      return;
+    }
+    // Entries may have been added after the writer thread made its last check ...
+    this.drainAndWrite(new ArrayList<>());
+    try {
+      if (this.channel != null) {
+        this.channel.force(false);
+        this.channel.close();
+      }
+    }
+    catch (final IOException e) {
+      log.warn("Failed to close audit log file {} - {}", this.logFile, e.getMessage());
+    }
+    if (this.processor != null) {
+      this.processor.close();
+    }
+  }
+
+  /**
+   * Gets the number of entries currently waiting to be written.
+   *
+   * @return the queue depth
+   */
+  int getQueueDepth() {
+    return this.queue.size();
+  }
+
+  /**
+   * Gets the number of entries that were not queued since the queue was full.
+   *
+   * @return the number of dropped entries
+   */
+  long getDroppedCount() {
+    return this.droppedCount.get();
+  }
+
+  /**
+   * Gets the number of entries that could not be written due to I/O errors.
+   *
+   * @return the number of failed entries
+   */
+  long getWriteErrorCount() {
+    return this.writeErrorCount.get();
+  }
+
+  /**
+   * Gets the number of written entries.
+   *
+   * @return the number of written entries
+   */
+  long getWrittenCount() {
+    return this.writtenCount.get();
+  }
+
+  /**
+   * The writer thread loop.
+   */
+  private void run() {
+    final List<QueuedEntry> batch = new ArrayList<>(this.configuration.getBatchSize());
+    while (true) {
+      QueuedEntry first = null;
+      try {
+        first = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      catch (final InterruptedException e) {
+        // Continue until closed ...
+      }
+      if (first == null) {
+        if (this.closed) {
+          break;
+        }
+        this.forceIfDue();
+        continue;
+      }
+      batch.add(first);
+      this.queue.drainTo(batch, this.configuration.getBatchSize() - 1);
+      this.writeBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Writes all entries currently in the queue.
+   *
+   * @param batch the list to use for batches
+   */
+  private void drainAndWrite(@Nonnull final List<QueuedEntry> batch) {
+    while (this.queue.drainTo(batch, this.configuration.getBatchSize()) > 0) {
+      this.writeBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Writes a batch of entries to the log file.
+   *
+   * @param batch the entries to write
+   */
+  private void writeBatch(@Nonnull final List<QueuedEntry> batch) {
+    try {
+      if (DateRollingFileHandler.isBackupRequired(this.lastModified)
+          || DateRollingFileHandler.isMaxSizeReached(this.size, this.rotation)) {
+        this.backupFile();
+      }
+      if (this.channel == null) {
+        this.channel = this.openChannel();
+      }
+      final StringBuilder sb = new StringBuilder();
+      for (final QueuedEntry entry : batch) {
+        sb.append(entry.entry).append(System.lineSeparator());
+      }
+      this.writeFully(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+      if (this.configuration.getDurability() == Durability.FSYNC_PER_EVENT) {
+        this.channel.force(false);
+        this.lastForced = System.nanoTime();
+      }
+      else {
+        this.unforced = true;
+        this.forceIfDue();
+      }
+      this.lastModified = Instant.now();
+      this.writtenCount.addAndGet(batch.size());
+      batch.stream().filter(e -> e.forced != null).forEach(e -> e.forced.complete(null));
+    }
+    catch (final IOException e) {
+      this.writeErrorCount.addAndGet(batch.size());
+      log.error("Failed to write {} audit entries to {} - {}", batch.size(), this.logFile, e.getMessage(), e);
+      this.closeChannel();
+      batch.stream().filter(q -> q.forced != null).forEach(q -> q.forced.completeExceptionally(e));
+    }
+  }
+
+  /**
+   * Forces the file to the storage device if the durability policy is {@link Durability#FSYNC_INTERVAL} and the
+   * interval has passed since the file last was forced.
+   */
+  private void forceIfDue() {
+    if (this.configuration.getDurability() != Durability.FSYNC_INTERVAL || !this.unforced || this.channel == null) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (now - this.lastForced >= this.configuration.getFsyncInterval().toNanos()) {
+      try {
+        this.channel.force(false);
+        this.unforced = false;
+        this.lastForced = now;
+      }
+      catch (final IOException e) {
+        log.error("Failed to force audit log file {} to storage - {}", this.logFile, e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Writes the buffer to the file channel.
+   *
+   * @param buffer the buffer to write
+   * @throws IOException for write errors
+   */
+  private void writeFully(@Nonnull final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      this.size += this.channel.write(buffer);
+    }
+  }
+
+  /**
+   * Moves the current log file to its backup name, opens a new log file and schedules processing of the rolled file.
+   *
+   * @throws IOException for file errors
+   */
+  private void backupFile() throws IOException {
+    if (this.channel != null) {
+      this.channel.force(false);
+      this.closeChannel();
+    }
+    final Path rolledFile = DateRollingFileHandler.getRolledFile(this.logFile,
+        Optional.ofNullable(this.lastModified).orElseGet(Instant::now));
+    Files.move(this.logFile, rolledFile);
+    this.lastModified = null;
+    this.size = 0;
+    this.unforced = false;
+    this.channel = this.openChannel();
+    if (this.processor != null) {
+      this.processor.process(rolledFile);
+    }
+  }
+
+  /**
+   * Opens the log file for appending.
+   *
+   * @return a file channel
+   * @throws IOException for errors opening the file
+   */
+  @Nonnull
+  private FileChannel openChannel() throws IOException {
+    return FileChannel.open(this.logFile,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Closes the file channel (ignoring errors).
+   */
+  private void closeChannel() {
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      }
+      catch (final IOException e) {
+        log.debug("Failed to close audit log file {} - {}", this.logFile, e.getMessage());
+      }
+      this.channel = null;
+    }
+  }
+
+  /**
+   * An entry waiting to be written.
+   */
+  private static final class QueuedEntry {
+
+    /** The formatted entry. */
+    private final String entry;
+
+    /** Completed when the entry has been forced to the storage device (null if nobody waits for this). */
+    private final CompletableFuture<Void> forced;
+
+    /**
+     * Constructor.
+     *
+     * @param entry the formatted entry
+     * @param awaitForced whether the caller waits for the entry to be forced to the storage device
+     */
+    QueuedEntry(@Nonnull final String entry, final boolean awaitForced) {
+      this.entry = entry;
+      this.forced = awaitForced ? new CompletableFuture<>() : null;
+    }
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Configuration for the asynchronous writer of a {@link FileAuditLogger}. If assigned, audit events are put on a
+ * bounded queue and written to the log file by a dedicated writer thread instead of being written on the calling
+ * thread.
+ */
+public class AsyncFileWriterConfiguration {
+
+  /** Default capacity of the event queue. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+  /** Default maximum number of events written in one batch. */
+  public static final int DEFAULT_BATCH_SIZE = 512;
+
+  /** Default interval between forced writes to the storage device (for {@link Durability#FSYNC_INTERVAL}). */
+  public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofSeconds(1);
+
+  /** Default maximum time to wait for space in the queue (for {@link OverflowPolicy#BLOCK}). */
+  public static final Duration DEFAULT_MAX_BLOCK_TIME = Duration.ofSeconds(5);
+
+  /**
+   * Durability policies for the asynchronous writer.
+   */
+  public enum Durability {
+
+    /**
+     * Each batch is written to the file channel, and thus handed over to the operating system, but the file is never
+     * explicitly forced to the storage device.
+     */
+    FLUSH_PER_BATCH,
+
+    /**
+     * As {@link #FLUSH_PER_BATCH}, but the file is also forced to the storage device at most every
+     * {@code fsync-interval}.
+     */
+    FSYNC_INTERVAL,
+
+    /**
+     * Each event is forced to the storage device before the call that logged it returns. The calling thread waits at
+     * most {@code max-block-time} for this, and the audit logger reports an error if the event could not be written in
+     * time. Events that are queued at the same time are written and forced together, so concurrent callers share one
+     * force operation.
+     */
+    FSYNC_PER_EVENT
+  }
+
+  /**
+   * Policies for how to handle audit events when the queue is full.
+   */
+  public enum OverflowPolicy {
+
+    /**
+     * The calling thread waits at most {@code max-block-time} for space in the queue. If no space is available after
+     * this time, the audit logger reports an error.
+     */
+    BLOCK,
+
+    /**
+     * The event is dropped (and counted).
+     */
+    DROP,
+
+    /**
+     * The audit logger reports an error directly.
+     */
+    FAIL
+  }
+
+  /** The capacity of the event queue. */
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+  /** The maximum number of events written in one batch. */
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  /** The durability policy. */
+  private Durability durability = Durability.FLUSH_PER_BATCH;
+
+  /** The interval between forced writes when {@link Durability#FSYNC_INTERVAL} is used. */
+  private Duration fsyncInterval = DEFAULT_FSYNC_INTERVAL;
+
+  /** The overflow policy. */
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+  /**
+   * The maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used, and for an event to be
+   * forced when {@link Durability#FSYNC_PER_EVENT} is used.
+   */
+  private Duration maxBlockTime = DEFAULT_MAX_BLOCK_TIME;
+
+  /**
+   * Gets the capacity of the event queue.
+   *
+   * @return the queue capacity
+   */
+  public int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  /**
+   * Assigns the capacity of the event queue. The default is {@link #DEFAULT_QUEUE_CAPACITY}.
+   *
+   * @param queueCapacity the queue capacity
+   */
+  public void setQueueCapacity(final int queueCapacity) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be greater than 0");
+    }
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Gets the maximum number of events written in one batch.
+   *
+   * @return the batch size
+   */
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /**
+   * Assigns the maximum number of events written in one batch. The default is {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @param batchSize the batch size
+   */
+  public void setBatchSize(final int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Gets the durability policy.
+   *
+   * @return the durability policy
+   */
+  @Nonnull
+  public Durability getDurability() {
+    return this.durability;
+  }
+
+  /**
+   * Assigns the durability policy. The default is {@link Durability#FLUSH_PER_BATCH}.
+   *
+   * @param durability the durability policy
+   */
+  public void setDurability(@Nonnull final Durability durability) {
+    this.durability = Objects.requireNonNull(durability, "durability must not be null");
+  }
+
+  /**
+   * Gets the interval between forced writes when {@link Durability#FSYNC_INTERVAL} is used.
+   *
+   * @return the fsync interval
+   */
+  @Nonnull
+  public Duration getFsyncInterval() {
+    return this.fsyncInterval;
+  }
+
+  /**
+   * Assigns the interval between forced writes when {@link Durability#FSYNC_INTERVAL} is used. The default is
+   * {@link #DEFAULT_FSYNC_INTERVAL}.
+   *
+   * @param fsyncInterval the fsync interval
+   */
+  public void setFsyncInterval(@Nonnull final Duration fsyncInterval) {
+    this.fsyncInterval = Objects.requireNonNull(fsyncInterval, "fsyncInterval must not be null");
+  }
+
+  /**
+   * Gets the overflow policy.
+   *
+   * @return the overflow policy
+   */
+  @Nonnull
+  public OverflowPolicy getOverflowPolicy() {
+    return this.overflowPolicy;
+  }
+
+  /**
+   * Assigns the overflow policy. The default is {@link OverflowPolicy#BLOCK}.
+   *
+   * @param overflowPolicy the overflow policy
+   */
+  public void setOverflowPolicy(@Nonnull final OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+  }
+
+  /**
+   * Gets the maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used, and for an event to
+   * be forced to the storage device when {@link Durability#FSYNC_PER_EVENT} is used.
+   *
+   * @return the max block time
+   */
+  @Nonnull
+  public Duration getMaxBlockTime() {
+    return this.maxBlockTime;
+  }
+
+  /**
+   * Assigns the maximum time to wait for space in the queue when {@link OverflowPolicy#BLOCK} is used, and for an event
+   * to be forced to the storage device when {@link Durability#FSYNC_PER_EVENT} is used. The default is
+   * {@link #DEFAULT_MAX_BLOCK_TIME}.
+   *
+   * @param maxBlockTime the max block time
+   */
+  public void setMaxBlockTime(@Nonnull final Duration maxBlockTime) {
+    this.maxBlockTime = Objects.requireNonNull(maxBlockTime, "maxBlockTime must not be null");
+  }
+
+}
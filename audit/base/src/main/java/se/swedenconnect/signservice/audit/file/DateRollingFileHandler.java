@@ -19,13 +19,13 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -36,9 +36,15 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 /**
- * A wrapper class to Java Util Logging's {@link FileHandler} that supports "rolling files" per date.
+ * A wrapper class to Java Util Logging's {@link FileHandler} that supports "rolling files" per date, and optionally
+ * when the file reaches a configured size (see {@link FileRotationConfiguration}).
+ * <p>
+ * Rotation only renames the log file and opens a new one. Compression and pruning of rolled files is performed by a
+ * background thread.
+ * </p>
  */
 class DateRollingFileHandler extends Handler {
 
@@ -51,6 +57,15 @@ class DateRollingFileHandler extends Handler {
   /** The actual log handler. */
   private FileHandler handler;
 
+  /** The rotation configuration. */
+  private final FileRotationConfiguration rotation;
+
+  /** Processes rolled files (null if no processing is configured). */
+  private final RolledFileProcessor processor;
+
+  /** The (approximate) size of the log file. */
+  private long size;
+
   /** Formatter for backup file names. */
   private static final DateTimeFormatter dateFormatter =
       DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneId.of("UTC"));
@@ -62,25 +77,26 @@ class DateRollingFileHandler extends Handler {
    * @throws IOException for file errors
    */
   public DateRollingFileHandler(@Nonnull final String logFile) throws IOException {
+    this(logFile, null);
+  }
+
+  /**
+   * Constructor setting up the file handler with a rotation configuration.
+   *
+   * @param logFile the log file (including the path)
+   * @param rotation the rotation configuration (if null, the file is only rotated when the date changes)
+   * @throws IOException for file errors
+   */
+  public DateRollingFileHandler(@Nonnull final String logFile, @Nullable final FileRotationConfiguration rotation)
+      throws IOException {
     this.logFile = Path.of(Objects.requireNonNull(logFile, "logFile must not be null"));
-    if (Files.exists(this.logFile)) {
-      if (Files.isDirectory(this.logFile)) {
-        throw new IOException("Given logFile points to a directory and not a file");
-      }
-      if (!Files.isWritable(this.logFile)) {
-        throw new IOException("Given logFile is not writable");
-      }
-      // Get last modified date ...
-      final BasicFileAttributes attr = Files.readAttributes(this.logFile, BasicFileAttributes.class);
-      this.lastModified = attr.lastModifiedTime().toInstant();
-    }
-    else {
-      final Path parent = this.logFile.getParent();
-      if (parent != null && !Files.exists(parent)) {
-        Files.createDirectories(parent);
-      }
-    }
+    this.rotation = Optional.ofNullable(rotation).orElseGet(FileRotationConfiguration::new);
+    this.lastModified = prepareLogFile(this.logFile);
+    this.size = this.lastModified != null ? Files.size(this.logFile) : 0;
     this.initializeHandler();
+    this.processor = this.rotation.isProcessingRequired()
+        ? new RolledFileProcessor(this.logFile, this.rotation)
+        : null;
   }
 
   /**
@@ -99,41 +115,41 @@ class DateRollingFileHandler extends Handler {
   public synchronized void publish(@Nonnull final LogRecord record) {
     if (record != null && this.isLoggable(record)) {
 
-      // Check if the current log file is too old to write to ...
+      // Check if the current log file is too old, or too big, to write to ...
       //
-      if (this.lastModified != null
-          && Instant.now().truncatedTo(ChronoUnit.DAYS).isAfter(this.lastModified.truncatedTo(ChronoUnit.DAYS))) {
+      if (isBackupRequired(this.lastModified) || isMaxSizeReached(this.size, this.rotation)) {
         // Time to save the current log file to <log-file>-<date>.log
         this.backupFile();
       }
 
       this.handler.publish(record);
       this.lastModified = Instant.now();
+      this.size += Optional.ofNullable(record.getMessage()).map(String::length).orElse(0)
+          + System.lineSeparator().length();
     }
   }
 
   /**
-   * Performs a backup of the current log file to <log-file-name>-<date>.<ext> and re-initializes the underlying
-   * handler.
+   * Performs a backup of the current log file to <log-file-name>-<date>.<ext> (see
+   * {@link #getRolledFile(Path, Instant)}), re-initializes the underlying handler and schedules processing of the
+   * rolled file.
    *
    * @throws UncheckedIOException if the backup operation fails
    */
   private void backupFile() throws UncheckedIOException {
     try {
-      this.flush();
-      this.close();
-
-      final String dateString = dateFormatter.format(this.lastModified);
-      final String path = this.logFile.toString();
-      final String extension = FilenameUtils.getExtension(path);
-      final String backupPath = !StringUtils.isBlank(extension)
-          ? String.format("%s-%s.%s",
-              path.substring(0, path.length() - extension.length() - 1), dateString, extension)
-          : String.format("%s-%s", path, dateString);
-
-      Files.move(this.logFile, Path.of(backupPath), StandardCopyOption.REPLACE_EXISTING);
+      this.handler.flush();
+      this.handler.close();
+
+      final Path rolledFile =
+          getRolledFile(this.logFile, Optional.ofNullable(this.lastModified).orElseGet(Instant::now));
+      Files.move(this.logFile, rolledFile);
       this.lastModified = null;
+      this.size = 0;
       this.initializeHandler();
+      if (this.processor != null) {
+        this.processor.process(rolledFile);
+      }
     }
     catch (final IOException e) {
       throw new UncheckedIOException(e.getMessage(), e);
@@ -150,6 +166,112 @@ class DateRollingFileHandler extends Handler {
   @Override
   public synchronized void close() throws SecurityException {
     this.handler.close();
+    if (this.processor != null) {
+      this.processor.close();
+    }
+  }
+
+  /**
+   * Checks that the supplied log file can be written to, and creates its parent directories if needed.
+   *
+   * @param logFile the log file
+   * @return the last-modified time of the log file, or null if the file does not exist
+   * @throws IOException if the file is a directory, or is not writable, or if directories can not be created
+   */
+  @Nullable
+  static Instant prepareLogFile(@Nonnull final Path logFile) throws IOException {
+    if (Files.exists(logFile)) {
+      if (Files.isDirectory(logFile)) {
+        throw new IOException("Given logFile points to a directory and not a file");
+      }
+      if (!Files.isWritable(logFile)) {
+        throw new IOException("Given logFile is not writable");
+      }
+      // Get last modified date ...
+      final BasicFileAttributes attr = Files.readAttributes(logFile, BasicFileAttributes.class);
+      return attr.lastModifiedTime().toInstant();
+    }
+    final Path parent = logFile.getParent();
+    if (parent != null && !Files.exists(parent)) {
+      Files.createDirectories(parent);
+    }
+    return null;
+  }
+
+  /**
+   * Tells whether a log file last modified at the given time should be backed up before it is written to.
+   *
+   * @param lastModified the last-modified time of the log file (may be null)
+   * @return true if the file was last modified before today, and false otherwise
+   */
+  static boolean isBackupRequired(@Nullable final Instant lastModified) {
+    return lastModified != null
+        && Instant.now().truncatedTo(ChronoUnit.DAYS).isAfter(lastModified.truncatedTo(ChronoUnit.DAYS));
+  }
+
+  /**
+   * Tells whether a log file of the given size should be rotated according to the rotation configuration.
+   *
+   * @param size the size of the log file
+   * @param rotation the rotation configuration
+   * @return true if the file has reached its maximum size, and false otherwise
+   */
+  static boolean isMaxSizeReached(final long size, @Nonnull final FileRotationConfiguration rotation) {
+    return rotation.getMaxFileSize() > 0 && size >= rotation.getMaxFileSize();
+  }
+
+  /**
+   * Gets the path of the backup file, <log-file-name>-<date>.<ext>, for a log file last modified at the given time.
+   *
+   * @param logFile the log file
+   * @param lastModified the last-modified time of the log file
+   * @return the backup file path
+   */
+  @Nonnull
+  static Path getBackupFile(@Nonnull final Path logFile, @Nonnull final Instant lastModified) {
+    return getBackupFile(logFile, lastModified, 0);
+  }
+
+  /**
+   * Gets the path to use when rolling a log file last modified at the given time. This is the backup file (see
+   * {@link #getBackupFile(Path, Instant)}) unless that file, or a compressed version of it, already exists (which is
+   * the case when the file is rotated several times during a day). In those cases an index is added to the date, i.e.,
+   * <log-file-name>-<date>-<index>.<ext>.
+   *
+   * @param logFile the log file
+   * @param lastModified the last-modified time of the log file
+   * @return the path to move the log file to
+   */
+  @Nonnull
+  static Path getRolledFile(@Nonnull final Path logFile, @Nonnull final Instant lastModified) {
+    int index = 0;
+    Path rolledFile = getBackupFile(logFile, lastModified, index);
+    while (Files.exists(rolledFile)
+        || Files.exists(Path.of(rolledFile.toString() + RolledFileProcessor.GZIP_EXTENSION))) {
+      rolledFile = getBackupFile(logFile, lastModified, ++index);
+    }
+    return rolledFile;
+  }
+
+  /**
+   * Gets the path of the backup file, <log-file-name>-<date>[-<index>].<ext>, for a log file last modified at the
+   * given time.
+   *
+   * @param logFile the log file
+   * @param lastModified the last-modified time of the log file
+   * @param index the index (0 means no index)
+   * @return the backup file path
+   */
+  @Nonnull
+  private static Path getBackupFile(@Nonnull final Path logFile, @Nonnull final Instant lastModified, final int index) {
+    final String dateString = index > 0
+        ? dateFormatter.format(lastModified) + "-" + index
+        : dateFormatter.format(lastModified);
+    final String path = logFile.toString();
+    final String extension = FilenameUtils.getExtension(path);
+    return Path.of(!StringUtils.isBlank(extension)
+        ? String.format("%s-%s.%s", path.substring(0, path.length() - extension.length() - 1), dateString, extension)
+        : String.format("%s-%s", path, dateString));
   }
 
   /**
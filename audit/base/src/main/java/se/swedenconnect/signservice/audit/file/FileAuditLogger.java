@@ -21,6 +21,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import se.swedenconnect.signservice.audit.AuditEvent;
 import se.swedenconnect.signservice.audit.AuditLoggerException;
@@ -28,23 +29,30 @@ import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
 
 /**
  * A simple file logger that uses Java's util logging package to audit log. The logger is "rolling" and a new log file
- * is created per day.
+ * is created per day, and optionally when the file reaches a given size (see {@link FileRotationConfiguration}).
+ * <p>
+ * If an {@link AsyncFileWriterConfiguration} is supplied, events are written to the file by a dedicated writer thread
+ * instead of by the thread calling {@link #auditLog(AuditEvent)}.
+ * </p>
  * <p>
  * Also see {@link se.swedenconnect.signservice.audit.logsystem.LogSystemAuditLogger} for an audit logger that can be
  * configured using an underlying log system.
  * </p>
  */
-public class FileAuditLogger extends AbstractAuditLogger {
+public class FileAuditLogger extends AbstractAuditLogger implements AutoCloseable {
 
   /** Logger. */
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileAuditLogger.class);
 
-  /** The underlying JUL handler. */
+  /** The underlying JUL handler (null if the asynchronous writer is used). */
   private final DateRollingFileHandler handler;
 
-  /** The JUL logger. */
+  /** The JUL logger (null if the asynchronous writer is used). */
   private final Logger auditLogger;
 
+  /** The asynchronous writer (null if events are written on the calling thread). */
+  private final AsyncAuditFileWriter asyncWriter;
+
   /**
    * Constructor setting up the file audit logger with the target file.
    *
@@ -52,7 +60,46 @@ public class FileAuditLogger extends AbstractAuditLogger {
    * @throws IOException if the supplied file is not a valid file, or if it is not possible to create the file
    */
   public FileAuditLogger(@Nonnull final String logFile) throws IOException {
-    this.handler = new DateRollingFileHandler(logFile);
+    this(logFile, null);
+  }
+
+  /**
+   * Constructor setting up the file audit logger with the target file and an optional configuration for asynchronous
+   * writing.
+   *
+   * @param logFile the log file including its path
+   * @param asyncWriterConfiguration the configuration for asynchronous writing (null if events should be written on
+   *          the calling thread)
+   * @throws IOException if the supplied file is not a valid file, or if it is not possible to create the file
+   */
+  public FileAuditLogger(@Nonnull final String logFile,
+      @Nullable final AsyncFileWriterConfiguration asyncWriterConfiguration) throws IOException {
+    this(logFile, asyncWriterConfiguration, null);
+  }
+
+  /**
+   * Constructor setting up the file audit logger with the target file, an optional configuration for asynchronous
+   * writing and an optional configuration for file rotation.
+   *
+   * @param logFile the log file including its path
+   * @param asyncWriterConfiguration the configuration for asynchronous writing (null if events should be written on
+   *          the calling thread)
+   * @param rotation the configuration for file rotation (null if the file should only be rotated when the date
+   *          changes)
+   * @throws IOException if the supplied file is not a valid file, or if it is not possible to create the file
+   */
+  public FileAuditLogger(@Nonnull final String logFile,
+      @Nullable final AsyncFileWriterConfiguration asyncWriterConfiguration,
+      @Nullable final FileRotationConfiguration rotation) throws IOException {
+
+    if (asyncWriterConfiguration != null) {
+      this.asyncWriter = new AsyncAuditFileWriter(logFile, asyncWriterConfiguration, rotation);
+      this.handler = null;
+      this.auditLogger = null;
+      return;
+    }
+    this.asyncWriter = null;
+    this.handler = new DateRollingFileHandler(logFile, rotation);
 
     // Build the logger name based on the log file name ...
     final String loggerName = Path.of(logFile).toAbsolutePath().toString();
@@ -67,8 +114,12 @@ public class FileAuditLogger extends AbstractAuditLogger {
    * Should be called when the object is no longer needed. The method is annotated with {@code PreDestroy} meaning that
    * the method will be automatically be invoked by frameworks supporting this annotation.
    */
+  @Override
   @PreDestroy
   public void close() {
+    if (this.asyncWriter != null) {
+      this.asyncWriter.close();
+    }
     if (this.handler != null) {
       this.handler.flush();
       this.handler.close();
@@ -81,9 +132,17 @@ public class FileAuditLogger extends AbstractAuditLogger {
     if (event == null) {
       throw new AuditLoggerException("event must not be null");
     }
+    if (!this.isEnabled(event.getId())) {
+      return;
+    }
     try {
       log.debug("Audit logger '{}' publishing audit event '{}'", this.getName(), event.getId());
-      this.auditLogger.log(Level.INFO, this.formatAuditEvent(event));
+      if (this.asyncWriter != null) {
+        this.asyncWriter.write(this.formatAuditEvent(event));
+      }
+      else {
+        this.auditLogger.log(Level.INFO, this.formatAuditEvent(event));
+      }
     }
     catch (final Throwable t) {
       final String msg = String.format("Audit logger '%s' failed to publish audit event - %s",
@@ -93,4 +152,31 @@ public class FileAuditLogger extends AbstractAuditLogger {
     }
   }
 
+  /**
+   * Gets the number of audit events waiting to be written by the asynchronous writer.
+   *
+   * @return the queue depth (always 0 if the asynchronous writer is not used)
+   */
+  public int getQueueDepth() {
+    return this.asyncWriter != null ? this.asyncWriter.getQueueDepth() : 0;
+  }
+
+  /**
+   * Gets the number of audit events that were dropped by the asynchronous writer since its queue was full.
+   *
+   * @return the number of dropped events (always 0 if the asynchronous writer is not used)
+   */
+  public long getDroppedCount() {
+    return this.asyncWriter != null ? this.asyncWriter.getDroppedCount() : 0;
+  }
+
+  /**
+   * Gets the number of audit events that the asynchronous writer failed to write due to I/O errors.
+   *
+   * @return the number of failed events (always 0 if the asynchronous writer is not used)
+   */
+  public long getWriteErrorCount() {
+    return this.asyncWriter != null ? this.asyncWriter.getWriteErrorCount() : 0;
+  }
+
 }
@@ -20,7 +20,9 @@ import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.base.format.AuditEventFormat;
 
 /**
  * Handler configuration for creating {@link FileAuditLogger} instances.
@@ -30,6 +32,15 @@ public class FileAuditLoggerConfiguration extends AbstractAuditLoggerConfigurati
   /** The audit log file name (including its full path). */
   private String fileName;
 
+  /** Configuration for asynchronous writing. If not assigned, events are written on the calling thread. */
+  private AsyncFileWriterConfiguration asyncWriter;
+
+  /** The format to use for audit entries. If not assigned, {@link AuditEventFormat#DEFAULT} is used. */
+  private AuditEventFormat format;
+
+  /** Configuration for file rotation. If not assigned, the file is only rotated when the date changes. */
+  private FileRotationConfiguration rotation;
+
   /**
    * Gets the audit log file name (including its full path).
    *
@@ -51,6 +62,63 @@ public class FileAuditLoggerConfiguration extends AbstractAuditLoggerConfigurati
         .orElseThrow(() -> new NullPointerException("fileName must not be null or empty"));
   }
 
+  /**
+   * Gets the configuration for asynchronous writing.
+   *
+   * @return the configuration for asynchronous writing, or null if events are written on the calling thread
+   */
+  @Nullable
+  public AsyncFileWriterConfiguration getAsyncWriter() {
+    return this.asyncWriter;
+  }
+
+  /**
+   * Assigns the configuration for asynchronous writing. If not assigned, events are written on the calling thread.
+   *
+   * @param asyncWriter the configuration for asynchronous writing
+   */
+  public void setAsyncWriter(@Nullable final AsyncFileWriterConfiguration asyncWriter) {
+    this.asyncWriter = asyncWriter;
+  }
+
+  /**
+   * Gets the format to use for audit entries.
+   *
+   * @return the format, or null if the default format should be used
+   */
+  @Nullable
+  public AuditEventFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Assigns the format to use for audit entries. If not assigned, {@link AuditEventFormat#DEFAULT} is used.
+   *
+   * @param format the format
+   */
+  public void setFormat(@Nullable final AuditEventFormat format) {
+    this.format = format;
+  }
+
+  /**
+   * Gets the configuration for file rotation.
+   *
+   * @return the rotation configuration, or null if the file is only rotated when the date changes
+   */
+  @Nullable
+  public FileRotationConfiguration getRotation() {
+    return this.rotation;
+  }
+
+  /**
+   * Assigns the configuration for file rotation. If not assigned, the file is only rotated when the date changes.
+   *
+   * @param rotation the rotation configuration
+   */
+  public void setRotation(@Nullable final FileRotationConfiguration rotation) {
+    this.rotation = rotation;
+  }
+
   /** {@inheritDoc} */
   @Override
   protected String getDefaultFactoryClass() {
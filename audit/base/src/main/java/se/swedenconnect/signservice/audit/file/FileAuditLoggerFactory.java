@@ -49,7 +49,11 @@ public class FileAuditLoggerFactory extends AbstractAuditLoggerFactory {
       throw new IllegalArgumentException("The file-name property must not be null");
     }
     try {
-      return new FileAuditLogger(conf.getFileName());
+      final FileAuditLogger logger = new FileAuditLogger(conf.getFileName(), conf.getAsyncWriter(), conf.getRotation());
+      if (conf.getFormat() != null) {
+        logger.setFormatter(conf.getFormat().createFormatter());
+      }
+      return logger;
     }
     catch (final IOException e) {
       throw new IllegalArgumentException("Failed to create FileAuditLogger - " + e.getMessage(), e);
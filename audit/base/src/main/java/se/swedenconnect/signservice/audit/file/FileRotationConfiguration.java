@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Configuration for how the log file of a {@link FileAuditLogger} is rotated, and how rolled files are handled.
+ * <p>
+ * The log file is always rotated when the date changes. By assigning a maximum file size, the file is also rotated
+ * when it reaches this size. Rolled files may be compressed, and old rolled files may be deleted. This is done by a
+ * background thread so that the thread that triggers the rotation only has to rename the file and open a new one.
+ * </p>
+ */
+public class FileRotationConfiguration {
+
+  /**
+   * Compression algorithms for rolled files.
+   */
+  public enum Compression {
+
+    /** Rolled files are not compressed. */
+    NONE,
+
+    /** Rolled files are compressed using gzip, and are given the extension {@code .gz}. */
+    GZIP
+  }
+
+  /** The maximum size (in bytes) of the log file before it is rotated. */
+  private long maxFileSize = 0;
+
+  /** The compression to apply to rolled files. */
+  private Compression compression = Compression.NONE;
+
+  /** The maximum number of rolled files to keep. */
+  private int maxHistory = 0;
+
+  /** The maximum age of rolled files. */
+  private Duration maxAge;
+
+  /**
+   * Gets the maximum size (in bytes) of the log file before it is rotated.
+   *
+   * @return the max file size, or 0 if the file is only rotated when the date changes
+   */
+  public long getMaxFileSize() {
+    return this.maxFileSize;
+  }
+
+  /**
+   * Assigns the maximum size (in bytes) of the log file before it is rotated. The default is 0, meaning that the file
+   * is only rotated when the date changes.
+   *
+   * @param maxFileSize the max file size
+   */
+  public void setMaxFileSize(final long maxFileSize) {
+    if (maxFileSize < 0) {
+      throw new IllegalArgumentException("maxFileSize must not be negative");
+    }
+    this.maxFileSize = maxFileSize;
+  }
+
+  /**
+   * Gets the compression to apply to rolled files.
+   *
+   * @return the compression
+   */
+  @Nonnull
+  public Compression getCompression() {
+    return this.compression;
+  }
+
+  /**
+   * Assigns the compression to apply to rolled files. The default is {@link Compression#NONE}.
+   *
+   * @param compression the compression
+   */
+  public void setCompression(@Nonnull final Compression compression) {
+    this.compression = Objects.requireNonNull(compression, "compression must not be null");
+  }
+
+  /**
+   * Gets the maximum number of rolled files to keep.
+   *
+   * @return the max number of rolled files, or 0 for no limit
+   */
+  public int getMaxHistory() {
+    return this.maxHistory;
+  }
+
+  /**
+   * Assigns the maximum number of rolled files to keep. When a file is rotated, the oldest rolled files exceeding this
+   * number are deleted. The default is 0, meaning no limit.
+   *
+   * @param maxHistory the max number of rolled files
+   */
+  public void setMaxHistory(final int maxHistory) {
+    if (maxHistory < 0) {
+      throw new IllegalArgumentException("maxHistory must not be negative");
+    }
+    this.maxHistory = maxHistory;
+  }
+
+  /**
+   * Gets the maximum age of rolled files.
+   *
+   * @return the max age, or null for no limit
+   */
+  @Nullable
+  public Duration getMaxAge() {
+    return this.maxAge;
+  }
+
+  /**
+   * Assigns the maximum age of rolled files. When a file is rotated, rolled files last modified before this age are
+   * deleted. The default is no limit.
+   *
+   * @param maxAge the max age
+   */
+  public void setMaxAge(@Nullable final Duration maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Tells whether rolled files need to be processed, i.e., compressed or pruned.
+   *
+   * @return true if rolled files should be processed and false otherwise
+   */
+  boolean isProcessingRequired() {
+    return this.compression != Compression.NONE || this.maxHistory > 0 || this.maxAge != null;
+  }
+
+}
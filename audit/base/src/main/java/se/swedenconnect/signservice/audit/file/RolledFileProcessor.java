@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FilenameUtils;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.file.FileRotationConfiguration.Compression;
+
+/**
+ * Compresses and prunes rolled audit log files. The work is performed by a background thread so that the thread that
+ * rotates the log file does not have to wait for it.
+ */
+class RolledFileProcessor {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RolledFileProcessor.class);
+
+  /** The file extension used for gzip compressed files. */
+  static final String GZIP_EXTENSION = ".gz";
+
+  /** Max time to wait for ongoing processing when closing. */
+  private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+  /** The log file. */
+  private final Path logFile;
+
+  /** The rotation configuration. */
+  private final FileRotationConfiguration configuration;
+
+  /** The prefix of the file names of rolled files. */
+  private final String rolledPrefix;
+
+  /** The extension of rolled files (including the dot), or the empty string. */
+  private final String rolledExtension;
+
+  /** The executor running the processing. */
+  private final ExecutorService executor;
+
+  /**
+   * Constructor.
+   *
+   * @param logFile the log file
+   * @param configuration the rotation configuration
+   */
+  RolledFileProcessor(@Nonnull final Path logFile, @Nonnull final FileRotationConfiguration configuration) {
+    this.logFile = Objects.requireNonNull(logFile, "logFile must not be null");
+    this.configuration = Objects.requireNonNull(configuration, "configuration must not be null");
+
+    final String fileName = logFile.getFileName().toString();
+    final String extension = FilenameUtils.getExtension(fileName);
+    this.rolledPrefix = FilenameUtils.removeExtension(fileName) + "-";
+    this.rolledExtension = extension.isEmpty() ? "" : "." + extension;
+
+    this.executor = Executors.newSingleThreadExecutor(r -> {
+      final Thread thread = new Thread(r, "signservice-audit-rotation-" + fileName);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Schedules processing of a file that has just been rolled, i.e., compression of the file and pruning of old rolled
+   * files.
+   *
+   * @param rolledFile the file that was rolled
+   */
+  void process(@Nonnull final Path rolledFile) {
+    try {
+      this.executor.execute(() -> {
+        if (this.configuration.getCompression() == Compression.GZIP) {
+          this.compress(rolledFile);
+        }
+        this.prune();
+      });
+    }
+    catch (final RejectedExecutionException e) {
+      log.warn("Processing of rolled audit log file {} rejected - processor has been closed", rolledFile);
+    }
+  }
+
+  /**
+   * Closes the processor. Ongoing and scheduled processing is allowed to finish.
+   */
+  void close() {
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        log.warn("Processing of rolled audit log files for {} did not finish within {} ms",
+            this.logFile, CLOSE_TIMEOUT_MILLIS);
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Compresses the supplied file using gzip. The compressed file gets the same last-modified time as the original
+   * file, and the original file is deleted.
+   *
+   * @param file the file to compress
+   */
+  private void compress(@Nonnull final Path file) {
+    final Path compressed = Path.of(file.toString() + GZIP_EXTENSION);
+    final Path tmp = Path.of(compressed.toString() + ".tmp");
+    try {
+      final FileTime lastModified = Files.getLastModifiedTime(file);
+      try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 65536)) {
+        Files.copy(file, out);
+      }
+      Files.move(tmp, compressed, StandardCopyOption.REPLACE_EXISTING);
+      Files.setLastModifiedTime(compressed, lastModified);
+      Files.delete(file);
+      log.debug("Rolled audit log file {} compressed to {}", file, compressed);
+    }
+    catch (final IOException e) {
+      log.error("Failed to compress rolled audit log file {} - {}", file, e.getMessage(), e);
+      try {
+        Files.deleteIfExists(tmp);
+      }
+      catch (final IOException e2) {
+        log.debug("Failed to delete {} - {}", tmp, e2.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Deletes the rolled files that exceed the configured max history or max age.
+   */
+  private void prune() {
+    if (this.configuration.getMaxHistory() <= 0 && this.configuration.getMaxAge() == null) {
+      return;
+    }
+    final Path dir = this.logFile.toAbsolutePath().getParent();
+    final List<Path> rolledFiles;
+    try (final Stream<Path> files = Files.list(dir)) {
+      rolledFiles = files
+          .filter(this::isRolledFile)
+          .sorted(Comparator.comparing(RolledFileProcessor::getLastModified).reversed())
+          .collect(Collectors.toList());
+    }
+    catch (final IOException e) {
+      log.error("Failed to list rolled audit log files in {} - {}", dir, e.getMessage(), e);
+      return;
+    }
+    final Instant oldest = this.configuration.getMaxAge() != null
+        ? Instant.now().minus(this.configuration.getMaxAge())
+        : null;
+    for (int i = 0; i < rolledFiles.size(); i++) {
+      final Path file = rolledFiles.get(i);
+      if ((this.configuration.getMaxHistory() > 0 && i >= this.configuration.getMaxHistory())
+          || (oldest != null && getLastModified(file).isBefore(oldest))) {
+        try {
+          Files.deleteIfExists(file);
+          log.debug("Deleted rolled audit log file {}", file);
+        }
+        catch (final IOException e) {
+          log.error("Failed to delete rolled audit log file {} - {}", file, e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tells whether the supplied file is a rolled file of the log file, i.e., is named
+   * {@code <log-file-name>-<date>[-<index>].<ext>[.gz]}.
+   *
+   * @param file the file to test
+   * @return true if the file is a rolled file and false otherwise
+   */
+  boolean isRolledFile(@Nonnull final Path file) {
+    final String name = file.getFileName().toString();
+    return name.startsWith(this.rolledPrefix)
+        && name.length() > this.rolledPrefix.length() && Character.isDigit(name.charAt(this.rolledPrefix.length()))
+        && (name.endsWith(this.rolledExtension) || name.endsWith(this.rolledExtension + GZIP_EXTENSION))
+        && Files.isRegularFile(file);
+  }
+
+  /**
+   * Gets the last-modified time of a file.
+   *
+   * @param file the file
+   * @return the last-modified time (epoch if it can not be read)
+   */
+  @Nonnull
+  private static Instant getLastModified(@Nonnull final Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toInstant();
+    }
+    catch (final IOException e) {
+      return Instant.EPOCH;
+    }
+  }
+
+}
@@ -65,6 +65,9 @@ public class LogSystemAuditLogger extends AbstractAuditLogger {
     if (event == null) {
       throw new AuditLoggerException("event must not be null");
     }
+    if (!this.isEnabled(event.getId())) {
+      return;
+    }
     try {
       log.debug("Audit logger '{}' ('{}') publishing audit event '{}'",
           this.getName(), this.auditLogger.getName(), event.getId());
@@ -20,7 +20,9 @@ import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.base.format.AuditEventFormat;
 
 /**
  * Handler configuration for creating {@link LogSystemAuditLogger} instances.
@@ -30,6 +32,9 @@ public class LogSystemAuditLoggerConfiguration extends AbstractAuditLoggerConfig
   /** The logger name to use for the log system audit logger. */
   private String loggerName;
 
+  /** The format to use for audit entries. If not assigned, {@link AuditEventFormat#DEFAULT} is used. */
+  private AuditEventFormat format;
+
   /**
    * Gets the logger name to use for the log system audit handler.
    *
@@ -51,6 +56,25 @@ public class LogSystemAuditLoggerConfiguration extends AbstractAuditLoggerConfig
         .orElseThrow(() -> new NullPointerException("loggerName must not be null or empty"));
   }
 
+  /**
+   * Gets the format to use for audit entries.
+   *
+   * @return the format, or null if the default format should be used
+   */
+  @Nullable
+  public AuditEventFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Assigns the format to use for audit entries. If not assigned, {@link AuditEventFormat#DEFAULT} is used.
+   *
+   * @param format the format
+   */
+  public void setFormat(@Nullable final AuditEventFormat format) {
+    this.format = format;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
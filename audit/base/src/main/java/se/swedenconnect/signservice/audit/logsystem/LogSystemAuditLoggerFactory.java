@@ -47,7 +47,11 @@ public class LogSystemAuditLoggerFactory extends AbstractAuditLoggerFactory {
     if (conf.getLoggerName() == null) {
       throw new IllegalArgumentException("The logger-name property must not be null");
     }
-    return new LogSystemAuditLogger(conf.getLoggerName());
+    final LogSystemAuditLogger logger = new LogSystemAuditLogger(conf.getLoggerName());
+    if (conf.getFormat() != null) {
+      logger.setFormatter(conf.getFormat().createFormatter());
+    }
+    return logger;
   }
 
 }
@@ -0,0 +1,1281 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditEventParameter;
+import se.swedenconnect.signservice.audit.base.format.JsonLinesAuditEventFormatter;
+
+/**
+ * A local audit store that appends audit events to segment files and maintains an index keyed by request ID, client
+ * ID, event ID and time. This makes it possible to find all events for a given request or client without scanning the
+ * audit files.
+ * <p>
+ * Events are stored in JSON Lines format (see {@link JsonLinesAuditEventFormatter}) in files named
+ * {@code segment-<n>.log}. While a segment is written to, an index file, {@code segment-<n>.idx}, holds one compact
+ * binary record per event giving the position of the event in the segment file, the event time, and the keys of the
+ * event, and the index of the segment is held in memory.
+ * </p>
+ * <p>
+ * When a segment reaches its max size it is sealed. Its index is then written to a sorted index file,
+ * {@code segment-<n>.sdx}, holding the position and time of each event and the keys of the segment in sorted order,
+ * and the {@code .idx} file is removed. The sorted index files are memory mapped and searched using binary search.
+ * This means that only the index of the current segment is held in the heap, and that only the index file of the
+ * current segment needs to be read when the store is opened.
+ * </p>
+ * <p>
+ * The request ID is read from the {@value #REQUEST_ID_PARAMETER} parameter, and the client ID from the
+ * {@value #CLIENT_ID_PARAMETER} parameter (or the event principal if that parameter is not present).
+ * </p>
+ * <p>
+ * The store is intended as a lookup aid for operations staff, and it does not force written data to the storage
+ * device. If the process is terminated, events written after the last complete index record are discarded when the
+ * store is opened again. Only one store instance should be opened for a directory.
+ * </p>
+ */
+public class AuditStore {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AuditStore.class);
+
+  /** The name of the audit event parameter holding the request ID. */
+  public static final String REQUEST_ID_PARAMETER = "request-id";
+
+  /** The name of the audit event parameter holding the client ID. */
+  public static final String CLIENT_ID_PARAMETER = "client-id";
+
+  /** Prefix for segment file names. */
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  /** Extension for segment data files. */
+  private static final String DATA_EXTENSION = ".log";
+
+  /** Extension for segment index files. */
+  private static final String INDEX_EXTENSION = ".idx";
+
+  /** Extension for the sorted index files of sealed segments. */
+  private static final String SORTED_INDEX_EXTENSION = ".sdx";
+
+  /** Magic number identifying a sorted index file ("SSDX"). */
+  private static final int SORTED_INDEX_MAGIC = 0x53534458;
+
+  /** The version of the sorted index file format. */
+  private static final int SORTED_INDEX_VERSION = 1;
+
+  /** Size of the sorted index header (magic, version, entry count, key count, min/max time and data size). */
+  private static final int SORTED_INDEX_HEADER_SIZE = 40;
+
+  /** Size of an entry in the sorted index entry table (offset, length and timestamp). */
+  private static final int SORTED_INDEX_ENTRY_SIZE = 20;
+
+  /** Size of a record in the sorted index key table (key position, reference position and reference count). */
+  private static final int SORTED_INDEX_KEY_SIZE = 12;
+
+  /** Key type for request IDs. */
+  private static final byte REQUEST_ID_KEY = 0;
+
+  /** Key type for client IDs. */
+  private static final byte CLIENT_ID_KEY = 1;
+
+  /** Key type for event IDs. */
+  private static final byte EVENT_ID_KEY = 2;
+
+  /** Keys longer than this are not indexed. */
+  private static final int MAX_KEY_LENGTH = 1024;
+
+  /** Max size of an index record (used to detect corrupt index files). */
+  private static final int MAX_INDEX_RECORD_SIZE = 256 * 1024;
+
+  /** The store directory. */
+  private final Path directory;
+
+  /** The store configuration. */
+  private final AuditStoreConfiguration configuration;
+
+  /** The formatter used to format events. */
+  private final JsonLinesAuditEventFormatter formatter = new JsonLinesAuditEventFormatter();
+
+  /** Lock protecting the segments. */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** The segments, ordered by segment number. */
+  private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+  /** The segment that events are appended to. */
+  private ActiveSegment current;
+
+  /** Whether the store has been closed. */
+  private boolean closed = false;
+
+  /**
+   * Constructor opening (or creating) the store in the given directory.
+   *
+   * @param directory the store directory
+   * @param configuration the store configuration (if null, the defaults of {@link AuditStoreConfiguration} are used)
+   * @throws IOException if the store can not be opened
+   */
+  public AuditStore(@Nonnull final Path directory, @Nullable final AuditStoreConfiguration configuration)
+      throws IOException {
+    this.directory = Objects.requireNonNull(directory, "directory must not be null");
+    this.configuration = Optional.ofNullable(configuration).orElseGet(AuditStoreConfiguration::new);
+    Files.createDirectories(this.directory);
+
+    this.load();
+    if (this.current == null) {
+      this.current = new ActiveSegment(this.directory, this.segments.isEmpty() ? 1 : this.segments.lastKey() + 1);
+      this.segments.put(this.current.number, this.current);
+    }
+    this.current.openForAppend();
+    this.applyRetention();
+  }
+
+  /**
+   * Appends an event to the store.
+   *
+   * @param event the event to store
+   * @throws IOException if the event can not be written, or if the store has been closed
+   */
+  public void append(@Nonnull final AuditEvent event) throws IOException {
+    Objects.requireNonNull(event, "event must not be null");
+    final byte[] data = (this.formatter.format(event) + "\n").getBytes(StandardCharsets.UTF_8);
+    final long timestamp = event.getTimestamp().toEpochMilli();
+    final String eventId = toKey(event.getId());
+    final String requestId = toKey(getParameter(event, REQUEST_ID_PARAMETER));
+    final String clientId = toKey(Optional.ofNullable(getParameter(event, CLIENT_ID_PARAMETER))
+        .orElseGet(() -> AuditEvent.DEFAULT_PRINCIPAL.equals(event.getPrincipal()) ? null : event.getPrincipal()));
+
+    this.lock.writeLock().lock();
+    try {
+      if (this.closed) {
+        throw new IOException("Audit store has been closed");
+      }
+      if (this.current.size > 0 && this.current.size + data.length > this.configuration.getMaxSegmentSize()) {
+        this.startNewSegment();
+      }
+      final long offset = this.current.size;
+      final int length = data.length - 1;
+      final ByteBuffer indexRecord = createIndexRecord(offset, length, timestamp, eventId, requestId, clientId);
+      final long indexSize = this.current.indexChannel.size();
+      writeFully(this.current.dataChannel, ByteBuffer.wrap(data), offset);
+      try {
+        writeFully(this.current.indexChannel, indexRecord, -1);
+      }
+      catch (final IOException e) {
+        this.rollback(offset, indexSize);
+        throw e;
+      }
+      this.current.size += data.length;
+      this.current.add(offset, length, timestamp, eventId, requestId, clientId);
+    }
+    finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the entries matching the supplied query. If more entries than the query limit match, the most recent entries
+   * are returned.
+   *
+   * @param query the query
+   * @return the matching entries, in the order they were stored
+   * @throws IOException for errors reading the store, or if the store has been closed
+   */
+  @Nonnull
+  public List<AuditStoreEntry> find(@Nonnull final AuditStoreQuery query) throws IOException {
+    Objects.requireNonNull(query, "query must not be null");
+    final long from = query.getFrom() != null ? query.getFrom().toEpochMilli() : Long.MIN_VALUE;
+    final long to = query.getTo() != null ? query.getTo().toEpochMilli() : Long.MAX_VALUE;
+
+    final List<IndexKey> keys = new ArrayList<>();
+    addQueryKey(keys, REQUEST_ID_KEY, query.getRequestId());
+    addQueryKey(keys, CLIENT_ID_KEY, query.getClientId());
+    addQueryKey(keys, EVENT_ID_KEY, query.getEventId());
+
+    this.lock.readLock().lock();
+    try {
+      if (this.closed) {
+        throw new IOException("Audit store has been closed");
+      }
+      final List<AuditStoreEntry> result = new ArrayList<>();
+      for (final Segment segment : this.segments.descendingMap().values()) {
+        if (result.size() >= query.getLimit()) {
+          break;
+        }
+        if (segment.getCount() == 0 || segment.getMaxTime() < from || segment.getMinTime() >= to) {
+          continue;
+        }
+        if (keys.isEmpty()) {
+          scan(segment, from, to, query.getLimit(), result);
+        }
+        else {
+          lookup(segment, keys, from, to, query.getLimit(), result);
+        }
+      }
+      Collections.reverse(result);
+      return result;
+    }
+    finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds all entries (up to {@link AuditStoreQuery#DEFAULT_LIMIT}) for the given request ID.
+   *
+   * @param requestId the request ID
+   * @return the matching entries, in the order they were stored
+   * @throws IOException for errors reading the store
+   */
+  @Nonnull
+  public List<AuditStoreEntry> findByRequestId(@Nonnull final String requestId) throws IOException {
+    final AuditStoreQuery query = new AuditStoreQuery();
+    query.setRequestId(Objects.requireNonNull(requestId, "requestId must not be null"));
+    return this.find(query);
+  }
+
+  /**
+   * Finds the most recent entries (up to {@link AuditStoreQuery#DEFAULT_LIMIT}) for the given client ID.
+   *
+   * @param clientId the client ID
+   * @return the matching entries, in the order they were stored
+   * @throws IOException for errors reading the store
+   */
+  @Nonnull
+  public List<AuditStoreEntry> findByClientId(@Nonnull final String clientId) throws IOException {
+    final AuditStoreQuery query = new AuditStoreQuery();
+    query.setClientId(Objects.requireNonNull(clientId, "clientId must not be null"));
+    return this.find(query);
+  }
+
+  /**
+   * Gets the store directory.
+   *
+   * @return the directory
+   */
+  @Nonnull
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Gets the number of entries held by the store.
+   *
+   * @return the number of entries
+   */
+  public long getEntryCount() {
+    this.lock.readLock().lock();
+    try {
+      return this.segments.values().stream().mapToLong(Segment::getCount).sum();
+    }
+    finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of segments held by the store.
+   *
+   * @return the number of segments
+   */
+  public int getSegmentCount() {
+    this.lock.readLock().lock();
+    try {
+      return this.segments.size();
+    }
+    finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Tells whether the store has been closed.
+   *
+   * @return true if the store has been closed
+   */
+  public boolean isClosed() {
+    this.lock.readLock().lock();
+    try {
+      return this.closed;
+    }
+    finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Closes the store.
+   */
+  public void close() {
+    this.lock.writeLock().lock();
+    try {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      this.segments.values().forEach(Segment::close);
+    }
+    finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a query key to the list of keys, unless the value is null or empty.
+   */
+  private static void addQueryKey(@Nonnull final List<IndexKey> keys, final byte type, @Nullable final String value) {
+    if (value != null && !value.isEmpty()) {
+      keys.add(new IndexKey(type, value));
+    }
+  }
+
+  /**
+   * Finds entries in a segment by scanning its event times, newest first.
+   */
+  private static void scan(@Nonnull final Segment segment, final long from, final long to, final int limit,
+      @Nonnull final List<AuditStoreEntry> result) throws IOException {
+    for (int i = segment.getCount() - 1; i >= 0; i--) {
+      final long timestamp = segment.getTimestamp(i);
+      if (timestamp >= from && timestamp < to) {
+        result.add(segment.read(i));
+        if (result.size() >= limit) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds entries in a segment using the entry lists of the query keys, newest first. The smallest list is iterated,
+   * and the other lists are checked using binary search.
+   */
+  private static void lookup(@Nonnull final Segment segment, @Nonnull final List<IndexKey> keys, final long from,
+      final long to, final int limit, @Nonnull final List<AuditStoreEntry> result) throws IOException {
+    final List<EntryList> lists = new ArrayList<>(keys.size());
+    for (final IndexKey key : keys) {
+      final EntryList list = segment.find(key);
+      if (list == null) {
+        return;
+      }
+      lists.add(list);
+    }
+    lists.sort(Comparator.comparingInt(EntryList::size));
+    final EntryList primary = lists.get(0);
+    for (int i = primary.size() - 1; i >= 0; i--) {
+      final int entry = primary.get(i);
+      if (!containsAll(lists, entry)) {
+        continue;
+      }
+      final long timestamp = segment.getTimestamp(entry);
+      if (timestamp >= from && timestamp < to) {
+        result.add(segment.read(entry));
+        if (result.size() >= limit) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Tells whether all entry lists (except the first) contain the supplied entry.
+   */
+  private static boolean containsAll(@Nonnull final List<EntryList> lists, final int entry) {
+    for (int k = 1; k < lists.size(); k++) {
+      if (!lists.get(k).contains(entry)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Rolls back an append for which the index record could not be written. Since the index file is read up to the first
+   * invalid record when the store is opened, a partially written index record must not be followed by other records.
+   * The index file is therefore truncated to its size before the append. If that fails, the current segment is sealed
+   * (from its in-memory index), so that no more records are written to the index file. The data written for the event
+   * is overwritten by the next append (or truncated when the store is opened).
+   *
+   * @param offset the data offset of the event
+   * @param indexSize the size of the index file before the append
+   */
+  private void rollback(final long offset, final long indexSize) {
+    try {
+      this.current.indexChannel.truncate(indexSize);
+    }
+    catch (final IOException e) {
+      log.warn("Failed to roll back write to audit store segment {} - starting new segment - {}",
+          this.current.dataFile, e.getMessage());
+      try {
+        this.startNewSegment();
+      }
+      catch (final IOException e2) {
+        log.error("Failed to start new audit store segment - {}", e2.getMessage(), e2);
+      }
+      return;
+    }
+    try {
+      this.current.dataChannel.truncate(offset);
+    }
+    catch (final IOException e) {
+      log.debug("Failed to truncate audit store segment {} - {}", this.current.dataFile, e.getMessage());
+    }
+  }
+
+  /**
+   * Seals the current segment, starts a new one, and deletes old segments if needed. If the current segment can not be
+   * sealed, its index is kept in memory until the store is opened again.
+   *
+   * @throws IOException for errors creating the new segment
+   */
+  private void startNewSegment() throws IOException {
+    this.current.closeForAppend();
+    try {
+      this.segments.put(this.current.number, this.current.seal());
+    }
+    catch (final IOException e) {
+      log.warn("Failed to seal audit store segment {} - {}", this.current.dataFile, e.getMessage(), e);
+    }
+    final ActiveSegment segment = new ActiveSegment(this.directory, this.current.number + 1);
+    segment.openForAppend();
+    this.segments.put(segment.number, segment);
+    this.current = segment;
+    this.applyRetention();
+  }
+
+  /**
+   * Deletes the oldest segments if there are more segments than the configured max number of segments.
+   */
+  private void applyRetention() {
+    final int maxSegments = this.configuration.getMaxSegments();
+    while (maxSegments > 0 && this.segments.size() > maxSegments) {
+      final Segment oldest = this.segments.pollFirstEntry().getValue();
+      oldest.close();
+      try {
+        Files.deleteIfExists(oldest.dataFile);
+        Files.deleteIfExists(oldest.indexFile);
+        Files.deleteIfExists(oldest.sortedIndexFile);
+        log.debug("Deleted audit store segment {}", oldest.dataFile);
+      }
+      catch (final IOException e) {
+        log.warn("Failed to delete audit store segment {} - {}", oldest.dataFile, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Loads the segments from the store directory. Sealed segments are opened using their sorted index files, and the
+   * index files of other segments are read. A segment that is not the last segment is sealed after its index file has
+   * been read.
+   *
+   * @throws IOException for read errors
+   */
+  private void load() throws IOException {
+    final List<Integer> numbers;
+    try (final Stream<Path> files = Files.list(this.directory)) {
+      numbers = files.map(f -> f.getFileName().toString())
+          .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(DATA_EXTENSION))
+          .map(n -> n.substring(SEGMENT_PREFIX.length(), n.length() - DATA_EXTENSION.length()))
+          .filter(n -> !n.isEmpty() && n.chars().allMatch(Character::isDigit))
+          .map(Integer::valueOf)
+          .sorted()
+          .collect(Collectors.toList());
+    }
+    for (int i = 0; i < numbers.size(); i++) {
+      final Segment segment = this.loadSegment(numbers.get(i), i == numbers.size() - 1);
+      if (segment != null) {
+        this.segments.put(segment.number, segment);
+      }
+    }
+    log.debug("Loaded audit store {} - {} segments", this.directory, this.segments.size());
+  }
+
+  /**
+   * Loads a segment.
+   *
+   * @param number the segment number
+   * @param last whether this is the last segment
+   * @return the segment, or null if the segment can not be loaded
+   * @throws IOException for read errors
+   */
+  @Nullable
+  private Segment loadSegment(final int number, final boolean last) throws IOException {
+    final ActiveSegment segment = new ActiveSegment(this.directory, number);
+    if (Files.exists(segment.sortedIndexFile)) {
+      try {
+        final SealedSegment sealed = new SealedSegment(this.directory, number);
+        // The index file is left if the process was terminated while the segment was sealed ...
+        Files.deleteIfExists(sealed.indexFile);
+        return sealed;
+      }
+      catch (final IOException e) {
+        if (!Files.exists(segment.indexFile)) {
+          log.error("Invalid sorted index for audit store segment {} - segment will not be searched - {}",
+              segment.dataFile, e.getMessage());
+          return null;
+        }
+        log.warn("Invalid sorted index for audit store segment {} - rebuilding from index file - {}",
+            segment.dataFile, e.getMessage());
+        Files.delete(segment.sortedIndexFile);
+      }
+    }
+    loadIndex(segment);
+    if (last) {
+      this.current = segment;
+      return segment;
+    }
+    try {
+      return segment.seal();
+    }
+    catch (final IOException e) {
+      log.warn("Failed to seal audit store segment {} - {}", segment.dataFile, e.getMessage(), e);
+      segment.openForRead();
+      return segment;
+    }
+  }
+
+  /**
+   * Reads the index file of a segment. Incomplete index records, and index records pointing outside of the segment
+   * file, end the reading, and the data and index files are truncated after the last valid record.
+   *
+   * @param segment the segment
+   * @throws IOException for read errors
+   */
+  private static void loadIndex(@Nonnull final ActiveSegment segment) throws IOException {
+    final long dataSize = Files.size(segment.dataFile);
+    long indexSize = 0;
+    if (Files.exists(segment.indexFile)) {
+      try (final DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.indexFile)))) {
+        while (true) {
+          final int recordLength = in.readInt();
+          if (recordLength <= 0 || recordLength > MAX_INDEX_RECORD_SIZE) {
+            break;
+          }
+          final byte[] record = new byte[recordLength];
+          in.readFully(record);
+          final DataInputStream r = new DataInputStream(new ByteArrayInputStream(record));
+          final long offset = r.readLong();
+          final int length = r.readInt();
+          final long timestamp = r.readLong();
+          final String eventId = r.readUTF();
+          final String requestId = r.readUTF();
+          final String clientId = r.readUTF();
+          if (offset != segment.size || offset + length + 1 > dataSize) {
+            break;
+          }
+          segment.add(offset, length, timestamp, eventId, requestId, clientId);
+          segment.size = offset + length + 1;
+          indexSize += 4 + recordLength;
+        }
+      }
+      catch (final EOFException e) {
+        // Incomplete record ...
+      }
+    }
+    if (dataSize > segment.size) {
+      log.warn("Audit store segment {} holds {} bytes that are not indexed - truncating",
+          segment.dataFile, dataSize - segment.size);
+      truncate(segment.dataFile, segment.size);
+    }
+    if (Files.exists(segment.indexFile) && Files.size(segment.indexFile) > indexSize) {
+      truncate(segment.indexFile, indexSize);
+    }
+  }
+
+  /**
+   * Gets the index key for a value. Null values, and values longer than {@value #MAX_KEY_LENGTH} characters, are
+   * represented by the empty string (meaning that they are not indexed).
+   */
+  @Nonnull
+  private static String toKey(@Nullable final String value) {
+    return value == null || value.length() > MAX_KEY_LENGTH ? "" : value;
+  }
+
+  /**
+   * Gets the value of the given event parameter.
+   */
+  @Nullable
+  private static String getParameter(@Nonnull final AuditEvent event, @Nonnull final String name) {
+    for (final AuditEventParameter p : event.getParameters()) {
+      if (name.equals(p.getName())) {
+        return p.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a binary index record, prefixed with the record length.
+   */
+  @Nonnull
+  private static ByteBuffer createIndexRecord(final long offset, final int length, final long timestamp,
+      @Nonnull final String eventId, @Nonnull final String requestId, @Nonnull final String clientId)
+      throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0);
+    out.writeLong(offset);
+    out.writeInt(length);
+    out.writeLong(timestamp);
+    out.writeUTF(eventId);
+    out.writeUTF(requestId);
+    out.writeUTF(clientId);
+    out.flush();
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    buffer.putInt(0, buffer.remaining() - 4);
+    return buffer;
+  }
+
+  /**
+   * Writes the buffer to the channel, at the given position or at the current position (if position is negative).
+   */
+  private static void writeFully(@Nonnull final FileChannel channel, @Nonnull final ByteBuffer buffer,
+      final long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (position < 0) {
+        channel.write(buffer);
+      }
+      else {
+        channel.write(buffer, position + buffer.position());
+      }
+    }
+  }
+
+  /**
+   * Truncates a file to the given size.
+   */
+  private static void truncate(@Nonnull final Path file, final long size) throws IOException {
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+    }
+  }
+
+  /**
+   * An index key, i.e., a key type and a value. The encoding of the key is the key type followed by the UTF-8 bytes of
+   * the value, and keys are ordered by comparing their encodings as unsigned bytes.
+   */
+  private static final class IndexKey {
+
+    /** The key type. */
+    final byte type;
+
+    /** The key value. */
+    final String value;
+
+    /** The encoded key. */
+    final byte[] encoding;
+
+    IndexKey(final byte type, @Nonnull final String value) {
+      this.type = type;
+      this.value = value;
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      this.encoding = new byte[bytes.length + 1];
+      this.encoding[0] = type;
+      System.arraycopy(bytes, 0, this.encoding, 1, bytes.length);
+    }
+  }
+
+  /**
+   * An ascending list of entry numbers.
+   */
+  private interface EntryList {
+
+    int size();
+
+    int get(final int index);
+
+    default boolean contains(final int entry) {
+      int low = 0;
+      int high = this.size() - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final int value = this.get(mid);
+        if (value < entry) {
+          low = mid + 1;
+        }
+        else if (value > entry) {
+          high = mid - 1;
+        }
+        else {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A growable list of entry numbers.
+   */
+  private static final class IntList implements EntryList {
+
+    /** The entry numbers. */
+    int[] values = new int[4];
+
+    /** The number of entries. */
+    int size = 0;
+
+    void add(final int value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+      return this.size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int get(final int index) {
+      return this.values[index];
+    }
+  }
+
+  /**
+   * A list of entry numbers in a sorted index file.
+   */
+  private static final class MappedEntryList implements EntryList {
+
+    /** The sorted index. */
+    private final ByteBuffer index;
+
+    /** The position of the first entry number. */
+    private final int position;
+
+    /** The number of entries. */
+    private final int size;
+
+    MappedEntryList(@Nonnull final ByteBuffer index, final int position, final int size) {
+      this.index = index;
+      this.position = position;
+      this.size = size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+      return this.size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int get(final int index) {
+      return this.index.getInt(this.position + index * 4);
+    }
+  }
+
+  /**
+   * A segment, i.e., a data file and its index.
+   */
+  private abstract static class Segment {
+
+    /** The store directory. */
+    final Path directory;
+
+    /** The segment number. */
+    final int number;
+
+    /** The data file. */
+    final Path dataFile;
+
+    /** The index file (used while the segment is written to). */
+    final Path indexFile;
+
+    /** The sorted index file (used when the segment has been sealed). */
+    final Path sortedIndexFile;
+
+    /** The channel for the data file. */
+    FileChannel dataChannel;
+
+    Segment(@Nonnull final Path directory, final int number) {
+      this.directory = directory;
+      this.number = number;
+      final String name = String.format("%s%06d", SEGMENT_PREFIX, number);
+      this.dataFile = directory.resolve(name + DATA_EXTENSION);
+      this.indexFile = directory.resolve(name + INDEX_EXTENSION);
+      this.sortedIndexFile = directory.resolve(name + SORTED_INDEX_EXTENSION);
+    }
+
+    /**
+     * Gets the number of entries.
+     */
+    abstract int getCount();
+
+    /**
+     * Gets the offset of an entry in the data file.
+     */
+    abstract long getOffset(final int entry);
+
+    /**
+     * Gets the length of an entry (excluding the line separator).
+     */
+    abstract int getLength(final int entry);
+
+    /**
+     * Gets the timestamp of an entry (millis since epoch).
+     */
+    abstract long getTimestamp(final int entry);
+
+    /**
+     * Gets the earliest event time of the segment.
+     */
+    abstract long getMinTime();
+
+    /**
+     * Gets the latest event time of the segment.
+     */
+    abstract long getMaxTime();
+
+    /**
+     * Gets the entries for the given key, or null if the key is not present in the segment.
+     */
+    @Nullable
+    abstract EntryList find(@Nonnull final IndexKey key);
+
+    /**
+     * Reads an entry.
+     */
+    @Nonnull
+    AuditStoreEntry read(final int entry) throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(this.getLength(entry));
+      final long offset = this.getOffset(entry);
+      while (buffer.hasRemaining()) {
+        if (this.dataChannel.read(buffer, offset + buffer.position()) < 0) {
+          throw new EOFException("Unexpected end of audit store segment " + this.dataFile);
+        }
+      }
+      return new AuditStoreEntry(Instant.ofEpochMilli(this.getTimestamp(entry)),
+          new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    void openForRead() throws IOException {
+      this.dataChannel = FileChannel.open(this.dataFile, StandardOpenOption.READ);
+    }
+
+    void close() {
+      closeChannel(this.dataChannel);
+      this.dataChannel = null;
+    }
+
+    static void closeChannel(@Nullable final FileChannel channel) {
+      if (channel != null) {
+        try {
+          channel.close();
+        }
+        catch (final IOException e) {
+          log.debug("Failed to close audit store file - {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * A segment that is (or has been) written to. Its index is held in memory.
+   */
+  private static final class ActiveSegment extends Segment {
+
+    /** The channel for the index file (null if the segment is not open for appending). */
+    FileChannel indexChannel;
+
+    /** The size of the indexed data. */
+    long size = 0;
+
+    /** The number of entries. */
+    int count = 0;
+
+    /** Entry offsets. */
+    long[] offsets = new long[256];
+
+    /** Entry lengths (excluding the line separator). */
+    int[] lengths = new int[256];
+
+    /** Entry timestamps (millis since epoch). */
+    long[] timestamps = new long[256];
+
+    /** The earliest event time of the segment. */
+    long minTime = Long.MAX_VALUE;
+
+    /** The latest event time of the segment. */
+    long maxTime = Long.MIN_VALUE;
+
+    /** Entry numbers per key value, one map per key type. */
+    final List<Map<String, IntList>> keys = List.of(new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+    ActiveSegment(@Nonnull final Path directory, final int number) {
+      super(directory, number);
+    }
+
+    /**
+     * Adds an entry.
+     */
+    void add(final long offset, final int length, final long timestamp, @Nonnull final String eventId,
+        @Nonnull final String requestId, @Nonnull final String clientId) {
+      if (this.count == this.offsets.length) {
+        final int capacity = this.count * 2;
+        this.offsets = Arrays.copyOf(this.offsets, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+        this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+      }
+      this.offsets[this.count] = offset;
+      this.lengths[this.count] = length;
+      this.timestamps[this.count] = timestamp;
+      this.minTime = Math.min(this.minTime, timestamp);
+      this.maxTime = Math.max(this.maxTime, timestamp);
+      this.addKey(REQUEST_ID_KEY, requestId);
+      this.addKey(CLIENT_ID_KEY, clientId);
+      this.addKey(EVENT_ID_KEY, eventId);
+      this.count++;
+    }
+
+    private void addKey(final byte type, @Nonnull final String value) {
+      if (!value.isEmpty()) {
+        this.keys.get(type).computeIfAbsent(value, k -> new IntList()).add(this.count);
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    int getCount() {
+      return this.count;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getOffset(final int entry) {
+      return this.offsets[entry];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    int getLength(final int entry) {
+      return this.lengths[entry];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getTimestamp(final int entry) {
+      return this.timestamps[entry];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getMinTime() {
+      return this.minTime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getMaxTime() {
+      return this.maxTime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    EntryList find(@Nonnull final IndexKey key) {
+      return this.keys.get(key.type).get(key.value);
+    }
+
+    void openForAppend() throws IOException {
+      this.close();
+      this.dataChannel = FileChannel.open(this.dataFile,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      this.indexChannel = FileChannel.open(this.indexFile,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    void closeForAppend() {
+      closeChannel(this.indexChannel);
+      this.indexChannel = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void close() {
+      super.close();
+      this.closeForAppend();
+    }
+
+    /**
+     * Writes the sorted index file for the segment, closes the segment and removes its index file.
+     *
+     * @return the sealed segment
+     * @throws IOException if the sorted index can not be written
+     */
+    @Nonnull
+    SealedSegment seal() throws IOException {
+      final Path tmpFile = this.sortedIndexFile.resolveSibling(this.sortedIndexFile.getFileName() + ".tmp");
+      this.writeSortedIndex(tmpFile);
+      try {
+        Files.move(tmpFile, this.sortedIndexFile, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (final AtomicMoveNotSupportedException e) {
+        Files.move(tmpFile, this.sortedIndexFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      final SealedSegment sealed = new SealedSegment(this.directory, this.number);
+      this.close();
+      try {
+        Files.deleteIfExists(this.indexFile);
+      }
+      catch (final IOException e) {
+        // It is removed when the store is opened again ...
+        log.debug("Failed to delete {} - {}", this.indexFile, e.getMessage());
+      }
+      log.debug("Sealed audit store segment {} - {} entries", this.dataFile, this.count);
+      return sealed;
+    }
+
+    /**
+     * Writes the sorted index. The file holds a header, the entry table, the key table (sorted by the key encodings),
+     * the key encodings (each prefixed with a two byte length), and the entry numbers of the keys.
+     */
+    private void writeSortedIndex(@Nonnull final Path file) throws IOException {
+      final List<Map.Entry<byte[], IntList>> sortedKeys = new ArrayList<>();
+      for (byte type = 0; type < this.keys.size(); type++) {
+        for (final Map.Entry<String, IntList> e : this.keys.get(type).entrySet()) {
+          sortedKeys.add(Map.entry(new IndexKey(type, e.getKey()).encoding, e.getValue()));
+        }
+      }
+      sortedKeys.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+      final long keyTablePosition = SORTED_INDEX_HEADER_SIZE + (long) this.count * SORTED_INDEX_ENTRY_SIZE;
+      final long keyDataPosition = keyTablePosition + (long) sortedKeys.size() * SORTED_INDEX_KEY_SIZE;
+      long refsPosition = keyDataPosition;
+      long fileSize = keyDataPosition;
+      for (final Map.Entry<byte[], IntList> key : sortedKeys) {
+        refsPosition += 2 + key.getKey().length;
+        fileSize += 2 + key.getKey().length + 4L * key.getValue().size;
+      }
+      if (fileSize > Integer.MAX_VALUE) {
+        throw new IOException("Sorted index for " + this.dataFile + " would exceed max size");
+      }
+
+      try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        final DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        out.writeInt(SORTED_INDEX_MAGIC);
+        out.writeInt(SORTED_INDEX_VERSION);
+        out.writeInt(this.count);
+        out.writeInt(sortedKeys.size());
+        out.writeLong(this.minTime);
+        out.writeLong(this.maxTime);
+        out.writeLong(this.size);
+        for (int i = 0; i < this.count; i++) {
+          out.writeLong(this.offsets[i]);
+          out.writeInt(this.lengths[i]);
+          out.writeLong(this.timestamps[i]);
+        }
+        long keyPosition = keyDataPosition;
+        long refPosition = refsPosition;
+        for (final Map.Entry<byte[], IntList> key : sortedKeys) {
+          out.writeInt((int) keyPosition);
+          out.writeInt((int) refPosition);
+          out.writeInt(key.getValue().size);
+          keyPosition += 2 + key.getKey().length;
+          refPosition += 4L * key.getValue().size;
+        }
+        for (final Map.Entry<byte[], IntList> key : sortedKeys) {
+          out.writeShort(key.getKey().length);
+          out.write(key.getKey());
+        }
+        for (final Map.Entry<byte[], IntList> key : sortedKeys) {
+          for (int i = 0; i < key.getValue().size; i++) {
+            out.writeInt(key.getValue().values[i]);
+          }
+        }
+        out.flush();
+        channel.force(true);
+      }
+    }
+  }
+
+  /**
+   * A sealed segment. Its sorted index file is memory mapped.
+   */
+  private static final class SealedSegment extends Segment {
+
+    /** The mapped sorted index. */
+    private final ByteBuffer index;
+
+    /** The number of entries. */
+    private final int count;
+
+    /** The number of keys. */
+    private final int keyCount;
+
+    /** The earliest event time of the segment. */
+    private final long minTime;
+
+    /** The latest event time of the segment. */
+    private final long maxTime;
+
+    /** The position of the key table. */
+    private final int keyTablePosition;
+
+    /**
+     * Opens a sealed segment.
+     *
+     * @throws IOException if the sorted index file is invalid
+     */
+    SealedSegment(@Nonnull final Path directory, final int number) throws IOException {
+      super(directory, number);
+      final MappedByteBuffer mapped;
+      try (final FileChannel channel = FileChannel.open(this.sortedIndexFile, StandardOpenOption.READ)) {
+        final long fileSize = channel.size();
+        if (fileSize < SORTED_INDEX_HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+          throw new IOException("Invalid size of " + this.sortedIndexFile);
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+      }
+      if (mapped.getInt(0) != SORTED_INDEX_MAGIC || mapped.getInt(4) != SORTED_INDEX_VERSION) {
+        throw new IOException("Unknown format of " + this.sortedIndexFile);
+      }
+      this.index = mapped;
+      this.count = mapped.getInt(8);
+      this.keyCount = mapped.getInt(12);
+      this.minTime = mapped.getLong(16);
+      this.maxTime = mapped.getLong(24);
+      final long dataSize = mapped.getLong(32);
+      final long keyTablePosition = SORTED_INDEX_HEADER_SIZE + (long) this.count * SORTED_INDEX_ENTRY_SIZE;
+      if (this.count < 0 || this.keyCount < 0
+          || keyTablePosition + (long) this.keyCount * SORTED_INDEX_KEY_SIZE > mapped.capacity()) {
+        throw new IOException("Invalid header in " + this.sortedIndexFile);
+      }
+      if (Files.size(this.dataFile) < dataSize) {
+        throw new IOException(this.dataFile + " is shorter than the indexed data");
+      }
+      this.keyTablePosition = (int) keyTablePosition;
+      this.openForRead();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    int getCount() {
+      return this.count;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getOffset(final int entry) {
+      return this.index.getLong(SORTED_INDEX_HEADER_SIZE + entry * SORTED_INDEX_ENTRY_SIZE);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    int getLength(final int entry) {
+      return this.index.getInt(SORTED_INDEX_HEADER_SIZE + entry * SORTED_INDEX_ENTRY_SIZE + 8);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getTimestamp(final int entry) {
+      return this.index.getLong(SORTED_INDEX_HEADER_SIZE + entry * SORTED_INDEX_ENTRY_SIZE + 12);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getMinTime() {
+      return this.minTime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    long getMaxTime() {
+      return this.maxTime;
+    }
+
+    /**
+     * Finds the key using binary search in the key table.
+     */
+    @Override
+    @Nullable
+    EntryList find(@Nonnull final IndexKey key) {
+      int low = 0;
+      int high = this.keyCount - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final int record = this.keyTablePosition + mid * SORTED_INDEX_KEY_SIZE;
+        final int cmp = this.compareKey(this.index.getInt(record), key.encoding);
+        if (cmp < 0) {
+          low = mid + 1;
+        }
+        else if (cmp > 0) {
+          high = mid - 1;
+        }
+        else {
+          return new MappedEntryList(this.index, this.index.getInt(record + 4), this.index.getInt(record + 8));
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Compares the key encoding at the given position with the supplied encoding (as unsigned bytes).
+     */
+    private int compareKey(final int position, @Nonnull final byte[] encoding) {
+      final int length = Short.toUnsignedInt(this.index.getShort(position));
+      final int n = Math.min(length, encoding.length);
+      for (int i = 0; i < n; i++) {
+        final int cmp = Integer.compare(
+            Byte.toUnsignedInt(this.index.get(position + 2 + i)), Byte.toUnsignedInt(encoding[i]));
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return Integer.compare(length, encoding.length);
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+/**
+ * Configuration for an {@link AuditStore}.
+ */
+public class AuditStoreConfiguration {
+
+  /** Default maximum size of a segment file (64 MB). */
+  public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+  /** Default maximum number of segments to keep (giving 1 GB of audit data with the default segment size). */
+  public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+  /** The maximum size (in bytes) of a segment file before a new segment is started. */
+  private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+
+  /** The maximum number of segments to keep. */
+  private int maxSegments = DEFAULT_MAX_SEGMENTS;
+
+  /**
+   * Gets the maximum size (in bytes) of a segment file before a new segment is started.
+   *
+   * @return the max segment size
+   */
+  public long getMaxSegmentSize() {
+    return this.maxSegmentSize;
+  }
+
+  /**
+   * Assigns the maximum size (in bytes) of a segment file before a new segment is started. The default is
+   * {@link #DEFAULT_MAX_SEGMENT_SIZE}.
+   *
+   * @param maxSegmentSize the max segment size
+   */
+  public void setMaxSegmentSize(final long maxSegmentSize) {
+    if (maxSegmentSize <= 0) {
+      throw new IllegalArgumentException("maxSegmentSize must be greater than 0");
+    }
+    this.maxSegmentSize = maxSegmentSize;
+  }
+
+  /**
+   * Gets the maximum number of segments to keep.
+   *
+   * @return the max number of segments, or 0 for no limit
+   */
+  public int getMaxSegments() {
+    return this.maxSegments;
+  }
+
+  /**
+   * Assigns the maximum number of segments to keep. When a new segment is started, the oldest segments exceeding this
+   * number are deleted. The default is {@link #DEFAULT_MAX_SEGMENTS}. Setting 0 means that no segments are deleted,
+   * and in that case the store must be cleaned up by other means.
+   *
+   * @param maxSegments the max number of segments
+   */
+  public void setMaxSegments(final int maxSegments) {
+    if (maxSegments < 0) {
+      throw new IllegalArgumentException("maxSegments must not be negative");
+    }
+    this.maxSegments = maxSegments;
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * An entry read from an {@link AuditStore}.
+ */
+public class AuditStoreEntry {
+
+  /** The event timestamp. */
+  private final Instant timestamp;
+
+  /** The stored event in JSON Lines format. */
+  private final String json;
+
+  /**
+   * Constructor.
+   *
+   * @param timestamp the event timestamp
+   * @param json the stored event in JSON Lines format
+   */
+  public AuditStoreEntry(@Nonnull final Instant timestamp, @Nonnull final String json) {
+    this.timestamp = Objects.requireNonNull(timestamp, "timestamp must not be null");
+    this.json = Objects.requireNonNull(json, "json must not be null");
+  }
+
+  /**
+   * Gets the event timestamp.
+   *
+   * @return the timestamp
+   */
+  @Nonnull
+  public Instant getTimestamp() {
+    return this.timestamp;
+  }
+
+  /**
+   * Gets the stored event in JSON Lines format (see
+   * {@link se.swedenconnect.signservice.audit.base.format.JsonLinesAuditEventFormatter}).
+   *
+   * @return the JSON representation of the event
+   */
+  @Nonnull
+  public String getJson() {
+    return this.json;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return this.json;
+  }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.time.Instant;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * A query against an {@link AuditStore}. All criteria that are assigned must match for an entry to be returned.
+ */
+public class AuditStoreQuery {
+
+  /** Default maximum number of entries returned. */
+  public static final int DEFAULT_LIMIT = 1000;
+
+  /** The request ID to match. */
+  private String requestId;
+
+  /** The client ID to match. */
+  private String clientId;
+
+  /** The event ID to match. */
+  private String eventId;
+
+  /** The earliest event time (inclusive). */
+  private Instant from;
+
+  /** The latest event time (exclusive). */
+  private Instant to;
+
+  /** The maximum number of entries to return. */
+  private int limit = DEFAULT_LIMIT;
+
+  /**
+   * Gets the request ID to match.
+   *
+   * @return the request ID, or null
+   */
+  @Nullable
+  public String getRequestId() {
+    return this.requestId;
+  }
+
+  /**
+   * Assigns the request ID to match.
+   *
+   * @param requestId the request ID
+   */
+  public void setRequestId(@Nullable final String requestId) {
+    this.requestId = requestId;
+  }
+
+  /**
+   * Gets the client ID to match.
+   *
+   * @return the client ID, or null
+   */
+  @Nullable
+  public String getClientId() {
+    return this.clientId;
+  }
+
+  /**
+   * Assigns the client ID to match.
+   *
+   * @param clientId the client ID
+   */
+  public void setClientId(@Nullable final String clientId) {
+    this.clientId = clientId;
+  }
+
+  /**
+   * Gets the event ID to match.
+   *
+   * @return the event ID, or null
+   */
+  @Nullable
+  public String getEventId() {
+    return this.eventId;
+  }
+
+  /**
+   * Assigns the event ID to match.
+   *
+   * @param eventId the event ID
+   */
+  public void setEventId(@Nullable final String eventId) {
+    this.eventId = eventId;
+  }
+
+  /**
+   * Gets the earliest event time (inclusive).
+   *
+   * @return the from time, or null
+   */
+  @Nullable
+  public Instant getFrom() {
+    return this.from;
+  }
+
+  /**
+   * Assigns the earliest event time (inclusive).
+   *
+   * @param from the from time
+   */
+  public void setFrom(@Nullable final Instant from) {
+    this.from = from;
+  }
+
+  /**
+   * Gets the latest event time (exclusive).
+   *
+   * @return the to time, or null
+   */
+  @Nullable
+  public Instant getTo() {
+    return this.to;
+  }
+
+  /**
+   * Assigns the latest event time (exclusive).
+   *
+   * @param to the to time
+   */
+  public void setTo(@Nullable final Instant to) {
+    this.to = to;
+  }
+
+  /**
+   * Gets the maximum number of entries to return. If more entries match, the most recent entries are returned.
+   *
+   * @return the limit
+   */
+  public int getLimit() {
+    return this.limit;
+  }
+
+  /**
+   * Assigns the maximum number of entries to return. If more entries match, the most recent entries are returned. The
+   * default is {@link #DEFAULT_LIMIT}.
+   *
+   * @param limit the limit
+   */
+  public void setLimit(final int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be greater than 0");
+    }
+    this.limit = limit;
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
+
+/**
+ * An audit logger that writes events to an {@link AuditStore}, making it possible to look up events by request ID,
+ * client ID, event ID and time.
+ * <p>
+ * The logger is typically used as one of the sinks of a
+ * {@link se.swedenconnect.signservice.audit.composite.CompositeAuditLogger}, in combination with a logger that writes
+ * to the ordinary audit log.
+ * </p>
+ */
+public class StoreAuditLogger extends AbstractAuditLogger implements AutoCloseable {
+
+  /** Logger. */
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StoreAuditLogger.class);
+
+  /** The audit store. */
+  private final AuditStore store;
+
+  /** Invoked when the logger is closed. */
+  private final Runnable closeAction;
+
+  /** Whether the logger has been closed. */
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  /**
+   * Constructor. The logger owns the store, and closes it when the logger is closed.
+   *
+   * @param store the audit store to write to
+   */
+  public StoreAuditLogger(@Nonnull final AuditStore store) {
+    this(store, () -> store.close());
+  }
+
+  /**
+   * Constructor for a logger that shares its store with other loggers. Instead of closing the store, the supplied
+   * action is invoked when the logger is closed.
+   *
+   * @param store the audit store to write to
+   * @param closeAction invoked when the logger is closed
+   */
+  StoreAuditLogger(@Nonnull final AuditStore store, @Nonnull final Runnable closeAction) {
+    this.store = Objects.requireNonNull(store, "store must not be null");
+    this.closeAction = Objects.requireNonNull(closeAction, "closeAction must not be null");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void auditLog(@Nonnull final AuditEvent event) throws AuditLoggerException {
+    if (event == null) {
+      throw new AuditLoggerException("event must not be null");
+    }
+    if (!this.isEnabled(event.getId())) {
+      return;
+    }
+    try {
+      log.debug("Audit logger '{}' storing audit event '{}'", this.getName(), event.getId());
+      this.store.append(event);
+    }
+    catch (final IOException e) {
+      final String msg = String.format("Audit logger '%s' failed to store audit event - %s",
+          this.getName(), e.getMessage());
+      log.error("{}", msg, e);
+      throw new AuditLoggerException(msg, e);
+    }
+  }
+
+  /**
+   * Gets the audit store that this logger writes to.
+   *
+   * @return the audit store
+   */
+  @Nonnull
+  public AuditStore getStore() {
+    return this.store;
+  }
+
+  /**
+   * Closes the logger. If the logger owns the store, the store is closed. If the logger was created by a
+   * {@link StoreAuditLoggerFactory}, the store is closed when all loggers using it have been closed. The method is
+   * annotated with {@code PreDestroy} meaning that the method will be automatically be invoked by frameworks supporting
+   * this annotation.
+   */
+  @Override
+  @PreDestroy
+  public void close() {
+    if (this.closed.compareAndSet(false, true)) {
+      this.closeAction.run();
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+
+/**
+ * Handler configuration for creating {@link StoreAuditLogger} instances.
+ */
+public class StoreAuditLoggerConfiguration extends AbstractAuditLoggerConfiguration {
+
+  /** The directory where the audit store keeps its files. */
+  private String directory;
+
+  /** The maximum size (in bytes) of a segment file. If not assigned, 64 MB is used. */
+  private Long maxSegmentSize;
+
+  /**
+   * The maximum number of segments to keep. If not assigned, {@value AuditStoreConfiguration#DEFAULT_MAX_SEGMENTS} is
+   * used. Setting 0 means that all segments are kept.
+   */
+  private Integer maxSegments;
+
+  /**
+   * Gets the directory where the audit store keeps its files.
+   *
+   * @return the directory
+   */
+  @Nullable
+  public String getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Assigns the directory where the audit store keeps its files.
+   *
+   * @param directory the directory
+   */
+  public void setDirectory(@Nonnull final String directory) {
+    this.directory = Optional.ofNullable(directory)
+        .filter(StringUtils::isNotBlank)
+        .orElseThrow(() -> new NullPointerException("directory must not be null or empty"));
+  }
+
+  /**
+   * Gets the maximum size (in bytes) of a segment file.
+   *
+   * @return the max segment size, or null if the default should be used
+   */
+  @Nullable
+  public Long getMaxSegmentSize() {
+    return this.maxSegmentSize;
+  }
+
+  /**
+   * Assigns the maximum size (in bytes) of a segment file. If not assigned, 64 MB is used.
+   *
+   * @param maxSegmentSize the max segment size
+   */
+  public void setMaxSegmentSize(@Nullable final Long maxSegmentSize) {
+    this.maxSegmentSize = maxSegmentSize;
+  }
+
+  /**
+   * Gets the maximum number of segments to keep.
+   *
+   * @return the max number of segments, or null if the default should be used
+   */
+  @Nullable
+  public Integer getMaxSegments() {
+    return this.maxSegments;
+  }
+
+  /**
+   * Assigns the maximum number of segments to keep. If not assigned,
+   * {@value AuditStoreConfiguration#DEFAULT_MAX_SEGMENTS} is used. Setting 0 means that all segments are kept.
+   *
+   * @param maxSegments the max number of segments
+   */
+  public void setMaxSegments(@Nullable final Integer maxSegments) {
+    this.maxSegments = maxSegments;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  protected String getDefaultFactoryClass() {
+    return StoreAuditLoggerFactory.class.getName();
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerFactory;
+import se.swedenconnect.signservice.core.config.BeanLoader;
+import se.swedenconnect.signservice.core.config.HandlerConfiguration;
+
+/**
+ * A handler factory for creating {@link StoreAuditLogger} instances.
+ * <p>
+ * The factory keeps track of the stores it has opened. Loggers configured with the same directory share the same
+ * store, and the stores are made available through {@link #getStores()} so that they can be queried, for example by
+ * an actuator endpoint.
+ * </p>
+ * <p>
+ * A store is closed when all loggers using it have been closed, or when the factory is closed.
+ * </p>
+ */
+public class StoreAuditLoggerFactory extends AbstractAuditLoggerFactory implements AutoCloseable {
+
+  /** The stores opened by this factory, and the number of open loggers using each store. */
+  private final Map<AuditStore, Integer> stores = new LinkedHashMap<>();
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  protected AbstractAuditLogger createAuditLogger(
+      @Nullable final HandlerConfiguration<AuditLogger> configuration, @Nullable final BeanLoader beanLoader)
+      throws IllegalArgumentException {
+
+    if (configuration == null) {
+      throw new IllegalArgumentException("Missing configuration for " + StoreAuditLogger.class.getSimpleName());
+    }
+    if (!StoreAuditLoggerConfiguration.class.isInstance(configuration)) {
+      throw new IllegalArgumentException(
+          "Unknown configuration object supplied - " + configuration.getClass().getSimpleName());
+    }
+    final StoreAuditLoggerConfiguration conf = StoreAuditLoggerConfiguration.class.cast(configuration);
+    if (conf.getDirectory() == null) {
+      throw new IllegalArgumentException("The directory property must not be null");
+    }
+    final AuditStore store = this.getStore(conf);
+    return new StoreAuditLogger(store, () -> this.release(store));
+  }
+
+  /**
+   * Gets the open stores of this factory.
+   *
+   * @return a list of audit stores
+   */
+  @Nonnull
+  public synchronized List<AuditStore> getStores() {
+    return new ArrayList<>(this.stores.keySet());
+  }
+
+  /**
+   * Closes all stores opened by this factory. The method is annotated with {@code PreDestroy} meaning that the method
+   * will be automatically be invoked by frameworks supporting this annotation.
+   */
+  @Override
+  @PreDestroy
+  public synchronized void close() {
+    this.stores.keySet().forEach(AuditStore::close);
+    this.stores.clear();
+  }
+
+  /**
+   * Gets the store for the configured directory, opening it if needed, and increases its use count.
+   *
+   * @param conf the configuration
+   * @return an audit store
+   * @throws IllegalArgumentException if the store can not be opened
+   */
+  @Nonnull
+  private synchronized AuditStore getStore(@Nonnull final StoreAuditLoggerConfiguration conf)
+      throws IllegalArgumentException {
+    final Path directory = Path.of(conf.getDirectory()).toAbsolutePath().normalize();
+    for (final Map.Entry<AuditStore, Integer> entry : this.stores.entrySet()) {
+      if (entry.getKey().getDirectory().equals(directory)) {
+        entry.setValue(entry.getValue() + 1);
+        return entry.getKey();
+      }
+    }
+    final AuditStoreConfiguration storeConfiguration = new AuditStoreConfiguration();
+    if (conf.getMaxSegmentSize() != null) {
+      storeConfiguration.setMaxSegmentSize(conf.getMaxSegmentSize());
+    }
+    if (conf.getMaxSegments() != null) {
+      storeConfiguration.setMaxSegments(conf.getMaxSegments());
+    }
+    try {
+      final AuditStore store = new AuditStore(directory, storeConfiguration);
+      this.stores.put(store, 1);
+      return store;
+    }
+    catch (final IOException e) {
+      throw new IllegalArgumentException("Failed to open audit store - " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Invoked when a logger using the store is closed. The store is closed when it is no longer used.
+   *
+   * @param store the store
+   */
+  private synchronized void release(@Nonnull final AuditStore store) {
+    final Integer count = this.stores.get(store);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      this.stores.put(store, count - 1);
+    }
+    else {
+      this.stores.remove(store);
+      store.close();
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package se.swedenconnect.signservice.audit.base;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.lang.reflect.Field;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -53,6 +54,27 @@ public class AbstractAuditLoggerFactoryTest {
     Assertions.assertNull(eventFactory);
   }
 
+  @Test
+  public void testEventFilter() throws Exception {
+    final TestAuditLoggerConfiguration config = new TestAuditLoggerConfiguration();
+    config.setName("AUDIT_LOGGER_HANDLER");
+    config.setIncludedEvents(List.of("audit.engine.*"));
+    config.setExcludedEvents(List.of("audit.engine.session.reset"));
+
+    final AuditLogger logger = new TestAuditLoggerFactory().create(config);
+    Assertions.assertTrue(logger.isEnabled("audit.engine.user.authenticated"));
+    Assertions.assertFalse(logger.isEnabled("audit.engine.session.reset"));
+    Assertions.assertFalse(logger.isEnabled("audit.system.started"));
+
+    // The builder function is not invoked for disabled events
+    logger.auditLog("audit.system.started", (b) -> {
+      throw new IllegalStateException("Builder should not be invoked");
+    });
+
+    // No filter - all events are enabled
+    Assertions.assertTrue(new TestAuditLoggerFactory().create(null).isEnabled("audit.system.started"));
+  }
+
   @Test
   public void testWithConfig() throws Exception {
     final TestAuditLoggerConfiguration config = new TestAuditLoggerConfiguration();
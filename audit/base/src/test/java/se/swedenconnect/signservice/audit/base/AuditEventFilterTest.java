@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for AuditEventFilter.
+ */
+public class AuditEventFilterTest {
+
+  @Test
+  public void testNoPatterns() {
+    final AuditEventFilter filter = new AuditEventFilter(null, null);
+    Assertions.assertTrue(filter.isEnabled("audit.engine.started"));
+
+    final AuditEventFilter filter2 = new AuditEventFilter(List.of(), Arrays.asList(" ", null));
+    Assertions.assertTrue(filter2.isEnabled("audit.engine.started"));
+  }
+
+  @Test
+  public void testIncludes() {
+    final AuditEventFilter filter = new AuditEventFilter(List.of("audit.engine.*", " audit.system.started "), null);
+    Assertions.assertTrue(filter.isEnabled("audit.engine.started"));
+    Assertions.assertTrue(filter.isEnabled("audit.system.started"));
+    Assertions.assertFalse(filter.isEnabled("audit.system.notfound"));
+
+    // Again (cached decision)
+    Assertions.assertFalse(filter.isEnabled("audit.system.notfound"));
+    Assertions.assertTrue(filter.isEnabled("audit.engine.started"));
+  }
+
+  @Test
+  public void testExcludes() {
+    final AuditEventFilter filter =
+        new AuditEventFilter(null, List.of("audit.engine.session.*", "audit.system.started"));
+    Assertions.assertTrue(filter.isEnabled("audit.engine.started"));
+    Assertions.assertFalse(filter.isEnabled("audit.engine.session.reset"));
+    Assertions.assertFalse(filter.isEnabled("audit.system.started"));
+  }
+
+  @Test
+  public void testIncludesAndExcludes() {
+    final AuditEventFilter filter = new AuditEventFilter(List.of("*"), List.of("audit.engine.*"));
+    Assertions.assertTrue(filter.isEnabled("audit.system.started"));
+    Assertions.assertFalse(filter.isEnabled("audit.engine.started"));
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditEventParameter;
+
+/**
+ * Test cases for IndexedAuditEvent.
+ */
+public class IndexedAuditEventTest {
+
+  @Test
+  public void testCreateEvent() {
+    IndexedAuditEvent event = new IndexedAuditEvent("id", "principal");
+    assertThat(event.getId()).isEqualTo("id");
+    assertThat(event.getPrincipal()).isEqualTo("principal");
+    Assertions.assertNotNull(event.getTimestamp());
+
+    event = new IndexedAuditEvent("id");
+    assertThat(event.getPrincipal()).isEqualTo(AuditEvent.DEFAULT_PRINCIPAL);
+    event.setPrincipal("PPP");
+    assertThat(event.getPrincipal()).isEqualTo("PPP");
+
+    final IndexedAuditEvent event2 = event;
+    assertThatThrownBy(() -> event2.setPrincipal("P2"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("principal has already been assigned");
+
+    Assertions.assertTrue(new IndexedAuditEventFactory().createAuditEvent("id") instanceof IndexedAuditEvent);
+  }
+
+  @Test
+  public void testParameters() {
+    final IndexedAuditEvent event = new IndexedAuditEvent("id", "principal");
+    event.addParameter("param1", "value1");
+    event.addParameter("param2", "value2");
+    event.addParameter(new AuditEventParameter("param3", null));
+
+    // Replacing a parameter keeps its position
+    event.addParameter("param1", "value1b");
+
+    assertThat(event.getParameters())
+        .containsExactly(new AuditEventParameter("param1", "value1b"), new AuditEventParameter("param2", "value2"),
+            new AuditEventParameter("param3", null));
+    Assertions.assertEquals("value2", event.getParameter("param2").getValue());
+    Assertions.assertNull(event.getParameter("param4"));
+
+    assertThatThrownBy(() -> event.getParameters().add(new AuditEventParameter("a", "b")))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> event.addParameter(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("parameter must not be null");
+    assertThatThrownBy(() -> event.addParameter(null, "value"))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("name must not be null");
+  }
+
+  @Test
+  public void testToString() {
+    final SignServiceAuditEvent expected = new SignServiceAuditEvent("id", "principal");
+    expected.addParameter("param1", "value1");
+    final IndexedAuditEvent event = new IndexedAuditEvent("id", "principal");
+    event.addParameter("param1", "value1");
+
+    Assertions.assertEquals(expected.toString().substring(expected.toString().indexOf(" | ")),
+        event.toString().substring(event.toString().indexOf(" | ")));
+  }
+
+}
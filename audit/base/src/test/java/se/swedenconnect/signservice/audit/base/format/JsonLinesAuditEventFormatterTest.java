@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.base.format;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.base.events.IndexedAuditEvent;
+import se.swedenconnect.signservice.audit.base.events.SignServiceAuditEvent;
+
+/**
+ * Test cases for JsonLinesAuditEventFormatter.
+ */
+public class JsonLinesAuditEventFormatterTest {
+
+  @Test
+  public void testFormat() {
+    final AuditEvent event = new SignServiceAuditEvent("audit.test", "client");
+    event.addParameter("param1", "value1");
+    event.addParameter("param2", null);
+
+    final String expected = String.format(
+        "{\"timestamp\":\"%s\",\"principal\":\"client\",\"id\":\"audit.test\","
+            + "\"parameters\":{\"param1\":\"value1\",\"param2\":null}}",
+        event.getTimestamp());
+
+    final JsonLinesAuditEventFormatter formatter = new JsonLinesAuditEventFormatter();
+    Assertions.assertEquals(expected, formatter.format(event));
+
+    // The per-thread buffer is reset between calls
+    Assertions.assertEquals(expected, formatter.format(event));
+
+    final StringBuilder sb = new StringBuilder("prefix:");
+    formatter.formatTo(event, sb);
+    Assertions.assertEquals("prefix:" + expected, sb.toString());
+  }
+
+  @Test
+  public void testNoParameters() {
+    final AuditEvent event = new IndexedAuditEvent("audit.test");
+    Assertions.assertEquals(String.format(
+        "{\"timestamp\":\"%s\",\"principal\":\"%s\",\"id\":\"audit.test\",\"parameters\":{}}",
+        event.getTimestamp(), AuditEvent.DEFAULT_PRINCIPAL),
+        new JsonLinesAuditEventFormatter().format(event));
+  }
+
+  @Test
+  public void testEscaping() {
+    final AuditEvent event = new IndexedAuditEvent("audit.test", "cli\"ent");
+    event.addParameter("back\\slash", "line1\nline2\r\tend\u0001");
+
+    final String result = new JsonLinesAuditEventFormatter().format(event);
+    Assertions.assertTrue(result.contains("\"principal\":\"cli\\\"ent\""));
+    Assertions.assertTrue(result.contains("\"back\\\\slash\":\"line1\\nline2\\r\\tend\\u0001\""));
+    Assertions.assertEquals(-1, result.indexOf('\n'));
+  }
+
+  @Test
+  public void testLargeEvent() {
+    final AuditEvent event = new IndexedAuditEvent("audit.test");
+    event.addParameter("large", "x".repeat(100_000));
+    final JsonLinesAuditEventFormatter formatter = new JsonLinesAuditEventFormatter();
+    Assertions.assertTrue(formatter.format(event).length() > 100_000);
+
+    // A new (small) buffer is used for the next event
+    event.addParameter("large", "y");
+    Assertions.assertTrue(formatter.format(event).endsWith("\"large\":\"y\"}}"));
+  }
+
+  @Test
+  public void testAuditEventFormat() {
+    Assertions.assertNull(AuditEventFormat.DEFAULT.createFormatter());
+    Assertions.assertTrue(AuditEventFormat.JSON_LINES.createFormatter() instanceof JsonLinesAuditEventFormatter);
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.base.events.SignServiceAuditEvent;
+import se.swedenconnect.signservice.audit.callback.CallbackAuditLogger;
+import se.swedenconnect.signservice.audit.composite.AuditSinkConfiguration.OverflowPolicy;
+
+/**
+ * Test cases for AuditSink.
+ */
+public class AuditSinkTest {
+
+  @Test
+  public void testSubmit() throws Exception {
+    final List<AuditEvent> events = new CopyOnWriteArrayList<>();
+    final CountDownLatch latch = new CountDownLatch(2);
+    final AuditSink sink = new AuditSink(new CallbackAuditLogger(e -> {
+      events.add(e);
+      latch.countDown();
+    }), null);
+    try {
+      Assertions.assertEquals("CallbackAuditLogger", sink.getName());
+      Assertions.assertTrue(sink.isEnabled("id1"));
+      sink.submit(new SignServiceAuditEvent("id1"));
+      sink.submit(new SignServiceAuditEvent("id2"));
+      Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+    finally {
+      sink.close();
+    }
+    Assertions.assertEquals(2, events.size());
+    Assertions.assertEquals("id1", events.get(0).getId());
+    Assertions.assertEquals(2, sink.getLoggedCount());
+    Assertions.assertEquals(0, sink.getQueueDepth());
+
+    assertThatThrownBy(() -> sink.submit(new SignServiceAuditEvent("id3")))
+        .isInstanceOf(AuditLoggerException.class)
+        .hasMessageContaining("has been closed");
+  }
+
+  @Test
+  public void testDropOldest() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<AuditEvent> events = new CopyOnWriteArrayList<>();
+    final AuditSinkConfiguration conf = new AuditSinkConfiguration();
+    conf.setQueueCapacity(2);
+    conf.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+
+    final AuditSink sink = new AuditSink(new CallbackAuditLogger(e -> {
+      started.countDown();
+      await(release);
+      events.add(e);
+    }), conf);
+
+    sink.submit(new SignServiceAuditEvent("id0"));
+    Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // id0 is being logged, id1 and id2 fill the queue, id3 and id4 push out id1 and id2
+    for (int i = 1; i <= 4; i++) {
+      sink.submit(new SignServiceAuditEvent("id" + i));
+    }
+    Assertions.assertEquals(2, sink.getDroppedCount());
+    Assertions.assertEquals(2, sink.getQueueDepth());
+
+    release.countDown();
+    sink.close();
+    Assertions.assertEquals(List.of("id0", "id3", "id4"), events.stream().map(AuditEvent::getId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testFail() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AuditSinkConfiguration conf = new AuditSinkConfiguration();
+    conf.setQueueCapacity(1);
+    conf.setOverflowPolicy(OverflowPolicy.FAIL);
+
+    final AuditSink sink = new AuditSink(new CallbackAuditLogger(e -> {
+      started.countDown();
+      await(release);
+    }), conf);
+    try {
+      sink.submit(new SignServiceAuditEvent("id0"));
+      Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+      sink.submit(new SignServiceAuditEvent("id1"));
+
+      assertThatThrownBy(() -> sink.submit(new SignServiceAuditEvent("id2")))
+          .isInstanceOf(AuditLoggerException.class)
+          .hasMessage("Audit event queue for sink CallbackAuditLogger is full");
+      Assertions.assertEquals(1, sink.getRejectedCount());
+    }
+    finally {
+      release.countDown();
+      sink.close();
+    }
+    Assertions.assertEquals(2, sink.getLoggedCount());
+  }
+
+  @Test
+  public void testBlock() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AuditSinkConfiguration conf = new AuditSinkConfiguration();
+    conf.setQueueCapacity(1);
+    conf.setMaxBlockTime(Duration.ofMillis(50));
+
+    final AuditSink sink = new AuditSink(new CallbackAuditLogger(e -> {
+      started.countDown();
+      await(release);
+    }), conf);
+    try {
+      sink.submit(new SignServiceAuditEvent("id0"));
+      Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+      sink.submit(new SignServiceAuditEvent("id1"));
+
+      assertThatThrownBy(() -> sink.submit(new SignServiceAuditEvent("id2")))
+          .isInstanceOf(AuditLoggerException.class)
+          .hasMessageContaining("no space available within");
+      Assertions.assertEquals(1, sink.getRejectedCount());
+    }
+    finally {
+      release.countDown();
+      sink.close();
+    }
+  }
+
+  @Test
+  public void testLoggerError() throws Exception {
+    final AuditSink sink = new AuditSink(new CallbackAuditLogger(e -> {
+      throw new IllegalStateException("failure");
+    }), null);
+    sink.submit(new SignServiceAuditEvent("id1"));
+    sink.close();
+    Assertions.assertEquals(1, sink.getErrorCount());
+    Assertions.assertEquals(0, sink.getLoggedCount());
+  }
+
+  @Test
+  public void testConfiguration() {
+    final AuditSinkConfiguration conf = new AuditSinkConfiguration();
+    Assertions.assertEquals(AuditSinkConfiguration.DEFAULT_QUEUE_CAPACITY, conf.getQueueCapacity());
+    Assertions.assertEquals(OverflowPolicy.BLOCK, conf.getOverflowPolicy());
+    Assertions.assertEquals(AuditSinkConfiguration.DEFAULT_MAX_BLOCK_TIME, conf.getMaxBlockTime());
+
+    assertThatThrownBy(() -> conf.setQueueCapacity(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> conf.setOverflowPolicy(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("overflowPolicy must not be null");
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.callback.AuditLoggerListener;
+import se.swedenconnect.signservice.audit.callback.CallbackAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.logsystem.LogSystemAuditLoggerConfiguration;
+import se.swedenconnect.signservice.core.config.HandlerConfiguration;
+import se.swedenconnect.signservice.core.config.HandlerFactoryRegistry;
+
+/**
+ * Test cases for CompositeAuditLoggerFactory.
+ */
+public class CompositeAuditLoggerFactoryTest {
+
+  @Test
+  public void testCreate() {
+    final List<AuditEvent> events = new ArrayList<>();
+    final CallbackAuditLoggerConfiguration callbackConf = new CallbackAuditLoggerConfiguration();
+    final AuditLoggerListener listener = events::add;
+    callbackConf.setListener(listener);
+    final LogSystemAuditLoggerConfiguration logSystemConf = new LogSystemAuditLoggerConfiguration();
+    logSystemConf.setLoggerName("AUDIT");
+
+    final AuditSinkConfiguration sink1 = new AuditSinkConfiguration();
+    sink1.setConfiguration(callbackConf);
+    final AuditSinkConfiguration sink2 = new AuditSinkConfiguration();
+    sink2.setConfigRef("log-system");
+
+    final CompositeAuditLoggerConfiguration conf = new CompositeAuditLoggerConfiguration();
+    conf.setName("composite");
+    conf.setPrincipal("principal");
+    conf.setSinks(List.of(sink1, sink2));
+    Assertions.assertTrue(conf.needsSinkConfigResolving());
+    conf.resolveSinkConfigRefs(ref -> "log-system".equals(ref) ? logSystemConf : null);
+    Assertions.assertFalse(conf.needsSinkConfigResolving());
+
+    final CompositeAuditLoggerFactory factory = new CompositeAuditLoggerFactory();
+    factory.setHandlerFactoryRegistry(new HandlerFactoryRegistry());
+    final AuditLogger logger = factory.create(conf);
+    Assertions.assertTrue(CompositeAuditLogger.class.isInstance(logger));
+    Assertions.assertEquals("composite", logger.getName());
+    Assertions.assertEquals(2, CompositeAuditLogger.class.cast(logger).getSinks().size());
+
+    // The sink configurations may be shared with other loggers and must not be changed
+    Assertions.assertNull(callbackConf.getPrincipal());
+    Assertions.assertNull(logSystemConf.getPrincipal());
+
+    // The sink loggers are created from copies of the configurations
+    logger.auditLog("id1", b -> b.build());
+    CompositeAuditLogger.class.cast(logger).close();
+    Assertions.assertEquals(1, events.size());
+    Assertions.assertEquals("principal", events.get(0).getPrincipal());
+  }
+
+  @Test
+  public void testUnresolvedReference() {
+    final AuditSinkConfiguration sink = new AuditSinkConfiguration();
+    sink.setConfigRef("file");
+    final CompositeAuditLoggerConfiguration conf = new CompositeAuditLoggerConfiguration();
+    conf.setSinks(List.of(sink));
+
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(conf))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Sink configuration references have not been resolved");
+
+    assertThatThrownBy(() -> conf.resolveSinkConfigRefs(ref -> null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Sink configuration reference 'file' could not be resolved");
+  }
+
+  @Test
+  public void testMissingSinks() {
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(new CompositeAuditLoggerConfiguration()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("No sinks assigned for CompositeAuditLogger");
+
+    final CompositeAuditLoggerConfiguration conf = new CompositeAuditLoggerConfiguration();
+    conf.setSinks(List.of(new AuditSinkConfiguration()));
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(conf))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Missing audit logger configuration for sink");
+  }
+
+  @Test
+  public void testNestedComposite() {
+    final AuditSinkConfiguration sink = new AuditSinkConfiguration();
+    sink.setConfiguration(new CompositeAuditLoggerConfiguration());
+    final CompositeAuditLoggerConfiguration conf = new CompositeAuditLoggerConfiguration();
+    conf.setSinks(List.of(sink));
+
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(conf))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("A sink can not be a CompositeAuditLogger");
+  }
+
+  @Test
+  public void testNullConfig() {
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Missing configuration for CompositeAuditLogger");
+  }
+
+  @Test
+  public void testWrongType() {
+    final HandlerConfiguration<AuditLogger> conf = new AbstractAuditLoggerConfiguration() {
+      @Override
+      protected String getDefaultFactoryClass() {
+        return null;
+      }
+    };
+    assertThatThrownBy(() -> new CompositeAuditLoggerFactory().create(conf))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Unknown configuration object supplied - ");
+  }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.composite;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.base.AuditEventFilter;
+import se.swedenconnect.signservice.audit.callback.AuditLoggerListener;
+import se.swedenconnect.signservice.audit.callback.CallbackAuditLogger;
+import se.swedenconnect.signservice.audit.composite.AuditSinkConfiguration.OverflowPolicy;
+
+/**
+ * Test cases for CompositeAuditLogger.
+ */
+public class CompositeAuditLoggerTest {
+
+  @Test
+  public void testFanOut() throws Exception {
+    final List<AuditEvent> events1 = new CopyOnWriteArrayList<>();
+    final List<AuditEvent> events2 = new CopyOnWriteArrayList<>();
+    final CallbackAuditLogger logger2 = new CallbackAuditLogger(events2::add);
+    logger2.setEventFilter(new AuditEventFilter(null, List.of("id2")));
+
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(
+        new AuditSink(new CallbackAuditLogger(events1::add), null),
+        new AuditSink(logger2, null)));
+    logger.setDefaultPrincipal("principal");
+
+    logger.auditLog("id1", b -> b.parameter("param", "value").build());
+    logger.auditLog("id2", b -> b.build());
+    logger.close();
+
+    Assertions.assertEquals(2, events1.size());
+    Assertions.assertEquals("principal", events1.get(0).getPrincipal());
+    Assertions.assertEquals(1, events2.size());
+    Assertions.assertEquals("id1", events2.get(0).getId());
+    Assertions.assertEquals(2, logger.getSinks().get(0).getLoggedCount());
+    Assertions.assertEquals(1, logger.getSinks().get(1).getLoggedCount());
+  }
+
+  @Test
+  public void testIsEnabled() {
+    final CallbackAuditLogger logger1 = new CallbackAuditLogger(e -> {});
+    logger1.setEventFilter(new AuditEventFilter(List.of("a.*"), null));
+    final CallbackAuditLogger logger2 = new CallbackAuditLogger(e -> {});
+    logger2.setEventFilter(new AuditEventFilter(List.of("b.*"), null));
+
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(
+        new AuditSink(logger1, null), new AuditSink(logger2, null)));
+    try {
+      Assertions.assertTrue(logger.isEnabled("a.1"));
+      Assertions.assertTrue(logger.isEnabled("b.1"));
+      Assertions.assertFalse(logger.isEnabled("c.1"));
+
+      logger.setEventFilter(new AuditEventFilter(null, List.of("b.*")));
+      Assertions.assertTrue(logger.isEnabled("a.1"));
+      Assertions.assertFalse(logger.isEnabled("b.1"));
+    }
+    finally {
+      logger.close();
+    }
+  }
+
+  @Test
+  public void testSlowSinkDoesNotBlockOthers() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch fastDone = new CountDownLatch(10);
+    final AuditSinkConfiguration slowConf = new AuditSinkConfiguration();
+    slowConf.setQueueCapacity(1);
+    slowConf.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(
+        new AuditSink(new CallbackAuditLogger(e -> {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          }
+          catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }), slowConf),
+        new AuditSink(new CallbackAuditLogger(e -> fastDone.countDown()), null)));
+    try {
+      for (int i = 0; i < 10; i++) {
+        logger.auditLog("id" + i, b -> b.build());
+      }
+      Assertions.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+      Assertions.assertTrue(logger.getSinks().get(0).getDroppedCount() > 0);
+    }
+    finally {
+      release.countDown();
+      logger.close();
+    }
+  }
+
+  @Test
+  public void testFailingSink() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<AuditEvent> events = new CopyOnWriteArrayList<>();
+    final AuditSinkConfiguration failConf = new AuditSinkConfiguration();
+    failConf.setQueueCapacity(1);
+    failConf.setOverflowPolicy(OverflowPolicy.FAIL);
+
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(
+        new AuditSink(new CallbackAuditLogger(e -> {
+          started.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          }
+          catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }), failConf),
+        new AuditSink(new CallbackAuditLogger(events::add), null)));
+
+    logger.auditLog("id0", b -> b.build());
+    Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+    logger.auditLog("id1", b -> b.build());
+
+    assertThatThrownBy(() -> logger.auditLog("id2", b -> b.build()))
+        .isInstanceOf(AuditLoggerException.class);
+
+    release.countDown();
+    logger.close();
+
+    // The other sink should still have received the event
+    Assertions.assertEquals(3, events.size());
+  }
+
+  @Test
+  public void testCloseDrainsAndClosesLoggers() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final List<String> calls = new CopyOnWriteArrayList<>();
+    final ClosableCallbackAuditLogger inner = new ClosableCallbackAuditLogger(e -> {
+      started.countDown();
+      try {
+        Thread.sleep(20);
+      }
+      catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      calls.add(e.getId());
+    }, calls);
+
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(new AuditSink(inner, null)));
+    for (int i = 0; i < 5; i++) {
+      logger.auditLog("id" + i, b -> b.build());
+    }
+    Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // Owners that only track AutoCloseable resources (such as the SignService factory) should be able to close it
+    final AutoCloseable closeable = logger;
+    closeable.close();
+
+    Assertions.assertEquals(List.of("id0", "id1", "id2", "id3", "id4", "closed"), calls);
+  }
+
+  @Test
+  public void testNoSinks() {
+    assertThatThrownBy(() -> new CompositeAuditLogger(List.of()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CompositeAuditLogger(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("sinks must not be null");
+  }
+
+  @Test
+  public void testNull() {
+    final CompositeAuditLogger logger = new CompositeAuditLogger(List.of(
+        new AuditSink(new CallbackAuditLogger(e -> {}), null)));
+    try {
+      assertThatThrownBy(() -> logger.auditLog(null))
+          .isInstanceOf(AuditLoggerException.class)
+          .hasMessage("event must not be null");
+    }
+    finally {
+      logger.close();
+    }
+  }
+
+  private static class ClosableCallbackAuditLogger extends CallbackAuditLogger implements AutoCloseable {
+
+    private final List<String> calls;
+
+    ClosableCallbackAuditLogger(final AuditLoggerListener listener, final List<String> calls) {
+      super(listener);
+      this.calls = calls;
+    }
+
+    @Override
+    public void close() {
+      this.calls.add("closed");
+    }
+  }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.file.AsyncFileWriterConfiguration.Durability;
+import se.swedenconnect.signservice.audit.file.AsyncFileWriterConfiguration.OverflowPolicy;
+
+/**
+ * Test cases for AsyncAuditFileWriter.
+ */
+public class AsyncAuditFileWriterTest {
+
+  private static final String LOG_FILE = "target/async-audit.log";
+  private static final String BACKUP_FILE = "target/async-audit-20211224.log";
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.removeLogFile(LOG_FILE);
+    this.removeLogFile(BACKUP_FILE);
+  }
+
+  @AfterEach
+  public void cleanup() throws Exception {
+    this.removeLogFile(LOG_FILE);
+    this.removeLogFile(BACKUP_FILE);
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, new AsyncFileWriterConfiguration());
+    for (int i = 0; i < 1000; i++) {
+      writer.write("Entry #" + i);
+    }
+    writer.close();
+
+    final List<String> lines = Files.readAllLines(Path.of(LOG_FILE));
+    Assertions.assertEquals(1000, lines.size());
+    Assertions.assertEquals("Entry #0", lines.get(0));
+    Assertions.assertEquals("Entry #999", lines.get(999));
+    Assertions.assertEquals(1000, writer.getWrittenCount());
+    Assertions.assertEquals(0, writer.getDroppedCount());
+    Assertions.assertEquals(0, writer.getWriteErrorCount());
+    Assertions.assertEquals(0, writer.getQueueDepth());
+
+    assertThatThrownBy(() -> writer.write("After close"))
+        .isInstanceOf(AuditLoggerException.class);
+
+    // Closing again should not fail
+    writer.close();
+  }
+
+  @Test
+  public void testDurabilityPolicies() throws Exception {
+    for (final Durability durability : Durability.values()) {
+      final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+      config.setDurability(durability);
+      config.setFsyncInterval(Duration.ZERO);
+      config.setBatchSize(10);
+
+      final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, config);
+      for (int i = 0; i < 100; i++) {
+        writer.write("Entry #" + i);
+      }
+      writer.close();
+
+      Assertions.assertEquals(100, Files.readAllLines(Path.of(LOG_FILE)).size());
+      this.removeLogFile(LOG_FILE);
+    }
+  }
+
+  @Test
+  public void testFsyncPerEventWaitsForWrite() throws Exception {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setDurability(Durability.FSYNC_PER_EVENT);
+
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, config);
+    for (int i = 0; i < 10; i++) {
+      writer.write("Entry #" + i);
+
+      // The entry must be written when the call returns ...
+      Assertions.assertEquals(i + 1, writer.getWrittenCount());
+      final List<String> lines = Files.readAllLines(Path.of(LOG_FILE));
+      Assertions.assertEquals(i + 1, lines.size());
+      Assertions.assertEquals("Entry #" + i, lines.get(i));
+    }
+    writer.close();
+  }
+
+  @Test
+  public void testFsyncPerEventConcurrentCallers() throws Exception {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setDurability(Durability.FSYNC_PER_EVENT);
+
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, config);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 50; i++) {
+            writer.write("Thread " + thread + " entry #" + i);
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(400, writer.getWrittenCount());
+    Assertions.assertEquals(400, Files.readAllLines(Path.of(LOG_FILE)).size());
+    writer.close();
+  }
+
+  @Test
+  public void testDropPolicy() throws Exception {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setQueueCapacity(1);
+    config.setOverflowPolicy(OverflowPolicy.DROP);
+    config.setDurability(Durability.FSYNC_PER_EVENT);
+
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, config);
+    for (int i = 0; i < 1000; i++) {
+      writer.write("Entry #" + i);
+    }
+    writer.close();
+
+    final long written = Files.readAllLines(Path.of(LOG_FILE)).size();
+    Assertions.assertEquals(written, writer.getWrittenCount());
+    Assertions.assertEquals(1000, written + writer.getDroppedCount());
+  }
+
+  @Test
+  public void testFailPolicy() throws Exception {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setQueueCapacity(1);
+    config.setOverflowPolicy(OverflowPolicy.FAIL);
+    config.setDurability(Durability.FSYNC_PER_EVENT);
+
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, config);
+    int failed = 0;
+    for (int i = 0; i < 1000; i++) {
+      try {
+        writer.write("Entry #" + i);
+      }
+      catch (final AuditLoggerException e) {
+        failed++;
+      }
+    }
+    writer.close();
+
+    Assertions.assertEquals(failed, writer.getDroppedCount());
+    Assertions.assertEquals(1000 - failed, writer.getWrittenCount());
+  }
+
+  @Test
+  public void testBackup() throws Exception {
+    final Path logFile = Path.of(LOG_FILE);
+    Files.writeString(logFile, "Old entry" + System.lineSeparator());
+    Files.setLastModifiedTime(logFile, FileTime.from(Instant.parse("2021-12-24T23:30:30.00Z")));
+
+    final AsyncAuditFileWriter writer = new AsyncAuditFileWriter(LOG_FILE, new AsyncFileWriterConfiguration());
+    writer.write("New entry");
+    writer.close();
+
+    Assertions.assertEquals(List.of("New entry"), Files.readAllLines(logFile));
+    Assertions.assertEquals(List.of("Old entry"), Files.readAllLines(Path.of(BACKUP_FILE)));
+  }
+
+  @Test
+  public void testSizeRotation() throws Exception {
+    final Path dir = Path.of("target/async-size-rotation");
+    FileUtils.deleteDirectory(dir.toFile());
+
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setBatchSize(1);
+    final FileRotationConfiguration rotation = new FileRotationConfiguration();
+    rotation.setMaxFileSize(100);
+
+    final AsyncAuditFileWriter writer =
+        new AsyncAuditFileWriter("target/async-size-rotation/audit.log", config, rotation);
+    for (int i = 0; i < 10; i++) {
+      writer.write(String.format("This is audit entry number %013d", i));
+    }
+    writer.close();
+
+    // All entries should be kept, in the log file and three rolled files of three entries each
+    try (final Stream<Path> files = Files.list(dir)) {
+      final List<Path> all = files.collect(Collectors.toList());
+      Assertions.assertEquals(4, all.size());
+      long total = 0;
+      for (final Path p : all) {
+        total += Files.readAllLines(p).size();
+      }
+      Assertions.assertEquals(10, total);
+    }
+    Assertions.assertEquals(1, Files.readAllLines(dir.resolve("audit.log")).size());
+    FileUtils.deleteDirectory(dir.toFile());
+  }
+
+  @Test
+  public void testLogFileIsDirectory() {
+    assertThatThrownBy(() -> new AsyncAuditFileWriter("target", new AsyncFileWriterConfiguration()))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Given logFile points to a directory and not a file");
+  }
+
+  private void removeLogFile(@Nonnull final String file) throws IOException {
+    Files.deleteIfExists(Path.of(file));
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.file.AsyncFileWriterConfiguration.Durability;
+import se.swedenconnect.signservice.audit.file.AsyncFileWriterConfiguration.OverflowPolicy;
+
+/**
+ * Test cases for AsyncFileWriterConfiguration.
+ */
+public class AsyncFileWriterConfigurationTest {
+
+  @Test
+  public void testDefaults() {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    Assertions.assertEquals(AsyncFileWriterConfiguration.DEFAULT_QUEUE_CAPACITY, config.getQueueCapacity());
+    Assertions.assertEquals(AsyncFileWriterConfiguration.DEFAULT_BATCH_SIZE, config.getBatchSize());
+    Assertions.assertEquals(Durability.FLUSH_PER_BATCH, config.getDurability());
+    Assertions.assertEquals(AsyncFileWriterConfiguration.DEFAULT_FSYNC_INTERVAL, config.getFsyncInterval());
+    Assertions.assertEquals(OverflowPolicy.BLOCK, config.getOverflowPolicy());
+    Assertions.assertEquals(AsyncFileWriterConfiguration.DEFAULT_MAX_BLOCK_TIME, config.getMaxBlockTime());
+  }
+
+  @Test
+  public void testSetters() {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+    config.setQueueCapacity(10);
+    config.setBatchSize(5);
+    config.setDurability(Durability.FSYNC_INTERVAL);
+    config.setFsyncInterval(Duration.ofMillis(200));
+    config.setOverflowPolicy(OverflowPolicy.DROP);
+    config.setMaxBlockTime(Duration.ofMillis(10));
+
+    Assertions.assertEquals(10, config.getQueueCapacity());
+    Assertions.assertEquals(5, config.getBatchSize());
+    Assertions.assertEquals(Durability.FSYNC_INTERVAL, config.getDurability());
+    Assertions.assertEquals(Duration.ofMillis(200), config.getFsyncInterval());
+    Assertions.assertEquals(OverflowPolicy.DROP, config.getOverflowPolicy());
+    Assertions.assertEquals(Duration.ofMillis(10), config.getMaxBlockTime());
+  }
+
+  @Test
+  public void testIllegalValues() {
+    final AsyncFileWriterConfiguration config = new AsyncFileWriterConfiguration();
+
+    assertThatThrownBy(() -> config.setQueueCapacity(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("queueCapacity must be greater than 0");
+    assertThatThrownBy(() -> config.setBatchSize(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("batchSize must be greater than 0");
+    assertThatThrownBy(() -> config.setDurability(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("durability must not be null");
+    assertThatThrownBy(() -> config.setOverflowPolicy(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("overflowPolicy must not be null");
+  }
+
+}
@@ -26,7 +26,10 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +37,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
 import jakarta.annotation.Nonnull;
+import se.swedenconnect.signservice.audit.file.FileRotationConfiguration.Compression;
 
 /**
  * Test cases for DateRollingFileHandler.
@@ -164,6 +168,44 @@ public class DateRollingFileHandlerTest {
     this.removeLogFile("target/file-audit-20211224.log");
   }
 
+  @Test
+  public void testSizeRotation() throws Exception {
+    final Path dir = Path.of("target/size-rotation");
+    FileUtils.deleteDirectory(dir.toFile());
+
+    final FileRotationConfiguration rotation = new FileRotationConfiguration();
+    rotation.setMaxFileSize(100);
+    rotation.setCompression(Compression.GZIP);
+    rotation.setMaxHistory(2);
+
+    final DateRollingFileHandler handler = new DateRollingFileHandler("target/size-rotation/audit.log", rotation);
+    final Logger auditLogger = Logger.getLogger("size-rotation");
+    auditLogger.setLevel(Level.INFO);
+    auditLogger.addHandler(handler);
+    auditLogger.setUseParentHandlers(false);
+
+    // Each entry is 40 characters (plus line separator), so every third entry should trigger rotation
+    for (int i = 0; i < 10; i++) {
+      auditLogger.log(Level.INFO, String.format("This is audit entry number %013d", i));
+    }
+    handler.close();
+    auditLogger.removeHandler(handler);
+
+    final List<String> lines = Files.readAllLines(dir.resolve("audit.log"));
+    Assertions.assertEquals(1, lines.size());
+    Assertions.assertTrue(lines.get(0).endsWith("9"));
+
+    // Only two (compressed) rolled files should be kept
+    try (final Stream<Path> files = Files.list(dir)) {
+      final List<String> rolled = files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith("audit-"))
+          .collect(Collectors.toList());
+      Assertions.assertEquals(2, rolled.size());
+      Assertions.assertTrue(rolled.stream().allMatch(n -> n.endsWith(".log.gz")));
+    }
+    FileUtils.deleteDirectory(dir.toFile());
+  }
+
   @Test
   public void testLogFileIsDirectory() throws Exception {
     assertThatThrownBy(() -> {
@@ -17,10 +17,15 @@ package se.swedenconnect.signservice.audit.file;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.format.AuditEventFormat;
 import se.swedenconnect.signservice.core.config.AbstractHandlerConfiguration;
 import se.swedenconnect.signservice.core.config.HandlerConfiguration;
 
@@ -31,6 +36,8 @@ public class FileAuditLoggerFactoryTest {
 
   private static final String LOG_FILE = "target/fileaudit.log";
 
+  private static final String JSON_LOG_FILE = "target/fileaudit-json.log";
+
   @Test
   public void testNullConfig() throws Exception {
     final FileAuditLoggerFactory factory = new FileAuditLoggerFactory();
@@ -56,6 +63,26 @@ public class FileAuditLoggerFactoryTest {
     Assertions.assertEquals("AUDIT_LOGGER_HANDLER", logger.getName());
   }
 
+  @Test
+  public void testWithFormat() throws Exception {
+    final FileAuditLoggerConfiguration config = new FileAuditLoggerConfiguration();
+    config.setFileName(JSON_LOG_FILE);
+    config.setFormat(AuditEventFormat.JSON_LINES);
+
+    final FileAuditLogger logger = (FileAuditLogger) new FileAuditLoggerFactory().create(config);
+    try {
+      logger.auditLog(logger.createAuditEvent("ID"));
+    }
+    finally {
+      logger.close();
+    }
+    final List<String> lines = Files.readAllLines(Path.of(JSON_LOG_FILE));
+    Files.deleteIfExists(Path.of(JSON_LOG_FILE));
+
+    Assertions.assertEquals(1, lines.size());
+    Assertions.assertTrue(lines.get(0).startsWith("{\"timestamp\":"));
+  }
+
   @Test
   public void testIllegalFileName() throws Exception {
     final FileAuditLoggerConfiguration config = new FileAuditLoggerConfiguration();
@@ -35,6 +35,7 @@ import jakarta.annotation.Nonnull;
 import se.swedenconnect.signservice.audit.AuditEvent;
 import se.swedenconnect.signservice.audit.AuditLoggerException;
 import se.swedenconnect.signservice.audit.MemoryAppender;
+import se.swedenconnect.signservice.audit.base.AuditEventFilter;
 import se.swedenconnect.signservice.audit.base.events.DefaultAuditEventFactory;
 
 /**
@@ -93,6 +94,39 @@ public class FileAuditLoggerTest {
     Assertions.assertEquals(eventString, lines.get(0));
   }
 
+  @Test
+  public void testAsyncAuditLog() throws Exception {
+    final FileAuditLogger auditLogger = new FileAuditLogger(LOG_FILE, new AsyncFileWriterConfiguration());
+    auditLogger.setEventFactory(new DefaultAuditEventFactory());
+    auditLogger.setName("audit-logger");
+
+    final AuditEvent event = auditLogger.createAuditEvent("ID");
+    event.addParameter("parameter", "value");
+    auditLogger.auditLog(event);
+
+    auditLogger.close();
+
+    final List<String> lines = Files.readAllLines(Path.of(LOG_FILE));
+    Assertions.assertEquals(List.of(event.toString()), lines);
+    Assertions.assertEquals(0, auditLogger.getQueueDepth());
+    Assertions.assertEquals(0, auditLogger.getDroppedCount());
+    Assertions.assertEquals(0, auditLogger.getWriteErrorCount());
+  }
+
+  @Test
+  public void testFilteredEvent() throws Exception {
+    final FileAuditLogger auditLogger = new FileAuditLogger(LOG_FILE);
+    auditLogger.setEventFilter(new AuditEventFilter(null, List.of("FILTERED")));
+
+    auditLogger.auditLog(auditLogger.createAuditEvent("FILTERED"));
+    auditLogger.auditLog(auditLogger.createAuditEvent("ID"));
+    auditLogger.close();
+
+    final List<String> lines = Files.readAllLines(Path.of(LOG_FILE));
+    Assertions.assertEquals(1, lines.size());
+    Assertions.assertTrue(lines.get(0).contains("ID"));
+  }
+
   @Test
   public void auditLogLoggingThrows() throws Exception {
     final FileAuditLogger auditLogger = new FileAuditLogger(LOG_FILE);
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.file.FileRotationConfiguration.Compression;
+
+/**
+ * Test cases for FileRotationConfiguration.
+ */
+public class FileRotationConfigurationTest {
+
+  @Test
+  public void testDefaults() {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    Assertions.assertEquals(0, config.getMaxFileSize());
+    Assertions.assertEquals(Compression.NONE, config.getCompression());
+    Assertions.assertEquals(0, config.getMaxHistory());
+    Assertions.assertNull(config.getMaxAge());
+    Assertions.assertFalse(config.isProcessingRequired());
+  }
+
+  @Test
+  public void testSetters() {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    config.setMaxFileSize(1024);
+    config.setCompression(Compression.GZIP);
+    Assertions.assertTrue(config.isProcessingRequired());
+
+    config.setCompression(Compression.NONE);
+    config.setMaxHistory(5);
+    Assertions.assertTrue(config.isProcessingRequired());
+
+    config.setMaxHistory(0);
+    config.setMaxAge(Duration.ofDays(30));
+    Assertions.assertTrue(config.isProcessingRequired());
+
+    Assertions.assertEquals(1024, config.getMaxFileSize());
+    Assertions.assertEquals(Duration.ofDays(30), config.getMaxAge());
+  }
+
+  @Test
+  public void testIllegalValues() {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    assertThatThrownBy(() -> config.setMaxFileSize(-1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> config.setMaxHistory(-1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> config.setCompression(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("compression must not be null");
+  }
+
+}
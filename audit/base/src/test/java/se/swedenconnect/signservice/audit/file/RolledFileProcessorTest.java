@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.file.FileRotationConfiguration.Compression;
+
+/**
+ * Test cases for RolledFileProcessor.
+ */
+public class RolledFileProcessorTest {
+
+  private static final Path DIR = Path.of("target/rolled");
+  private static final Path LOG_FILE = DIR.resolve("audit.log");
+
+  @BeforeEach
+  public void setup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+    Files.createDirectories(DIR);
+  }
+
+  @AfterEach
+  public void cleanup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+  }
+
+  @Test
+  public void testIsRolledFile() throws Exception {
+    final RolledFileProcessor processor = new RolledFileProcessor(LOG_FILE, new FileRotationConfiguration());
+    try {
+      Assertions.assertTrue(processor.isRolledFile(this.createFile("audit-20211224.log", Instant.now())));
+      Assertions.assertTrue(processor.isRolledFile(this.createFile("audit-20211224-2.log", Instant.now())));
+      Assertions.assertTrue(processor.isRolledFile(this.createFile("audit-20211224.log.gz", Instant.now())));
+      Assertions.assertFalse(processor.isRolledFile(this.createFile("audit.log", Instant.now())));
+      Assertions.assertFalse(processor.isRolledFile(this.createFile("audit-json.log", Instant.now())));
+      Assertions.assertFalse(processor.isRolledFile(this.createFile("audit-20211224.log.gz.tmp", Instant.now())));
+      Assertions.assertFalse(processor.isRolledFile(this.createFile("other-20211224.log", Instant.now())));
+    }
+    finally {
+      processor.close();
+    }
+  }
+
+  @Test
+  public void testCompress() throws Exception {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    config.setCompression(Compression.GZIP);
+    final Instant lastModified = Instant.parse("2021-12-24T23:30:30.00Z");
+    final Path rolled = this.createFile("audit-20211224.log", lastModified);
+
+    final RolledFileProcessor processor = new RolledFileProcessor(LOG_FILE, config);
+    processor.process(rolled);
+    processor.close();
+
+    final Path compressed = DIR.resolve("audit-20211224.log.gz");
+    Assertions.assertFalse(Files.exists(rolled));
+    Assertions.assertTrue(Files.exists(compressed));
+    Assertions.assertEquals(lastModified, Files.getLastModifiedTime(compressed).toInstant());
+    try (final InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+      Assertions.assertEquals("audit-20211224.log", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    // Processing after close should not fail
+    processor.process(compressed);
+  }
+
+  @Test
+  public void testPruneMaxHistory() throws Exception {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    config.setMaxHistory(2);
+    final Instant now = Instant.now();
+    final Path f1 = this.createFile("audit-20211222.log", now.minus(Duration.ofDays(3)));
+    final Path f2 = this.createFile("audit-20211223.log.gz", now.minus(Duration.ofDays(2)));
+    final Path f3 = this.createFile("audit-20211224.log", now.minus(Duration.ofDays(1)));
+    final Path f4 = this.createFile("audit-20211224-1.log", now);
+
+    final RolledFileProcessor processor = new RolledFileProcessor(LOG_FILE, config);
+    processor.process(f4);
+    processor.close();
+
+    Assertions.assertFalse(Files.exists(f1));
+    Assertions.assertFalse(Files.exists(f2));
+    Assertions.assertTrue(Files.exists(f3));
+    Assertions.assertTrue(Files.exists(f4));
+  }
+
+  @Test
+  public void testPruneMaxAge() throws Exception {
+    final FileRotationConfiguration config = new FileRotationConfiguration();
+    config.setMaxAge(Duration.ofDays(7));
+    final Instant now = Instant.now();
+    final Path f1 = this.createFile("audit-20211201.log", now.minus(Duration.ofDays(10)));
+    final Path f2 = this.createFile("audit-20211224.log", now.minus(Duration.ofDays(1)));
+    final Path other = this.createFile("other-20211201.log", now.minus(Duration.ofDays(10)));
+
+    final RolledFileProcessor processor = new RolledFileProcessor(LOG_FILE, config);
+    processor.process(f2);
+    processor.close();
+
+    Assertions.assertFalse(Files.exists(f1));
+    Assertions.assertTrue(Files.exists(f2));
+    Assertions.assertTrue(Files.exists(other));
+  }
+
+  private Path createFile(final String name, final Instant lastModified) throws IOException {
+    final Path file = DIR.resolve(name);
+    Files.writeString(file, name);
+    Files.setLastModifiedTime(file, FileTime.from(lastModified));
+    return file;
+  }
+
+}
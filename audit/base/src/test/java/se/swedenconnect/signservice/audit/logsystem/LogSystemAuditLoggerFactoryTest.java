@@ -24,6 +24,9 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 
 import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.base.AbstractAuditLogger;
+import se.swedenconnect.signservice.audit.base.format.AuditEventFormat;
+import se.swedenconnect.signservice.audit.base.format.JsonLinesAuditEventFormatter;
 import se.swedenconnect.signservice.core.config.AbstractHandlerConfiguration;
 import se.swedenconnect.signservice.core.config.HandlerConfiguration;
 
@@ -64,6 +67,19 @@ public class LogSystemAuditLoggerFactoryTest {
     Assertions.assertEquals("name", internalLogger.getName());
   }
 
+  @Test
+  public void testWithFormat() throws Exception {
+    final LogSystemAuditLoggerConfiguration config = new LogSystemAuditLoggerConfiguration();
+    config.setLoggerName("name");
+    config.setFormat(AuditEventFormat.JSON_LINES);
+
+    final AuditLogger logger = new LogSystemAuditLoggerFactory().create(config);
+
+    final Field formatterField = AbstractAuditLogger.class.getDeclaredField("formatter");
+    formatterField.setAccessible(true);
+    Assertions.assertTrue(formatterField.get(logger) instanceof JsonLinesAuditEventFormatter);
+  }
+
   @Test
   public void testWithConfigNoLoggerName() throws Exception {
     final LogSystemAuditLoggerConfiguration config = new LogSystemAuditLoggerConfiguration();
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditEvent;
+import se.swedenconnect.signservice.audit.base.events.SignServiceAuditEvent;
+
+/**
+ * Test cases for AuditStore.
+ */
+public class AuditStoreTest {
+
+  private static final Path DIR = Path.of("target/auditstore");
+
+  private static final Instant BASE_TIME = Instant.parse("2025-01-24T09:00:00.00Z");
+
+  @BeforeEach
+  public void setup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+  }
+
+  @AfterEach
+  public void cleanup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+  }
+
+  @Test
+  public void testAppendAndFind() throws Exception {
+    final AuditStore store = new AuditStore(DIR, null);
+    try {
+      store.append(createEvent("audit.engine.request.received", "req-1", "client-1", 0));
+      store.append(createEvent("audit.engine.request.received", "req-2", "client-2", 1));
+      store.append(createEvent("audit.engine.user.authenticated", "req-1", "client-1", 2));
+      store.append(createEvent("audit.engine.signature.operation.success", "req-1", "client-1", 3));
+
+      Assertions.assertEquals(4, store.getEntryCount());
+      Assertions.assertEquals(1, store.getSegmentCount());
+
+      final List<AuditStoreEntry> req1 = store.findByRequestId("req-1");
+      Assertions.assertEquals(3, req1.size());
+      Assertions.assertEquals(BASE_TIME, req1.get(0).getTimestamp());
+      Assertions.assertTrue(req1.get(0).getJson().contains("\"id\":\"audit.engine.request.received\""));
+      Assertions.assertTrue(req1.get(2).getJson().contains("\"id\":\"audit.engine.signature.operation.success\""));
+
+      Assertions.assertEquals(1, store.findByClientId("client-2").size());
+      Assertions.assertTrue(store.findByRequestId("unknown").isEmpty());
+
+      final AuditStoreQuery query = new AuditStoreQuery();
+      query.setClientId("client-1");
+      query.setEventId("audit.engine.user.authenticated");
+      Assertions.assertEquals(List.of(BASE_TIME.plusSeconds(2)), timestamps(store.find(query)));
+
+      final AuditStoreQuery timeQuery = new AuditStoreQuery();
+      timeQuery.setFrom(BASE_TIME.plusSeconds(1));
+      timeQuery.setTo(BASE_TIME.plusSeconds(3));
+      Assertions.assertEquals(List.of(BASE_TIME.plusSeconds(1), BASE_TIME.plusSeconds(2)),
+          timestamps(store.find(timeQuery)));
+
+      final AuditStoreQuery limitQuery = new AuditStoreQuery();
+      limitQuery.setRequestId("req-1");
+      limitQuery.setLimit(2);
+      Assertions.assertEquals(List.of(BASE_TIME.plusSeconds(2), BASE_TIME.plusSeconds(3)),
+          timestamps(store.find(limitQuery)));
+    }
+    finally {
+      store.close();
+    }
+    assertThatThrownBy(() -> store.findByRequestId("req-1"))
+        .hasMessage("Audit store has been closed");
+  }
+
+  @Test
+  public void testPrincipalAsClientId() throws Exception {
+    final AuditStore store = new AuditStore(DIR, null);
+    try {
+      final SignServiceAuditEvent event = new SignServiceAuditEvent("id", "client-3");
+      store.append(event);
+      store.append(new SignServiceAuditEvent("id"));
+      Assertions.assertEquals(1, store.findByClientId("client-3").size());
+      Assertions.assertTrue(store.findByClientId(AuditEvent.DEFAULT_PRINCIPAL).isEmpty());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    AuditStore store = new AuditStore(DIR, null);
+    for (int i = 0; i < 3; i++) {
+      store.append(createEvent("id", "req-" + i, "client", i));
+    }
+    store.close();
+
+    store = new AuditStore(DIR, null);
+    try {
+      Assertions.assertEquals(3, store.getEntryCount());
+      Assertions.assertEquals(3, store.findByClientId("client").size());
+      store.append(createEvent("id", "req-3", "client", 3));
+      Assertions.assertEquals(1, store.findByRequestId("req-3").size());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testRecoverPartialWrite() throws Exception {
+    AuditStore store = new AuditStore(DIR, null);
+    for (int i = 0; i < 3; i++) {
+      store.append(createEvent("id", "req-" + i, "client", i));
+    }
+    store.close();
+
+    // Simulate that the process died while writing the last index record
+    final Path index = DIR.resolve("segment-000001.idx");
+    try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 5);
+    }
+
+    store = new AuditStore(DIR, null);
+    try {
+      Assertions.assertEquals(2, store.getEntryCount());
+      Assertions.assertTrue(store.findByRequestId("req-2").isEmpty());
+      store.append(createEvent("id", "req-3", "client", 3));
+      Assertions.assertEquals(List.of(BASE_TIME, BASE_TIME.plusSeconds(1), BASE_TIME.plusSeconds(3)),
+          timestamps(store.findByClientId("client")));
+    }
+    finally {
+      store.close();
+    }
+    final List<String> lines = Files.readAllLines(DIR.resolve("segment-000001.log"));
+    Assertions.assertEquals(3, lines.size());
+  }
+
+  @Test
+  public void testSegments() throws Exception {
+    final AuditStoreConfiguration config = new AuditStoreConfiguration();
+    config.setMaxSegmentSize(1024);
+    config.setMaxSegments(3);
+
+    final AuditStore store = new AuditStore(DIR, config);
+    try {
+      for (int i = 0; i < 100; i++) {
+        store.append(createEvent("id", "req-" + i, "client", i));
+      }
+      Assertions.assertEquals(3, store.getSegmentCount());
+      Assertions.assertTrue(store.getEntryCount() < 100);
+      Assertions.assertTrue(store.findByRequestId("req-0").isEmpty());
+      Assertions.assertEquals(1, store.findByRequestId("req-99").size());
+
+      final List<AuditStoreEntry> all = store.findByClientId("client");
+      Assertions.assertEquals(store.getEntryCount(), all.size());
+      Assertions.assertEquals(BASE_TIME.plusSeconds(99), all.get(all.size() - 1).getTimestamp());
+    }
+    finally {
+      store.close();
+    }
+    try (var files = Files.list(DIR)) {
+      Assertions.assertEquals(6, files.count());
+    }
+  }
+
+  @Test
+  public void testSealedSegments() throws Exception {
+    final AuditStoreConfiguration config = new AuditStoreConfiguration();
+    config.setMaxSegmentSize(1024);
+    config.setMaxSegments(0);
+
+    AuditStore store = new AuditStore(DIR, config);
+    for (int i = 0; i < 100; i++) {
+      store.append(createEvent("id-" + (i % 3), "req-" + (i % 20), "client-" + (i % 2), i));
+    }
+    final int segmentCount = store.getSegmentCount();
+    Assertions.assertTrue(segmentCount > 5);
+    final List<Instant> req7 = timestamps(store.findByRequestId("req-7"));
+    Assertions.assertEquals(5, req7.size());
+    store.close();
+
+    // Only the current segment has an index file, the sealed segments have sorted index files
+    try (var files = Files.list(DIR)) {
+      final List<String> names = files.map(f -> f.getFileName().toString()).collect(Collectors.toList());
+      Assertions.assertEquals(1, names.stream().filter(n -> n.endsWith(".idx")).count());
+      Assertions.assertEquals(segmentCount - 1, names.stream().filter(n -> n.endsWith(".sdx")).count());
+    }
+
+    store = new AuditStore(DIR, config);
+    try {
+      Assertions.assertEquals(segmentCount, store.getSegmentCount());
+      Assertions.assertEquals(100, store.getEntryCount());
+      Assertions.assertEquals(req7, timestamps(store.findByRequestId("req-7")));
+      Assertions.assertEquals(50, store.findByClientId("client-1").size());
+      Assertions.assertTrue(store.findByRequestId("req-20").isEmpty());
+      Assertions.assertTrue(store.findByRequestId("req").isEmpty());
+
+      final AuditStoreQuery query = new AuditStoreQuery();
+      query.setRequestId("req-7");
+      query.setClientId("client-1");
+      query.setEventId("id-1");
+      Assertions.assertEquals(List.of(BASE_TIME.plusSeconds(7), BASE_TIME.plusSeconds(67)),
+          timestamps(store.find(query)));
+
+      final AuditStoreQuery timeQuery = new AuditStoreQuery();
+      timeQuery.setFrom(BASE_TIME.plusSeconds(10));
+      timeQuery.setTo(BASE_TIME.plusSeconds(90));
+      timeQuery.setLimit(5);
+      Assertions.assertEquals(List.of(BASE_TIME.plusSeconds(85), BASE_TIME.plusSeconds(86),
+          BASE_TIME.plusSeconds(87), BASE_TIME.plusSeconds(88), BASE_TIME.plusSeconds(89)),
+          timestamps(store.find(timeQuery)));
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testInvalidSortedIndex() throws Exception {
+    final AuditStoreConfiguration config = new AuditStoreConfiguration();
+    config.setMaxSegmentSize(1024);
+
+    AuditStore store = new AuditStore(DIR, config);
+    for (int i = 0; i < 20; i++) {
+      store.append(createEvent("id", "req-" + i, "client", i));
+    }
+    Assertions.assertTrue(store.getSegmentCount() > 2);
+    store.close();
+
+    // Simulate that the process died while the first segment was sealed
+    Files.writeString(DIR.resolve("segment-000001.sdx"), "garbage");
+    Assertions.assertFalse(Files.exists(DIR.resolve("segment-000001.idx")));
+    store = new AuditStore(DIR, config);
+    try {
+      // The index file is gone, so the segment can not be searched
+      Assertions.assertTrue(store.findByRequestId("req-0").isEmpty());
+      Assertions.assertEquals(1, store.findByRequestId("req-19").size());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testSealOnOpen() throws Exception {
+    AuditStore store = new AuditStore(DIR, null);
+    for (int i = 0; i < 3; i++) {
+      store.append(createEvent("id", "req-" + i, "client", i));
+    }
+    store.close();
+
+    // A segment that is not the last segment is sealed when the store is opened
+    Files.writeString(DIR.resolve("segment-000002.log"), "");
+    store = new AuditStore(DIR, null);
+    try {
+      Assertions.assertTrue(Files.exists(DIR.resolve("segment-000001.sdx")));
+      Assertions.assertFalse(Files.exists(DIR.resolve("segment-000001.idx")));
+      Assertions.assertEquals(3, store.findByClientId("client").size());
+      store.append(createEvent("id", "req-3", "client", 3));
+      Assertions.assertEquals(4, store.findByClientId("client").size());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testFailedIndexWrite() throws Exception {
+    final AuditStore store = new AuditStore(DIR, null);
+    try {
+      store.append(createEvent("id", "req-0", "client", 0));
+
+      // Make the next index write fail after a part of the record has been written
+      final Field currentField = AuditStore.class.getDeclaredField("current");
+      currentField.setAccessible(true);
+      final Object current = currentField.get(store);
+      final Field indexChannelField = current.getClass().getDeclaredField("indexChannel");
+      indexChannelField.setAccessible(true);
+      indexChannelField.set(current, new FailingFileChannel((FileChannel) indexChannelField.get(current)));
+
+      assertThatThrownBy(() -> store.append(createEvent("id", "req-1", "client", 1)))
+          .isInstanceOf(IOException.class);
+      Assertions.assertEquals(1, store.getEntryCount());
+
+      store.append(createEvent("id", "req-2", "client", 2));
+      store.append(createEvent("id", "req-3", "client", 3));
+    }
+    finally {
+      store.close();
+    }
+
+    // Events written after the failed write are found after a restart
+    final AuditStore store2 = new AuditStore(DIR, null);
+    try {
+      Assertions.assertEquals(3, store2.getEntryCount());
+      Assertions.assertTrue(store2.findByRequestId("req-1").isEmpty());
+      Assertions.assertEquals(List.of(BASE_TIME, BASE_TIME.plusSeconds(2), BASE_TIME.plusSeconds(3)),
+          timestamps(store2.findByClientId("client")));
+    }
+    finally {
+      store2.close();
+    }
+    Assertions.assertEquals(3, Files.readAllLines(DIR.resolve("segment-000001.log")).size());
+  }
+
+  @Test
+  public void testConfiguration() {
+    final AuditStoreConfiguration config = new AuditStoreConfiguration();
+    Assertions.assertEquals(AuditStoreConfiguration.DEFAULT_MAX_SEGMENT_SIZE, config.getMaxSegmentSize());
+    Assertions.assertEquals(AuditStoreConfiguration.DEFAULT_MAX_SEGMENTS, config.getMaxSegments());
+    assertThatThrownBy(() -> config.setMaxSegmentSize(0))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    final AuditStoreQuery query = new AuditStoreQuery();
+    Assertions.assertEquals(AuditStoreQuery.DEFAULT_LIMIT, query.getLimit());
+    assertThatThrownBy(() -> query.setLimit(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testManyEvents() throws Exception {
+    final int noEvents = 20_000;
+    final AuditStoreConfiguration config = new AuditStoreConfiguration();
+    config.setMaxSegmentSize(256 * 1024);
+    config.setMaxSegments(0);
+    final AuditStore store = new AuditStore(DIR, config);
+    try {
+      for (int i = 0; i < noEvents; i++) {
+        store.append(createEvent("audit.engine.request.received", "req-" + i, "client-" + (i % 10), i));
+      }
+      for (int i = 0; i < 1000; i++) {
+        Assertions.assertEquals(1, store.findByRequestId("req-" + (i * 37 % noEvents)).size());
+      }
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  private static List<Instant> timestamps(final List<AuditStoreEntry> entries) {
+    return entries.stream().map(AuditStoreEntry::getTimestamp).collect(Collectors.toList());
+  }
+
+  static AuditEvent createEvent(final String id, final String requestId, final String clientId, final int seconds) {
+    final Instant timestamp = BASE_TIME.plusSeconds(seconds);
+    final SignServiceAuditEvent event = new SignServiceAuditEvent(id) {
+
+      @Override
+      public Instant getTimestamp() {
+        return timestamp;
+      }
+    };
+    event.addParameter(AuditStore.REQUEST_ID_PARAMETER, requestId);
+    event.addParameter(AuditStore.CLIENT_ID_PARAMETER, clientId);
+    return event;
+  }
+
+  /**
+   * A file channel that fails the first write after having written a part of the buffer.
+   */
+  private static class FailingFileChannel extends FileChannel {
+
+    private final FileChannel channel;
+
+    private boolean failed = false;
+
+    FailingFileChannel(final FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+      if (!this.failed) {
+        this.failed = true;
+        final ByteBuffer part = src.duplicate();
+        part.limit(part.position() + part.remaining() / 2);
+        this.channel.write(part);
+        throw new IOException("Disk full");
+      }
+      return this.channel.write(src);
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+      return this.channel.read(dst);
+    }
+
+    @Override
+    public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+      return this.channel.read(dsts, offset, length);
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+      return this.channel.write(srcs, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+      return this.channel.position();
+    }
+
+    @Override
+    public FileChannel position(final long newPosition) throws IOException {
+      this.channel.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+      return this.channel.size();
+    }
+
+    @Override
+    public FileChannel truncate(final long size) throws IOException {
+      this.channel.truncate(size);
+      return this;
+    }
+
+    @Override
+    public void force(final boolean metaData) throws IOException {
+      this.channel.force(metaData);
+    }
+
+    @Override
+    public long transferTo(final long position, final long count, final WritableByteChannel target)
+        throws IOException {
+      return this.channel.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(final ReadableByteChannel src, final long position, final long count)
+        throws IOException {
+      return this.channel.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(final ByteBuffer dst, final long position) throws IOException {
+      return this.channel.read(dst, position);
+    }
+
+    @Override
+    public int write(final ByteBuffer src, final long position) throws IOException {
+      return this.channel.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException {
+      return this.channel.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(final long position, final long size, final boolean shared) throws IOException {
+      return this.channel.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException {
+      return this.channel.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+      this.channel.close();
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditLogger;
+import se.swedenconnect.signservice.audit.file.FileAuditLoggerConfiguration;
+
+/**
+ * Test cases for StoreAuditLoggerFactory.
+ */
+public class StoreAuditLoggerFactoryTest {
+
+  private static final String DIR = "target/auditstore-factory";
+
+  @BeforeEach
+  public void setup() throws Exception {
+    FileUtils.deleteDirectory(Path.of(DIR).toFile());
+  }
+
+  @AfterEach
+  public void cleanup() throws Exception {
+    FileUtils.deleteDirectory(Path.of(DIR).toFile());
+  }
+
+  @Test
+  public void testNullConfig() {
+    assertThatThrownBy(() -> new StoreAuditLoggerFactory().create(null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Missing configuration for " + StoreAuditLogger.class.getSimpleName());
+  }
+
+  @Test
+  public void testUnknownConfig() {
+    assertThatThrownBy(() -> new StoreAuditLoggerFactory().create(new FileAuditLoggerConfiguration()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Unknown configuration object supplied");
+  }
+
+  @Test
+  public void testMissingDirectory() {
+    assertThatThrownBy(() -> new StoreAuditLoggerFactory().create(new StoreAuditLoggerConfiguration()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The directory property must not be null");
+  }
+
+  @Test
+  public void testCreate() throws Exception {
+    final StoreAuditLoggerConfiguration config = new StoreAuditLoggerConfiguration();
+    config.setName("STORE");
+    config.setDirectory(DIR);
+    config.setMaxSegmentSize(4096L);
+    config.setMaxSegments(10);
+
+    final StoreAuditLoggerFactory factory = new StoreAuditLoggerFactory();
+    final AuditLogger logger = factory.create(config);
+    final AuditLogger logger2 = factory.create(config);
+    try {
+      Assertions.assertTrue(StoreAuditLogger.class.isInstance(logger));
+      Assertions.assertEquals("STORE", logger.getName());
+
+      // The same store is used for the same directory
+      Assertions.assertSame(((StoreAuditLogger) logger).getStore(), ((StoreAuditLogger) logger2).getStore());
+      Assertions.assertEquals(1, factory.getStores().size());
+      Assertions.assertEquals(Path.of(DIR).toAbsolutePath(), factory.getStores().get(0).getDirectory());
+    }
+    finally {
+      ((StoreAuditLogger) logger).close();
+    }
+
+    // The store is still used by the second logger
+    final AuditStore store = ((StoreAuditLogger) logger2).getStore();
+    Assertions.assertFalse(store.isClosed());
+    logger2.auditLog("id", b -> b.build());
+    ((StoreAuditLogger) logger2).close();
+    Assertions.assertTrue(store.isClosed());
+    Assertions.assertTrue(factory.getStores().isEmpty());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    final StoreAuditLoggerConfiguration config = new StoreAuditLoggerConfiguration();
+    config.setDirectory(DIR);
+
+    final StoreAuditLoggerFactory factory = new StoreAuditLoggerFactory();
+    final StoreAuditLogger logger = (StoreAuditLogger) factory.create(config);
+    factory.close();
+    Assertions.assertTrue(logger.getStore().isClosed());
+    Assertions.assertTrue(factory.getStores().isEmpty());
+
+    // Closing the logger after the factory has been closed is fine
+    logger.close();
+  }
+
+  @Test
+  public void testConfiguration() {
+    final StoreAuditLoggerConfiguration config = new StoreAuditLoggerConfiguration();
+    Assertions.assertEquals(StoreAuditLoggerFactory.class.getName(), config.getFactoryClass());
+    Assertions.assertNull(config.getMaxSegmentSize());
+    Assertions.assertNull(config.getMaxSegments());
+    assertThatThrownBy(() -> config.setDirectory(" "))
+        .isInstanceOf(NullPointerException.class);
+  }
+
+}
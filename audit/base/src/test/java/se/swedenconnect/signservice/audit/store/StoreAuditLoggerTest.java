@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.audit.store;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.audit.AuditLoggerException;
+import se.swedenconnect.signservice.audit.base.AuditEventFilter;
+
+/**
+ * Test cases for StoreAuditLogger.
+ */
+public class StoreAuditLoggerTest {
+
+  private static final Path DIR = Path.of("target/auditstore-logger");
+
+  @BeforeEach
+  public void setup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+  }
+
+  @AfterEach
+  public void cleanup() throws Exception {
+    FileUtils.deleteDirectory(DIR.toFile());
+  }
+
+  @Test
+  public void testAuditLog() throws Exception {
+    final StoreAuditLogger logger = new StoreAuditLogger(new AuditStore(DIR, null));
+    logger.setEventFilter(new AuditEventFilter(null, List.of("excluded")));
+    try {
+      logger.auditLog(AuditStoreTest.createEvent("included", "req-1", "client-1", 0));
+      logger.auditLog(AuditStoreTest.createEvent("excluded", "req-1", "client-1", 1));
+      Assertions.assertEquals(1, logger.getStore().findByRequestId("req-1").size());
+
+      assertThatThrownBy(() -> logger.auditLog(null))
+          .isInstanceOf(AuditLoggerException.class);
+    }
+    finally {
+      logger.close();
+    }
+    assertThatThrownBy(() -> logger.auditLog(AuditStoreTest.createEvent("included", "req-1", "client-1", 2)))
+        .isInstanceOf(AuditLoggerException.class)
+        .hasMessageContaining("Audit store has been closed");
+  }
+
+  @Test
+  public void testNullStore() {
+    assertThatThrownBy(() -> new StoreAuditLogger(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("store must not be null");
+  }
+
+}
@@ -40,7 +40,6 @@ import org.w3c.dom.Element;
 import se.idsec.signservice.xml.DOMUtils;
 import se.swedenconnect.opensaml.saml2.core.build.RequestedAuthnContextBuilder;
 import se.swedenconnect.opensaml.saml2.metadata.EntityDescriptorContainer;
-import se.swedenconnect.opensaml.saml2.metadata.EntityDescriptorUtils;
 import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
 import se.swedenconnect.opensaml.saml2.request.AuthnRequestGenerator;
 import se.swedenconnect.opensaml.saml2.request.AuthnRequestGeneratorContext;
@@ -60,16 +59,19 @@ import se.swedenconnect.signservice.authn.IdentityAssertion;
 import se.swedenconnect.signservice.authn.UserAuthenticationException;
 import se.swedenconnect.signservice.authn.impl.DefaultIdentityAssertion;
 import se.swedenconnect.signservice.authn.impl.SimpleAuthnContextIdentifier;
+import se.swedenconnect.signservice.authn.saml.config.MetadataHttpClients;
 import se.swedenconnect.signservice.authn.saml.config.SpUrlConfiguration;
 import se.swedenconnect.signservice.context.SignServiceContext;
 import se.swedenconnect.signservice.core.AbstractSignServiceHandler;
 import se.swedenconnect.signservice.core.attribute.AttributeConverter;
 import se.swedenconnect.signservice.core.attribute.AttributeException;
 import se.swedenconnect.signservice.core.attribute.IdentityAttribute;
+import se.swedenconnect.signservice.core.attribute.IdentityAttributeIndex;
 import se.swedenconnect.signservice.core.http.DefaultHttpBodyAction;
 import se.swedenconnect.signservice.core.http.DefaultHttpPostAction;
 import se.swedenconnect.signservice.core.http.DefaultHttpRedirectAction;
 import se.swedenconnect.signservice.core.http.DefaultHttpResponseAction;
+import se.swedenconnect.signservice.core.http.EntityTags;
 import se.swedenconnect.signservice.core.http.HttpBodyAction;
 import se.swedenconnect.signservice.core.http.HttpResourceProvider;
 import se.swedenconnect.signservice.core.http.HttpResponseAction;
@@ -78,14 +80,23 @@ import se.swedenconnect.signservice.protocol.msg.AuthnRequirements;
 import se.swedenconnect.signservice.protocol.msg.SignMessage;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serial;
+import java.io.Serializable;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -93,7 +104,7 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServiceHandler
-    implements AuthenticationHandler, HttpResourceProvider {
+    implements AuthenticationHandler, HttpResourceProvider, Closeable {
 
   /** Media type for SAML metadata in XML format. */
   public static final String APPLICATION_SAML_METADATA = "application/samlmetadata+xml";
@@ -101,7 +112,7 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
   /** Prefix for all context values that we store/retrieve. */
   public static final String PREFIX = AbstractSamlAuthenticationHandler.class.getPackageName();
 
-  /** Key for storing the AuthnRequest. */
+  /** Key for storing the AuthnRequest state (see {@link AuthnRequestState}). */
   public static final String AUTHNREQUEST_KEY = PREFIX + ".AuthnRequest";
 
   /** Key for storing the RelayState. */
@@ -113,6 +124,9 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
   /** Key for storing the SignMessage. */
   public static final String SIGNMESSAGE_KEY = PREFIX + ".SignMessage";
 
+  /** The default interval between checks whether the published SP metadata needs to be re-signed. */
+  public static final Duration DEFAULT_METADATA_REFRESH_INTERVAL = Duration.ofMinutes(5);
+
   /** The bean used when creating authentication requests. */
   protected final AuthnRequestGenerator authnRequestGenerator;
 
@@ -128,9 +142,27 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
   /** The URL configuration. */
   protected final SpUrlConfiguration urlConfiguration;
 
+  /** The capabilities of the IdP:s in the federation, extracted from their metadata. */
+  protected final IdpCapabilityIndex idpCapabilityIndex;
+
   /** The preferred SAML binding to use for authentication requests. */
   private String preferredBindingUri;
 
+  /** The interval between checks whether the published SP metadata needs to be re-signed. */
+  private Duration metadataRefreshInterval = DEFAULT_METADATA_REFRESH_INTERVAL;
+
+  /** The signed and serialized SP metadata that is served on the metadata publishing path. */
+  private volatile PublishedMetadata publishedMetadata;
+
+  /** Lock for updating the published metadata. */
+  private final Object metadataLock = new Object();
+
+  /** Keeps the published metadata up-to-date (null if the handler has not been started). */
+  private volatile ScheduledExecutorService metadataRefresher;
+
+  /** The HTTP clients used by the metadata provider, if owned by this handler. */
+  private MetadataHttpClients metadataHttpClients;
+
   /** For converting attributes between the generic representation and the OpenSAML representation. */
   protected static final AttributeConverter<Attribute> attributeConverter = new OpenSamlAttributeConverter();
 
@@ -157,6 +189,7 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
     this.entityDescriptorContainer =
         Objects.requireNonNull(entityDescriptorContainer, "entityDescriptorContainer must not be null");
     this.urlConfiguration = Objects.requireNonNull(urlConfiguration, "urlConfiguration must not be null");
+    this.idpCapabilityIndex = new IdpCapabilityIndex(this.metadataProvider);
   }
 
   /** {@inheritDoc} */
@@ -415,42 +448,145 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
       throw new IOException("Invalid call");
     }
 
-    try {
+    final PublishedMetadata metadata = this.getPublishedMetadata();
 
-      // Check if the metadata is up-to-date according to how the container was configured.
-      //
-      if (this.entityDescriptorContainer.updateRequired(true)) {
-        log.debug("Metadata needs to be updated ...");
-        this.entityDescriptorContainer.update(true);
-        log.debug("Metadata was updated and signed");
-      }
-      else {
-        log.debug("Metadata is up-to-date, using cached metadata");
+    // Assign the HTTP headers.
+    //
+    final DefaultHttpBodyAction bodyAction = new DefaultHttpBodyAction();
+    bodyAction.addHeader("ETag", metadata.getEtag());
+    bodyAction.addHeader("Last-Modified",
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(metadata.getPublished().atZone(ZoneOffset.UTC)));
+    bodyAction.addHeader("Cache-Control", "no-cache");
+
+    // If the client already has the current metadata, tell it so instead of sending it again ...
+    //
+    if (EntityTags.matches(metadata.getEtag(), httpRequest.getHeader("If-None-Match"))) {
+      log.debug("Metadata has not been modified, responding with 304");
+      bodyAction.setStatus(304);
+      bodyAction.setContents(new byte[0]);
+      return bodyAction;
+    }
+
+    final String acceptHeader = httpRequest.getHeader("Accept");
+    if (acceptHeader != null && acceptHeader.contains(APPLICATION_SAML_METADATA)) {
+      bodyAction.addHeader("Content-Type", APPLICATION_SAML_METADATA);
+    }
+    else {
+      bodyAction.addHeader("Content-Type", "application/xml");
+    }
+    bodyAction.setContents(metadata.getEncoding());
+    return bodyAction;
+  }
+
+  /**
+   * Gets the published (signed and serialized) metadata. The metadata is normally published, and kept up-to-date, by
+   * the background task started by {@link #start()}. If the handler has not been started, the metadata is checked,
+   * and re-signed if needed, on each call.
+   *
+   * @return the published metadata
+   * @throws IOException if the metadata can not be produced
+   */
+  @Nonnull
+  private PublishedMetadata getPublishedMetadata() throws IOException {
+    final PublishedMetadata metadata = this.publishedMetadata;
+    if (metadata != null && this.metadataRefresher != null) {
+      return metadata;
+    }
+    synchronized (this.metadataLock) {
+      if (this.publishedMetadata == null || this.metadataRefresher == null) {
+        this.refreshMetadata();
       }
+      return this.publishedMetadata;
+    }
+  }
 
-      // Assign the HTTP headers.
-      //
-      final DefaultHttpBodyAction bodyAction = new DefaultHttpBodyAction();
-      final String acceptHeader = httpRequest.getHeader("Accept");
-      if (acceptHeader != null && acceptHeader.contains(APPLICATION_SAML_METADATA)) {
-        bodyAction.addHeader("Content-Type", APPLICATION_SAML_METADATA);
+  /**
+   * Checks if the SP metadata needs to be updated (re-signed) according to how the metadata container was configured,
+   * and if so, updates it and replaces the published metadata bytes. This method is invoked periodically by a
+   * background task (see {@link #setMetadataRefreshInterval(Duration)}) so that the metadata is re-signed well before
+   * its validity runs out.
+   *
+   * @throws IOException if the metadata can not be produced
+   */
+  protected void refreshMetadata() throws IOException {
+    synchronized (this.metadataLock) {
+      try {
+        final boolean updateRequired = this.entityDescriptorContainer.updateRequired(true);
+        if (updateRequired) {
+          log.debug("Metadata needs to be updated ...");
+          this.entityDescriptorContainer.update(true);
+          log.debug("Metadata was updated and signed");
+        }
+        else if (this.publishedMetadata != null) {
+          log.trace("Metadata is up-to-date");
+          return;
+        }
+
+        // Get the DOM for the metadata and serialize it ...
+        //
+        final Element dom = this.entityDescriptorContainer.marshall();
+        try (final ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+          SerializeSupport.writeNode(dom, os);
+          this.publishedMetadata = new PublishedMetadata(os.toByteArray(), Instant.now());
+        }
       }
-      else {
-        bodyAction.addHeader("Content-Type", "application/xml");
+      catch (final SignatureException | MarshallingException e) {
+        log.error("Failed to return valid metadata", e);
+        throw new IOException("Failed to produce SAML metadata", e);
       }
+    }
+  }
 
-      // Get the DOM for the metadata, serialize it and write it to the response ...
-      //
-      final Element dom = this.entityDescriptorContainer.marshall();
-      try (final ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-        SerializeSupport.writeNode(dom, os);
-        bodyAction.setContents(os.toByteArray());
+  /**
+   * Publishes the SP metadata and starts the background task that keeps it up-to-date (see
+   * {@link #refreshMetadata()}), so that the request path never signs or serializes metadata. Should be invoked when
+   * the handler has been configured. The handler should be closed when it is no longer used.
+   */
+  public void start() {
+    synchronized (this.metadataLock) {
+      if (this.metadataRefresher != null) {
+        return;
       }
-      return bodyAction;
+      try {
+        this.refreshMetadata();
+      }
+      catch (final IOException e) {
+        log.warn("{}: Failed to publish SP metadata, will try again when it is requested - {}",
+            this.getName(), e.getMessage());
+      }
+      this.metadataRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "signservice-saml-metadata-" + this.getName());
+        thread.setDaemon(true);
+        return thread;
+      });
+      final long interval = this.metadataRefreshInterval.toMillis();
+      this.metadataRefresher.scheduleWithFixedDelay(() -> {
+        try {
+          this.refreshMetadata();
+        }
+        catch (final Exception e) {
+          log.warn("{}: Failed to refresh SP metadata, will keep serving current metadata - {}",
+              this.getName(), e.getMessage());
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
     }
-    catch (final SignatureException | MarshallingException e) {
-      log.error("Failed to return valid metadata", e);
-      throw new IOException("Failed to produce SAML metadata", e);
+  }
+
+  /**
+   * Stops the background task that keeps the published metadata up-to-date, and closes the metadata HTTP clients (if
+   * owned by the handler).
+   */
+  @Override
+  public void close() {
+    synchronized (this.metadataLock) {
+      if (this.metadataRefresher != null) {
+        this.metadataRefresher.shutdownNow();
+        this.metadataRefresher = null;
+      }
+      if (this.metadataHttpClients != null) {
+        this.metadataHttpClients.close();
+        this.metadataHttpClients = null;
+      }
     }
   }
 
@@ -529,7 +665,7 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
     //
     if (authnRequirements.getAuthnContextIdentifiers() != null
         && !authnRequirements.getAuthnContextIdentifiers().isEmpty()) {
-      final List<String> supportedUris = EntityDescriptorUtils.getAssuranceCertificationUris(idpMetadata);
+      final Set<String> supportedUris = this.getIdpCapabilities(idpMetadata).getAssuranceCertificationUris();
       final boolean match = authnRequirements.getAuthnContextIdentifiers().stream()
           .map(AuthnContextIdentifier::getIdentifier)
           .anyMatch(supportedUris::contains);
@@ -687,6 +823,17 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
     }
   }
 
+  /**
+   * Gets the capabilities that the given IdP declares in its metadata.
+   *
+   * @param idpMetadata the IdP metadata (as returned from {@link #getIdpMetadata(AuthnRequirements, SignServiceContext)})
+   * @return the IdP capabilities
+   */
+  @Nonnull
+  protected IdpCapabilities getIdpCapabilities(@Nonnull final EntityDescriptor idpMetadata) {
+    return this.idpCapabilityIndex.get(idpMetadata);
+  }
+
   /**
    * Transforms SAML attributes into the generic SignService-representation of attributes.
    *
@@ -724,12 +871,13 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
       throws UserAuthenticationException {
 
     final List<IdentityAttribute<?>> requestedSignerAttributes = authnRequirements.getRequestedSignerAttributes();
+    if (requestedSignerAttributes == null || requestedSignerAttributes.isEmpty()) {
+      return;
+    }
+    final IdentityAttributeIndex issuedAttributesIndex = IdentityAttributeIndex.of(issuedAttributes);
 
     for (final IdentityAttribute<?> requestedAttribute : requestedSignerAttributes) {
-      final IdentityAttribute<?> issuedAttribute = issuedAttributes.stream()
-          .filter(a -> Objects.equals(a.getIdentifier(), requestedAttribute.getIdentifier()))
-          .findFirst()
-          .orElse(null);
+      final IdentityAttribute<?> issuedAttribute = issuedAttributesIndex.get(requestedAttribute.getIdentifier());
       if (issuedAttribute == null) {
         final String msg = String.format("Attribute '%s' was required to be present, but is missing from assertion",
             requestedAttribute.getIdentifier());
@@ -884,7 +1032,8 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
   }
 
   /**
-   * Stores a generated {@code AuthnRequest} message in the SignService context.
+   * Stores a generated {@code AuthnRequest} message in the SignService context. Only the values needed to validate
+   * the response are stored (see {@link AuthnRequestState}), not the complete marshalled message.
    *
    * @param authnRequest the object to store
    * @param context the context that we are storing the object in
@@ -893,39 +1042,48 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
   protected void storeAuthnRequest(@Nonnull final AuthnRequest authnRequest, @Nonnull final SignServiceContext context)
       throws UserAuthenticationException {
     try {
-      // Before storing the AuthnRequest in the context we need to make sure it is serializable.
-      // We do that by marshalling it to a DOM object and to get the bytes ...
-      context.put(AUTHNREQUEST_KEY, DOMUtils.nodeToBytes(XMLObjectSupport.marshall(authnRequest)));
+      context.put(AUTHNREQUEST_KEY, new AuthnRequestState(authnRequest));
     }
     catch (final Exception e) {
-      final String msg = "Failed to marshall AuthnRequest object";
+      final String msg = "Failed to store AuthnRequest state";
       log.info("{}: {} - {}", context.getId(), msg, e.getMessage());
       throw new UserAuthenticationException(AuthenticationErrorCode.INTERNAL_AUTHN_ERROR, msg, e);
     }
   }
 
   /**
-   * Gets the stored {@code AuthnRequest} from the session context.
+   * Gets the stored {@code AuthnRequest} from the session context. The returned object is a lightweight view created
+   * from the stored {@link AuthnRequestState}.
+   * <p>
+   * Contexts created by earlier versions of the service hold the complete marshalled {@code AuthnRequest} message.
+   * Such messages are unmarshalled, so that authentications in progress during an upgrade can be completed.
+   * </p>
    *
    * @param context the context
    * @return an AuthnRequest object or null if no message is stored
-   * @throws UserAuthenticationException for unmarshalling errors
+   * @throws UserAuthenticationException for errors creating the AuthnRequest object
    */
   @Nullable
   protected AuthnRequest getAuthnRequest(@Nonnull final SignServiceContext context) throws UserAuthenticationException {
-    final byte[] encodedAuthnRequest = context.get(AUTHNREQUEST_KEY, byte[].class);
-    if (encodedAuthnRequest == null) {
+    final Serializable stored = context.get(AUTHNREQUEST_KEY);
+    if (stored == null) {
       log.debug("{}: No AuthnRequest available in session", context.getId());
       return null;
     }
     try {
-      final Element xml = DOMUtils.bytesToDocument(encodedAuthnRequest).getDocumentElement();
-      final Unmarshaller unmarshaller = Optional.ofNullable(XMLObjectSupport.getUnmarshaller(xml))
-          .orElseThrow(() -> new UnmarshallingException("No unmarshaller for AuthnRequest available"));
-      return (AuthnRequest) unmarshaller.unmarshall(xml);
+      if (stored instanceof final AuthnRequestState state) {
+        return state.toAuthnRequest();
+      }
+      if (stored instanceof final byte[] encodedAuthnRequest) {
+        final Element xml = DOMUtils.bytesToDocument(encodedAuthnRequest).getDocumentElement();
+        final Unmarshaller unmarshaller = Optional.ofNullable(XMLObjectSupport.getUnmarshaller(xml))
+            .orElseThrow(() -> new UnmarshallingException("No unmarshaller for AuthnRequest available"));
+        return (AuthnRequest) unmarshaller.unmarshall(xml);
+      }
+      throw new IllegalStateException("Unexpected type of stored AuthnRequest - " + stored.getClass().getName());
     }
     catch (final Exception e) {
-      final String msg = "Failed to unmarshall AuthnRequest object";
+      final String msg = "Failed to create AuthnRequest object from stored state";
       log.info("{}: {} - {}", context.getId(), msg, e.getMessage());
       throw new UserAuthenticationException(AuthenticationErrorCode.INTERNAL_AUTHN_ERROR, msg, e);
     }
@@ -950,4 +1108,66 @@ public abstract class AbstractSamlAuthenticationHandler extends AbstractSignServ
     this.preferredBindingUri = preferredBindingUri;
   }
 
+  /**
+   * Assigns the HTTP clients (connection pool) used by the handler's metadata provider. The handler takes ownership of
+   * the clients and closes them when the handler is closed. Should only be assigned if the metadata provider was
+   * created for this handler.
+   *
+   * @param metadataHttpClients the metadata HTTP clients
+   */
+  public void setMetadataHttpClients(@Nullable final MetadataHttpClients metadataHttpClients) {
+    synchronized (this.metadataLock) {
+      this.metadataHttpClients = metadataHttpClients;
+    }
+  }
+
+  /**
+   * Assigns the interval between checks whether the published SP metadata needs to be updated (re-signed). The
+   * metadata container decides when an update is required, and the interval should be considerably shorter than the
+   * time between that point and the end of the metadata validity. Default is
+   * {@link #DEFAULT_METADATA_REFRESH_INTERVAL}. Must be assigned before {@link #start()} is invoked.
+   *
+   * @param metadataRefreshInterval the refresh interval
+   */
+  public void setMetadataRefreshInterval(@Nonnull final Duration metadataRefreshInterval) {
+    this.metadataRefreshInterval =
+        Objects.requireNonNull(metadataRefreshInterval, "metadataRefreshInterval must not be null");
+    if (metadataRefreshInterval.isNegative() || metadataRefreshInterval.isZero()) {
+      throw new IllegalArgumentException("metadataRefreshInterval must be positive");
+    }
+  }
+
+  /**
+   * The signed and serialized SP metadata along with its entity tag.
+   */
+  private static class PublishedMetadata {
+
+    /** The serialized metadata. */
+    private final byte[] encoding;
+
+    /** The entity tag (quoted). */
+    private final String etag;
+
+    /** When the metadata was published. */
+    private final Instant published;
+
+    PublishedMetadata(final byte[] encoding, final Instant published) {
+      this.encoding = encoding;
+      this.published = published;
+      this.etag = EntityTags.calculate(encoding);
+    }
+
+    byte[] getEncoding() {
+      return this.encoding;
+    }
+
+    String getEtag() {
+      return this.etag;
+    }
+
+    Instant getPublished() {
+      return this.published;
+    }
+  }
+
 }
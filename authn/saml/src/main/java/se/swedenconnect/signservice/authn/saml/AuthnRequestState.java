@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.AuthnContextClassRef;
+import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.opensaml.saml.saml2.core.RequestedAuthnContext;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.sap.SADRequest;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.sap.SADVersion;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * A compact representation of a sent {@code AuthnRequest} that is stored in the SignService context while the user is
+ * authenticating.
+ * <p>
+ * Instead of storing the complete marshalled (and signed) request, only the values that are needed to validate the
+ * response are kept, i.e., the ID, issue instant, destination, ForceAuthn flag, the requested authentication contexts
+ * and (for the Sweden Connect profile) the contents of the {@code SADRequest} extension. When the response is
+ * processed, {@link #toAuthnRequest()} creates a lightweight {@code AuthnRequest} view holding these values.
+ * </p>
+ */
+public class AuthnRequestState implements Serializable {
+
+  /** For serializing. */
+  @Serial
+  private static final long serialVersionUID = 4467313593958431297L;
+
+  /** The AuthnRequest ID. */
+  private final String id;
+
+  /** The issue instant of the request. */
+  private final Instant issueInstant;
+
+  /** The destination of the request. */
+  private final String destination;
+
+  /** The ForceAuthn flag. */
+  private final Boolean forceAuthn;
+
+  /** The requested authentication context class references. */
+  private final List<String> authnContextClassRefs;
+
+  /** The comparison method for the requested authentication context. */
+  private final String authnContextComparison;
+
+  /** The SADRequest ID (null if no SADRequest was sent). */
+  private final String sadRequestId;
+
+  /** The SADRequest requester ID. */
+  private final String sadRequesterId;
+
+  /** The SADRequest sign request ID. */
+  private final String sadSignRequestId;
+
+  /** The SADRequest document count. */
+  private final Integer sadDocCount;
+
+  /** The requested SAD version. */
+  private final String sadRequestedVersion;
+
+  /**
+   * Constructor extracting the values to save from the supplied {@code AuthnRequest}.
+   *
+   * @param authnRequest the request
+   */
+  public AuthnRequestState(@Nonnull final AuthnRequest authnRequest) {
+    Objects.requireNonNull(authnRequest, "authnRequest must not be null");
+    this.id = authnRequest.getID();
+    this.issueInstant = authnRequest.getIssueInstant();
+    this.destination = authnRequest.getDestination();
+    this.forceAuthn = authnRequest.isForceAuthn();
+
+    final RequestedAuthnContext requestedAuthnContext = authnRequest.getRequestedAuthnContext();
+    if (requestedAuthnContext != null) {
+      this.authnContextClassRefs = requestedAuthnContext.getAuthnContextClassRefs().stream()
+          .map(AuthnContextClassRef::getURI)
+          .collect(Collectors.toCollection(ArrayList::new));
+      this.authnContextComparison = Optional.ofNullable(requestedAuthnContext.getComparison())
+          .map(AuthnContextComparisonTypeEnumeration::toString)
+          .orElse(null);
+    }
+    else {
+      this.authnContextClassRefs = null;
+      this.authnContextComparison = null;
+    }
+
+    final SADRequest sadRequest = Optional.ofNullable(authnRequest.getExtensions())
+        .map(e -> e.getUnknownXMLObjects(SADRequest.DEFAULT_ELEMENT_NAME))
+        .flatMap(l -> l.stream().findFirst())
+        .map(SADRequest.class::cast)
+        .orElse(null);
+    if (sadRequest != null) {
+      this.sadRequestId = sadRequest.getID();
+      this.sadRequesterId = sadRequest.getRequesterID();
+      this.sadSignRequestId = sadRequest.getSignRequestID();
+      this.sadDocCount = sadRequest.getDocCount();
+      this.sadRequestedVersion = Optional.ofNullable(sadRequest.getRequestedVersion())
+          .map(SADVersion::toString)
+          .orElse(null);
+    }
+    else {
+      this.sadRequestId = null;
+      this.sadRequesterId = null;
+      this.sadSignRequestId = null;
+      this.sadDocCount = null;
+      this.sadRequestedVersion = null;
+    }
+  }
+
+  /**
+   * Gets the ID of the request.
+   *
+   * @return the ID
+   */
+  @Nullable
+  public String getId() {
+    return this.id;
+  }
+
+  /**
+   * Gets the requested authentication context class references.
+   *
+   * @return a (possibly empty) list of URIs
+   */
+  @Nonnull
+  public List<String> getAuthnContextClassRefs() {
+    return this.authnContextClassRefs != null
+        ? Collections.unmodifiableList(this.authnContextClassRefs)
+        : Collections.emptyList();
+  }
+
+  /**
+   * Gets the ID of the {@code SADRequest} that was included in the request.
+   *
+   * @return the SADRequest ID, or null if no SADRequest was sent
+   */
+  @Nullable
+  public String getSadRequestId() {
+    return this.sadRequestId;
+  }
+
+  /**
+   * Creates a lightweight {@code AuthnRequest} holding the saved values. The object is not signed and contains only
+   * the elements and attributes that are needed for response validation.
+   *
+   * @return an AuthnRequest object
+   */
+  @Nonnull
+  public AuthnRequest toAuthnRequest() {
+    final AuthnRequest authnRequest =
+        (AuthnRequest) XMLObjectSupport.buildXMLObject(AuthnRequest.DEFAULT_ELEMENT_NAME);
+    authnRequest.setID(this.id);
+    authnRequest.setIssueInstant(this.issueInstant);
+    authnRequest.setDestination(this.destination);
+    authnRequest.setForceAuthn(this.forceAuthn);
+
+    if (this.authnContextClassRefs != null) {
+      final RequestedAuthnContext requestedAuthnContext =
+          (RequestedAuthnContext) XMLObjectSupport.buildXMLObject(RequestedAuthnContext.DEFAULT_ELEMENT_NAME);
+      requestedAuthnContext.setComparison(getComparison(this.authnContextComparison));
+      for (final String uri : this.authnContextClassRefs) {
+        final AuthnContextClassRef ref =
+            (AuthnContextClassRef) XMLObjectSupport.buildXMLObject(AuthnContextClassRef.DEFAULT_ELEMENT_NAME);
+        ref.setURI(uri);
+        requestedAuthnContext.getAuthnContextClassRefs().add(ref);
+      }
+      authnRequest.setRequestedAuthnContext(requestedAuthnContext);
+    }
+
+    if (this.sadRequestId != null) {
+      final SADRequest sadRequest = (SADRequest) XMLObjectSupport.buildXMLObject(SADRequest.DEFAULT_ELEMENT_NAME);
+      sadRequest.setID(this.sadRequestId);
+      sadRequest.setRequesterID(this.sadRequesterId);
+      sadRequest.setSignRequestID(this.sadSignRequestId);
+      sadRequest.setDocCount(this.sadDocCount);
+      if (this.sadRequestedVersion != null) {
+        sadRequest.setRequestedVersion(SADVersion.valueOf(this.sadRequestedVersion));
+      }
+      final Extensions extensions = (Extensions) XMLObjectSupport.buildXMLObject(Extensions.DEFAULT_ELEMENT_NAME);
+      extensions.getUnknownXMLObjects().add(sadRequest);
+      authnRequest.setExtensions(extensions);
+    }
+
+    return authnRequest;
+  }
+
+  /**
+   * Maps a comparison string to its enum value.
+   *
+   * @param comparison the comparison string
+   * @return the enum value, or null
+   */
+  @Nullable
+  private static AuthnContextComparisonTypeEnumeration getComparison(@Nullable final String comparison) {
+    if (comparison == null) {
+      return null;
+    }
+    return List.of(AuthnContextComparisonTypeEnumeration.EXACT, AuthnContextComparisonTypeEnumeration.MINIMUM,
+            AuthnContextComparisonTypeEnumeration.MAXIMUM, AuthnContextComparisonTypeEnumeration.BETTER).stream()
+        .filter(c -> c.toString().equals(comparison))
+        .findFirst()
+        .orElse(null);
+  }
+
+}
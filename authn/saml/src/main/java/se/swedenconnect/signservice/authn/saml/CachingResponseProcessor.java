@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import java.util.Objects;
+
+import org.opensaml.xmlsec.signature.support.SignaturePrevalidator;
+import org.opensaml.xmlsec.signature.support.SignatureTrustEngine;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.opensaml.saml2.assertion.validation.AbstractAssertionValidationParametersBuilder;
+import se.swedenconnect.opensaml.saml2.assertion.validation.AssertionValidator;
+import se.swedenconnect.opensaml.saml2.response.ResponseProcessorImpl;
+import se.swedenconnect.opensaml.saml2.response.validation.ResponseValidator;
+import se.swedenconnect.opensaml.sweid.saml2.validation.SwedishEidAssertionValidationParametersBuilder;
+import se.swedenconnect.opensaml.sweid.saml2.validation.SwedishEidAssertionValidator;
+import se.swedenconnect.opensaml.sweid.saml2.validation.SwedishEidResponseProcessorImpl;
+import se.swedenconnect.opensaml.sweid.saml2.validation.SwedishEidResponseValidator;
+
+/**
+ * A {@link ResponseProcessorImpl} that resolves the IdP signature validation credentials using a
+ * {@link MetadataCredentialCache}, so that the IdP certificates are not parsed from metadata for each processed
+ * response.
+ * <p>
+ * If the processor is set up for the Swedish eID Framework it validates responses and assertions in the same way as a
+ * {@link SwedishEidResponseProcessorImpl}.
+ * </p>
+ */
+public class CachingResponseProcessor extends ResponseProcessorImpl {
+
+  /** The credential cache. */
+  private final MetadataCredentialCache credentialCache;
+
+  /** Whether responses should be validated according to the Swedish eID Framework. */
+  private final boolean swedishEid;
+
+  /**
+   * Constructor creating a processor performing generic SAML validation.
+   *
+   * @param credentialCache the credential cache
+   */
+  public CachingResponseProcessor(@Nonnull final MetadataCredentialCache credentialCache) {
+    this(credentialCache, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param credentialCache the credential cache
+   * @param swedishEid whether responses should be validated according to the Swedish eID Framework
+   */
+  public CachingResponseProcessor(@Nonnull final MetadataCredentialCache credentialCache, final boolean swedishEid) {
+    this.credentialCache = Objects.requireNonNull(credentialCache, "credentialCache must not be null");
+    this.swedishEid = swedishEid;
+  }
+
+  /**
+   * Gets the credential cache used by the processor.
+   *
+   * @return the credential cache
+   */
+  @Nonnull
+  public MetadataCredentialCache getCredentialCache() {
+    return this.credentialCache;
+  }
+
+  /**
+   * Tells whether responses are validated according to the Swedish eID Framework.
+   *
+   * @return true for Swedish eID validation, and false for generic SAML validation
+   */
+  public boolean isSwedishEid() {
+    return this.swedishEid;
+  }
+
+  /**
+   * Creates the response validator using the trust engine of the credential cache.
+   */
+  @Override
+  protected ResponseValidator createResponseValidator(final SignatureTrustEngine signatureTrustEngine,
+      final SignaturePrevalidator signatureProfileValidator) {
+    final SignatureTrustEngine trustEngine = this.credentialCache.getSignatureTrustEngine();
+    return this.swedishEid
+        ? new SwedishEidResponseValidator(trustEngine, signatureProfileValidator)
+        : super.createResponseValidator(trustEngine, signatureProfileValidator);
+  }
+
+  /**
+   * Creates the assertion validator using the trust engine of the credential cache.
+   */
+  @Override
+  protected AssertionValidator createAssertionValidator(final SignatureTrustEngine signatureTrustEngine,
+      final SignaturePrevalidator signatureProfileValidator) {
+    final SignatureTrustEngine trustEngine = this.credentialCache.getSignatureTrustEngine();
+    return this.swedishEid
+        ? new SwedishEidAssertionValidator(trustEngine, signatureProfileValidator)
+        : super.createAssertionValidator(trustEngine, signatureProfileValidator);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected AbstractAssertionValidationParametersBuilder<?> getAssertionValidationParametersBuilder() {
+    return this.swedishEid
+        ? SwedishEidAssertionValidationParametersBuilder.builder()
+        : super.getAssertionValidationParametersBuilder();
+  }
+
+}
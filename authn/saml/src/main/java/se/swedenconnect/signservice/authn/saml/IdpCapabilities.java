@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.SSODescriptor;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.opensaml.saml2.metadata.EntityDescriptorUtils;
+import se.swedenconnect.opensaml.sweid.saml2.authn.psc.MatchValue;
+import se.swedenconnect.opensaml.sweid.saml2.authn.psc.RequestedPrincipalSelection;
+
+/**
+ * The capabilities that an Identity Provider declares in its metadata and that the SAML authentication handlers need
+ * when sending an authentication request to it. The capabilities are extracted once from the IdP
+ * {@link EntityDescriptor} (see {@link IdpCapabilityIndex}) so that the metadata does not have to be walked on every
+ * authentication.
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ */
+public final class IdpCapabilities {
+
+  /** The metadata that the capabilities were extracted from. */
+  private final EntityDescriptor entityDescriptor;
+
+  /** The assurance certification URI:s declared by the IdP. */
+  private final Set<String> assuranceCertificationUris;
+
+  /** The entity categories declared by the IdP. */
+  private final Set<String> entityCategories;
+
+  /** The attribute names of the RequestedPrincipalSelection extension (null if not declared). */
+  private final List<String> principalSelectionAttributes;
+
+  /**
+   * Constructor extracting the capabilities from the supplied metadata.
+   *
+   * @param entityDescriptor the IdP metadata
+   */
+  public IdpCapabilities(@Nonnull final EntityDescriptor entityDescriptor) {
+    this.entityDescriptor = Objects.requireNonNull(entityDescriptor, "entityDescriptor must not be null");
+    this.assuranceCertificationUris = Collections.unmodifiableSet(
+        new LinkedHashSet<>(EntityDescriptorUtils.getAssuranceCertificationUris(entityDescriptor)));
+    this.entityCategories = Collections.unmodifiableSet(
+        new LinkedHashSet<>(EntityDescriptorUtils.getEntityCategories(entityDescriptor)));
+    this.principalSelectionAttributes =
+        Optional.ofNullable(entityDescriptor.getIDPSSODescriptor(SAMLConstants.SAML20P_NS))
+            .map(SSODescriptor::getExtensions)
+            .map(e -> EntityDescriptorUtils.getMetadataExtension(e, RequestedPrincipalSelection.class))
+            .map(r -> r.getMatchValues().stream()
+                .map(MatchValue::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableList()))
+            .orElse(null);
+  }
+
+  /**
+   * Gets the entityID of the IdP.
+   *
+   * @return the entityID
+   */
+  @Nonnull
+  public String getEntityId() {
+    return this.entityDescriptor.getEntityID();
+  }
+
+  /**
+   * Gets the metadata object that the capabilities were extracted from.
+   *
+   * @return the IdP metadata
+   */
+  @Nonnull
+  public EntityDescriptor getEntityDescriptor() {
+    return this.entityDescriptor;
+  }
+
+  /**
+   * Gets the assurance certification URI:s declared by the IdP.
+   *
+   * @return an unmodifiable (possibly empty) set of URI:s
+   */
+  @Nonnull
+  public Set<String> getAssuranceCertificationUris() {
+    return this.assuranceCertificationUris;
+  }
+
+  /**
+   * Gets the entity categories declared by the IdP.
+   *
+   * @return an unmodifiable (possibly empty) set of entity category URI:s
+   */
+  @Nonnull
+  public Set<String> getEntityCategories() {
+    return this.entityCategories;
+  }
+
+  /**
+   * Predicate telling whether the IdP declares the given entity category.
+   *
+   * @param entityCategory the entity category URI
+   * @return true if the entity category is declared and false otherwise
+   */
+  public boolean hasEntityCategory(@Nonnull final String entityCategory) {
+    return this.entityCategories.contains(entityCategory);
+  }
+
+  /**
+   * Gets the attribute names that the IdP has declared in its {@code RequestedPrincipalSelection} metadata extension.
+   *
+   * @return an unmodifiable list of attribute names, or null if the IdP does not declare the extension
+   */
+  @Nullable
+  public List<String> getPrincipalSelectionAttributes() {
+    return this.principalSelectionAttributes;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return String.format("entity-id='%s', assurance-certification=%s, entity-categories=%s, principal-selection=%s",
+        this.getEntityId(), this.assuranceCertificationUris, this.entityCategories, this.principalSelectionAttributes);
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import net.shibboleth.shared.resolver.ResolverException;
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
+
+/**
+ * An index of {@link IdpCapabilities} objects, keyed by IdP entityID.
+ * <p>
+ * When the underlying {@link MetadataProvider} has been refreshed (its last update time has changed) the index is
+ * rebuilt from the identity providers that the provider currently holds. The rebuild is made by the first thread that
+ * notices the refresh, while other threads continue to use the previous index. IdP:s that are not part of the index
+ * (for example when an MDQ provider is used) are added to the index the first time they are looked up.
+ * </p>
+ * <p>
+ * An entry is only used if it was extracted from the same {@link EntityDescriptor} instance as the one supplied in the
+ * lookup, so the index never returns capabilities from outdated metadata.
+ * </p>
+ */
+@Slf4j
+public class IdpCapabilityIndex {
+
+  /** The metadata provider. */
+  private final MetadataProvider metadataProvider;
+
+  /** The current index. */
+  private volatile Index index = new Index(null, new ConcurrentHashMap<>());
+
+  /** Guards rebuilds. */
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  /** The time it took to perform the last rebuild. */
+  private volatile Duration lastRebuildDuration;
+
+  /** The number of times the index has been rebuilt. */
+  private volatile long rebuildCount = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param metadataProvider the metadata provider holding the IdP metadata
+   */
+  public IdpCapabilityIndex(@Nonnull final MetadataProvider metadataProvider) {
+    this.metadataProvider = Objects.requireNonNull(metadataProvider, "metadataProvider must not be null");
+  }
+
+  /**
+   * Gets the capabilities for the supplied IdP metadata.
+   *
+   * @param idpMetadata the IdP metadata (as obtained from the metadata provider)
+   * @return the IdP capabilities
+   */
+  @Nonnull
+  public IdpCapabilities get(@Nonnull final EntityDescriptor idpMetadata) {
+    Objects.requireNonNull(idpMetadata, "idpMetadata must not be null");
+    this.rebuildIfRefreshed();
+
+    final Map<String, IdpCapabilities> entries = this.index.entries;
+    final IdpCapabilities capabilities = entries.get(idpMetadata.getEntityID());
+    if (capabilities != null && capabilities.getEntityDescriptor() == idpMetadata) {
+      return capabilities;
+    }
+    final IdpCapabilities updated = new IdpCapabilities(idpMetadata);
+    entries.put(idpMetadata.getEntityID(), updated);
+    return updated;
+  }
+
+  /**
+   * Gets the number of IdP:s in the index.
+   *
+   * @return the size of the index
+   */
+  public int size() {
+    return this.index.entries.size();
+  }
+
+  /**
+   * Gets the time it took to perform the last rebuild of the index.
+   *
+   * @return the rebuild time, or null if the index has not been rebuilt
+   */
+  @Nullable
+  public Duration getLastRebuildDuration() {
+    return this.lastRebuildDuration;
+  }
+
+  /**
+   * Gets the number of times the index has been rebuilt.
+   *
+   * @return the rebuild count
+   */
+  public long getRebuildCount() {
+    return this.rebuildCount;
+  }
+
+  /**
+   * Rebuilds the index if the metadata provider has been refreshed since the last rebuild. If another thread is
+   * currently rebuilding the index, the method returns immediately.
+   */
+  public void rebuildIfRefreshed() {
+    final Instant lastUpdate = this.metadataProvider.getLastUpdate();
+    if (lastUpdate == null || lastUpdate.equals(this.index.lastUpdate)) {
+      return;
+    }
+    if (!this.rebuildLock.tryLock()) {
+      return;
+    }
+    try {
+      if (!lastUpdate.equals(this.index.lastUpdate)) {
+        this.rebuild(lastUpdate);
+      }
+    }
+    finally {
+      this.rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Rebuilds the index from the identity providers held by the metadata provider.
+   *
+   * @param lastUpdate the last update time of the metadata provider
+   */
+  private void rebuild(@Nonnull final Instant lastUpdate) {
+    final long start = System.nanoTime();
+    final Map<String, IdpCapabilities> entries = new ConcurrentHashMap<>();
+    try {
+      final List<EntityDescriptor> idps =
+          Optional.ofNullable(this.metadataProvider.getIdentityProviders()).orElseGet(List::of);
+      for (final EntityDescriptor idp : idps) {
+        entries.put(idp.getEntityID(), new IdpCapabilities(idp));
+      }
+    }
+    catch (final ResolverException | RuntimeException e) {
+      log.warn("Failed to list identity providers from metadata provider - IdP capabilities will be indexed "
+          + "on demand - {}", e.getMessage());
+    }
+    this.index = new Index(lastUpdate, entries);
+    this.lastRebuildDuration = Duration.ofNanos(System.nanoTime() - start);
+    this.rebuildCount++;
+    log.info("IdP capability index rebuilt with {} entries in {} ms",
+        entries.size(), this.lastRebuildDuration.toMillis());
+  }
+
+  /**
+   * Holds the index entries together with the metadata provider update time that they were built for.
+   */
+  private static class Index {
+
+    /** The last update time of the metadata provider when the index was built. */
+    private final Instant lastUpdate;
+
+    /** The entries, keyed by entityID. */
+    private final Map<String, IdpCapabilities> entries;
+
+    Index(final Instant lastUpdate, final Map<String, IdpCapabilities> entries) {
+      this.lastUpdate = lastUpdate;
+      this.entries = entries;
+    }
+  }
+
+}
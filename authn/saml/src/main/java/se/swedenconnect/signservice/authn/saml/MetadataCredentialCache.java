@@ -0,0 +1,421 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.namespace.QName;
+
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.criterion.ProtocolCriterion;
+import org.opensaml.saml.criterion.RoleDescriptorCriterion;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.saml.security.impl.MetadataCredentialResolver;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.UsageCriterion;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.signature.support.SignatureTrustEngine;
+import org.opensaml.xmlsec.signature.support.SignatureValidationParametersCriterion;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.resolver.CriteriaSet;
+import net.shibboleth.shared.resolver.Criterion;
+import net.shibboleth.shared.resolver.ResolverException;
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.SADParser;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.SADParser.SADValidator;
+
+/**
+ * A {@link CredentialResolver} that caches the credentials that are resolved from the metadata of the peers (IdP:s) so
+ * that the certificates and keys of a peer are parsed once per metadata version instead of once per message.
+ * <p>
+ * The cache is keyed by entityID and role, and an entry is only used if it was resolved from the same
+ * {@link RoleDescriptor} instance as the one supplied in the lookup. All entries are dropped when the underlying
+ * {@link MetadataProvider} has been refreshed (its last update time has changed).
+ * </p>
+ * <p>
+ * Only lookups where the criteria consist of a {@link RoleDescriptorCriterion}, and optionally a
+ * {@link UsageCriterion}, a {@link SignatureValidationParametersCriterion} and {@link EntityIdCriterion},
+ * {@link EntityRoleCriterion} and {@link ProtocolCriterion} criteria that agree with the role descriptor, are served
+ * from the cache. This is what the signature validators of the SAML response processor use (they add the issuer as an
+ * {@link EntityIdCriterion}). Other lookups are passed on to an ordinary {@link MetadataCredentialResolver}.
+ * </p>
+ * <p>
+ * The cache also holds a {@link SADValidator} per IdP, set up with the IdP signing certificates, so that validating
+ * SAD JWT:s does not require any metadata lookups.
+ * </p>
+ */
+@Slf4j
+public class MetadataCredentialCache implements CredentialResolver {
+
+  /** The criteria types that may be present in a cacheable lookup, regardless of their values. */
+  private static final Set<Class<?>> CACHEABLE_CRITERIA = Set.of(
+      RoleDescriptorCriterion.class, UsageCriterion.class, SignatureValidationParametersCriterion.class);
+
+  /** The metadata provider. */
+  private final MetadataProvider metadataProvider;
+
+  /** The resolver that resolves credentials from metadata. */
+  private final MetadataCredentialResolver resolver;
+
+  /** A signature trust engine using this cache as its credential resolver. */
+  private final SignatureTrustEngine signatureTrustEngine;
+
+  /** The current cache generation. */
+  private volatile Generation generation = new Generation(null);
+
+  /** The allowed clock skew for the SAD validators. */
+  private Duration sadAllowedClockSkew = SADValidator.DEFAULT_ALLOWED_CLOCK_SKEW;
+
+  /** The number of lookups served from the cache. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The number of lookups that required credentials to be resolved from metadata. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The number of times the cache has been invalidated because of a metadata refresh. */
+  private final LongAdder invalidations = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param metadataProvider the metadata provider holding the peer metadata
+   */
+  public MetadataCredentialCache(@Nonnull final MetadataProvider metadataProvider) {
+    this.metadataProvider = Objects.requireNonNull(metadataProvider, "metadataProvider must not be null");
+    this.resolver = new MetadataCredentialResolver();
+    this.resolver.setKeyInfoCredentialResolver(
+        DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver());
+    try {
+      this.resolver.initialize();
+    }
+    catch (final ComponentInitializationException e) {
+      throw new IllegalStateException("Failed to initialize metadata credential resolver", e);
+    }
+    this.signatureTrustEngine = new ExplicitKeySignatureTrustEngine(this,
+        DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Iterable<Credential> resolve(@Nullable final CriteriaSet criteria) throws ResolverException {
+    if (!isCacheable(criteria)) {
+      return this.resolver.resolve(criteria);
+    }
+    final RoleDescriptor roleDescriptor = criteria.get(RoleDescriptorCriterion.class).getRole();
+    final UsageType usage = Optional.ofNullable(criteria.get(UsageCriterion.class))
+        .map(UsageCriterion::getUsage)
+        .orElse(UsageType.UNSPECIFIED);
+    return this.getCredentials(roleDescriptor, usage);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Credential resolveSingle(@Nullable final CriteriaSet criteria) throws ResolverException {
+    final Iterator<Credential> credentials = this.resolve(criteria).iterator();
+    return credentials.hasNext() ? credentials.next() : null;
+  }
+
+  /**
+   * Gets the credentials of the supplied role descriptor having the given usage.
+   *
+   * @param roleDescriptor the role descriptor (from the peer metadata)
+   * @param usage the credential usage
+   * @return an unmodifiable list of credentials
+   * @throws ResolverException for errors resolving the credentials
+   */
+  @Nonnull
+  public List<Credential> getCredentials(@Nonnull final RoleDescriptor roleDescriptor, @Nonnull final UsageType usage)
+      throws ResolverException {
+    Objects.requireNonNull(roleDescriptor, "roleDescriptor must not be null");
+    Objects.requireNonNull(usage, "usage must not be null");
+
+    final Entry entry = this.getEntry(roleDescriptor);
+    final List<Credential> cached = entry.getCredentials().get(usage);
+    if (cached != null) {
+      this.hits.increment();
+      return cached;
+    }
+    this.misses.increment();
+    final List<Credential> credentials = new ArrayList<>();
+    this.resolver.resolve(new CriteriaSet(new RoleDescriptorCriterion(roleDescriptor), new UsageCriterion(usage)))
+        .forEach(credentials::add);
+    final List<Credential> unmodifiable = Collections.unmodifiableList(credentials);
+    entry.getCredentials().put(usage, unmodifiable);
+    return unmodifiable;
+  }
+
+  /**
+   * Gets a {@link SADValidator} for validating SAD JWT:s issued by the supplied IdP. The validator is set up with the
+   * signing certificates from the IdP metadata.
+   *
+   * @param idpMetadata the IdP metadata (as obtained from the metadata provider)
+   * @return a SAD validator
+   * @throws ResolverException for errors resolving the IdP signing credentials
+   */
+  @Nonnull
+  public SADValidator getSadValidator(@Nonnull final EntityDescriptor idpMetadata) throws ResolverException {
+    Objects.requireNonNull(idpMetadata, "idpMetadata must not be null");
+    final IDPSSODescriptor ssoDescriptor = idpMetadata.getIDPSSODescriptor(SAMLConstants.SAML20P_NS);
+    if (ssoDescriptor == null) {
+      return this.createSadValidator(SADParser.getValidator(idpMetadata));
+    }
+    final Entry entry = this.getEntry(ssoDescriptor);
+    SADValidator validator = entry.getSadValidator();
+    if (validator == null) {
+      final X509Certificate[] certificates = this.getCredentials(ssoDescriptor, UsageType.SIGNING).stream()
+          .filter(X509Credential.class::isInstance)
+          .map(X509Credential.class::cast)
+          .map(X509Credential::getEntityCertificate)
+          .filter(Objects::nonNull)
+          .toArray(X509Certificate[]::new);
+      validator = this.createSadValidator(certificates.length > 0
+          ? SADParser.getValidator(certificates)
+          : SADParser.getValidator(idpMetadata));
+      entry.setSadValidator(validator);
+    }
+    return validator;
+  }
+
+  /**
+   * Gets a {@link SignatureTrustEngine} that uses this cache to resolve the trusted credentials.
+   *
+   * @return a signature trust engine
+   */
+  @Nonnull
+  public SignatureTrustEngine getSignatureTrustEngine() {
+    return this.signatureTrustEngine;
+  }
+
+  /**
+   * Assigns the allowed clock skew for the SAD validators. The default is
+   * {@link SADValidator#DEFAULT_ALLOWED_CLOCK_SKEW}.
+   *
+   * @param sadAllowedClockSkew the allowed clock skew
+   */
+  public void setSadAllowedClockSkew(@Nonnull final Duration sadAllowedClockSkew) {
+    this.sadAllowedClockSkew = Objects.requireNonNull(sadAllowedClockSkew, "sadAllowedClockSkew must not be null");
+    this.generation = new Generation(this.generation.getLastUpdate());
+  }
+
+  /**
+   * Gets the number of entries in the cache.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return this.generation.getEntries().size();
+  }
+
+  /**
+   * Gets the number of lookups that were served from the cache.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Gets the number of lookups that required credentials to be resolved from metadata.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Gets the number of times the cache has been invalidated because the metadata was refreshed.
+   *
+   * @return the invalidation count
+   */
+  public long getInvalidationCount() {
+    return this.invalidations.sum();
+  }
+
+  /**
+   * Gets the cache entry for the supplied role descriptor. If the metadata provider has been refreshed, all entries
+   * are dropped first.
+   *
+   * @param roleDescriptor the role descriptor
+   * @return the cache entry
+   */
+  @Nonnull
+  private Entry getEntry(@Nonnull final RoleDescriptor roleDescriptor) {
+    final String entityId = roleDescriptor.getParent() instanceof final EntityDescriptor ed ? ed.getEntityID() : null;
+    if (entityId == null) {
+      return new Entry(roleDescriptor);
+    }
+    Generation current = this.generation;
+    final Instant lastUpdate = this.metadataProvider.getLastUpdate();
+    if (lastUpdate != null && !lastUpdate.equals(current.getLastUpdate())) {
+      log.debug("Metadata has been refreshed - invalidating credential cache");
+      current = new Generation(lastUpdate);
+      this.generation = current;
+      this.invalidations.increment();
+    }
+    final String key = entityId + "#" + roleDescriptor.getElementQName().getLocalPart();
+    final Entry entry = current.getEntries().get(key);
+    if (entry != null && entry.getRoleDescriptor() == roleDescriptor) {
+      return entry;
+    }
+    final Entry updated = new Entry(roleDescriptor);
+    current.getEntries().put(key, updated);
+    return updated;
+  }
+
+  /**
+   * Applies the configured clock skew to a SAD validator.
+   *
+   * @param validator the validator
+   * @return the validator
+   */
+  @Nonnull
+  private SADValidator createSadValidator(@Nonnull final SADValidator validator) {
+    validator.setAllowedClockSkew(this.sadAllowedClockSkew);
+    return validator;
+  }
+
+  /**
+   * Tells whether a lookup using the supplied criteria may be served from the cache.
+   *
+   * @param criteria the criteria
+   * @return true if the lookup is cacheable, and false otherwise
+   */
+  private static boolean isCacheable(@Nullable final CriteriaSet criteria) {
+    final RoleDescriptor roleDescriptor = Optional.ofNullable(criteria)
+        .map(c -> c.get(RoleDescriptorCriterion.class))
+        .map(RoleDescriptorCriterion::getRole)
+        .orElse(null);
+    if (roleDescriptor == null) {
+      return false;
+    }
+    for (final Criterion criterion : criteria) {
+      if (CACHEABLE_CRITERIA.contains(criterion.getClass())) {
+        continue;
+      }
+      if (criterion.getClass() == EntityIdCriterion.class) {
+        final String entityId = roleDescriptor.getParent() instanceof final EntityDescriptor ed
+            ? ed.getEntityID()
+            : null;
+        if (!Objects.equals(((EntityIdCriterion) criterion).getEntityId(), entityId)) {
+          return false;
+        }
+      }
+      else if (criterion.getClass() == EntityRoleCriterion.class) {
+        final QName role = ((EntityRoleCriterion) criterion).getRole();
+        if (!role.equals(roleDescriptor.getElementQName()) && !role.equals(roleDescriptor.getSchemaType())) {
+          return false;
+        }
+      }
+      else if (criterion.getClass() == ProtocolCriterion.class) {
+        if (!roleDescriptor.isSupportedProtocol(((ProtocolCriterion) criterion).getProtocol())) {
+          return false;
+        }
+      }
+      else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The entries for one version of the metadata.
+   */
+  private static class Generation {
+
+    /** The last update time of the metadata provider when the generation was created. */
+    private final Instant lastUpdate;
+
+    /** The entries, keyed by entityID and role. */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    Generation(final Instant lastUpdate) {
+      this.lastUpdate = lastUpdate;
+    }
+
+    Instant getLastUpdate() {
+      return this.lastUpdate;
+    }
+
+    Map<String, Entry> getEntries() {
+      return this.entries;
+    }
+  }
+
+  /**
+   * The cached credentials of a role descriptor.
+   */
+  private static class Entry {
+
+    /** The role descriptor that the credentials were resolved from. */
+    private final RoleDescriptor roleDescriptor;
+
+    /** The credentials, per usage. */
+    private final Map<UsageType, List<Credential>> credentials = new ConcurrentHashMap<>();
+
+    /** The SAD validator (only for IdP roles). */
+    private volatile SADValidator sadValidator;
+
+    Entry(final RoleDescriptor roleDescriptor) {
+      this.roleDescriptor = roleDescriptor;
+    }
+
+    RoleDescriptor getRoleDescriptor() {
+      return this.roleDescriptor;
+    }
+
+    Map<UsageType, List<Credential>> getCredentials() {
+      return this.credentials;
+    }
+
+    SADValidator getSadValidator() {
+      return this.sadValidator;
+    }
+
+    void setSadValidator(final SADValidator sadValidator) {
+      this.sadValidator = sadValidator;
+    }
+  }
+
+}
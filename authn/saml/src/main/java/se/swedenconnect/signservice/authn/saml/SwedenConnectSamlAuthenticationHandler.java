@@ -20,25 +20,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.UUID;
 
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.core.xml.io.UnmarshallingException;
 import org.opensaml.core.xml.util.XMLObjectSupport;
-import org.opensaml.saml.common.xml.SAMLConstants;
 import org.opensaml.saml.saml2.core.AuthnRequest;
 import org.opensaml.saml.saml2.core.Extensions;
 import org.opensaml.saml.saml2.metadata.EntityDescriptor;
-import org.opensaml.saml.saml2.metadata.SSODescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import net.shibboleth.shared.resolver.ResolverException;
 import net.shibboleth.shared.xml.XMLParserException;
 import se.swedenconnect.opensaml.saml2.metadata.EntityDescriptorContainer;
-import se.swedenconnect.opensaml.saml2.metadata.EntityDescriptorUtils;
 import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
 import se.swedenconnect.opensaml.saml2.request.AuthnRequestGenerator;
 import se.swedenconnect.opensaml.saml2.request.AuthnRequestGeneratorContext;
@@ -47,12 +44,10 @@ import se.swedenconnect.opensaml.saml2.response.ResponseProcessor;
 import se.swedenconnect.opensaml.sweid.saml2.attribute.AttributeConstants;
 import se.swedenconnect.opensaml.sweid.saml2.authn.psc.MatchValue;
 import se.swedenconnect.opensaml.sweid.saml2.authn.psc.PrincipalSelection;
-import se.swedenconnect.opensaml.sweid.saml2.authn.psc.RequestedPrincipalSelection;
 import se.swedenconnect.opensaml.sweid.saml2.authn.psc.build.MatchValueBuilder;
 import se.swedenconnect.opensaml.sweid.saml2.authn.psc.build.PrincipalSelectionBuilder;
 import se.swedenconnect.opensaml.sweid.saml2.metadata.entitycategory.EntityCategoryConstants;
 import se.swedenconnect.opensaml.sweid.saml2.request.SwedishEidAuthnRequestGeneratorContext;
-import se.swedenconnect.opensaml.sweid.saml2.signservice.SADParser;
 import se.swedenconnect.opensaml.sweid.saml2.signservice.SADParser.SADValidator;
 import se.swedenconnect.opensaml.sweid.saml2.signservice.SADValidationException;
 import se.swedenconnect.opensaml.sweid.saml2.signservice.sap.SADRequest;
@@ -78,9 +73,12 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
   /** Key for storing the SAD Id. */
   public static final String SAD_ID_KEY = SwedenConnectSamlAuthenticationHandler.class.getPackageName() + ".SadID";
 
-  /** For validating SAD attributes. */
+  /** For validating SAD attributes (if null, a validator is obtained per IdP from the credential cache). */
   private SADValidator sadValidator;
 
+  /** Holds the credentials of the IdP:s, and SAD validators set up with these credentials. */
+  private MetadataCredentialCache credentialCache;
+
   /** Tells how we should treat SAD requests. */
   private SadRequestRequirement sadRequestRequirement = SadRequestRequirement.DEFAULT;
 
@@ -100,7 +98,7 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
       @Nonnull final EntityDescriptorContainer entityDescriptorContainer,
       @Nonnull final SpUrlConfiguration urlConfiguration) {
     super(authnRequestGenerator, responseProcessor, metadataProvider, entityDescriptorContainer, urlConfiguration);
-    this.sadValidator = SADParser.getValidator(metadataProvider);
+    this.credentialCache = new MetadataCredentialCache(metadataProvider);
   }
 
   /**
@@ -236,21 +234,18 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
   private PrincipalSelection getPrincipalSelection(@Nonnull final AuthnRequirements authnRequirements,
       @Nonnull final SignServiceContext context, @Nonnull final EntityDescriptor idpMetadata) {
 
-    final RequestedPrincipalSelection requestedPrincipalSelection =
-        Optional.ofNullable(idpMetadata.getIDPSSODescriptor(SAMLConstants.SAML20P_NS))
-            .map(SSODescriptor::getExtensions)
-            .map(e -> EntityDescriptorUtils.getMetadataExtension(e, RequestedPrincipalSelection.class))
-            .orElse(null);
+    final List<String> principalSelectionAttributes =
+        this.getIdpCapabilities(idpMetadata).getPrincipalSelectionAttributes();
 
-    if (requestedPrincipalSelection == null) {
+    if (principalSelectionAttributes == null) {
       log.debug("{}: IdP '{}' does not declare the RequestedPrincipalSelection extension "
           + "- will not include PrincipalSelection", context.getId(), idpMetadata.getEntityID());
       return null;
     }
     final List<MatchValue> matchValues = new ArrayList<>();
-    for (final MatchValue mv : requestedPrincipalSelection.getMatchValues()) {
+    for (final String name : principalSelectionAttributes) {
       final String value = authnRequirements.getRequestedSignerAttributes().stream()
-          .filter(a -> a.getIdentifier().equals(mv.getName()))
+          .filter(a -> a.getIdentifier().equals(name))
           .filter(StringSamlIdentityAttribute.class::isInstance)
           .map(StringSamlIdentityAttribute.class::cast)
           .map(StringSamlIdentityAttribute::getValue)
@@ -258,10 +253,10 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
           .orElse(null);
       if (value != null) {
         matchValues.add(MatchValueBuilder.builder()
-            .name(mv.getName())
+            .name(name)
             .value(value)
             .build());
-        log.debug("{}: Adding PrincipalSelection for attribute '{}' ...", context.getId(), mv.getName());
+        log.debug("{}: Adding PrincipalSelection for attribute '{}' ...", context.getId(), name);
       }
     }
     if (matchValues.isEmpty()) {
@@ -290,8 +285,8 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
   @Override
   protected boolean isSignatureActivationProtocolSupported(@Nonnull final EntityDescriptor idpMetadata) {
 
-    return EntityDescriptorUtils.getEntityCategories(idpMetadata).stream()
-        .anyMatch(e -> EntityCategoryConstants.SERVICE_PROPERTY_CATEGORY_SCAL2.getUri().equals(e));
+    return this.getIdpCapabilities(idpMetadata)
+        .hasEntityCategory(EntityCategoryConstants.SERVICE_PROPERTY_CATEGORY_SCAL2.getUri());
   }
 
   /** {@inheritDoc} */
@@ -320,7 +315,15 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
     // OK, we sent a SADRequest. We now expect the 'sad' attribute to be included in the assertion.
     //
     try {
-      this.sadValidator.validate(authnRequest, result.getAssertion());
+      final SADValidator validator = this.sadValidator != null
+          ? this.sadValidator
+          : this.credentialCache.getSadValidator(this.getIdpMetadata(authnRequirements, context));
+      validator.validate(authnRequest, result.getAssertion());
+    }
+    catch (final ResolverException e) {
+      final String msg = "Failed to resolve IdP credentials for SAD validation - " + e.getMessage();
+      log.info("{}: {}", context.getId(), msg, e);
+      throw new UserAuthenticationException(AuthenticationErrorCode.INTERNAL_AUTHN_ERROR, msg, e);
     }
     catch (final SADValidationException e) {
       final String msg = String.format("Verification of signature activation data (SAD) failed - %s - %s",
@@ -379,8 +382,8 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
   }
 
   /**
-   * Assigns the {@link SADValidator} to be used when validating SAD attributes. If not explicitly assigned a validator
-   * is created using {@link SADParser#getValidator(MetadataProvider)}.
+   * Assigns the {@link SADValidator} to be used when validating SAD attributes. If not explicitly assigned, a validator
+   * set up with the signing certificates of the issuing IdP is obtained from the {@link MetadataCredentialCache}.
    *
    * @param sadValidator the SAD validator
    */
@@ -389,14 +392,36 @@ public class SwedenConnectSamlAuthenticationHandler extends AbstractSamlAuthenti
   }
 
   /**
-   * Gets the {@link SADValidator} for further configuration.
+   * Gets the explicitly assigned {@link SADValidator}.
    *
-   * @return the {@link SADValidator}
+   * @return the {@link SADValidator}, or null if validators are obtained from the credential cache
    */
+  @Nullable
   public SADValidator getSADValidator() {
     return this.sadValidator;
   }
 
+  /**
+   * Assigns the credential cache to use. Assigning the same cache as the response processor uses (see
+   * {@link CachingResponseProcessor}) means that the IdP credentials are resolved only once per metadata
+   * version. If not assigned, the handler creates a cache of its own.
+   *
+   * @param credentialCache the credential cache
+   */
+  public void setCredentialCache(@Nonnull final MetadataCredentialCache credentialCache) {
+    this.credentialCache = Objects.requireNonNull(credentialCache, "credentialCache must not be null");
+  }
+
+  /**
+   * Gets the credential cache, for example to configure the allowed clock skew for SAD validation.
+   *
+   * @return the credential cache
+   */
+  @Nonnull
+  public MetadataCredentialCache getCredentialCache() {
+    return this.credentialCache;
+  }
+
   /**
    * Assigns the requirements regarding including the {@link SADRequest} extension.
    *
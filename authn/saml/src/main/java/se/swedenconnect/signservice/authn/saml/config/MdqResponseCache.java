@@ -0,0 +1,335 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Objects;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.w3c.dom.Element;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import net.shibboleth.shared.xml.XMLParserException;
+
+/**
+ * A disk-backed cache for MDQ responses that is installed in the HTTP client used by an MDQ metadata provider.
+ * <p>
+ * Successful responses to MDQ entity queries ({@code <base>/entities/<entityID>}) are saved in the cache directory,
+ * keyed by entityID. A query for an entity whose cached metadata is still fresh, according to the {@code cacheDuration}
+ * and {@code validUntil} attributes of the metadata, is answered from the cache without contacting the MDQ server. This
+ * means that a cold start, or a restart, of the service does not lead to a burst of MDQ queries. If the MDQ server can
+ * not be reached, cached metadata that has passed its cache duration, but is still valid, is used.
+ * </p>
+ */
+@Slf4j
+public class MdqResponseCache implements ExecChainHandler {
+
+  /** The cache duration used if the metadata does not declare a cacheDuration. */
+  public static final Duration DEFAULT_CACHE_DURATION = Duration.ofHours(1);
+
+  /** The path segment preceding the entityID in MDQ entity queries. */
+  private static final String ENTITIES_SEGMENT = "/entities/";
+
+  /** The file suffix for cached responses. */
+  private static final String FILE_SUFFIX = ".mdq";
+
+  /** The cache directory. */
+  private final Path cacheDirectory;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheDirectory the directory where cached responses are stored (created if it does not exist)
+   * @throws IOException if the directory can not be created
+   */
+  public MdqResponseCache(@Nonnull final Path cacheDirectory) throws IOException {
+    this.cacheDirectory = Objects.requireNonNull(cacheDirectory, "cacheDirectory must not be null");
+    Files.createDirectories(cacheDirectory);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ClassicHttpResponse execute(final ClassicHttpRequest request, final ExecChain.Scope scope,
+      final ExecChain chain) throws IOException, HttpException {
+
+    final String entityId = "GET".equalsIgnoreCase(request.getMethod()) ? getEntityId(request) : null;
+    if (entityId == null) {
+      return chain.proceed(request, scope);
+    }
+    final Path file = this.getCacheFile(entityId);
+    final CachedResponse cached = CachedResponse.read(file);
+    final Instant now = Instant.now();
+    if (cached != null && cached.isFresh(now)) {
+      log.debug("Serving MDQ response for '{}' from disk cache", entityId);
+      return cached.toResponse();
+    }
+
+    final ClassicHttpResponse response;
+    try {
+      response = chain.proceed(request, scope);
+    }
+    catch (final IOException e) {
+      if (cached != null && cached.isValid(now)) {
+        log.info("MDQ query for '{}' failed ({}) - using cached metadata", entityId, e.getMessage());
+        return cached.toResponse();
+      }
+      throw e;
+    }
+    if (response.getCode() != HttpStatus.SC_OK || response.getEntity() == null) {
+      return response;
+    }
+
+    // Read the response so that we can save it, and hand over a repeatable copy to the caller ...
+    //
+    final byte[] body = EntityUtils.toByteArray(response.getEntity());
+    final String contentType = response.getEntity().getContentType();
+    response.setEntity(new ByteArrayEntity(body, contentType != null ? ContentType.parse(contentType) : null));
+
+    final CachedResponse fresh = CachedResponse.create(body, contentType, now);
+    if (fresh != null) {
+      try {
+        fresh.write(file);
+      }
+      catch (final IOException e) {
+        log.warn("Failed to save MDQ response for '{}' to {} - {}", entityId, file, e.getMessage());
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return the number of cached responses
+   */
+  public int size() {
+    try (final var files = Files.list(this.cacheDirectory)) {
+      return (int) files.filter(f -> f.getFileName().toString().endsWith(FILE_SUFFIX)).count();
+    }
+    catch (final IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Gets the cache file for the given entityID.
+   *
+   * @param entityId the entityID
+   * @return the path of the cache file
+   */
+  @Nonnull
+  private Path getCacheFile(@Nonnull final String entityId) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(entityId.getBytes(StandardCharsets.UTF_8));
+      return this.cacheDirectory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new SecurityException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * Extracts the entityID from an MDQ entity query.
+   *
+   * @param request the request
+   * @return the entityID, or null if the request is not an entity query
+   */
+  @Nullable
+  private static String getEntityId(@Nonnull final ClassicHttpRequest request) {
+    try {
+      final URI uri = request.getUri();
+      final String path = uri.getRawPath();
+      final int pos = path != null ? path.lastIndexOf(ENTITIES_SEGMENT) : -1;
+      if (pos < 0 || StringUtils.isNotEmpty(uri.getRawQuery())) {
+        return null;
+      }
+      final String encoded = path.substring(pos + ENTITIES_SEGMENT.length());
+      return encoded.isEmpty() ? null : URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+    }
+    catch (final URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A cached MDQ response.
+   */
+  private static class CachedResponse {
+
+    /** The point in time until which the response may be used without asking the MDQ server. */
+    private final Instant freshUntil;
+
+    /** The validUntil of the metadata (null if not set). */
+    private final Instant validUntil;
+
+    /** The content type of the response (null if not known). */
+    private final String contentType;
+
+    /** The response body. */
+    private final byte[] body;
+
+    CachedResponse(final Instant freshUntil, final Instant validUntil, final String contentType, final byte[] body) {
+      this.freshUntil = freshUntil;
+      this.validUntil = validUntil;
+      this.contentType = contentType;
+      this.body = body;
+    }
+
+    /**
+     * Creates a cached response from a response body received from the MDQ server.
+     *
+     * @param body the response body
+     * @param contentType the content type
+     * @param now the current time
+     * @return a cached response, or null if the response should not be cached
+     */
+    @Nullable
+    static CachedResponse create(final byte[] body, final String contentType, final Instant now) {
+      try {
+        final Element root = XMLObjectProviderRegistrySupport.getParserPool()
+            .parse(new ByteArrayInputStream(body)).getDocumentElement();
+        final DatatypeFactory datatypeFactory = DatatypeFactory.newInstance();
+
+        final Instant validUntil = StringUtils.isNotBlank(root.getAttribute("validUntil"))
+            ? datatypeFactory.newXMLGregorianCalendar(root.getAttribute("validUntil").trim())
+                .toGregorianCalendar().toInstant()
+            : null;
+        final Duration cacheDuration = StringUtils.isNotBlank(root.getAttribute("cacheDuration"))
+            ? Duration.ofMillis(datatypeFactory.newDuration(root.getAttribute("cacheDuration").trim())
+                .getTimeInMillis(Date.from(now)))
+            : DEFAULT_CACHE_DURATION;
+
+        Instant freshUntil = now.plus(cacheDuration);
+        if (validUntil != null && validUntil.isBefore(freshUntil)) {
+          freshUntil = validUntil;
+        }
+        if (!freshUntil.isAfter(now)) {
+          return null;
+        }
+        return new CachedResponse(freshUntil, validUntil, contentType, body);
+      }
+      catch (final XMLParserException | DatatypeConfigurationException | RuntimeException e) {
+        log.debug("Will not cache MDQ response - {}", e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Reads a cached response from disk.
+     *
+     * @param file the file
+     * @return the cached response, or null if no (readable) response is available
+     */
+    @Nullable
+    static CachedResponse read(final Path file) {
+      try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+        final long freshUntil = in.readLong();
+        final long validUntil = in.readLong();
+        final String contentType = in.readUTF();
+        final byte[] body = in.readAllBytes();
+        return new CachedResponse(Instant.ofEpochMilli(freshUntil),
+            validUntil >= 0 ? Instant.ofEpochMilli(validUntil) : null,
+            contentType.isEmpty() ? null : contentType, body);
+      }
+      catch (final NoSuchFileException e) {
+        return null;
+      }
+      catch (final IOException e) {
+        log.info("Ignoring unreadable MDQ cache file {} - {}", file, e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Writes the response to disk. The file is written to a temporary file that is then moved into place, so readers
+     * never see partially written files.
+     *
+     * @param file the file
+     * @throws IOException for write errors
+     */
+    void write(final Path file) throws IOException {
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream(this.body.length + 64);
+      try (final DataOutputStream out = new DataOutputStream(bos)) {
+        out.writeLong(this.freshUntil.toEpochMilli());
+        out.writeLong(this.validUntil != null ? this.validUntil.toEpochMilli() : -1L);
+        out.writeUTF(this.contentType != null ? this.contentType : "");
+        out.write(this.body);
+      }
+      final Path tmp = Files.createTempFile(file.getParent(), "mdq", ".tmp");
+      try {
+        Files.write(tmp, bos.toByteArray());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    boolean isFresh(final Instant now) {
+      return now.isBefore(this.freshUntil);
+    }
+
+    boolean isValid(final Instant now) {
+      return this.validUntil == null || now.isBefore(this.validUntil);
+    }
+
+    ClassicHttpResponse toResponse() {
+      final BasicClassicHttpResponse response = new BasicClassicHttpResponse(HttpStatus.SC_OK);
+      final ContentType type = this.contentType != null ? ContentType.parse(this.contentType) : null;
+      response.setEntity(new ByteArrayEntity(this.body, type));
+      if (this.contentType != null) {
+        response.setHeader(HttpHeaders.CONTENT_TYPE, this.contentType);
+      }
+      return response;
+    }
+  }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml.config;
+
+import java.io.Closeable;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.IdleConnectionEvictor;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.Data;
+import se.swedenconnect.signservice.authn.saml.config.MetadataProviderConfiguration.HttpProxyConfiguration;
+
+/**
+ * Creates the HTTP clients used by the metadata providers. All clients created by an instance share one pooled,
+ * keep-alive, connection manager, so that connections to metadata and MDQ servers are reused across all metadata
+ * providers of the service (including {@code additional} providers).
+ * <p>
+ * Metadata is trusted based on its signature and not on the TLS connection it was downloaded over, so no TLS server
+ * authentication is performed.
+ * </p>
+ * <p>
+ * The instance owns the connection pool and the thread evicting idle connections, and should be closed when the
+ * metadata providers using it are no longer used.
+ * </p>
+ */
+public class MetadataHttpClients implements Closeable {
+
+  /** The default maximum number of pooled connections. */
+  public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 50;
+
+  /** The default maximum number of pooled connections per route. */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+  /** The default connect timeout. */
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+  /** The default socket timeout. */
+  public static final Duration DEFAULT_SOCKET_TIMEOUT = Duration.ofSeconds(60);
+
+  /** By default, idle connections are closed after this time. */
+  public static final Duration DEFAULT_MAX_IDLE_TIME = Duration.ofSeconds(60);
+
+  /** The shared connection manager. */
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  /** Closes idle connections. */
+  private final IdleConnectionEvictor idleConnectionEvictor;
+
+  /**
+   * Constructor creating a connection pool using the default settings.
+   */
+  public MetadataHttpClients() {
+    this(null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param configuration the connection pool configuration (if null, defaults are used)
+   */
+  public MetadataHttpClients(@Nullable final ConnectionPoolConfiguration configuration) {
+    final ConnectionPoolConfiguration conf =
+        Optional.ofNullable(configuration).orElseGet(ConnectionPoolConfiguration::new);
+    final int maxConnectionsTotal =
+        Optional.ofNullable(conf.getMaxConnectionsTotal()).orElse(DEFAULT_MAX_CONNECTIONS_TOTAL);
+    final int maxConnectionsPerRoute =
+        Optional.ofNullable(conf.getMaxConnectionsPerRoute()).orElse(DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    final Duration connectTimeout = Optional.ofNullable(conf.getConnectTimeout()).orElse(DEFAULT_CONNECT_TIMEOUT);
+    final Duration socketTimeout = Optional.ofNullable(conf.getSocketTimeout()).orElse(DEFAULT_SOCKET_TIMEOUT);
+    final Duration maxIdleTime = Optional.ofNullable(conf.getMaxIdleTime()).orElse(DEFAULT_MAX_IDLE_TIME);
+    if (maxConnectionsTotal <= 0 || maxConnectionsPerRoute <= 0) {
+      throw new IllegalArgumentException("Maximum number of connections must be positive");
+    }
+    if (maxConnectionsPerRoute > maxConnectionsTotal) {
+      throw new IllegalArgumentException("max-connections-per-route must not exceed max-connections-total");
+    }
+    if (connectTimeout.isNegative() || socketTimeout.isNegative()) {
+      throw new IllegalArgumentException("Timeouts must not be negative");
+    }
+    if (maxIdleTime.isNegative() || maxIdleTime.isZero()) {
+      throw new IllegalArgumentException("max-idle-time must be positive");
+    }
+
+    try {
+      final SSLContext sslContext = SSLContexts.custom()
+          .loadTrustMaterial(TrustAllStrategy.INSTANCE)
+          .build();
+
+      this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+          .setSSLSocketFactory(SSLConnectionSocketFactoryBuilder.create()
+              .setSslContext(sslContext)
+              .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+              .build())
+          .setMaxConnTotal(maxConnectionsTotal)
+          .setMaxConnPerRoute(maxConnectionsPerRoute)
+          .setDefaultConnectionConfig(ConnectionConfig.custom()
+              .setConnectTimeout(Timeout.of(connectTimeout))
+              .setSocketTimeout(Timeout.of(socketTimeout))
+              .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+              .build())
+          .build();
+    }
+    catch (final GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to create SSL context for metadata HTTP clients", e);
+    }
+
+    final TimeValue maxIdle = TimeValue.of(maxIdleTime);
+    this.idleConnectionEvictor = new IdleConnectionEvictor(this.connectionManager, maxIdle, maxIdle);
+    this.idleConnectionEvictor.start();
+  }
+
+  /**
+   * Creates a HTTP client using the shared connection pool.
+   *
+   * @param proxy optional proxy configuration
+   * @param mdqResponseCache optional MDQ response cache to install in the client
+   * @return a HTTP client
+   */
+  @Nonnull
+  public CloseableHttpClient createHttpClient(@Nullable final HttpProxyConfiguration proxy,
+      @Nullable final MdqResponseCache mdqResponseCache) {
+
+    final HttpClientBuilder builder = HttpClients.custom()
+        .useSystemProperties()
+        .setConnectionManager(this.connectionManager)
+        .setConnectionManagerShared(true);
+
+    if (proxy != null && StringUtils.isNotBlank(proxy.getHost())) {
+      builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort()));
+      if (StringUtils.isNotBlank(proxy.getUserName())) {
+        final BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(
+            new AuthScope(proxy.getHost(), proxy.getPort()),
+            new UsernamePasswordCredentials(proxy.getUserName(),
+                Optional.ofNullable(proxy.getPassword()).map(String::toCharArray).orElse(new char[0])));
+        builder.setDefaultCredentialsProvider(credentialsProvider);
+      }
+    }
+    if (mdqResponseCache != null) {
+      builder.addExecInterceptorFirst("mdq-response-cache", mdqResponseCache);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the shared connection manager.
+   *
+   * @return the connection manager
+   */
+  @Nonnull
+  public PoolingHttpClientConnectionManager getConnectionManager() {
+    return this.connectionManager;
+  }
+
+  /**
+   * Stops the thread evicting idle connections and closes the connection pool.
+   */
+  @Override
+  public void close() {
+    this.idleConnectionEvictor.shutdown();
+    this.connectionManager.close(CloseMode.GRACEFUL);
+  }
+
+  /**
+   * Configuration of the connection pool used by the metadata HTTP clients.
+   */
+  @Data
+  public static class ConnectionPoolConfiguration {
+
+    /**
+     * The maximum number of pooled connections. The default is {@value MetadataHttpClients#DEFAULT_MAX_CONNECTIONS_TOTAL}.
+     */
+    @Nullable
+    private Integer maxConnectionsTotal;
+
+    /**
+     * The maximum number of pooled connections per route. The default is
+     * {@value MetadataHttpClients#DEFAULT_MAX_CONNECTIONS_PER_ROUTE}.
+     */
+    @Nullable
+    private Integer maxConnectionsPerRoute;
+
+    /**
+     * The connect timeout. The default is 30 seconds.
+     */
+    @Nullable
+    private Duration connectTimeout;
+
+    /**
+     * The socket timeout. The default is 60 seconds.
+     */
+    @Nullable
+    private Duration socketTimeout;
+
+    /**
+     * Idle connections are closed after this time. The default is 60 seconds.
+     */
+    @Nullable
+    private Duration maxIdleTime;
+  }
+
+}
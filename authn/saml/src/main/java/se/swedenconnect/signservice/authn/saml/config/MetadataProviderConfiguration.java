@@ -22,24 +22,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.TrustManager;
+import java.util.Objects;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.classic.HttpClient;
-import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import net.shibboleth.shared.component.ComponentInitializationException;
-import net.shibboleth.shared.httpclient.HttpClientBuilder;
-import net.shibboleth.shared.httpclient.HttpClientSupport;
-import net.shibboleth.shared.httpclient.TLSSocketFactoryBuilder;
 import net.shibboleth.shared.resolver.ResolverException;
 import se.swedenconnect.opensaml.saml2.metadata.provider.AbstractMetadataProvider;
 import se.swedenconnect.opensaml.saml2.metadata.provider.CompositeMetadataProvider;
@@ -55,6 +48,9 @@ import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
 @Data
 public class MetadataProviderConfiguration {
 
+  /** The name of the directory, under the backup location, where MDQ responses are cached. */
+  public static final String MDQ_CACHE_DIRECTORY = "mdq-responses";
+
   /**
    * The certificate used to validate the metadata.
    */
@@ -71,7 +67,9 @@ public class MetadataProviderConfiguration {
    * Optional property. If {@code url} is assigned, this setting points to a backup file where the downloaded data
    * should be saved.
    * <p>
-   * If the {@code mdq} flag has been set, this property should point to a directory and not a file.
+   * If the {@code mdq} flag has been set, this property should point to a directory and not a file. MDQ responses are
+   * then also cached on disk (in the sub-directory {@value #MDQ_CACHE_DIRECTORY}), so that a restart of the service
+   * does not lead to a burst of MDQ queries (see {@link MdqResponseCache}).
    * </p>
    */
   @Nullable
@@ -104,6 +102,13 @@ public class MetadataProviderConfiguration {
   @Nullable
   private HttpProxyConfiguration httpProxy;
 
+  /**
+   * Configuration of the HTTP connection pool shared by all metadata providers. Only used for the top-level provider
+   * configuration, i.e., it is ignored for {@code additional} providers.
+   */
+  @Nullable
+  private MetadataHttpClients.ConnectionPoolConfiguration connectionPool;
+
   /**
    * Additional providers.
    */
@@ -141,12 +146,42 @@ public class MetadataProviderConfiguration {
   }
 
   /**
-   * Based on the configuration a {@link MetadataProvider} is created.
+   * Creates the {@link MetadataHttpClients} instance, i.e., the connection pool, to be passed to
+   * {@link #create(MetadataHttpClients)}. The caller owns the instance and should close it when the metadata provider
+   * is no longer used.
+   *
+   * @return a MetadataHttpClients instance
+   */
+  @Nonnull
+  public MetadataHttpClients createHttpClients() {
+    return new MetadataHttpClients(this.connectionPool);
+  }
+
+  /**
+   * Based on the configuration a {@link MetadataProvider} is created.
+   * <p>
+   * The connection pool used by HTTP based providers is created using {@link #createHttpClients()} and is not closed
+   * until the application exits. Callers that need to control the lifecycle of the pool should use
+   * {@link #create(MetadataHttpClients)}.
+   * </p>
    *
    * @return a MetadataProvider
    */
   @Nonnull
   public MetadataProvider create() throws IllegalArgumentException {
+    return this.create(this.createHttpClients());
+  }
+
+  /**
+   * Based on the configuration a {@link MetadataProvider} is created. All HTTP based providers, including
+   * {@code additional} providers, use clients created from the supplied {@code httpClients}.
+   *
+   * @param httpClients the HTTP clients (connection pool) to use
+   * @return a MetadataProvider
+   */
+  @Nonnull
+  public MetadataProvider create(@Nonnull final MetadataHttpClients httpClients) throws IllegalArgumentException {
+    Objects.requireNonNull(httpClients, "httpClients must not be null");
     try {
       if (StringUtils.isNotBlank(this.url) && StringUtils.isNotBlank(this.file)) {
         throw new IllegalArgumentException("Illegal metadata provider configuration - Both url and file are set");
@@ -155,11 +190,11 @@ public class MetadataProviderConfiguration {
       if (StringUtils.isNotBlank(this.url)) {
         if (this.mdq == null || !this.mdq.booleanValue()) {
           provider = new HTTPMetadataProvider(this.url, this.preProcessBackupFile(this.backupLocation),
-              this.createHttpClient());
+              this.createHttpClient(httpClients));
         }
         else {
-          provider = new MDQMetadataProvider(this.url, this.createHttpClient(),
-              this.preProcessBackupDirectory(this.backupLocation));
+          final String backupDirectory = this.preProcessBackupDirectory(this.backupLocation);
+          provider = new MDQMetadataProvider(this.url, this.createMdqHttpClient(httpClients, backupDirectory), backupDirectory);
         }
         if (this.validationCertificate == null) {
           log.warn("No validation certificate given for metadata provider ({}) - metadata can not be trusted",
@@ -182,7 +217,7 @@ public class MetadataProviderConfiguration {
         final List<MetadataProvider> metadataProviders = new ArrayList<>();
         metadataProviders.add(provider);
         for (final MetadataProviderConfiguration mpc : this.additional) {
-          metadataProviders.add(mpc.create());
+          metadataProviders.add(mpc.create(httpClients));
         }
         final CompositeMetadataProvider compositeProvider =
             new CompositeMetadataProvider("composite-provider", metadataProviders);
@@ -199,36 +234,35 @@ public class MetadataProviderConfiguration {
   }
 
   /**
-   * Creates a HTTP client to use.
+   * Creates a HTTP client to use. The client uses a connection pool that is shared by all metadata providers (see
+   * {@link MetadataHttpClients}).
    *
+   * @param httpClients the HTTP clients (connection pool) to use
    * @return a HttpClient
    */
-  protected HttpClient createHttpClient() {
-    try {
-      final List<TrustManager> managers = Arrays.asList(HttpClientSupport.buildNoTrustX509TrustManager());
-      final HostnameVerifier hnv = new NoopHostnameVerifier();
-
-      HttpClientBuilder builder = new HttpClientBuilder();
-      builder.setUseSystemProperties(true);
-      if (this.getHttpProxy() != null && this.getHttpProxy().getHost() != null) {
-        builder.setConnectionProxyHost(this.getHttpProxy().getHost());
-        builder.setConnectionProxyPort(this.getHttpProxy().getPort());
-        if (StringUtils.isNotBlank(this.getHttpProxy().getUserName())) {
-          builder.setConnectionProxyUsername(this.getHttpProxy().getUserName());
-        }
-        if (StringUtils.isNotBlank(this.getHttpProxy().getPassword())) {
-          builder.setConnectionProxyPassword(this.getHttpProxy().getPassword());
-        }
-      }
-      builder.setTLSSocketFactory(new TLSSocketFactoryBuilder()
-          .setHostnameVerifier(hnv)
-          .setTrustManagers(managers)
-          .build());
+  protected HttpClient createHttpClient(@Nonnull final MetadataHttpClients httpClients) {
+    return httpClients.createHttpClient(this.getHttpProxy(), null);
+  }
 
-      return builder.buildClient();
+  /**
+   * Creates a HTTP client for an MDQ metadata provider. If a backup directory is given, MDQ responses are cached on
+   * disk under this directory.
+   *
+   * @param httpClients the HTTP clients (connection pool) to use
+   * @param backupDirectory the MDQ backup directory (may be null)
+   * @return a HttpClient
+   */
+  protected HttpClient createMdqHttpClient(@Nonnull final MetadataHttpClients httpClients,
+      @Nullable final String backupDirectory) {
+    if (backupDirectory == null) {
+      return this.createHttpClient(httpClients);
+    }
+    try {
+      return httpClients.createHttpClient(this.getHttpProxy(),
+          new MdqResponseCache(Paths.get(backupDirectory, MDQ_CACHE_DIRECTORY)));
     }
-    catch (final Exception e) {
-      throw new IllegalArgumentException("Failed to initialize HttpClient", e);
+    catch (final IOException e) {
+      throw new IllegalArgumentException("Failed to create MDQ response cache directory", e);
     }
   }
 
@@ -55,15 +55,16 @@ import se.swedenconnect.opensaml.saml2.response.replay.MessageReplayChecker;
 import se.swedenconnect.opensaml.saml2.response.validation.ResponseValidationSettings;
 import se.swedenconnect.opensaml.sweid.saml2.request.SwedishEidAuthnRequestGenerator;
 import se.swedenconnect.opensaml.sweid.saml2.signservice.SignMessageEncrypter;
-import se.swedenconnect.opensaml.sweid.saml2.validation.SwedishEidResponseProcessorImpl;
 import se.swedenconnect.opensaml.xmlsec.encryption.support.SAMLObjectDecrypter;
 import se.swedenconnect.opensaml.xmlsec.encryption.support.SAMLObjectEncrypter;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.security.credential.opensaml.OpenSamlCredential;
 import se.swedenconnect.signservice.authn.AuthenticationHandler;
 import se.swedenconnect.signservice.authn.saml.AbstractSamlAuthenticationHandler;
+import se.swedenconnect.signservice.authn.saml.CachingResponseProcessor;
 import se.swedenconnect.signservice.authn.saml.DefaultSamlAuthenticationHandler;
 import se.swedenconnect.signservice.authn.saml.MessageReplayCheckerWrapper;
+import se.swedenconnect.signservice.authn.saml.MetadataCredentialCache;
 import se.swedenconnect.signservice.authn.saml.SwedenConnectSamlAuthenticationHandler;
 import se.swedenconnect.signservice.core.config.AbstractHandlerFactory;
 import se.swedenconnect.signservice.core.config.BeanLoader;
@@ -115,8 +116,16 @@ public class SamlAuthenticationHandlerFactory extends AbstractHandlerFactory<Aut
           "Illegal configuration - metadata-provider and metadata-provider-ref can not both be assigned");
     }
     MetadataProvider metadataProvider = null;
+    MetadataHttpClients metadataHttpClients = null;
     if (conf.getMetadataProvider() != null) {
-      metadataProvider = conf.getMetadataProvider().create();
+      metadataHttpClients = conf.getMetadataProvider().createHttpClients();
+      try {
+        metadataProvider = conf.getMetadataProvider().create(metadataHttpClients);
+      }
+      catch (final RuntimeException e) {
+        metadataHttpClients.close();
+        throw e;
+      }
     }
     else if (conf.getMetadataProviderRef() != null) {
       if (beanLoader == null) {
@@ -129,40 +138,53 @@ public class SamlAuthenticationHandlerFactory extends AbstractHandlerFactory<Aut
       throw new IllegalArgumentException("Missing metadata provider(s) from configuration object");
     }
 
-    // Metadata publishing
-    //
-    final EntityDescriptor entityDescriptor = this.createEntityDescriptor(conf, beanLoader);
-    final PkiCredential mdSignCred = Optional.ofNullable(conf.getSignatureCredential())
-        .map(c -> c.resolvePkiCredential(beanLoader))
-        .orElseGet(() -> {
-          return Optional.ofNullable(conf.getDefaultCredential())
-              .map(c -> c.resolvePkiCredential(beanLoader))
-              .orElse(null);
-        });
-    final EntityDescriptorContainer entityDescriptorContainer = new EntityDescriptorContainer(entityDescriptor,
-        mdSignCred != null ? new OpenSamlCredential(mdSignCred) : null);
-
-    // Response processor
-    //
-    final ResponseProcessor responseProcessor = this.createResponseProcessor(conf, beanLoader, metadataProvider);
+    try {
+      // Metadata publishing
+      //
+      final EntityDescriptor entityDescriptor = this.createEntityDescriptor(conf, beanLoader);
+      final PkiCredential mdSignCred = Optional.ofNullable(conf.getSignatureCredential())
+          .map(c -> c.resolvePkiCredential(beanLoader))
+          .orElseGet(() -> {
+            return Optional.ofNullable(conf.getDefaultCredential())
+                .map(c -> c.resolvePkiCredential(beanLoader))
+                .orElse(null);
+          });
+      final EntityDescriptorContainer entityDescriptorContainer = new EntityDescriptorContainer(entityDescriptor,
+          mdSignCred != null ? new OpenSamlCredential(mdSignCred) : null);
+
+      // Response processor
+      //
+      final ResponseProcessor responseProcessor = this.createResponseProcessor(conf, beanLoader, metadataProvider);
 
-    // AuthnRequest generator
-    //
-    final AuthnRequestGenerator authnRequestGenerator =
-        this.createAuthnRequestGenerator(conf, beanLoader, metadataProvider, entityDescriptor);
+      // AuthnRequest generator
+      //
+      final AuthnRequestGenerator authnRequestGenerator =
+          this.createAuthnRequestGenerator(conf, beanLoader, metadataProvider, entityDescriptor);
 
-    // Request binding
-    //
-    final String requestBinding = conf.getPreferredBinding() != null
-        ? "post".equalsIgnoreCase(conf.getPreferredBinding())
-            ? SAMLConstants.SAML2_POST_BINDING_URI
-            : SAMLConstants.SAML2_REDIRECT_BINDING_URI
-        : SAMLConstants.SAML2_REDIRECT_BINDING_URI;
+      // Request binding
+      //
+      final String requestBinding = conf.getPreferredBinding() != null
+          ? "post".equalsIgnoreCase(conf.getPreferredBinding())
+              ? SAMLConstants.SAML2_POST_BINDING_URI
+              : SAMLConstants.SAML2_REDIRECT_BINDING_URI
+          : SAMLConstants.SAML2_REDIRECT_BINDING_URI;
 
-    // Create the handler
-    //
-    return this.createHandler(conf, metadataProvider, entityDescriptorContainer, responseProcessor,
-        authnRequestGenerator, requestBinding);
+      // Create the handler, and publish its metadata (which is kept up-to-date until the handler is closed)
+      //
+      final AuthenticationHandler handler = this.createHandler(conf, metadataProvider, entityDescriptorContainer,
+          responseProcessor, authnRequestGenerator, requestBinding);
+      if (handler instanceof final AbstractSamlAuthenticationHandler samlHandler) {
+        samlHandler.setMetadataHttpClients(metadataHttpClients);
+        samlHandler.start();
+      }
+      return handler;
+    }
+    catch (final RuntimeException e) {
+      if (metadataHttpClients != null) {
+        metadataHttpClients.close();
+      }
+      throw e;
+    }
   }
 
   /**
@@ -208,7 +230,11 @@ public class SamlAuthenticationHandlerFactory extends AbstractHandlerFactory<Aut
       if (config.getSadRequest() != null) {
         ((SwedenConnectSamlAuthenticationHandler) handler).setSadRequestRequirement(config.getSadRequest());
       }
-      ((SwedenConnectSamlAuthenticationHandler) handler).getSADValidator().setAllowedClockSkew(
+      if (responseProcessor instanceof final CachingResponseProcessor cachingProcessor) {
+        // Share the IdP credentials between response validation and SAD validation
+        ((SwedenConnectSamlAuthenticationHandler) handler).setCredentialCache(cachingProcessor.getCredentialCache());
+      }
+      ((SwedenConnectSamlAuthenticationHandler) handler).getCredentialCache().setSadAllowedClockSkew(
           this.getValidationConfig().getAllowedClockSkew());
     }
     else {
@@ -442,13 +468,10 @@ public class SamlAuthenticationHandlerFactory extends AbstractHandlerFactory<Aut
       @Nonnull final MessageReplayChecker messageReplayChecker,
       @Nonnull final MetadataProvider metadataProvider) {
 
-    ResponseProcessorImpl processor = null;
-    if (SamlAuthenticationHandlerConfiguration.SAML_TYPE_SWEDEN_CONNECT.equalsIgnoreCase(config.getSamlType())) {
-      processor = new SwedishEidResponseProcessorImpl();
-    }
-    else {
-      processor = new ResponseProcessorImpl();
-    }
+    // The IdP signature validation credentials are cached per metadata version
+    final MetadataCredentialCache credentialCache = new MetadataCredentialCache(metadataProvider);
+    final ResponseProcessorImpl processor = new CachingResponseProcessor(credentialCache,
+        SamlAuthenticationHandlerConfiguration.SAML_TYPE_SWEDEN_CONNECT.equalsIgnoreCase(config.getSamlType()));
     processor.setDecrypter(decrypter);
     processor.setMessageReplayChecker(messageReplayChecker);
     processor.setMetadataResolver(metadataProvider.getMetadataResolver());
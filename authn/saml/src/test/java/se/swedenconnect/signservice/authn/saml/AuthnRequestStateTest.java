@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.AuthnContextClassRef;
+import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.w3c.dom.Element;
+
+import se.idsec.signservice.xml.DOMUtils;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.sap.SADRequest;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.sap.SADVersion;
+
+/**
+ * Test cases for AuthnRequestState.
+ */
+public class AuthnRequestStateTest extends OpenSamlTestBase {
+
+  @Test
+  public void testNull() {
+    assertThatThrownBy(() -> new AuthnRequestState(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("authnRequest must not be null");
+  }
+
+  @Test
+  public void testView() throws Exception {
+    final AuthnRequest authnRequest = this.getAuthnRequest();
+    final AuthnRequestState state = new AuthnRequestState(authnRequest);
+
+    Assertions.assertEquals(authnRequest.getID(), state.getId());
+    Assertions.assertEquals(List.of("http://id.elegnamnden.se/loa/1.0/loa3"), state.getAuthnContextClassRefs());
+    Assertions.assertNull(state.getSadRequestId());
+
+    final AuthnRequest view = state.toAuthnRequest();
+    Assertions.assertEquals(authnRequest.getID(), view.getID());
+    Assertions.assertEquals(authnRequest.getIssueInstant(), view.getIssueInstant());
+    Assertions.assertEquals(authnRequest.getDestination(), view.getDestination());
+    Assertions.assertEquals(authnRequest.isForceAuthn(), view.isForceAuthn());
+    Assertions.assertEquals(AuthnContextComparisonTypeEnumeration.EXACT,
+        view.getRequestedAuthnContext().getComparison());
+    Assertions.assertEquals(List.of("http://id.elegnamnden.se/loa/1.0/loa3"),
+        view.getRequestedAuthnContext().getAuthnContextClassRefs().stream()
+            .map(AuthnContextClassRef::getURI)
+            .collect(Collectors.toList()));
+    Assertions.assertNull(view.getExtensions());
+    Assertions.assertNull(view.getSignature());
+  }
+
+  @Test
+  public void testSadRequest() throws Exception {
+    final AuthnRequest authnRequest = this.getAuthnRequest();
+    final SADRequest sadRequest = (SADRequest) XMLObjectSupport.buildXMLObject(SADRequest.DEFAULT_ELEMENT_NAME);
+    sadRequest.setID("_sadreq");
+    sadRequest.setRequesterID("https://sp.example.com");
+    sadRequest.setSignRequestID("_signreq");
+    sadRequest.setDocCount(2);
+    sadRequest.setRequestedVersion(SADVersion.VERSION_10);
+    final Extensions extensions = (Extensions) XMLObjectSupport.buildXMLObject(Extensions.DEFAULT_ELEMENT_NAME);
+    extensions.getUnknownXMLObjects().add(sadRequest);
+    authnRequest.setExtensions(extensions);
+
+    final AuthnRequestState state = new AuthnRequestState(authnRequest);
+    Assertions.assertEquals("_sadreq", state.getSadRequestId());
+
+    final SADRequest viewSadRequest = (SADRequest) state.toAuthnRequest().getExtensions()
+        .getUnknownXMLObjects(SADRequest.DEFAULT_ELEMENT_NAME).get(0);
+    Assertions.assertEquals("_sadreq", viewSadRequest.getID());
+    Assertions.assertEquals("https://sp.example.com", viewSadRequest.getRequesterID());
+    Assertions.assertEquals("_signreq", viewSadRequest.getSignRequestID());
+    Assertions.assertEquals(2, viewSadRequest.getDocCount());
+    Assertions.assertEquals(SADVersion.VERSION_10, viewSadRequest.getRequestedVersion());
+  }
+
+  @Test
+  public void testSerialize() throws Exception {
+    final AuthnRequestState state = new AuthnRequestState(this.getAuthnRequest());
+
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (final ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(state);
+    }
+    try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      final AuthnRequestState state2 = (AuthnRequestState) ois.readObject();
+      Assertions.assertEquals(state.getId(), state2.getId());
+      Assertions.assertEquals(state.getAuthnContextClassRefs(), state2.getAuthnContextClassRefs());
+      Assertions.assertEquals(state.toAuthnRequest().getIssueInstant(), state2.toAuthnRequest().getIssueInstant());
+    }
+  }
+
+  private AuthnRequest getAuthnRequest() throws Exception {
+    final Element elm =
+        DOMUtils.inputStreamToDocument(this.getClass().getResourceAsStream("/authnrequest.xml")).getDocumentElement();
+    return (AuthnRequest) XMLObjectSupport.getUnmarshaller(elm).unmarshall(elm);
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.common.SAMLVersion;
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.Status;
+import org.opensaml.saml.saml2.core.StatusCode;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
+import org.opensaml.xmlsec.signature.KeyInfo;
+
+import net.shibboleth.shared.xml.SerializeSupport;
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
+import se.swedenconnect.opensaml.saml2.response.ResponseProcessingException;
+import se.swedenconnect.opensaml.saml2.response.ResponseProcessingInput;
+import se.swedenconnect.opensaml.saml2.response.replay.MessageReplayChecker;
+import se.swedenconnect.opensaml.xmlsec.signature.support.SAMLObjectSigner;
+
+/**
+ * Test cases for CachingResponseProcessor.
+ */
+public class CachingResponseProcessorTest extends OpenSamlTestBase {
+
+  private static final String RECEIVE_URL = "https://sp.example.com/saml/sso";
+
+  private static final String AUTHN_REQUEST_ID = "_a5b0c41c8e2e4b9f";
+
+  private X509Credential idpCredential;
+
+  private EntityDescriptor idp;
+
+  private MetadataCredentialCache cache;
+
+  private AuthnRequest authnRequest;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.idpCredential = loadKeyStoreCredential(
+        this.getClass().getResourceAsStream("/keys.jks"), "secret", "sign", "secret");
+
+    // IdP metadata holding the certificate of the IdP signing credential
+    final EntitiesDescriptor metadata =
+        unmarshall(this.getClass().getResourceAsStream("/idp-metadata.xml"), EntitiesDescriptor.class);
+    this.idp = metadata.getEntityDescriptors().get(0);
+    final IDPSSODescriptor sso = this.idp.getIDPSSODescriptor(SAMLConstants.SAML20P_NS);
+    final KeyDescriptor keyDescriptor =
+        (KeyDescriptor) XMLObjectSupport.buildXMLObject(KeyDescriptor.DEFAULT_ELEMENT_NAME);
+    keyDescriptor.setUse(UsageType.SIGNING);
+    final KeyInfo keyInfo = (KeyInfo) XMLObjectSupport.buildXMLObject(KeyInfo.DEFAULT_ELEMENT_NAME);
+    KeyInfoSupport.addCertificate(keyInfo, this.idpCredential.getEntityCertificate());
+    keyDescriptor.setKeyInfo(keyInfo);
+    sso.getKeyDescriptors().clear();
+    sso.getKeyDescriptors().add(keyDescriptor);
+
+    final MetadataProvider metadataProvider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(metadataProvider.getLastUpdate()).thenReturn(Instant.now());
+    this.cache = new MetadataCredentialCache(metadataProvider);
+
+    this.authnRequest = (AuthnRequest) XMLObjectSupport.buildXMLObject(AuthnRequest.DEFAULT_ELEMENT_NAME);
+    this.authnRequest.setID(AUTHN_REQUEST_ID);
+    this.authnRequest.setIssueInstant(Instant.now());
+    this.authnRequest.setAssertionConsumerServiceURL(RECEIVE_URL);
+    this.authnRequest.setDestination(sso.getSingleSignOnServices().get(0).getLocation());
+  }
+
+  @Test
+  public void testNullCache() {
+    assertThatThrownBy(() -> new CachingResponseProcessor(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("credentialCache must not be null");
+  }
+
+  @Test
+  public void testSignatureValidationUsesCache() throws Exception {
+    this.assertSignatureValidationUsesCache(false);
+  }
+
+  @Test
+  public void testSwedishEidSignatureValidationUsesCache() throws Exception {
+    this.assertSignatureValidationUsesCache(true);
+  }
+
+  private void assertSignatureValidationUsesCache(final boolean swedishEid) throws Exception {
+    final CachingResponseProcessor processor = this.createProcessor(swedishEid);
+    Assertions.assertSame(this.cache, processor.getCredentialCache());
+    Assertions.assertEquals(swedishEid, processor.isSwedishEid());
+
+    final ResponseProcessingInput input = Mockito.mock(ResponseProcessingInput.class);
+    Mockito.when(input.getAuthnRequest(Mockito.anyString())).thenReturn(this.authnRequest);
+    Mockito.when(input.getReceiveURL()).thenReturn(RECEIVE_URL);
+    Mockito.when(input.getReceiveInstant()).thenReturn(Instant.now());
+
+    // The response holds no assertion, so processing fails after the response signature has been validated
+    for (int i = 0; i < 3; i++) {
+      final String response = this.createSignedResponse();
+      assertThatThrownBy(() -> processor.processSamlResponse(response, null, input, null))
+          .isInstanceOf(ResponseProcessingException.class);
+    }
+
+    // The IdP credentials are resolved from metadata once, and then served from the cache
+    Assertions.assertEquals(1, this.cache.getMissCount());
+    Assertions.assertEquals(2, this.cache.getHitCount());
+    Assertions.assertEquals(1, this.cache.size());
+  }
+
+  private CachingResponseProcessor createProcessor(final boolean swedishEid) throws Exception {
+    final MetadataResolver metadataResolver = Mockito.mock(MetadataResolver.class);
+    Mockito.when(metadataResolver.resolveSingle(Mockito.any())).thenReturn(this.idp);
+    Mockito.when(metadataResolver.resolve(Mockito.any())).thenReturn(List.of(this.idp));
+
+    final CachingResponseProcessor processor = new CachingResponseProcessor(this.cache, swedishEid);
+    processor.setMetadataResolver(metadataResolver);
+    processor.setMessageReplayChecker(Mockito.mock(MessageReplayChecker.class));
+    processor.setRequireEncryptedAssertions(false);
+    processor.initialize();
+    return processor;
+  }
+
+  private String createSignedResponse() throws Exception {
+    final Response response = (Response) XMLObjectSupport.buildXMLObject(Response.DEFAULT_ELEMENT_NAME);
+    response.setID("_" + Long.toHexString(System.nanoTime()));
+    response.setVersion(SAMLVersion.VERSION_20);
+    response.setIssueInstant(Instant.now());
+    response.setInResponseTo(AUTHN_REQUEST_ID);
+    response.setDestination(RECEIVE_URL);
+
+    final Issuer issuer = (Issuer) XMLObjectSupport.buildXMLObject(Issuer.DEFAULT_ELEMENT_NAME);
+    issuer.setValue(this.idp.getEntityID());
+    response.setIssuer(issuer);
+
+    final Status status = (Status) XMLObjectSupport.buildXMLObject(Status.DEFAULT_ELEMENT_NAME);
+    final StatusCode statusCode = (StatusCode) XMLObjectSupport.buildXMLObject(StatusCode.DEFAULT_ELEMENT_NAME);
+    statusCode.setValue(StatusCode.SUCCESS);
+    status.setStatusCode(statusCode);
+    response.setStatus(status);
+
+    SAMLObjectSigner.sign(response, this.idpCredential,
+        DefaultSecurityConfigurationBootstrap.buildDefaultSignatureSigningConfiguration());
+    return Base64.getEncoder().encodeToString(
+        SerializeSupport.nodeToString(response.getDOM()).getBytes(StandardCharsets.UTF_8));
+  }
+
+}
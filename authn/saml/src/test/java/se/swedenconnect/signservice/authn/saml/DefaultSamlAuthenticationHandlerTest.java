@@ -23,6 +23,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -370,8 +371,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -458,7 +459,7 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
         .thenReturn(null);
 
     Assertions.assertThrows(UserAuthenticationException.class, () -> {
@@ -472,6 +473,33 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.verify(this.context).remove(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY));
   }
 
+  @Test
+  public void testGetStoredAuthnRequest() throws Exception {
+    final AuthnRequest authnRequest = this.getAuthnRequest();
+
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
+    Assertions.assertEquals(authnRequest.getID(), this.handler.getAuthnRequest(this.context).getID());
+
+    // Contexts created by earlier versions hold the marshalled AuthnRequest
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(DOMUtils.nodeToBytes(XMLObjectSupport.marshall(authnRequest)));
+    final AuthnRequest legacy = this.handler.getAuthnRequest(this.context);
+    Assertions.assertEquals(authnRequest.getID(), legacy.getID());
+    Assertions.assertEquals(authnRequest.getAssertionConsumerServiceURL(), legacy.getAssertionConsumerServiceURL());
+
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn("unexpected");
+    assertThatThrownBy(() -> this.handler.getAuthnRequest(this.context))
+        .isInstanceOf(UserAuthenticationException.class)
+        .hasMessage("Failed to create AuthnRequest object from stored state");
+
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(new byte[] { 1, 2, 3 });
+    assertThatThrownBy(() -> this.handler.getAuthnRequest(this.context))
+        .isInstanceOf(UserAuthenticationException.class);
+  }
+
   @Test
   public void testResumeAuthenticationUserCancel() throws Exception {
     final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
@@ -480,8 +508,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -527,8 +555,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -569,8 +597,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -617,8 +645,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -667,8 +695,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -760,6 +788,103 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
         action.getHeaders().get("Content-Type"));
   }
 
+  @Test
+  public void testGetResourceCachedAndNotModified() throws Exception {
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getServerServletPath()).thenReturn(METADATA_PATH);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+
+    Mockito.when(this.entityDescriptorContainer.updateRequired(anyBoolean())).thenReturn(false);
+    Mockito.when(this.entityDescriptorContainer.marshall()).thenReturn(this.getEntityDescriptorElement());
+
+    try {
+      final HttpBodyAction action = this.handler.getResource(request);
+      Assertions.assertEquals(200, action.getStatus());
+      final String etag = action.getHeaders().get("ETag");
+      Assertions.assertNotNull(etag);
+      Assertions.assertNotNull(action.getHeaders().get("Last-Modified"));
+
+      // The second request is served from the published metadata
+      final HttpBodyAction action2 = this.handler.getResource(request);
+      Assertions.assertArrayEquals(action.getContents(), action2.getContents());
+      Assertions.assertEquals(etag, action2.getHeaders().get("ETag"));
+      Mockito.verify(this.entityDescriptorContainer, Mockito.times(1)).marshall();
+
+      // Conditional request
+      Mockito.when(request.getHeader(eq("If-None-Match"))).thenReturn("\"other\", W/" + etag);
+      final HttpBodyAction action3 = this.handler.getResource(request);
+      Assertions.assertEquals(304, action3.getStatus());
+      Assertions.assertEquals(0, action3.getContents().length);
+      Assertions.assertEquals(etag, action3.getHeaders().get("ETag"));
+
+      Mockito.when(request.getHeader(eq("If-None-Match"))).thenReturn("\"other\"");
+      Assertions.assertEquals(200, this.handler.getResource(request).getStatus());
+    }
+    finally {
+      this.handler.close();
+    }
+  }
+
+  @Test
+  public void testGetResourceRefreshedInBackground() throws Exception {
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getServerServletPath()).thenReturn(METADATA_PATH);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+
+    Mockito.when(this.entityDescriptorContainer.updateRequired(anyBoolean())).thenReturn(true);
+    Mockito.when(this.entityDescriptorContainer.marshall()).thenReturn(this.getEntityDescriptorElement());
+
+    this.handler.setMetadataRefreshInterval(Duration.ofMillis(20));
+    try {
+      // The metadata is published when the handler is started
+      this.handler.start();
+      Mockito.verify(this.entityDescriptorContainer, Mockito.atLeastOnce()).update(anyBoolean());
+      Mockito.verify(this.entityDescriptorContainer, Mockito.atLeastOnce()).marshall();
+      this.handler.getResource(request);
+
+      // The background task re-signs the metadata without any requests being made
+      Mockito.verify(this.entityDescriptorContainer, Mockito.timeout(2000).atLeast(3)).update(anyBoolean());
+
+      // A failing update does not affect the published metadata
+      Mockito.when(this.entityDescriptorContainer.update(anyBoolean()))
+          .thenThrow(new org.opensaml.xmlsec.signature.support.SignatureException("error"));
+      Thread.sleep(100);
+      Assertions.assertNotNull(this.handler.getResource(request).getContents());
+    }
+    finally {
+      this.handler.close();
+    }
+  }
+
+  @Test
+  public void testGetResourceUpdatedWhenNotStarted() throws Exception {
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getServerServletPath()).thenReturn(METADATA_PATH);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+
+    Mockito.when(this.entityDescriptorContainer.updateRequired(anyBoolean())).thenReturn(true, false, true);
+    Mockito.when(this.entityDescriptorContainer.marshall()).thenReturn(this.getEntityDescriptorElement());
+
+    // Without a background task, each request checks whether the metadata needs to be re-signed
+    this.handler.getResource(request);
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(1)).update(anyBoolean());
+
+    this.handler.getResource(request);
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(1)).update(anyBoolean());
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(1)).marshall();
+
+    this.handler.getResource(request);
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(2)).update(anyBoolean());
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(2)).marshall();
+    Mockito.verify(this.entityDescriptorContainer, Mockito.times(3)).updateRequired(anyBoolean());
+  }
+
+  @Test
+  public void testBadMetadataRefreshInterval() {
+    assertThatThrownBy(() -> this.handler.setMetadataRefreshInterval(Duration.ZERO))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
   @Test
   public void testGetResourceFailed() throws Exception {
     final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
@@ -805,9 +930,8 @@ public class DefaultSamlAuthenticationHandlerTest extends OpenSamlTestBase {
     return reqs;
   }
 
-  protected byte[] getEncodedAuthnRequest() throws Exception {
-    final AuthnRequest authnRequest = this.getAuthnRequest();
-    return DOMUtils.nodeToBytes(XMLObjectSupport.marshall(authnRequest));
+  protected AuthnRequestState getAuthnRequestState() throws Exception {
+    return new AuthnRequestState(this.getAuthnRequest());
   }
 
   protected AuthnRequest getAuthnRequest() throws Exception {
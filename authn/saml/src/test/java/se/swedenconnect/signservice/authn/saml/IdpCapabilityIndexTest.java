@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.ext.saml2mdattr.EntityAttributes;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.Extensions;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.w3c.dom.Element;
+
+import net.shibboleth.shared.resolver.ResolverException;
+import se.idsec.signservice.xml.DOMUtils;
+import se.swedenconnect.opensaml.saml2.attribute.AttributeBuilder;
+import se.swedenconnect.opensaml.saml2.attribute.AttributeConstants;
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
+import se.swedenconnect.opensaml.sweid.saml2.authn.LevelOfAssuranceUris;
+import se.swedenconnect.opensaml.sweid.saml2.metadata.entitycategory.EntityCategoryConstants;
+
+/**
+ * Test cases for IdpCapabilityIndex and IdpCapabilities.
+ */
+public class IdpCapabilityIndexTest extends OpenSamlTestBase {
+
+  @Test
+  public void testCapabilities() throws Exception {
+    final EntityDescriptor idp = this.createIdp("https://idp.example.com", true);
+    final IdpCapabilities capabilities = new IdpCapabilities(idp);
+
+    Assertions.assertEquals("https://idp.example.com", capabilities.getEntityId());
+    Assertions.assertSame(idp, capabilities.getEntityDescriptor());
+    Assertions.assertTrue(
+        capabilities.getAssuranceCertificationUris().contains(LevelOfAssuranceUris.AUTHN_CONTEXT_URI_LOA3));
+    Assertions.assertTrue(
+        capabilities.hasEntityCategory(EntityCategoryConstants.SERVICE_PROPERTY_CATEGORY_SCAL2.getUri()));
+    Assertions.assertFalse(
+        capabilities.hasEntityCategory(EntityCategoryConstants.SERVICE_ENTITY_CATEGORY_LOA3_PNR.getUri()));
+    Assertions.assertEquals(List.of("urn:oid:1.2.752.29.4.13", "urn:oid:1.2.752.201.3.1"),
+        capabilities.getPrincipalSelectionAttributes());
+    Assertions.assertNotNull(capabilities.toString());
+
+    final IdpCapabilities capabilities2 = new IdpCapabilities(this.createIdp("https://idp2.example.com", false));
+    Assertions.assertNull(capabilities2.getPrincipalSelectionAttributes());
+  }
+
+  @Test
+  public void testNullProvider() {
+    assertThatThrownBy(() -> new IdpCapabilityIndex(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("metadataProvider must not be null");
+  }
+
+  @Test
+  public void testRebuild() throws Exception {
+    final EntityDescriptor idp1 = this.createIdp("https://idp1.example.com", true);
+    final EntityDescriptor idp2 = this.createIdp("https://idp2.example.com", false);
+
+    final MetadataProvider provider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(provider.getLastUpdate()).thenReturn(Instant.now());
+    Mockito.when(provider.getIdentityProviders()).thenReturn(List.of(idp1, idp2));
+
+    final IdpCapabilityIndex index = new IdpCapabilityIndex(provider);
+    Assertions.assertEquals(0, index.size());
+    Assertions.assertNull(index.getLastRebuildDuration());
+
+    final IdpCapabilities c1 = index.get(idp1);
+    Assertions.assertEquals(2, index.size());
+    Assertions.assertEquals(1, index.getRebuildCount());
+    Assertions.assertNotNull(index.getLastRebuildDuration());
+    Assertions.assertSame(c1, index.get(idp1));
+    Assertions.assertEquals(1, index.getRebuildCount());
+
+    // New metadata - the provider is refreshed
+    final EntityDescriptor idp1b = this.createIdp("https://idp1.example.com", false);
+    Mockito.when(provider.getLastUpdate()).thenReturn(Instant.now().plusSeconds(10));
+    Mockito.when(provider.getIdentityProviders()).thenReturn(List.of(idp1b));
+
+    final IdpCapabilities c1b = index.get(idp1b);
+    Assertions.assertNotSame(c1, c1b);
+    Assertions.assertSame(idp1b, c1b.getEntityDescriptor());
+    Assertions.assertNull(c1b.getPrincipalSelectionAttributes());
+    Assertions.assertEquals(1, index.size());
+    Assertions.assertEquals(2, index.getRebuildCount());
+  }
+
+  @Test
+  public void testOnDemand() throws Exception {
+    final MetadataProvider provider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(provider.getLastUpdate()).thenReturn(null);
+
+    final IdpCapabilityIndex index = new IdpCapabilityIndex(provider);
+    final EntityDescriptor idp = this.createIdp("https://idp.example.com", true);
+    final IdpCapabilities c = index.get(idp);
+    Assertions.assertSame(c, index.get(idp));
+    Assertions.assertEquals(1, index.size());
+    Assertions.assertEquals(0, index.getRebuildCount());
+
+    // A different descriptor object for the same entity is not served from the index
+    final EntityDescriptor idp2 = this.createIdp("https://idp.example.com", false);
+    Assertions.assertSame(idp2, index.get(idp2).getEntityDescriptor());
+    Assertions.assertEquals(1, index.size());
+  }
+
+  @Test
+  public void testRebuildFails() throws Exception {
+    final MetadataProvider provider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(provider.getLastUpdate()).thenReturn(Instant.now());
+    Mockito.when(provider.getIdentityProviders()).thenThrow(new ResolverException("error"));
+
+    final IdpCapabilityIndex index = new IdpCapabilityIndex(provider);
+    final EntityDescriptor idp = this.createIdp("https://idp.example.com", true);
+    Assertions.assertNotNull(index.get(idp));
+    Assertions.assertEquals(1, index.size());
+    Assertions.assertEquals(1, index.getRebuildCount());
+  }
+
+  @Test
+  public void testLargeFederation() throws Exception {
+    final int entities = 2000;
+    final List<EntityDescriptor> idps = new ArrayList<>();
+    for (int i = 0; i < entities; i++) {
+      idps.add(this.createIdp("https://idp" + i + ".example.com", i % 2 == 0));
+    }
+    final MetadataProvider provider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(provider.getLastUpdate()).thenReturn(Instant.now());
+    Mockito.when(provider.getIdentityProviders()).thenReturn(idps);
+
+    final IdpCapabilityIndex index = new IdpCapabilityIndex(provider);
+    index.rebuildIfRefreshed();
+    Assertions.assertEquals(entities, index.size());
+
+    // Lookups after the rebuild do not touch the metadata
+    for (final EntityDescriptor idp : idps) {
+      Assertions.assertSame(idp, index.get(idp).getEntityDescriptor());
+    }
+    Assertions.assertEquals(entities, index.size());
+    Assertions.assertEquals(1, index.getRebuildCount());
+  }
+
+  private EntityDescriptor createIdp(final String entityId, final boolean principalSelection) throws Exception {
+    final EntityDescriptor idp = Mockito.mock(EntityDescriptor.class);
+    Mockito.when(idp.getEntityID()).thenReturn(entityId);
+
+    final Extensions extensions = (Extensions) XMLObjectSupport.buildXMLObject(Extensions.DEFAULT_ELEMENT_NAME);
+    final EntityAttributes ea =
+        (EntityAttributes) XMLObjectSupport.buildXMLObject(EntityAttributes.DEFAULT_ELEMENT_NAME);
+    ea.getAttributes().add(AttributeBuilder.builder(AttributeConstants.ASSURANCE_CERTIFICATION_ATTRIBUTE_NAME)
+        .value(LevelOfAssuranceUris.AUTHN_CONTEXT_URI_LOA3)
+        .build());
+    ea.getAttributes().add(AttributeBuilder.builder(AttributeConstants.ENTITY_CATEGORY_ATTRIBUTE_NAME)
+        .value(EntityCategoryConstants.SERVICE_PROPERTY_CATEGORY_SCAL2.getUri())
+        .build());
+    extensions.getUnknownXMLObjects().add(ea);
+    Mockito.when(idp.getExtensions()).thenReturn(extensions);
+
+    if (principalSelection) {
+      final Element elm = DOMUtils.inputStreamToDocument(
+          this.getClass().getResourceAsStream("/idp-extensions.xml")).getDocumentElement();
+      final IDPSSODescriptor ssoDescriptor = Mockito.mock(IDPSSODescriptor.class);
+      Mockito.when(ssoDescriptor.getExtensions())
+          .thenReturn((Extensions) XMLObjectSupport.getUnmarshaller(elm).unmarshall(elm));
+      Mockito.when(idp.getIDPSSODescriptor(any())).thenReturn(ssoDescriptor);
+    }
+    return idp;
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.criterion.ProtocolCriterion;
+import org.opensaml.saml.criterion.RoleDescriptorCriterion;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.KeyNameCriterion;
+import org.opensaml.security.criteria.UsageCriterion;
+import org.opensaml.security.x509.X509Credential;
+import org.w3c.dom.Element;
+
+import net.shibboleth.shared.resolver.CriteriaSet;
+import se.idsec.signservice.xml.DOMUtils;
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
+import se.swedenconnect.opensaml.sweid.saml2.signservice.SADParser.SADValidator;
+
+/**
+ * Test cases for MetadataCredentialCache.
+ */
+public class MetadataCredentialCacheTest extends OpenSamlTestBase {
+
+  private MetadataProvider provider;
+
+  private MetadataCredentialCache cache;
+
+  @BeforeEach
+  public void setup() {
+    this.provider = Mockito.mock(MetadataProvider.class);
+    Mockito.when(this.provider.getLastUpdate()).thenReturn(Instant.now());
+    this.cache = new MetadataCredentialCache(this.provider);
+  }
+
+  @Test
+  public void testNullProvider() {
+    assertThatThrownBy(() -> new MetadataCredentialCache(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("metadataProvider must not be null");
+  }
+
+  @Test
+  public void testGetCredentials() throws Exception {
+    final IDPSSODescriptor sso = getSsoDescriptor(this.loadIdp());
+
+    final List<Credential> signing = this.cache.getCredentials(sso, UsageType.SIGNING);
+    Assertions.assertFalse(signing.isEmpty());
+    Assertions.assertTrue(signing.stream().allMatch(X509Credential.class::isInstance));
+    Assertions.assertEquals(1, this.cache.getMissCount());
+    Assertions.assertEquals(1, this.cache.size());
+
+    // The second lookup is served from the cache
+    Assertions.assertSame(signing, this.cache.getCredentials(sso, UsageType.SIGNING));
+    Assertions.assertEquals(1, this.cache.getHitCount());
+
+    // Another usage is resolved separately
+    final List<Credential> encryption = this.cache.getCredentials(sso, UsageType.ENCRYPTION);
+    Assertions.assertNotSame(signing, encryption);
+    Assertions.assertEquals(2, this.cache.getMissCount());
+    Assertions.assertEquals(1, this.cache.size());
+
+    assertThatThrownBy(() -> signing.add(signing.get(0)))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testResolve() throws Exception {
+    final IDPSSODescriptor sso = getSsoDescriptor(this.loadIdp());
+    final CriteriaSet criteria =
+        new CriteriaSet(new RoleDescriptorCriterion(sso), new UsageCriterion(UsageType.SIGNING));
+
+    final Iterable<Credential> credentials = this.cache.resolve(criteria);
+    Assertions.assertSame(credentials, this.cache.resolve(criteria));
+    Assertions.assertSame(credentials.iterator().next(), this.cache.resolveSingle(criteria));
+    Assertions.assertEquals(1, this.cache.getMissCount());
+    Assertions.assertEquals(1, this.cache.getHitCount());
+
+    // Entity, role and protocol criteria that agree with the role descriptor are served from the cache (the
+    // signature validators always add the issuer as an EntityIdCriterion)
+    final String entityId = ((EntityDescriptor) sso.getParent()).getEntityID();
+    final CriteriaSet agreeing = new CriteriaSet(new RoleDescriptorCriterion(sso),
+        new UsageCriterion(UsageType.SIGNING), new EntityIdCriterion(entityId), new EntityRoleCriterion(IDPSSODescriptor.DEFAULT_ELEMENT_NAME),
+        new ProtocolCriterion(SAMLConstants.SAML20P_NS));
+    Assertions.assertSame(credentials, this.cache.resolve(agreeing));
+    Assertions.assertEquals(1, this.cache.getMissCount());
+    Assertions.assertEquals(2, this.cache.getHitCount());
+
+    // Criteria that disagree with the role descriptor, or that the cache does not know about, are passed to the
+    // underlying resolver
+    final List<CriteriaSet> others = List.of(
+        new CriteriaSet(new RoleDescriptorCriterion(sso), new EntityIdCriterion("https://other.example.com")),
+        new CriteriaSet(new RoleDescriptorCriterion(sso),
+            new EntityRoleCriterion(SPSSODescriptor.DEFAULT_ELEMENT_NAME)),
+        new CriteriaSet(new RoleDescriptorCriterion(sso), new ProtocolCriterion(SAMLConstants.SAML11P_NS)),
+        new CriteriaSet(new RoleDescriptorCriterion(sso), new KeyNameCriterion("key")));
+    for (final CriteriaSet other : others) {
+      final List<Credential> resolved = new ArrayList<>();
+      this.cache.resolve(other).forEach(resolved::add);
+    }
+    Assertions.assertEquals(1, this.cache.getMissCount());
+    Assertions.assertEquals(2, this.cache.getHitCount());
+
+    Assertions.assertNotNull(this.cache.getSignatureTrustEngine());
+  }
+
+  @Test
+  public void testMetadataRefreshed() throws Exception {
+    final IDPSSODescriptor sso = getSsoDescriptor(this.loadIdp());
+    final List<Credential> signing = this.cache.getCredentials(sso, UsageType.SIGNING);
+
+    Mockito.when(this.provider.getLastUpdate()).thenReturn(Instant.now().plusSeconds(10));
+    Assertions.assertNotSame(signing, this.cache.getCredentials(sso, UsageType.SIGNING));
+    Assertions.assertEquals(1, this.cache.getInvalidationCount());
+    Assertions.assertEquals(1, this.cache.size());
+
+    // A new descriptor object for the same entity is not served from the cache
+    final IDPSSODescriptor sso2 = getSsoDescriptor(this.loadIdp());
+    final List<Credential> signing2 = this.cache.getCredentials(sso2, UsageType.SIGNING);
+    Assertions.assertEquals(3, this.cache.getMissCount());
+    Assertions.assertEquals(signing.size(), signing2.size());
+    Assertions.assertEquals(1, this.cache.size());
+  }
+
+  @Test
+  public void testSadValidator() throws Exception {
+    final EntityDescriptor idp = this.loadIdp();
+    final SADValidator validator = this.cache.getSadValidator(idp);
+    Assertions.assertNotNull(validator);
+    Assertions.assertSame(validator, this.cache.getSadValidator(idp));
+
+    // Changing the clock skew gives new validators
+    this.cache.setSadAllowedClockSkew(Duration.ofSeconds(10));
+    Assertions.assertNotSame(validator, this.cache.getSadValidator(idp));
+
+    // No IdP descriptor
+    final EntityDescriptor sp =
+        (EntityDescriptor) XMLObjectSupport.buildXMLObject(EntityDescriptor.DEFAULT_ELEMENT_NAME);
+    sp.setEntityID("https://sp.example.com");
+    Assertions.assertNotNull(this.cache.getSadValidator(sp));
+  }
+
+  private EntityDescriptor loadIdp() throws Exception {
+    final Element elm = DOMUtils.inputStreamToDocument(
+        this.getClass().getResourceAsStream("/idp-metadata.xml")).getDocumentElement();
+    final EntitiesDescriptor metadata = (EntitiesDescriptor) XMLObjectSupport.getUnmarshaller(elm).unmarshall(elm);
+    return metadata.getEntityDescriptors().get(0);
+  }
+
+  private static IDPSSODescriptor getSsoDescriptor(final EntityDescriptor idp) {
+    return idp.getIDPSSODescriptor(SAMLConstants.SAML20P_NS);
+  }
+
+}
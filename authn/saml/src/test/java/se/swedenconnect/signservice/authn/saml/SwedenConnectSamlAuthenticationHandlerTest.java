@@ -450,8 +450,8 @@ public class SwedenConnectSamlAuthenticationHandlerTest extends DefaultSamlAuthe
     Mockito.when(signMessage.getMustShow()).thenReturn(true);
     Mockito.when(signMessage.getEncoding()).thenReturn(this.getEncodedSignMessage());
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -541,8 +541,8 @@ public class SwedenConnectSamlAuthenticationHandlerTest extends DefaultSamlAuthe
     Mockito.when(signMessage.getMustShow()).thenReturn(true);
     Mockito.when(signMessage.getEncoding()).thenReturn(this.getEncodedSignMessage());
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -608,8 +608,8 @@ public class SwedenConnectSamlAuthenticationHandlerTest extends DefaultSamlAuthe
     Mockito.when(signMessage.getMustShow()).thenReturn(false);
     Mockito.when(signMessage.getEncoding()).thenReturn(this.getEncodedSignMessage());
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.SIGNMESSAGE_KEY), any()))
@@ -783,8 +783,8 @@ public class SwedenConnectSamlAuthenticationHandlerTest extends DefaultSamlAuthe
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
 
@@ -889,8 +889,8 @@ public class SwedenConnectSamlAuthenticationHandlerTest extends DefaultSamlAuthe
     Mockito.when(request.getParameter(eq("SAMLResponse"))).thenReturn("SAML-RESPONSE");
     Mockito.when(request.getParameter(eq("RelayState"))).thenReturn(CONTEXT_ID);
 
-    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY), any()))
-        .thenReturn(this.getEncodedAuthnRequest());
+    Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.AUTHNREQUEST_KEY)))
+        .thenReturn(this.getAuthnRequestState());
     Mockito.when(this.context.get(eq(AbstractSamlAuthenticationHandler.RELAY_STATE_KEY), any()))
         .thenReturn(CONTEXT_ID);
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A stand-in MDQ server on the loopback interface that answers entity queries with a minimal IdP entity descriptor.
+ */
+public class LocalMdqServer implements Closeable {
+
+  /** The HTTP server. */
+  private final HttpServer server;
+
+  /** Whether the server has been stopped. */
+  private boolean stopped = false;
+
+  /** The number of received requests. */
+  @Getter
+  private final AtomicInteger requestCount = new AtomicInteger(0);
+
+  /** The validUntil attribute to include in responses (null for none). */
+  @Setter
+  private String validUntil;
+
+  /** The cacheDuration attribute to include in responses (null for none). */
+  @Setter
+  private String cacheDuration = "PT1H";
+
+  /**
+   * Constructor starting the server on a free port.
+   *
+   * @throws IOException if the server can not be started
+   */
+  public LocalMdqServer() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.createContext("/entities/", this::handle);
+    this.server.start();
+  }
+
+  /**
+   * Gets the MDQ base URL of the server.
+   *
+   * @return the base URL
+   */
+  public String getUrl() {
+    return String.format("http://%s:%d/", this.server.getAddress().getHostString(), this.server.getAddress().getPort());
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    this.requestCount.incrementAndGet();
+    final String path = exchange.getRequestURI().getRawPath();
+    final String entityId =
+        URLDecoder.decode(path.substring(path.indexOf("/entities/") + "/entities/".length()), StandardCharsets.UTF_8);
+
+    final byte[] body = this.createEntityDescriptor(entityId).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/samlmetadata+xml");
+    exchange.sendResponseHeaders(200, body.length);
+    try (final OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  private String createEntityDescriptor(final String entityId) {
+    return "<md:EntityDescriptor xmlns:md=\"urn:oasis:names:tc:SAML:2.0:metadata\" entityID=\"" + entityId + "\""
+        + (this.validUntil != null ? " validUntil=\"" + this.validUntil + "\"" : "")
+        + (this.cacheDuration != null ? " cacheDuration=\"" + this.cacheDuration + "\"" : "") + ">"
+        + "<md:IDPSSODescriptor protocolSupportEnumeration=\"urn:oasis:names:tc:SAML:2.0:protocol\">"
+        + "<md:SingleSignOnService Binding=\"urn:oasis:names:tc:SAML:2.0:bindings:HTTP-Redirect\" "
+        + "Location=\"https://idp.example.com/sso\"/>"
+        + "</md:IDPSSODescriptor>"
+        + "</md:EntityDescriptor>";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized void close() {
+    if (!this.stopped) {
+      this.server.stop(0);
+      this.stopped = true;
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.authn.saml.OpenSamlTestBase;
+
+/**
+ * Test cases for MdqResponseCache.
+ */
+public class MdqResponseCacheTest extends OpenSamlTestBase {
+
+  private static final String ENTITY_ID = "https://idp.example.com/idp";
+
+  private LocalMdqServer server;
+
+  private Path cacheDirectory;
+
+  private MetadataHttpClients httpClients;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.server = new LocalMdqServer();
+    this.httpClients = new MetadataHttpClients();
+    this.cacheDirectory = Files.createTempDirectory("mdq-cache");
+  }
+
+  @AfterEach
+  public void destroy() throws Exception {
+    this.httpClients.close();
+    this.server.close();
+    FileUtils.deleteDirectory(this.cacheDirectory.toFile());
+  }
+
+  @Test
+  public void testNullDirectory() {
+    assertThatThrownBy(() -> new MdqResponseCache(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("cacheDirectory must not be null");
+  }
+
+  @Test
+  public void testCachedAcrossRestart() throws Exception {
+    final MdqResponseCache cache = new MdqResponseCache(this.cacheDirectory);
+    try (final CloseableHttpClient client = this.httpClients.createHttpClient(null, cache)) {
+      final String first = this.query(client, ENTITY_ID);
+      Assertions.assertTrue(first.contains(ENTITY_ID));
+      Assertions.assertEquals(1, this.server.getRequestCount().get());
+      Assertions.assertEquals(1, cache.size());
+
+      Assertions.assertEquals(first, this.query(client, ENTITY_ID));
+      Assertions.assertEquals(1, this.server.getRequestCount().get());
+
+      // Another entity
+      this.query(client, "https://idp2.example.com/idp");
+      Assertions.assertEquals(2, this.server.getRequestCount().get());
+      Assertions.assertEquals(2, cache.size());
+    }
+
+    // Simulate a restart - a new cache and client using the same directory
+    final MdqResponseCache cache2 = new MdqResponseCache(this.cacheDirectory);
+    try (final CloseableHttpClient client = this.httpClients.createHttpClient(null, cache2)) {
+      Assertions.assertTrue(this.query(client, ENTITY_ID).contains(ENTITY_ID));
+      Assertions.assertEquals(2, this.server.getRequestCount().get());
+    }
+  }
+
+  @Test
+  public void testNotCachedWhenExpired() throws Exception {
+    this.server.setValidUntil(Instant.now().minusSeconds(60).toString());
+    final MdqResponseCache cache = new MdqResponseCache(this.cacheDirectory);
+    try (final CloseableHttpClient client = this.httpClients.createHttpClient(null, cache)) {
+      this.query(client, ENTITY_ID);
+      this.query(client, ENTITY_ID);
+      Assertions.assertEquals(2, this.server.getRequestCount().get());
+      Assertions.assertEquals(0, cache.size());
+    }
+  }
+
+  @Test
+  public void testCacheDurationHonoured() throws Exception {
+    this.server.setCacheDuration("PT0.2S");
+    final MdqResponseCache cache = new MdqResponseCache(this.cacheDirectory);
+    try (final CloseableHttpClient client = this.httpClients.createHttpClient(null, cache)) {
+      this.query(client, ENTITY_ID);
+      Thread.sleep(300);
+      this.query(client, ENTITY_ID);
+      Assertions.assertEquals(2, this.server.getRequestCount().get());
+
+      // The server goes away - the metadata is still valid, so the cached copy is used
+      Thread.sleep(300);
+      this.server.close();
+      Assertions.assertTrue(this.query(client, ENTITY_ID).contains(ENTITY_ID));
+    }
+  }
+
+  @Test
+  public void testNoCacheWithoutMdqPath() throws Exception {
+    final MdqResponseCache cache = new MdqResponseCache(this.cacheDirectory);
+    try (final CloseableHttpClient client = this.httpClients.createHttpClient(null, cache)) {
+      final String uri = this.server.getUrl() + "entities/" + URLEncoder.encode(ENTITY_ID, StandardCharsets.UTF_8)
+          + "?x=y";
+      client.execute(new HttpGet(uri), r -> EntityUtils.toString(r.getEntity()));
+      Assertions.assertEquals(0, cache.size());
+    }
+  }
+
+  private String query(final CloseableHttpClient client, final String entityId) throws IOException {
+    final String uri = this.server.getUrl() + "entities/" + URLEncoder.encode(entityId, StandardCharsets.UTF_8);
+    return client.execute(new HttpGet(uri), r -> {
+      Assertions.assertEquals(200, r.getCode());
+      return EntityUtils.toString(r.getEntity());
+    });
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.authn.saml.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.authn.saml.config.MetadataHttpClients.ConnectionPoolConfiguration;
+
+/**
+ * Test cases for MetadataHttpClients.
+ */
+public class MetadataHttpClientsTest {
+
+  @Test
+  public void testDefaults() {
+    try (final MetadataHttpClients httpClients = new MetadataHttpClients()) {
+      Assertions.assertEquals(MetadataHttpClients.DEFAULT_MAX_CONNECTIONS_TOTAL,
+          httpClients.getConnectionManager().getMaxTotal());
+      Assertions.assertEquals(MetadataHttpClients.DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+          httpClients.getConnectionManager().getDefaultMaxPerRoute());
+    }
+  }
+
+  @Test
+  public void testConfigured() {
+    final ConnectionPoolConfiguration conf = new ConnectionPoolConfiguration();
+    conf.setMaxConnectionsTotal(20);
+    conf.setMaxConnectionsPerRoute(4);
+    conf.setConnectTimeout(Duration.ofSeconds(5));
+    conf.setSocketTimeout(Duration.ofSeconds(10));
+    conf.setMaxIdleTime(Duration.ofSeconds(30));
+    try (final MetadataHttpClients httpClients = new MetadataHttpClients(conf)) {
+      Assertions.assertEquals(20, httpClients.getConnectionManager().getMaxTotal());
+      Assertions.assertEquals(4, httpClients.getConnectionManager().getDefaultMaxPerRoute());
+    }
+  }
+
+  @Test
+  public void testIllegalConfiguration() {
+    final ConnectionPoolConfiguration conf = new ConnectionPoolConfiguration();
+    conf.setMaxConnectionsTotal(0);
+    assertThatThrownBy(() -> new MetadataHttpClients(conf))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    final ConnectionPoolConfiguration conf2 = new ConnectionPoolConfiguration();
+    conf2.setMaxConnectionsTotal(5);
+    conf2.setMaxConnectionsPerRoute(10);
+    assertThatThrownBy(() -> new MetadataHttpClients(conf2))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("max-connections-per-route must not exceed max-connections-total");
+
+    final ConnectionPoolConfiguration conf3 = new ConnectionPoolConfiguration();
+    conf3.setMaxIdleTime(Duration.ZERO);
+    assertThatThrownBy(() -> new MetadataHttpClients(conf3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("max-idle-time must be positive");
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    try (final LocalMdqServer server = new LocalMdqServer()) {
+      final MetadataHttpClients httpClients = new MetadataHttpClients();
+      final CloseableHttpClient client = httpClients.createHttpClient(null, null);
+      final String uri = server.getUrl() + "entities/x";
+      final int code = client.execute(new HttpGet(uri), r -> {
+        EntityUtils.consume(r.getEntity());
+        return r.getCode();
+      });
+      Assertions.assertEquals(200, code);
+      Assertions.assertEquals(1, httpClients.getConnectionManager().getTotalStats().getAvailable());
+
+      httpClients.close();
+      Assertions.assertEquals(0, httpClients.getConnectionManager().getTotalStats().getAvailable());
+      assertThatThrownBy(() -> client.execute(new HttpGet(uri), r -> r.getCode()))
+          .isInstanceOf(IllegalStateException.class);
+    }
+  }
+
+}
@@ -20,8 +20,12 @@ import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
 
+import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
 import se.swedenconnect.signservice.authn.saml.OpenSamlTestBase;
 
 /**
@@ -29,6 +33,8 @@ import se.swedenconnect.signservice.authn.saml.OpenSamlTestBase;
  */
 public class MetadataProviderConfigurationTest extends OpenSamlTestBase {
 
+  private static final String localMdqBackupDir = "target/test2/saml/local/backups";
+
 //  private static final String backupFile = "target/test/saml/foo/backup.xml";
 //
 //  private static final String backupDir = "target/test2/saml/bar/backups";
@@ -79,4 +85,28 @@ public class MetadataProviderConfigurationTest extends OpenSamlTestBase {
 //    final File b = new File(backupDir);
 //    Assertions.assertTrue(b.exists());
 //  }
+
+  @Test
+  public void testLocalMdq() throws Exception {
+    try (final LocalMdqServer server = new LocalMdqServer()) {
+      final MetadataProviderConfiguration conf = new MetadataProviderConfiguration();
+      conf.setUrl(server.getUrl());
+      conf.setBackupLocation(localMdqBackupDir);
+      conf.setMdq(true);
+      final MetadataProvider provider = conf.create();
+
+      Assertions.assertNotNull(
+          provider.getEntityDescriptor("https://idp.example.com/idp", IDPSSODescriptor.DEFAULT_ELEMENT_NAME));
+      Assertions.assertEquals(1, server.getRequestCount().get());
+      Assertions.assertTrue(
+          new File(localMdqBackupDir, MetadataProviderConfiguration.MDQ_CACHE_DIRECTORY).isDirectory());
+
+      // A restarted service does not query the MDQ server for metadata it has already cached
+      final MetadataProvider provider2 = conf.create();
+      Assertions.assertNotNull(
+          provider2.getEntityDescriptor("https://idp.example.com/idp", IDPSSODescriptor.DEFAULT_ELEMENT_NAME));
+      Assertions.assertEquals(1, server.getRequestCount().get());
+    }
+  }
+
 }
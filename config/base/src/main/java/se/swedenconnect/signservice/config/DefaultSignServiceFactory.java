@@ -17,6 +17,7 @@ package se.swedenconnect.signservice.config;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import se.swedenconnect.opensaml.saml2.metadata.provider.MetadataProvider;
@@ -26,7 +27,9 @@ import se.swedenconnect.signservice.application.DefaultSignServiceEngineManager;
 import se.swedenconnect.signservice.application.SignServiceEngineManager;
 import se.swedenconnect.signservice.audit.AuditLogger;
 import se.swedenconnect.signservice.audit.base.AbstractAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.composite.CompositeAuditLoggerFactory;
 import se.swedenconnect.signservice.authn.AuthenticationHandler;
+import se.swedenconnect.signservice.authn.saml.config.MetadataHttpClients;
 import se.swedenconnect.signservice.certificate.KeyAndCertificateHandler;
 import se.swedenconnect.signservice.config.audit.AuditLoggerConfigurationProperties;
 import se.swedenconnect.signservice.config.cert.KeyAndCertificateHandlerConfigurationProperties;
@@ -43,6 +46,7 @@ import se.swedenconnect.signservice.core.config.ValidationConfiguration;
 import se.swedenconnect.signservice.engine.DefaultSignRequestMessageVerifier;
 import se.swedenconnect.signservice.engine.DefaultSignServiceEngine;
 import se.swedenconnect.signservice.engine.SignServiceEngine;
+import se.swedenconnect.signservice.engine.SigningKeyPreparer;
 import se.swedenconnect.signservice.engine.config.DefaultEngineConfiguration;
 import se.swedenconnect.signservice.protocol.ProtocolHandler;
 import se.swedenconnect.signservice.signature.SignatureHandler;
@@ -74,6 +78,15 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
   /** If no BeanRegistrator is provided, any common beans will be placed in this map. */
   private final Map<String, Object> commonBeansRegistry = new HashMap<>();
 
+  /** The signing key preparer shared by all engines that prepare signing keys during user authentication. */
+  private SigningKeyPreparer signingKeyPreparer;
+
+  /**
+   * The closeable handlers and common resources created by the factory (handlers referenced as external beans are not
+   * included).
+   */
+  private final List<AutoCloseable> createdResources = new ArrayList<>();
+
   /**
    * Default constructor.
    */
@@ -90,6 +103,11 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
   public DefaultSignServiceFactory(@Nullable final HandlerFactoryRegistry handlerFactoryRegistry) {
     this.handlerFactoryRegistry = Optional.ofNullable(handlerFactoryRegistry)
         .orElseGet(HandlerFactoryRegistry::new);
+
+    // The composite audit logger factory needs the registry to create the audit loggers of its sinks ...
+    final HandlerFactory<AuditLogger> compositeFactory =
+        this.handlerFactoryRegistry.getFactory(CompositeAuditLoggerFactory.class.getName());
+    CompositeAuditLoggerFactory.class.cast(compositeFactory).setHandlerFactoryRegistry(this.handlerFactoryRegistry);
   }
 
   /** {@inheritDoc} */
@@ -225,7 +243,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       final HandlerFactory<ProtocolHandler> protocolFactory =
           this.handlerFactoryRegistry.getFactory(protocolConf.getFactoryClass());
-      conf.setProtocolHandler(protocolFactory.create(protocolConf, bLoader));
+      conf.setProtocolHandler(this.createHandler(protocolFactory, protocolConf, bLoader));
 
       // Signature handler
       //
@@ -261,7 +279,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       final HandlerFactory<SignatureHandler> sigHandlerFactory =
           this.handlerFactoryRegistry.getFactory(sigHandlerConf.getFactoryClass());
-      conf.setSignatureHandler(sigHandlerFactory.create(sigHandlerConf, bLoader));
+      conf.setSignatureHandler(this.createHandler(sigHandlerFactory, sigHandlerConf, bLoader));
 
       // Key and certificate handler
       //
@@ -300,7 +318,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
       final HandlerFactory<KeyAndCertificateHandler> keyAndCertHandlerFactory =
           this.handlerFactoryRegistry.getFactory(keyAndCertConf
               .getFactoryClass());
-      conf.setKeyAndCertificateHandler(keyAndCertHandlerFactory.create(keyAndCertConf, bLoader));
+      conf.setKeyAndCertificateHandler(this.createHandler(keyAndCertHandlerFactory, keyAndCertConf, bLoader));
 
       // Audit logger
       //
@@ -321,7 +339,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       final HandlerFactory<AuditLogger> auditFactory =
           this.handlerFactoryRegistry.getFactory(auditConf.getFactoryClass());
-      conf.setAuditLogger(auditFactory.create(auditConf, bLoader));
+      conf.setAuditLogger(this.createHandler(auditFactory, auditConf, bLoader));
 
       // Authentication handler
       //
@@ -336,7 +354,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       final HandlerFactory<AuthenticationHandler> authnFactory =
           this.handlerFactoryRegistry.getFactory(authnConf.getFactoryClass());
-      conf.setAuthenticationHandler(authnFactory.create(authnConf, bLoader));
+      conf.setAuthenticationHandler(this.createHandler(authnFactory, authnConf, bLoader));
 
       conf.init();
 
@@ -346,6 +364,10 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
       verifier.setAllowedClockSkew(validationConfig.getAllowedClockSkew());
       verifier.setMaxMessageAge(validationConfig.getMaxMessageAge());
       engine.setSignRequestMessageVerifier(verifier);
+      if (Boolean.TRUE.equals(ecp.getPrepareSigningKey())) {
+        log.info("Engine '{}' will prepare signing keys during user authentication", ecp.getName());
+        engine.setSigningKeyPreparer(this.getSigningKeyPreparer());
+      }
       engine.init();
 
       engines.add(engine);
@@ -354,7 +376,16 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
       throw new IllegalArgumentException("No engines configured");
     }
 
-    return new DefaultSignServiceEngineManager(engines, systemAuditLogger);
+    final DefaultSignServiceEngineManager manager = new DefaultSignServiceEngineManager(engines, systemAuditLogger);
+    for (final EngineConfigurationProperties ecp : configuration.getEngines()) {
+      if (ecp.getAdmissionControl() != null) {
+        log.info("Engine '{}' will use admission control [max-concurrent: {}, max-queued: {}, max-wait: {}]",
+            ecp.getName(), ecp.getAdmissionControl().getMaxConcurrent(), ecp.getAdmissionControl().getMaxQueued(),
+            ecp.getAdmissionControl().getMaxWait());
+        manager.setAdmissionControl(ecp.getName(), ecp.getAdmissionControl());
+      }
+    }
+    return manager;
   }
 
   /**
@@ -370,8 +401,12 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
     if (props.getSaml() != null && props.getSaml().getMetadataProvider() != null) {
       log.debug("Registering '{}' bean ...", props.getSaml().getMetadataProvider().getBeanName());
+      final MetadataHttpClients metadataHttpClients = props.getSaml().getMetadataProvider().createHttpClients();
+      synchronized (this) {
+        this.createdResources.add(metadataHttpClients);
+      }
       beanRegistrator.registerBean(props.getSaml().getMetadataProvider().getBeanName(),
-          MetadataProvider.class, props.getSaml().getMetadataProvider().create());
+          MetadataProvider.class, props.getSaml().getMetadataProvider().create(metadataHttpClients));
     }
 
     if (props.getProtocol() != null) {
@@ -387,7 +422,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       log.debug("Registering '{}' bean ...", props.getProtocol().getBeanName());
       beanRegistrator.registerBean(props.getProtocol().getBeanName(), ProtocolHandler.class,
-          protocolFactory.create(protocolConf, beanLoader));
+          this.createHandler(protocolFactory, protocolConf, beanLoader));
     }
 
     if (props.getSign() != null) {
@@ -403,7 +438,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       log.debug("Registering '{}' bean ...", props.getSign().getBeanName());
       beanRegistrator.registerBean(props.getSign().getBeanName(), SignatureHandler.class,
-          sigHandlerFactory.create(sigHandlerConf, beanLoader));
+          this.createHandler(sigHandlerFactory, sigHandlerConf, beanLoader));
     }
 
     if (props.getKeyProvider() != null) {
@@ -425,11 +460,71 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
 
       log.debug("Registering '{}' bean ...", props.getCert().getBeanName());
       beanRegistrator.registerBean(props.getCert().getBeanName(), KeyAndCertificateHandler.class,
-          keyAndCertHandlerFactory.create(keyAndCertConf, beanLoader));
+          this.createHandler(keyAndCertHandlerFactory, keyAndCertConf, beanLoader));
     }
 
   }
 
+  /**
+   * Gets the {@link SigningKeyPreparer} that is shared among all engines that prepare signing keys during user
+   * authentication. The preparer is created the first time it is needed.
+   *
+   * @return a SigningKeyPreparer
+   */
+  @Nonnull
+  protected synchronized SigningKeyPreparer getSigningKeyPreparer() {
+    if (this.signingKeyPreparer == null) {
+      this.signingKeyPreparer = new SigningKeyPreparer(Runtime.getRuntime().availableProcessors());
+    }
+    return this.signingKeyPreparer;
+  }
+
+  /**
+   * Creates a handler using the supplied factory. If the created handler is {@link AutoCloseable} and not a reference
+   * to an external bean, it is closed when the factory is destroyed.
+   *
+   * @param <T> the handler type
+   * @param factory the handler factory
+   * @param conf the handler configuration
+   * @param beanLoader the bean loader
+   * @return the handler
+   */
+  @Nonnull
+  private <T extends SignServiceHandler> T createHandler(@Nonnull final HandlerFactory<T> factory,
+      @Nonnull final HandlerConfiguration<T> conf, @Nullable final BeanLoader beanLoader) {
+    final T handler = factory.create(conf, beanLoader);
+    if (!BeanReferenceHandlerConfiguration.class.isInstance(conf) && AutoCloseable.class.isInstance(handler)) {
+      synchronized (this) {
+        this.createdResources.add(AutoCloseable.class.cast(handler));
+      }
+    }
+    return handler;
+  }
+
+  /**
+   * Shuts down the {@link SigningKeyPreparer} (if created) and destroys any prepared keys. Also closes all closeable
+   * handlers, and common resources such as the metadata HTTP connection pool, that were created by the factory. The
+   * method is annotated with {@code PreDestroy} meaning that the method will be automatically be invoked by frameworks
+   * supporting this annotation when the factory bean is destroyed.
+   */
+  @PreDestroy
+  public synchronized void destroy() {
+    if (this.signingKeyPreparer != null) {
+      this.signingKeyPreparer.destroy();
+      this.signingKeyPreparer = null;
+    }
+    for (int i = this.createdResources.size() - 1; i >= 0; i--) {
+      final AutoCloseable resource = this.createdResources.get(i);
+      try {
+        resource.close();
+      }
+      catch (final Exception e) {
+        log.warn("Failed to close {} - {}", resource.getClass().getSimpleName(), e.getMessage(), e);
+      }
+    }
+    this.createdResources.clear();
+  }
+
   /**
    * Gets the system {@link AuditLogger} from the configuration.
    *
@@ -450,7 +545,7 @@ public class DefaultSignServiceFactory implements SignServiceFactory {
     auditConf.init();
     final HandlerFactory<AuditLogger> auditFactory =
         this.handlerFactoryRegistry.getFactory(auditConf.getFactoryClass());
-    return auditFactory.create(auditConf, beanLoader);
+    return this.createHandler(auditFactory, auditConf, beanLoader);
   }
 
   /**
@@ -22,6 +22,7 @@ import org.apache.commons.lang3.StringUtils;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.signservice.application.AdmissionControlConfiguration;
 import se.swedenconnect.signservice.client.impl.DefaultClientConfiguration;
 import se.swedenconnect.signservice.config.audit.AuditLoggerConfigurationProperties;
 import se.swedenconnect.signservice.config.authn.AuthenticationHandlerConfigurationProperties;
@@ -87,6 +88,18 @@ public class EngineConfigurationProperties {
    */
   private AuditLoggerConfigurationProperties audit;
 
+  /**
+   * Whether the user signing key should be generated on a background thread while the user is being authenticated. The
+   * default is {@code false}.
+   */
+  private Boolean prepareSigningKey;
+
+  /**
+   * Admission control for the engine, i.e., limits for the number of requests that the engine processes concurrently
+   * and the number of requests that may wait. If not assigned, the number of concurrent requests is not limited.
+   */
+  private AdmissionControlConfiguration admissionControl;
+
   /**
    * Asserts that all required settings have been set.
    *
@@ -24,8 +24,10 @@ import lombok.Setter;
 import se.swedenconnect.signservice.audit.AuditLogger;
 import se.swedenconnect.signservice.audit.actuator.ActuatorAuditLoggerConfiguration;
 import se.swedenconnect.signservice.audit.callback.CallbackAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.composite.CompositeAuditLoggerConfiguration;
 import se.swedenconnect.signservice.audit.file.FileAuditLoggerConfiguration;
 import se.swedenconnect.signservice.audit.logsystem.LogSystemAuditLoggerConfiguration;
+import se.swedenconnect.signservice.audit.store.StoreAuditLoggerConfiguration;
 import se.swedenconnect.signservice.config.HandlerConfigurationProperties;
 import se.swedenconnect.signservice.core.config.BeanReferenceHandlerConfiguration;
 import se.swedenconnect.signservice.core.config.HandlerConfiguration;
@@ -68,6 +70,23 @@ public class AuditLoggerConfigurationProperties implements HandlerConfigurationP
   @Setter
   private ActuatorAuditLoggerConfiguration actuator;
 
+  /**
+   * Configuration for audit logging to an indexed local audit store. The store is normally used as a sink of the
+   * composite audit logger.
+   */
+  @Getter
+  @Setter
+  private StoreAuditLoggerConfiguration store;
+
+  /**
+   * Configuration for a composite audit logger that fans out events to several audit loggers. The sinks of the
+   * composite logger may refer to the other audit logger configurations given on this level (for example "file" and
+   * "actuator"). If assigned, the composite configuration is the one that is used.
+   */
+  @Getter
+  @Setter
+  private CompositeAuditLoggerConfiguration composite;
+
   /** {@inheritDoc} */
   @Override
   @Nullable
@@ -85,9 +104,12 @@ public class AuditLoggerConfigurationProperties implements HandlerConfigurationP
   @Override
   @Nonnull
   public HandlerConfiguration<AuditLogger> getHandlerConfiguration() throws IllegalArgumentException {
+    if (this.composite != null) {
+      return this.getCompositeConfiguration();
+    }
     final int noAssigned =
         (this.external != null ? 1 : 0) + (this.file != null ? 1 : 0) + (this.logSystem != null ? 1 : 0)
-            + (this.callback != null ? 1 : 0)
+            + (this.callback != null ? 1 : 0) + (this.store != null ? 1 : 0)
             + (this.actuator != null && Optional.ofNullable(this.actuator.getActive()).orElse(true) ? 1 : 0);
     if (noAssigned > 1) {
       throw new IllegalArgumentException("Several audit configurations supplied, only one can be assigned");
@@ -98,8 +120,10 @@ public class AuditLoggerConfigurationProperties implements HandlerConfigurationP
     return this.file != null ? this.file
         : this.logSystem != null ? this.logSystem
             : this.callback != null ? this.callback
-                : this.actuator != null && Optional.ofNullable(this.actuator.getActive()).orElse(true) ? this.actuator
-                    : this.external;
+                : this.store != null ? this.store
+                    : this.actuator != null && Optional.ofNullable(this.actuator.getActive()).orElse(true)
+                        ? this.actuator
+                        : this.external;
   }
 
   /** {@inheritDoc} */
@@ -116,15 +140,38 @@ public class AuditLoggerConfigurationProperties implements HandlerConfigurationP
     else if ("callback".equalsIgnoreCase(name)) {
       return this.callback;
     }
+    else if ("store".equalsIgnoreCase(name)) {
+      return this.store;
+    }
     else if ("actuator".equalsIgnoreCase(name)) {
       return this.actuator;
     }
     else if ("external".equalsIgnoreCase(name)) {
       return this.external;
     }
+    else if ("composite".equalsIgnoreCase(name)) {
+      return this.composite != null ? this.getCompositeConfiguration() : null;
+    }
     else {
       return null;
     }
   }
 
+  /**
+   * Gets the composite configuration after resolving the configuration references of its sinks against the audit
+   * logger configurations of this object.
+   *
+   * @return the composite configuration
+   * @throws IllegalArgumentException if a sink reference can not be resolved
+   */
+  @Nonnull
+  private CompositeAuditLoggerConfiguration getCompositeConfiguration() throws IllegalArgumentException {
+    if (this.composite.needsSinkConfigResolving()) {
+      this.composite.resolveSinkConfigRefs(ref -> "composite".equalsIgnoreCase(ref)
+          ? null
+          : this.getHandlerConfiguration(ref));
+    }
+    return this.composite;
+  }
+
 }
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.application.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.core.http.DefaultHttpBodyAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpPostAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpRedirectAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpResponseAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpUserRequest;
+import se.swedenconnect.signservice.core.http.HttpBodyAction;
+import se.swedenconnect.signservice.core.http.HttpPostAction;
+import se.swedenconnect.signservice.core.http.HttpResponseAction;
+import se.swedenconnect.signservice.core.http.HttpUserRequest;
+
+/**
+ * Binary encoding of {@link RestProcessRequestInput} and {@link RestProcessRequestResult} objects.
+ * <p>
+ * The encoding starts with a magic number, a version and a type byte, followed by the fields of the object. Strings
+ * are written as a length followed by the UTF-8 bytes. Values that are canonical Base64 (the SignService context and
+ * the Base64 encoded protocol messages) are written as the decoded bytes, and the body contents of a response action
+ * is written as is. This avoids the Base64 expansion (and the extra Base64 encoding of the body contents) of the JSON
+ * representation.
+ * </p>
+ */
+class RestProcessRequestCodec {
+
+  /** Magic number starting each encoding. */
+  private static final short MAGIC = (short) 0x5353;
+
+  /** The encoding version. */
+  private static final byte VERSION = 1;
+
+  /** Type byte for {@link RestProcessRequestInput}. */
+  private static final byte TYPE_INPUT = 1;
+
+  /** Type byte for {@link RestProcessRequestResult}. */
+  private static final byte TYPE_RESULT = 2;
+
+  /** Value tag for a null value. */
+  private static final byte VALUE_NULL = 0;
+
+  /** Value tag for a UTF-8 string. */
+  private static final byte VALUE_STRING = 1;
+
+  /** Value tag for a Base64 string written as its decoded bytes. */
+  private static final byte VALUE_BASE64 = 2;
+
+  /** Strings shorter than this are never checked for Base64. */
+  private static final int MIN_BASE64_LENGTH = 64;
+
+  /** Action tag for a redirect action. */
+  private static final byte ACTION_REDIRECT = 1;
+
+  /** Action tag for a post action. */
+  private static final byte ACTION_POST = 2;
+
+  /** Action tag for a body action. */
+  private static final byte ACTION_BODY = 3;
+
+  /** Hidden constructor. */
+  private RestProcessRequestCodec() {
+  }
+
+  /**
+   * Encodes a {@link RestProcessRequestInput}.
+   *
+   * @param input the object to encode
+   * @return the encoding
+   */
+  @Nonnull
+  static byte[] encode(@Nonnull final RestProcessRequestInput input) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      writeHeader(out, TYPE_INPUT);
+      writeValue(out, input.getContext());
+      final HttpUserRequest request = input.getUserRequest();
+      out.writeBoolean(request != null);
+      if (request != null) {
+        writeString(out, request.getMethod());
+        writeString(out, request.getRequestUrl());
+        writeString(out, request.getServerBaseUrl());
+        writeString(out, request.getServerServletPath());
+        writeString(out, request.getClientIpAddress());
+        writeMultiValueMap(out, request.getParameters());
+        writeMultiValueMap(out, request.getHeaders());
+      }
+    }
+    catch (final IOException e) {
+      // Will not happen when writing to a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a {@link RestProcessRequestInput}.
+   *
+   * @param encoding the encoding
+   * @return the decoded object
+   * @throws IOException for invalid encodings
+   */
+  @Nonnull
+  static RestProcessRequestInput decodeInput(@Nonnull final byte[] encoding) throws IOException {
+    try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoding))) {
+      readHeader(in, TYPE_INPUT);
+      final RestProcessRequestInput input = new RestProcessRequestInput();
+      input.setContext(readValue(in));
+      if (in.readBoolean()) {
+        final DefaultHttpUserRequest request = new DefaultHttpUserRequest();
+        request.setMethod(readString(in));
+        request.setRequestUrl(readString(in));
+        request.setServerBaseUrl(readString(in));
+        request.setServerServletPath(readString(in));
+        request.setClientIpAddress(readString(in));
+        request.setParameters(readMultiValueMap(in));
+        request.setHeaders(readMultiValueMap(in));
+        input.setUserRequest(request);
+      }
+      return input;
+    }
+    catch (final IllegalArgumentException | NullPointerException e) {
+      throw new IOException("Invalid encoding - " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Encodes a {@link RestProcessRequestResult}.
+   *
+   * @param result the object to encode
+   * @return the encoding
+   */
+  @Nonnull
+  static byte[] encode(@Nonnull final RestProcessRequestResult result) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      writeHeader(out, TYPE_RESULT);
+      writeValue(out, result.getContext());
+      final HttpResponseAction action = result.getResponseAction();
+      if (action == null) {
+        out.writeByte(VALUE_NULL);
+      }
+      else if (action.getRedirect() != null) {
+        out.writeByte(ACTION_REDIRECT);
+        writeString(out, action.getRedirect().getUrl());
+      }
+      else if (action.getPost() != null) {
+        out.writeByte(ACTION_POST);
+        writeString(out, action.getPost().getUrl());
+        final Map<String, String> parameters = action.getPost().getParameters();
+        out.writeInt(parameters.size());
+        for (final Map.Entry<String, String> p : parameters.entrySet()) {
+          writeString(out, p.getKey());
+          writeValue(out, p.getValue());
+        }
+      }
+      else {
+        final HttpBodyAction body = action.getBody();
+        out.writeByte(ACTION_BODY);
+        out.writeShort(body.getStatus());
+        final Map<String, String> headers = body.getHeaders();
+        out.writeInt(headers.size());
+        for (final Map.Entry<String, String> h : headers.entrySet()) {
+          writeString(out, h.getKey());
+          writeString(out, h.getValue());
+        }
+        writeBytes(out, body.getContents());
+      }
+    }
+    catch (final IOException e) {
+      // Will not happen when writing to a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a {@link RestProcessRequestResult}.
+   *
+   * @param encoding the encoding
+   * @return the decoded object
+   * @throws IOException for invalid encodings
+   */
+  @Nonnull
+  static RestProcessRequestResult decodeResult(@Nonnull final byte[] encoding) throws IOException {
+    try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoding))) {
+      readHeader(in, TYPE_RESULT);
+      final RestProcessRequestResult result = new RestProcessRequestResult();
+      result.setContext(readValue(in));
+      final byte actionType = in.readByte();
+      switch (actionType) {
+      case VALUE_NULL:
+        break;
+      case ACTION_REDIRECT:
+        result.setResponseAction(new DefaultHttpResponseAction(new DefaultHttpRedirectAction(readString(in))));
+        break;
+      case ACTION_POST:
+        final DefaultHttpPostAction post = new DefaultHttpPostAction(readString(in));
+        final int noParameters = readCount(in);
+        for (int i = 0; i < noParameters; i++) {
+          post.addParameter(readString(in), readValue(in));
+        }
+        result.setResponseAction(new DefaultHttpResponseAction((HttpPostAction) post));
+        break;
+      case ACTION_BODY:
+        final DefaultHttpBodyAction body = new DefaultHttpBodyAction();
+        body.setStatus(in.readShort());
+        final int noHeaders = readCount(in);
+        for (int i = 0; i < noHeaders; i++) {
+          body.addHeader(readString(in), readString(in));
+        }
+        body.setContents(readBytes(in));
+        result.setResponseAction(new DefaultHttpResponseAction((HttpBodyAction) body));
+        break;
+      default:
+        throw new IOException("Unknown response action type: " + actionType);
+      }
+      return result;
+    }
+    catch (final IllegalArgumentException | NullPointerException e) {
+      throw new IOException("Invalid encoding - " + e.getMessage(), e);
+    }
+  }
+
+  /** Writes the encoding header. */
+  private static void writeHeader(@Nonnull final DataOutputStream out, final byte type) throws IOException {
+    out.writeShort(MAGIC);
+    out.writeByte(VERSION);
+    out.writeByte(type);
+  }
+
+  /** Reads and checks the encoding header. */
+  private static void readHeader(@Nonnull final DataInputStream in, final byte type) throws IOException {
+    if (in.readShort() != MAGIC) {
+      throw new IOException("Not a binary process request encoding");
+    }
+    final byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported encoding version: " + version);
+    }
+    if (in.readByte() != type) {
+      throw new IOException("Unexpected encoding type");
+    }
+  }
+
+  /**
+   * Writes a value that may be Base64 encoded. If the value is canonical Base64, the decoded bytes are written,
+   * otherwise the string.
+   */
+  private static void writeValue(@Nonnull final DataOutputStream out, @Nullable final String value)
+      throws IOException {
+    if (value == null) {
+      out.writeByte(VALUE_NULL);
+      return;
+    }
+    final byte[] decoded = decodeCanonicalBase64(value);
+    if (decoded != null) {
+      out.writeByte(VALUE_BASE64);
+      writeBytes(out, decoded);
+    }
+    else {
+      out.writeByte(VALUE_STRING);
+      writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** Reads a value written by {@link #writeValue(DataOutputStream, String)}. */
+  @Nullable
+  private static String readValue(@Nonnull final DataInputStream in) throws IOException {
+    final byte tag = in.readByte();
+    switch (tag) {
+    case VALUE_NULL:
+      return null;
+    case VALUE_STRING:
+      return new String(readBytes(in), StandardCharsets.UTF_8);
+    case VALUE_BASE64:
+      return Base64.getEncoder().encodeToString(readBytes(in));
+    default:
+      throw new IOException("Unknown value tag: " + tag);
+    }
+  }
+
+  /**
+   * Decodes the supplied string if it is canonical Base64, i.e., if encoding the decoded bytes gives the same string.
+   *
+   * @param value the string
+   * @return the decoded bytes, or null if the string is not canonical Base64
+   */
+  @Nullable
+  private static byte[] decodeCanonicalBase64(@Nonnull final String value) {
+    if (value.length() < MIN_BASE64_LENGTH || value.length() % 4 != 0) {
+      return null;
+    }
+    try {
+      final byte[] decoded = Base64.getDecoder().decode(value);
+      return Base64.getEncoder().encodeToString(decoded).equals(value) ? decoded : null;
+    }
+    catch (final IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /** Writes a (nullable) UTF-8 string. */
+  private static void writeString(@Nonnull final DataOutputStream out, @Nullable final String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    }
+    else {
+      writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** Reads a (nullable) UTF-8 string. */
+  @Nullable
+  private static String readString(@Nonnull final DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    return new String(readBytes(in, length), StandardCharsets.UTF_8);
+  }
+
+  /** Writes a length prefixed byte array. */
+  private static void writeBytes(@Nonnull final DataOutputStream out, @Nonnull final byte[] bytes)
+      throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /** Reads a length prefixed byte array. */
+  @Nonnull
+  private static byte[] readBytes(@Nonnull final DataInputStream in) throws IOException {
+    return readBytes(in, in.readInt());
+  }
+
+  /** Reads the given number of bytes. */
+  @Nonnull
+  private static byte[] readBytes(@Nonnull final DataInputStream in, final int length) throws IOException {
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid length: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /** Reads a count and checks that it is reasonable given the remaining data. */
+  private static int readCount(@Nonnull final DataInputStream in) throws IOException {
+    final int count = in.readInt();
+    if (count < 0 || count > in.available()) {
+      throw new IOException("Invalid count: " + count);
+    }
+    return count;
+  }
+
+  /** Writes a map of parameters or headers. */
+  private static void writeMultiValueMap(@Nonnull final DataOutputStream out, @Nonnull final Map<String, String[]> map)
+      throws IOException {
+    out.writeInt(map.size());
+    for (final Map.Entry<String, String[]> e : map.entrySet()) {
+      writeString(out, e.getKey());
+      final String[] values = e.getValue() != null ? e.getValue() : new String[0];
+      out.writeInt(values.length);
+      for (final String v : values) {
+        writeValue(out, v);
+      }
+    }
+  }
+
+  /** Reads a map of parameters or headers. */
+  @Nonnull
+  private static Map<String, String[]> readMultiValueMap(@Nonnull final DataInputStream in) throws IOException {
+    final int size = readCount(in);
+    final Map<String, String[]> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      final String name = readString(in);
+      final String[] values = new String[readCount(in)];
+      for (int j = 0; j < values.length; j++) {
+        values[j] = readValue(in);
+      }
+      map.put(name, values);
+    }
+    return map;
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package se.swedenconnect.signservice.application.rest;
 
+import java.io.IOException;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -33,6 +34,12 @@ import se.swedenconnect.signservice.core.http.HttpUserRequest;
 @JsonInclude(Include.NON_NULL)
 public class RestProcessRequestInput {
 
+  /**
+   * The content type for the binary representation of {@code RestProcessRequestInput} and
+   * {@link RestProcessRequestResult} objects.
+   */
+  public static final String BINARY_CONTENT_TYPE = "application/vnd.swedenconnect.signservice.process";
+
   /** The string representation of the SignService context. */
   @Getter
   @Setter
@@ -62,4 +69,27 @@ public class RestProcessRequestInput {
     this.userRequest = Objects.requireNonNull(userRequest, "userRequest must not be null");
   }
 
+  /**
+   * Gets the binary representation of this object (see {@link #BINARY_CONTENT_TYPE}). In the binary representation
+   * the context and Base64 encoded parameter values are represented by their decoded bytes.
+   *
+   * @return the binary representation
+   */
+  @Nonnull
+  public byte[] toBinary() {
+    return RestProcessRequestCodec.encode(this);
+  }
+
+  /**
+   * Creates a {@code RestProcessRequestInput} object from its binary representation.
+   *
+   * @param encoding the binary representation
+   * @return a RestProcessRequestInput object
+   * @throws IOException for invalid encodings
+   */
+  @Nonnull
+  public static RestProcessRequestInput fromBinary(@Nonnull final byte[] encoding) throws IOException {
+    return RestProcessRequestCodec.decodeInput(Objects.requireNonNull(encoding, "encoding must not be null"));
+  }
+
 }
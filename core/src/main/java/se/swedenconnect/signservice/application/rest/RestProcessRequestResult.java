@@ -15,6 +15,7 @@
  */
 package se.swedenconnect.signservice.application.rest;
 
+import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -68,4 +69,28 @@ public class RestProcessRequestResult {
         .orElse(null);
   }
 
+  /**
+   * Gets the binary representation of this object (see {@link RestProcessRequestInput#BINARY_CONTENT_TYPE}). In the
+   * binary representation the context and Base64 encoded post parameters are represented by their decoded bytes, and
+   * the body contents is not Base64 encoded.
+   *
+   * @return the binary representation
+   */
+  @Nonnull
+  public byte[] toBinary() {
+    return RestProcessRequestCodec.encode(this);
+  }
+
+  /**
+   * Creates a {@code RestProcessRequestResult} object from its binary representation.
+   *
+   * @param encoding the binary representation
+   * @return a RestProcessRequestResult object
+   * @throws IOException for invalid encodings
+   */
+  @Nonnull
+  public static RestProcessRequestResult fromBinary(@Nonnull final byte[] encoding) throws IOException {
+    return RestProcessRequestCodec.decodeResult(Objects.requireNonNull(encoding, "encoding must not be null"));
+  }
+
 }
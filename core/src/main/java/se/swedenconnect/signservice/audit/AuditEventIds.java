@@ -29,6 +29,9 @@ public class AuditEventIds {
   /** An unrecoverable processing error was caught and reported by the system. */
   public final static String EVENT_SYSTEM_PROCESSING_ERROR = "audit.system.processing-error";
 
+  /** A request was rejected since the engine that should process it was overloaded. */
+  public final static String EVENT_SYSTEM_OVERLOAD = "audit.system.overload";
+
   /** A SignService engine instance (servicing a client) was started. */
   public final static String EVENT_ENGINE_STARTED = "audit.engine.started";
 
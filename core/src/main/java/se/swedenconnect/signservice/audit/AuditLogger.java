@@ -36,7 +36,8 @@ public interface AuditLogger extends SignServiceHandler {
   void auditLog(@Nonnull final AuditEvent event) throws AuditLoggerException;
 
   /**
-   * Helper method to audit log in one line.
+   * Helper method to audit log in one line. If events with the given ID are not enabled (see
+   * {@link #isEnabled(String)}), the build function is not invoked.
    *
    * @param eventId the event ID for the event
    * @param build a function that accepts a {@link AuditEventBuilder} and produces the {@link AuditEvent}.
@@ -44,9 +45,26 @@ public interface AuditLogger extends SignServiceHandler {
    */
   default void auditLog(@Nonnull final String eventId, @Nonnull final Function<AuditEventBuilder, AuditEvent> build)
       throws AuditLoggerException {
+    if (!this.isEnabled(eventId)) {
+      return;
+    }
     this.auditLog(build.apply(this.getAuditEventBuilder(eventId)));
   }
 
+  /**
+   * Tells whether events with the given event ID will be logged by this logger. Callers that need to do costly work
+   * to create an event may use this method to avoid doing that work for events that will not be logged.
+   * <p>
+   * The default implementation returns {@code true}.
+   * </p>
+   *
+   * @param eventId the event ID
+   * @return true if events with the given ID are logged, and false otherwise
+   */
+  default boolean isEnabled(@Nonnull final String eventId) {
+    return true;
+  }
+
   /**
    * Creates an event that may be assigned parameters.
    *
@@ -17,10 +17,15 @@ package se.swedenconnect.signservice.authn;
 
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.signservice.core.attribute.IdentityAttribute;
+import se.swedenconnect.signservice.core.attribute.IdentityAttributeIndex;
 
 /**
  * Represents an identity assertion.
@@ -83,6 +88,25 @@ public interface IdentityAssertion extends Serializable {
   @Nonnull
   List<IdentityAttribute<?>> getIdentityAttributes();
 
+  /**
+   * Gets the identity attribute having the given identifier. If several attributes have the same identifier, the first
+   * one is returned.
+   * <p>
+   * The default implementation searches the list given by {@link #getIdentityAttributes()}. Implementations should
+   * override this method with a constant time lookup, see {@link IdentityAttributeIndex}.
+   * </p>
+   *
+   * @param identifier the attribute identifier
+   * @return the attribute, or null if the assertion does not contain the attribute
+   */
+  @Nullable
+  default IdentityAttribute<?> getIdentityAttribute(@Nonnull final String identifier) {
+    return Optional.ofNullable(this.getIdentityAttributes()).orElseGet(Collections::emptyList).stream()
+        .filter(a -> Objects.equals(a.getIdentifier(), identifier))
+        .findFirst()
+        .orElse(null);
+  }
+
   /**
    * Gets the encoding of the assertion.
    *
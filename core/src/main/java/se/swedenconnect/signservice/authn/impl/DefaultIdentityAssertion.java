@@ -22,10 +22,12 @@ import java.util.List;
 import java.util.Objects;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.signservice.authn.AuthnContextIdentifier;
 import se.swedenconnect.signservice.authn.IdentityAssertion;
 import se.swedenconnect.signservice.core.annotations.GeneratedMethod;
 import se.swedenconnect.signservice.core.attribute.IdentityAttribute;
+import se.swedenconnect.signservice.core.attribute.IdentityAttributeIndex;
 
 /**
  * Default implementation of the {@link IdentityAssertion} interface.
@@ -59,7 +61,8 @@ public class DefaultIdentityAssertion implements IdentityAssertion {
   /** The encoded assertion. */
   private byte[] encodedAssertion;
 
-
+  /** Index of the identity attributes (built when first needed). */
+  private transient volatile IdentityAttributeIndex attributeIndex;
 
   /** {@inheritDoc} */
   @Override
@@ -173,6 +176,19 @@ public class DefaultIdentityAssertion implements IdentityAssertion {
     this.identityAttributes = identityAttributes != null
         ? Collections.unmodifiableList(identityAttributes)
         : null;
+    this.attributeIndex = null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public IdentityAttribute<?> getIdentityAttribute(@Nonnull final String identifier) {
+    IdentityAttributeIndex index = this.attributeIndex;
+    if (index == null) {
+      index = IdentityAttributeIndex.of(this.identityAttributes);
+      this.attributeIndex = index;
+    }
+    return index.get(identifier);
   }
 
   /** {@inheritDoc} */
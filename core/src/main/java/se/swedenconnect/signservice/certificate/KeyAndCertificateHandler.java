@@ -19,6 +19,7 @@ import java.security.KeyException;
 import java.security.cert.CertificateException;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.signservice.authn.IdentityAssertion;
 import se.swedenconnect.signservice.context.SignServiceContext;
@@ -57,4 +58,55 @@ public interface KeyAndCertificateHandler extends SignServiceHandler {
       @Nonnull final SignRequestMessage signRequest, @Nonnull final IdentityAssertion assertion,
       @Nonnull final SignServiceContext context) throws KeyException, CertificateException;
 
+  /**
+   * Generates the signing key pair for the supplied SignRequest without issuing any certificate. The method is intended
+   * to be invoked before the user authentication has been completed so that the key generation may be performed while
+   * the user is authenticating. The returned credential is later passed to
+   * {@link #generateSigningCredential(SignRequestMessage, IdentityAssertion, PkiCredential, SignServiceContext)}.
+   * <p>
+   * The method may be invoked from a background thread, and implementations must therefore not update the supplied
+   * context.
+   * </p>
+   * <p>
+   * The default implementation returns {@code null}, meaning that the handler does not support key generation ahead of
+   * certificate issuance.
+   * </p>
+   *
+   * @param signRequest the SignRequest
+   * @param context the SignService context
+   * @return the generated key pair (without certificate), or null if not supported by the handler
+   * @throws KeyException for key generation errors
+   * @throws CertificateException if the generated key pair can not be obtained from the key provider
+   */
+  @Nullable
+  default PkiCredential generateSigningKey(
+      @Nonnull final SignRequestMessage signRequest, @Nonnull final SignServiceContext context)
+      throws KeyException, CertificateException {
+    return null;
+  }
+
+  /**
+   * Issues a signing certificate for a key pair that has been generated by a previous call to
+   * {@link #generateSigningKey(SignRequestMessage, SignServiceContext)}.
+   * <p>
+   * The default implementation ignores the supplied key and invokes
+   * {@link #generateSigningCredential(SignRequestMessage, IdentityAssertion, SignServiceContext)}.
+   * </p>
+   *
+   * @param signRequest the SignRequest
+   * @param assertion the identity assertion (from the user authentication phase)
+   * @param signingKey the key pair that was generated before the user authentication was completed
+   * @param context the SignService context
+   * @return the supplied private key and the signing certificate packaged in a {@link PkiCredential}
+   * @throws KeyException for key errors
+   * @throws CertificateException for certificate issuance errors
+   */
+  @Nonnull
+  default PkiCredential generateSigningCredential(
+      @Nonnull final SignRequestMessage signRequest, @Nonnull final IdentityAssertion assertion,
+      @Nonnull final PkiCredential signingKey, @Nonnull final SignServiceContext context)
+      throws KeyException, CertificateException {
+    return this.generateSigningCredential(signRequest, assertion, context);
+  }
+
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.attribute;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * An index over a list of identity attributes, keyed by attribute identifier, for constant time attribute lookups.
+ * <p>
+ * If the list contains several attributes with the same identifier, the first one is indexed (i.e., the same attribute
+ * that a linear search would find). Instances of this class are immutable.
+ * </p>
+ */
+public final class IdentityAttributeIndex {
+
+  /** An empty index. */
+  private static final IdentityAttributeIndex EMPTY = new IdentityAttributeIndex(Collections.emptyMap());
+
+  /** The attributes, keyed by their identifiers. */
+  private final Map<String, IdentityAttribute<?>> attributes;
+
+  /**
+   * Constructor.
+   *
+   * @param attributes the indexed attributes
+   */
+  private IdentityAttributeIndex(@Nonnull final Map<String, IdentityAttribute<?>> attributes) {
+    this.attributes = attributes;
+  }
+
+  /**
+   * Creates an index over the supplied attributes.
+   *
+   * @param attributes the attributes to index (may be null)
+   * @return an index
+   */
+  @Nonnull
+  public static IdentityAttributeIndex of(@Nullable final List<? extends IdentityAttribute<?>> attributes) {
+    if (attributes == null || attributes.isEmpty()) {
+      return EMPTY;
+    }
+    final Map<String, IdentityAttribute<?>> map = new HashMap<>(Math.max(16, attributes.size() * 2));
+    for (final IdentityAttribute<?> attribute : attributes) {
+      if (attribute != null && attribute.getIdentifier() != null) {
+        map.putIfAbsent(attribute.getIdentifier(), attribute);
+      }
+    }
+    return new IdentityAttributeIndex(map);
+  }
+
+  /**
+   * Gets the attribute having the given identifier.
+   *
+   * @param identifier the attribute identifier
+   * @return the attribute, or null if no such attribute exists
+   */
+  @Nullable
+  public IdentityAttribute<?> get(@Nullable final String identifier) {
+    return identifier != null ? this.attributes.get(identifier) : null;
+  }
+
+  /**
+   * Tells whether the index contains an attribute with the given identifier.
+   *
+   * @param identifier the attribute identifier
+   * @return true if the attribute exists, and false otherwise
+   */
+  public boolean contains(@Nullable final String identifier) {
+    return identifier != null && this.attributes.containsKey(identifier);
+  }
+
+  /**
+   * Gets the number of indexed attributes.
+   *
+   * @return the number of indexed attributes
+   */
+  public int size() {
+    return this.attributes.size();
+  }
+
+}
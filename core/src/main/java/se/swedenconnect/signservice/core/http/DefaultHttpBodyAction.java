@@ -35,6 +35,9 @@ public class DefaultHttpBodyAction implements HttpBodyAction {
   /** The response headers. */
   private Map<String, String> headers = new HashMap<>();
 
+  /** The HTTP status code. */
+  private int status = 200;
+
   /**
    * Constructor.
    */
@@ -103,6 +106,24 @@ public class DefaultHttpBodyAction implements HttpBodyAction {
     this.headers.remove(Objects.requireNonNull(name, "name must not be null"));
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public int getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Assigns the HTTP status code. Only 200 (the default) and 304 (Not Modified) are accepted.
+   *
+   * @param status the HTTP status code
+   */
+  public void setStatus(final int status) {
+    if (status != 200 && status != 304) {
+      throw new IllegalArgumentException("Unsupported status code: " + status);
+    }
+    this.status = status;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
@@ -152,6 +173,17 @@ public class DefaultHttpBodyAction implements HttpBodyAction {
       return this;
     }
 
+    /**
+     * Assigns the HTTP status code (200 or 304).
+     *
+     * @param status the HTTP status code
+     * @return the builder
+     */
+    public HttpBodyActionBuilder status(final int status) {
+      this.bodyAction.setStatus(status);
+      return this;
+    }
+
   }
 
 }
@@ -139,7 +139,11 @@ public class DefaultHttpUserRequest implements HttpUserRequest {
   @Nullable
   public String getHeader(@Nonnull final String name) {
     return Optional.ofNullable(this.headers)
-        .map(h -> h.get(name))
+        .map(h -> Optional.ofNullable(h.get(name)).orElseGet(() -> h.entrySet().stream()
+            .filter(e -> name.equalsIgnoreCase(e.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(null)))
         .filter(a -> a.length > 0)
         .map(a -> a[0])
         .orElse(null);
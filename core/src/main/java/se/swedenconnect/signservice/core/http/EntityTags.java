@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.http;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Utility methods for HTTP entity tags, used by {@link HttpResourceProvider} implementations that support conditional
+ * requests.
+ */
+public class EntityTags {
+
+  /**
+   * Calculates a strong entity tag (a quoted hex string) for the supplied encoding.
+   *
+   * @param encoding the encoding of the resource
+   * @return an entity tag (including quotes)
+   */
+  @Nonnull
+  public static String calculate(@Nonnull final byte[] encoding) {
+    Objects.requireNonNull(encoding, "encoding must not be null");
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(encoding);
+      return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new SecurityException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * Tells whether the value of an If-None-Match header matches the supplied entity tag, i.e., whether the client
+   * already has the current version of the resource. Weak comparison is used, as required for If-None-Match.
+   *
+   * @param etag the entity tag of the current resource (including quotes)
+   * @param ifNoneMatch the If-None-Match header value (may be null)
+   * @return true if the header matches and false otherwise
+   */
+  public static boolean matches(@Nonnull final String etag, @Nullable final String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (final String tag : ifNoneMatch.split(",")) {
+      final String t = tag.trim();
+      if ("*".equals(t) || etag.equals(t.startsWith("W/") ? t.substring(2) : t)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Hidden constructor
+  private EntityTags() {
+  }
+
+}
@@ -25,7 +25,8 @@ import jakarta.annotation.Nonnull;
  * The {@code HttpBodyAction} is used when a SignService handler processes a request and wants to write a response body
  * (that is later written to the HTTP response).
  * <p>
- * Note: This action is only used for successful HTTP Status (200) responses.
+ * Note: This action is only used for successful HTTP Status (200) responses, and for 304 (Not Modified) responses to
+ * conditional requests (see {@link #getStatus()}).
  * </p>
  */
 @JsonDeserialize(as = DefaultHttpBodyAction.class)
@@ -47,4 +48,14 @@ public interface HttpBodyAction {
   @Nonnull
   Map<String, String> getHeaders();
 
+  /**
+   * Gets the HTTP status code to use for the response. This is 200 unless a handler answers a conditional request with
+   * 304 (Not Modified), in which case the contents is empty.
+   *
+   * @return the HTTP status code
+   */
+  default int getStatus() {
+    return 200;
+  }
+
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.http;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Tells which headers and parameters of an incoming HTTP request that should be included when the request is mapped
+ * to a {@link HttpUserRequest}. In a frontend/backend deployment the filter makes sure that only data that is used by
+ * the SignService engine is passed to the backend, instead of every header and parameter (including cookies) of the
+ * browser request.
+ * <p>
+ * Header names are compared case insensitively, and parameter names case sensitively.
+ * </p>
+ */
+public class HttpUserRequestFilter {
+
+  /** The headers that the SignService handlers read. */
+  public static final List<String> DEFAULT_HEADERS = List.of("Accept", "If-None-Match");
+
+  /** The parameters that the SignService handlers read (DSS sign request and SAML response binding parameters). */
+  public static final List<String> DEFAULT_PARAMETERS =
+      List.of("Binding", "RelayState", "EidSignRequest", "SAMLResponse");
+
+  /** A filter including the {@link #DEFAULT_HEADERS} and {@link #DEFAULT_PARAMETERS}. */
+  public static final HttpUserRequestFilter DEFAULT = new HttpUserRequestFilter(DEFAULT_HEADERS, DEFAULT_PARAMETERS);
+
+  /** The names of the headers to include (null means all). */
+  private final Set<String> headers;
+
+  /** The names of the parameters to include (null means all). */
+  private final Set<String> parameters;
+
+  /**
+   * Constructor.
+   *
+   * @param headers the names of the headers to include (null means that all headers are included)
+   * @param parameters the names of the parameters to include (null means that all parameters are included)
+   */
+  public HttpUserRequestFilter(@Nullable final List<String> headers, @Nullable final List<String> parameters) {
+    if (headers != null) {
+      final Set<String> h = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+      h.addAll(headers);
+      this.headers = Collections.unmodifiableSet(h);
+    }
+    else {
+      this.headers = null;
+    }
+    this.parameters = parameters != null ? Collections.unmodifiableSet(new TreeSet<>(parameters)) : null;
+  }
+
+  /**
+   * Gets the names of the headers to include.
+   *
+   * @return the header names, or null if all headers should be included
+   */
+  @Nullable
+  public Set<String> getHeaders() {
+    return this.headers;
+  }
+
+  /**
+   * Gets the names of the parameters to include.
+   *
+   * @return the parameter names, or null if all parameters should be included
+   */
+  @Nullable
+  public Set<String> getParameters() {
+    return this.parameters;
+  }
+
+  /**
+   * Tells whether the given header should be included.
+   *
+   * @param name the header name
+   * @return true if the header should be included and false otherwise
+   */
+  public boolean isHeaderIncluded(@Nonnull final String name) {
+    return this.headers == null || this.headers.contains(name);
+  }
+
+  /**
+   * Tells whether the given parameter should be included.
+   *
+   * @param name the parameter name
+   * @return true if the parameter should be included and false otherwise
+   */
+  public boolean isParameterIncluded(@Nonnull final String name) {
+    return this.parameters == null || this.parameters.contains(name);
+  }
+
+}
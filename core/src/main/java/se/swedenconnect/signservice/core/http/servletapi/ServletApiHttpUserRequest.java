@@ -16,34 +16,63 @@
 package se.swedenconnect.signservice.core.http.servletapi;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import se.swedenconnect.signservice.core.http.HttpUserRequest;
+import se.swedenconnect.signservice.core.http.HttpUserRequestFilter;
 
 /**
  * An implementation that wraps a {@link HttpServletRequest} as a {@link HttpUserRequest}.
  * <p>
- * Note: This class can not be used in a frontend/backend deployment where the frontend communicates with the backend
- * over a REST API since it wraps a {@link HttpServletRequest}.
+ * The header and parameter maps are not created until they are requested. If the object is created with a
+ * {@link HttpUserRequestFilter}, only the headers and parameters included by the filter are visible. This is how the
+ * object should be created when it is serialized and passed from a frontend to a backend, so that only the data that
+ * the SignService engine uses is copied and serialized.
  * </p>
  */
+@JsonInclude(Include.NON_EMPTY)
 public class ServletApiHttpUserRequest implements HttpUserRequest {
 
   /** The wrapped HttpServletRequest. */
   private final HttpServletRequest request;
 
+  /** The filter telling which headers and parameters to include (null means all). */
+  private final HttpUserRequestFilter filter;
+
+  /** The parameters (created on first access). */
+  private Map<String, String[]> parameters;
+
+  /** The headers (created on first access). */
+  private Map<String, String[]> headers;
+
   /**
    * Constructor.
    *
    * @param request the wrapped HttpServletRequest object
    */
   public ServletApiHttpUserRequest(@Nonnull final HttpServletRequest request) {
+    this(request, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param request the wrapped HttpServletRequest object
+   * @param filter the filter telling which headers and parameters to include (null means all)
+   */
+  public ServletApiHttpUserRequest(
+      @Nonnull final HttpServletRequest request, @Nullable final HttpUserRequestFilter filter) {
     this.request = Objects.requireNonNull(request, "request must not be null");
+    this.filter = filter;
   }
 
   /** {@inheritDoc} */
@@ -95,6 +124,9 @@ public class ServletApiHttpUserRequest implements HttpUserRequest {
   @Override
   @Nullable
   public String getParameter(@Nonnull final String name) {
+    if (this.filter != null && !this.filter.isParameterIncluded(name)) {
+      return null;
+    }
     return this.request.getParameter(name);
   }
 
@@ -102,13 +134,31 @@ public class ServletApiHttpUserRequest implements HttpUserRequest {
   @Override
   @Nonnull
   public Map<String, String[]> getParameters() {
-    return this.request.getParameterMap();
+    if (this.parameters == null) {
+      if (this.filter == null || this.filter.getParameters() == null) {
+        this.parameters = this.request.getParameterMap();
+      }
+      else {
+        final Map<String, String[]> p = new LinkedHashMap<>();
+        for (final String name : this.filter.getParameters()) {
+          final String[] values = this.request.getParameterValues(name);
+          if (values != null) {
+            p.put(name, values);
+          }
+        }
+        this.parameters = Collections.unmodifiableMap(p);
+      }
+    }
+    return this.parameters;
   }
 
   /** {@inheritDoc} */
   @Override
   @Nullable
   public String getHeader(@Nonnull final String name) {
+    if (this.filter != null && !this.filter.isHeaderIncluded(name)) {
+      return null;
+    }
     return this.request.getHeader(name);
   }
 
@@ -116,9 +166,24 @@ public class ServletApiHttpUserRequest implements HttpUserRequest {
   @Override
   @Nonnull
   public Map<String, String[]> getHeaders() {
-    return Collections.list(this.request.getHeaderNames()).stream()
-        .map(n -> Map.entry(n, Collections.list(this.request.getHeaders(n)).toArray(String[]::new)))
-        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    if (this.headers == null) {
+      if (this.filter == null || this.filter.getHeaders() == null) {
+        this.headers = Collections.list(this.request.getHeaderNames()).stream()
+            .map(n -> Map.entry(n, Collections.list(this.request.getHeaders(n)).toArray(String[]::new)))
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+      }
+      else {
+        final Map<String, String[]> h = new LinkedHashMap<>();
+        for (final String name : this.filter.getHeaders()) {
+          final String[] values = Collections.list(this.request.getHeaders(name)).toArray(String[]::new);
+          if (values.length > 0) {
+            h.put(name, values);
+          }
+        }
+        this.headers = Collections.unmodifiableMap(h);
+      }
+    }
+    return this.headers;
   }
 
 }
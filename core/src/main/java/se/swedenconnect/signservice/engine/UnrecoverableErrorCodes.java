@@ -55,6 +55,9 @@ public class UnrecoverableErrorCodes {
   /** Represents an state error. */
   public static final String STATE_ERROR = ERROR_PREFIX + "state-error";
 
+  /** The SignService is overloaded and could not accept the request. */
+  public static final String SERVICE_UNAVAILABLE = ERROR_PREFIX + "service-unavailable";
+
   /** Represents an internal SignService error. */
   public static final String INTERNAL_ERROR = ERROR_PREFIX + "internal-error";
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.application.rest;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.swedenconnect.signservice.core.http.DefaultHttpBodyAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpPostAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpRedirectAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpResponseAction;
+import se.swedenconnect.signservice.core.http.DefaultHttpUserRequest;
+import se.swedenconnect.signservice.core.http.HttpBodyAction;
+import se.swedenconnect.signservice.core.http.HttpPostAction;
+import se.swedenconnect.signservice.core.http.HttpUserRequest;
+
+/**
+ * Test cases for RestProcessRequestCodec.
+ */
+public class RestProcessRequestCodecTest {
+
+  private static final String CONTEXT = base64(3000);
+
+  private static final String SIGN_REQUEST = base64(6000);
+
+  @Test
+  public void testInput() throws Exception {
+    final RestProcessRequestInput input = new RestProcessRequestInput(CONTEXT, createUserRequest());
+    final RestProcessRequestInput input2 = RestProcessRequestInput.fromBinary(input.toBinary());
+
+    Assertions.assertEquals(CONTEXT, input2.getContext());
+    final HttpUserRequest request = input2.getUserRequest();
+    Assertions.assertEquals("POST", request.getMethod());
+    Assertions.assertEquals("https://www.example.com/ctx/sign/request", request.getRequestUrl());
+    Assertions.assertEquals("https://www.example.com/ctx", request.getServerBaseUrl());
+    Assertions.assertEquals("/sign/request", request.getServerServletPath());
+    Assertions.assertEquals("127.0.0.1", request.getClientIpAddress());
+    Assertions.assertEquals(SIGN_REQUEST, request.getParameter("EidSignRequest"));
+    Assertions.assertEquals("abc", request.getParameter("RelayState"));
+    Assertions.assertArrayEquals(new String[] { "a", "ö" }, request.getParameters().get("multi"));
+    Assertions.assertEquals("text/html", request.getHeader("Accept"));
+
+    // No context and no parameters
+    final DefaultHttpUserRequest request2 = new DefaultHttpUserRequest();
+    request2.setMethod("GET");
+    final RestProcessRequestInput input3 =
+        RestProcessRequestInput.fromBinary(new RestProcessRequestInput(null, request2).toBinary());
+    Assertions.assertNull(input3.getContext());
+    Assertions.assertEquals("GET", input3.getUserRequest().getMethod());
+    Assertions.assertNull(input3.getUserRequest().getRequestUrl());
+    Assertions.assertTrue(input3.getUserRequest().getParameters().isEmpty());
+  }
+
+  @Test
+  public void testNonCanonicalBase64() throws Exception {
+    // Values that look like Base64, but would not survive a decode/encode round trip, are kept as strings
+    final String noPadding = SIGN_REQUEST.substring(0, SIGN_REQUEST.length() - 4) + "QUJD";
+    final String lineBreaks = SIGN_REQUEST.substring(0, 76) + "\r\n" + SIGN_REQUEST.substring(76);
+    final String text = "x".repeat(100);
+
+    for (final String value : new String[] { noPadding, lineBreaks, text, "" }) {
+      final RestProcessRequestInput input = new RestProcessRequestInput(value, new DefaultHttpUserRequest());
+      Assertions.assertEquals(value, RestProcessRequestInput.fromBinary(input.toBinary()).getContext());
+    }
+  }
+
+  @Test
+  public void testRedirectResult() throws Exception {
+    final RestProcessRequestResult result = new RestProcessRequestResult();
+    result.setContext(CONTEXT);
+    result.setResponseAction(new DefaultHttpResponseAction(
+        new DefaultHttpRedirectAction("https://idp.example.com/sso?SAMLRequest=abc")));
+
+    final RestProcessRequestResult result2 = RestProcessRequestResult.fromBinary(result.toBinary());
+    Assertions.assertEquals(CONTEXT, result2.getContext());
+    Assertions.assertEquals("https://idp.example.com/sso?SAMLRequest=abc",
+        result2.getResponseAction().getRedirect().getUrl());
+    Assertions.assertNull(result2.getResponseAction().getPost());
+  }
+
+  @Test
+  public void testPostResult() throws Exception {
+    final RestProcessRequestResult result = createPostResult();
+    final RestProcessRequestResult result2 = RestProcessRequestResult.fromBinary(result.toBinary());
+    Assertions.assertNull(result2.getContext());
+    final HttpPostAction post = result2.getResponseAction().getPost();
+    Assertions.assertEquals("https://sp.example.com/sign/response", post.getUrl());
+    Assertions.assertEquals(Map.of("EidSignResponse", SIGN_REQUEST, "RelayState", "abc", "Binding", "POST/XML/1.0"),
+        post.getParameters());
+  }
+
+  @Test
+  public void testBodyResult() throws Exception {
+    final byte[] contents = "<md:EntityDescriptor/>".getBytes(StandardCharsets.UTF_8);
+    final RestProcessRequestResult result = new RestProcessRequestResult();
+    result.setResponseAction(new DefaultHttpResponseAction(DefaultHttpBodyAction.builder()
+        .contents(contents)
+        .header("Content-Type", "application/samlmetadata+xml")
+        .header("ETag", "\"123\"")
+        .build()));
+
+    final HttpBodyAction body =
+        RestProcessRequestResult.fromBinary(result.toBinary()).getResponseAction().getBody();
+    Assertions.assertEquals(200, body.getStatus());
+    Assertions.assertArrayEquals(contents, body.getContents());
+    Assertions.assertEquals(Map.of("Content-Type", "application/samlmetadata+xml", "ETag", "\"123\""),
+        body.getHeaders());
+
+    final RestProcessRequestResult notModified = new RestProcessRequestResult();
+    notModified.setResponseAction(new DefaultHttpResponseAction(DefaultHttpBodyAction.builder()
+        .contents(new byte[0])
+        .status(304)
+        .build()));
+    Assertions.assertEquals(304,
+        RestProcessRequestResult.fromBinary(notModified.toBinary()).getResponseAction().getBody().getStatus());
+  }
+
+  @Test
+  public void testInvalidEncoding() {
+    final byte[] input = new RestProcessRequestInput(CONTEXT, createUserRequest()).toBinary();
+
+    assertThatThrownBy(() -> RestProcessRequestResult.fromBinary(input))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unexpected encoding type");
+    assertThatThrownBy(() -> RestProcessRequestInput.fromBinary("{\"context\":null}".getBytes()))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Not a binary process request encoding");
+    assertThatThrownBy(() -> RestProcessRequestInput.fromBinary(Arrays.copyOf(input, input.length / 2)))
+        .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> RestProcessRequestInput.fromBinary(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("encoding must not be null");
+  }
+
+  @Test
+  public void testEncodingSize() throws Exception {
+    final ObjectMapper objectMapper = new ObjectMapper();
+    final RestProcessRequestInput input = new RestProcessRequestInput(CONTEXT, createUserRequest());
+    final RestProcessRequestResult result = createPostResult();
+    result.setContext(CONTEXT);
+
+    // The binary encoding is more compact than the JSON encoding
+    Assertions.assertTrue(input.toBinary().length < objectMapper.writeValueAsBytes(input).length);
+    Assertions.assertTrue(result.toBinary().length < objectMapper.writeValueAsBytes(result).length);
+  }
+
+  private static HttpUserRequest createUserRequest() {
+    final DefaultHttpUserRequest request = new DefaultHttpUserRequest();
+    request.setMethod("POST");
+    request.setRequestUrl("https://www.example.com/ctx/sign/request");
+    request.setServerBaseUrl("https://www.example.com/ctx");
+    request.setServerServletPath("/sign/request");
+    request.setClientIpAddress("127.0.0.1");
+    request.setParameters(Map.of(
+        "EidSignRequest", new String[] { SIGN_REQUEST },
+        "RelayState", new String[] { "abc" },
+        "Binding", new String[] { "POST/XML/1.0" },
+        "multi", new String[] { "a", "ö" }));
+    request.setHeaders(Map.of("Accept", new String[] { "text/html" }));
+    return request;
+  }
+
+  private static RestProcessRequestResult createPostResult() {
+    final RestProcessRequestResult result = new RestProcessRequestResult();
+    result.setResponseAction(new DefaultHttpResponseAction(DefaultHttpPostAction.builder()
+        .url("https://sp.example.com/sign/response")
+        .parameter("EidSignResponse", SIGN_REQUEST)
+        .parameter("RelayState", "abc")
+        .parameter("Binding", "POST/XML/1.0")
+        .build()));
+    return result;
+  }
+
+  private static String base64(final int size) {
+    final byte[] bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    return Base64.getEncoder().encodeToString(bytes);
+  }
+
+}
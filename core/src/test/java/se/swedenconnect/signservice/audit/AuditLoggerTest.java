@@ -24,6 +24,7 @@ import org.junit.jupiter.api.Test;
 
 import jakarta.annotation.Nonnull;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Test cases for AuditLogger
@@ -40,11 +41,31 @@ public class AuditLoggerTest {
 
   }
 
+  @Test
+  public void testDisabledEvent() {
+    final TestAuditLogger logger = new TestAuditLogger();
+    logger.setDisabledEventId("DISABLED");
+
+    logger.auditLog("DISABLED", (b) -> {
+      throw new IllegalStateException("Builder should not be invoked for disabled events");
+    });
+    Assertions.assertTrue(logger.getEvents().isEmpty());
+    Assertions.assertTrue(logger.isEnabled("ID"));
+  }
+
   private static class TestAuditLogger implements AuditLogger {
 
     @Getter
     private List<AuditEvent> events = new ArrayList<>();
 
+    @Setter
+    private String disabledEventId;
+
+    @Override
+    public boolean isEnabled(@Nonnull final String eventId) {
+      return !eventId.equals(this.disabledEventId);
+    }
+
     @Override
     @Nonnull
     public String getName() {
@@ -64,4 +64,25 @@ public class DefaultIdentityAssertionTest {
     Assertions.assertNotNull(a.toString());
   }
 
+  @Test
+  public void testGetIdentityAttribute() {
+    final DefaultIdentityAssertion a = new DefaultIdentityAssertion();
+    Assertions.assertNull(a.getIdentityAttribute("id"));
+
+    final IdentityAttribute<?> first = new StringSamlIdentityAttribute("id", "friendly", "value");
+    a.setIdentityAttributes(Arrays.asList(
+        first,
+        new StringSamlIdentityAttribute("id2", "friendly2", "value2"),
+        new StringSamlIdentityAttribute("id", "friendly", "other")));
+
+    Assertions.assertSame(first, a.getIdentityAttribute("id"));
+    Assertions.assertEquals("value2", a.getIdentityAttribute("id2").getValue());
+    Assertions.assertNull(a.getIdentityAttribute("id3"));
+
+    // The index is rebuilt when the attributes are changed
+    a.setIdentityAttributes(List.of(new StringSamlIdentityAttribute("id3", "friendly3", "value3")));
+    Assertions.assertNull(a.getIdentityAttribute("id"));
+    Assertions.assertNotNull(a.getIdentityAttribute("id3"));
+  }
+
 }
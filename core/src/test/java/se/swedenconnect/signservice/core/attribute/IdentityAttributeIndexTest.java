@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.attribute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.core.attribute.saml.impl.StringSamlIdentityAttribute;
+
+/**
+ * Test cases for IdentityAttributeIndex.
+ */
+public class IdentityAttributeIndexTest {
+
+  /** Attributes typically released by an eIDAS connector (natural person, including optional attributes). */
+  private static final List<IdentityAttribute<?>> EIDAS_ATTRIBUTES = List.of(
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.7", "prid", "NO:05068907693"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.4", "pridPersistence", "A"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.13", "personalIdentityNumberBinding", "urn:x"),
+      new StringSamlIdentityAttribute("urn:oid:1.3.6.1.5.5.7.9.4", "countryOfCitizenship", "NO"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.10", "eidasPersonIdentifier", "NO/SE/05068907693"),
+      new StringSamlIdentityAttribute("urn:oid:2.5.4.4", "sn", "Eriksen"),
+      new StringSamlIdentityAttribute("urn:oid:2.5.4.42", "givenName", "Kari"),
+      new StringSamlIdentityAttribute("urn:oid:1.3.6.1.5.5.7.9.1", "dateOfBirth", "1989-06-05"),
+      new StringSamlIdentityAttribute("urn:oid:2.16.840.1.113730.3.1.241", "displayName", "Kari Eriksen"),
+      new StringSamlIdentityAttribute("urn:oid:1.3.6.1.5.5.7.9.2", "placeOfBirth", "Oslo"),
+      new StringSamlIdentityAttribute("urn:oid:1.3.6.1.5.5.7.9.3", "gender", "F"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.11", "birthName", "Kari Hansen"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.12", "eidasNaturalPersonAddress", "Oslo"),
+      new StringSamlIdentityAttribute("urn:oid:2.5.4.6", "c", "NO"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.1", "orgAffiliation", "x@y"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.2", "transactionIdentifier", "0123456789"),
+      new StringSamlIdentityAttribute("urn:oid:1.2.752.201.3.6", "authServerSignature", "xyz"));
+
+  @Test
+  public void testIndex() {
+    final IdentityAttributeIndex index = IdentityAttributeIndex.of(EIDAS_ATTRIBUTES);
+    Assertions.assertEquals(EIDAS_ATTRIBUTES.size(), index.size());
+    Assertions.assertSame(EIDAS_ATTRIBUTES.get(5), index.get("urn:oid:2.5.4.4"));
+    Assertions.assertTrue(index.contains("urn:oid:2.5.4.42"));
+    Assertions.assertNull(index.get("urn:oid:1.2.752.29.4.13"));
+    Assertions.assertFalse(index.contains(null));
+    Assertions.assertNull(index.get(null));
+  }
+
+  @Test
+  public void testEmpty() {
+    Assertions.assertEquals(0, IdentityAttributeIndex.of(null).size());
+    Assertions.assertEquals(0, IdentityAttributeIndex.of(List.of()).size());
+    Assertions.assertNull(IdentityAttributeIndex.of(null).get("id"));
+  }
+
+  @Test
+  public void testFirstWins() {
+    final IdentityAttribute<?> first = new StringSamlIdentityAttribute("id", null, "1");
+    final IdentityAttributeIndex index = IdentityAttributeIndex.of(List.of(
+        first, new StringSamlIdentityAttribute("id", null, "2")));
+    Assertions.assertEquals(1, index.size());
+    Assertions.assertSame(first, index.get("id"));
+  }
+
+  /**
+   * Lookups of attribute mappings (each listing a few alternative source attributes, where the last one often matches)
+   * give the same result as linear lookups.
+   */
+  @Test
+  public void testSameAsLinearLookup() {
+    final List<List<String>> mappings = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      final String issued = EIDAS_ATTRIBUTES.get(i % EIDAS_ATTRIBUTES.size()).getIdentifier();
+      mappings.add(List.of("urn:oid:1.2.752.29.4.13", "urn:oid:1.2.752.201.3.3", "urn:oid:0.9.2342.19200300.100.1.3",
+          issued));
+    }
+    mappings.add(List.of("urn:oid:1.2.752.29.4.13"));
+    Assertions.assertEquals(64, this.linear(mappings));
+    Assertions.assertEquals(this.linear(mappings), this.indexed(mappings));
+  }
+
+  private int linear(final List<List<String>> mappings) {
+    int found = 0;
+    for (final List<String> sources : mappings) {
+      for (final String source : sources) {
+        if (EIDAS_ATTRIBUTES.stream().anyMatch(a -> Objects.equals(a.getIdentifier(), source))) {
+          found++;
+          break;
+        }
+      }
+    }
+    return found;
+  }
+
+  private int indexed(final List<List<String>> mappings) {
+    final IdentityAttributeIndex index = IdentityAttributeIndex.of(EIDAS_ATTRIBUTES);
+    int found = 0;
+    for (final List<String> sources : mappings) {
+      for (final String source : sources) {
+        if (index.contains(source)) {
+          found++;
+          break;
+        }
+      }
+    }
+    return found;
+  }
+
+}
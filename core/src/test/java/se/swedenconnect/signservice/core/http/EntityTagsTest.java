@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.http;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for EntityTags.
+ */
+public class EntityTagsTest {
+
+  @Test
+  public void testCalculate() {
+    final String etag = EntityTags.calculate("resource".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    Assertions.assertEquals(34, etag.length());
+    Assertions.assertEquals(etag, EntityTags.calculate("resource".getBytes(StandardCharsets.UTF_8)));
+    Assertions.assertNotEquals(etag, EntityTags.calculate("other".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testMatches() {
+    final String etag = "\"abc\"";
+    Assertions.assertFalse(EntityTags.matches(etag, null));
+    Assertions.assertTrue(EntityTags.matches(etag, "\"abc\""));
+    Assertions.assertTrue(EntityTags.matches(etag, "\"other\", W/\"abc\""));
+    Assertions.assertTrue(EntityTags.matches(etag, "*"));
+    Assertions.assertFalse(EntityTags.matches(etag, "\"other\""));
+  }
+
+}
@@ -84,6 +84,26 @@ public class HttpBodyActionTest {
 
     Assertions.assertArrayEquals(action.getContents(), action2.getContents());
     Assertions.assertEquals(action.getHeaders(), action2.getHeaders());
+    Assertions.assertEquals(200, action2.getStatus());
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    final HttpBodyAction action = DefaultHttpBodyAction.builder()
+        .contents(new byte[0])
+        .header("ETag", "\"abc\"")
+        .status(304)
+        .build();
+    Assertions.assertEquals(304, action.getStatus());
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+    final HttpBodyAction action2 =
+        objectMapper.readValue(objectMapper.writeValueAsString(action), HttpBodyAction.class);
+    Assertions.assertEquals(304, action2.getStatus());
+    Assertions.assertEquals(0, action2.getContents().length);
+
+    assertThatThrownBy(() -> DefaultHttpBodyAction.builder().status(500))
+        .isInstanceOf(IllegalArgumentException.class);
   }
 
 }
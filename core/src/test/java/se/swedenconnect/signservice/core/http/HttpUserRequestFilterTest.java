@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.core.http;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test cases for HttpUserRequestFilter.
+ */
+public class HttpUserRequestFilterTest {
+
+  @Test
+  public void testDefault() {
+    final HttpUserRequestFilter filter = HttpUserRequestFilter.DEFAULT;
+    Assertions.assertTrue(filter.isHeaderIncluded("Accept"));
+    Assertions.assertTrue(filter.isHeaderIncluded("if-none-match"));
+    Assertions.assertFalse(filter.isHeaderIncluded("Cookie"));
+    Assertions.assertTrue(filter.isParameterIncluded("EidSignRequest"));
+    Assertions.assertFalse(filter.isParameterIncluded("eidsignrequest"));
+  }
+
+  @Test
+  public void testIncludeAll() {
+    final HttpUserRequestFilter filter = new HttpUserRequestFilter(null, null);
+    Assertions.assertNull(filter.getHeaders());
+    Assertions.assertNull(filter.getParameters());
+    Assertions.assertTrue(filter.isHeaderIncluded("Cookie"));
+    Assertions.assertTrue(filter.isParameterIncluded("any"));
+  }
+
+  @Test
+  public void testCustom() {
+    final HttpUserRequestFilter filter = new HttpUserRequestFilter(List.of("X-Custom"), List.of());
+    Assertions.assertTrue(filter.isHeaderIncluded("x-custom"));
+    Assertions.assertFalse(filter.isHeaderIncluded("Accept"));
+    Assertions.assertFalse(filter.isParameterIncluded("RelayState"));
+    Assertions.assertTrue(filter.getParameters().isEmpty());
+  }
+
+}
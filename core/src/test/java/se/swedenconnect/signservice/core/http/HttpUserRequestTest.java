@@ -61,6 +61,7 @@ public class HttpUserRequestTest {
     Assertions.assertArrayEquals(parameters.get("p3"), pars.get("p3"));
     Assertions.assertEquals("V1", request.getHeader("H1"));
     Assertions.assertEquals("V2", request.getHeader("H2"));
+    Assertions.assertEquals("V2", request.getHeader("h2"));
     Assertions.assertNull(request.getHeader("H4"));
     final Map<String, String[]> h = request.getHeaders();
     Assertions.assertEquals(headers.size(), h.size());
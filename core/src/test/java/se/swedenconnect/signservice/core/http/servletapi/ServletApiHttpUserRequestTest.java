@@ -15,7 +15,10 @@
  */
 package se.swedenconnect.signservice.core.http.servletapi;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.assertj.core.util.Arrays;
@@ -26,11 +29,14 @@ import org.mockito.Mockito;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import se.swedenconnect.signservice.core.http.HttpUserRequest;
+import se.swedenconnect.signservice.core.http.HttpUserRequestFilter;
 
 /**
  * Test cases for ServletApiHttpUserRequest.
  */
+@Slf4j
 public class ServletApiHttpUserRequestTest {
 
   @Test
@@ -123,4 +129,76 @@ public class ServletApiHttpUserRequestTest {
     Assertions.assertArrayEquals(headers.get("H3"), h2.get("H3"));
   }
 
+  @Test
+  public void testFilter() throws Exception {
+    final Map<String, String[]> parameters = Map.of(
+        "EidSignRequest", new String[] { Base64.getEncoder().encodeToString(new byte[6000]) },
+        "RelayState", new String[] { "abc" },
+        "Binding", new String[] { "POST/XML/1.0" },
+        "unused", new String[] { "value" });
+    final Map<String, String[]> headers = Map.of(
+        "accept", new String[] { "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8" },
+        "user-agent", new String[] { "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36" },
+        "accept-language", new String[] { "sv-SE,sv;q=0.9,en-US;q=0.8,en;q=0.7" },
+        "cookie", new String[] {
+            "JSESSIONID=" + "A".repeat(32) + "; _ga=" + "B".repeat(40) + "; consent=" + "C".repeat(200) },
+        "referer", new String[] { "https://sp.example.com/sign/start?session=" + "D".repeat(64) });
+    final HttpServletRequest httpServletRequest = createMock(parameters, headers);
+
+    final HttpUserRequestFilter filter = HttpUserRequestFilter.DEFAULT;
+    final ServletApiHttpUserRequest request = new ServletApiHttpUserRequest(httpServletRequest, filter);
+
+    Assertions.assertNull(request.getParameter("unused"));
+    Assertions.assertEquals("abc", request.getParameter("RelayState"));
+    Assertions.assertEquals(List.of("Binding", "EidSignRequest", "RelayState"),
+        List.copyOf(request.getParameters().keySet()));
+    Assertions.assertNull(request.getHeader("cookie"));
+    Assertions.assertEquals(List.of("Accept"), List.copyOf(request.getHeaders().keySet()));
+
+    // Nothing but the filtered headers should have been read
+    Mockito.verify(httpServletRequest, Mockito.never()).getHeaderNames();
+    Mockito.verify(httpServletRequest, Mockito.never()).getParameterMap();
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+    final byte[] unfiltered = objectMapper.writeValueAsBytes(
+        new ServletApiHttpUserRequest(createMock(parameters, headers)));
+    final byte[] filtered = objectMapper.writeValueAsBytes(request);
+    log.info("HttpUserRequest JSON size - unfiltered: {} bytes, filtered: {} bytes", unfiltered.length,
+        filtered.length);
+    Assertions.assertTrue(filtered.length < unfiltered.length);
+    Assertions.assertFalse(new String(filtered, StandardCharsets.UTF_8).contains("JSESSIONID"));
+
+    final HttpUserRequest request2 = objectMapper.readValue(filtered, HttpUserRequest.class);
+    Assertions.assertEquals("abc", request2.getParameter("RelayState"));
+    Assertions.assertEquals(headers.get("accept")[0], request2.getHeader("Accept"));
+    Assertions.assertEquals(headers.get("accept")[0], request2.getHeader("accept"));
+  }
+
+  private static HttpServletRequest createMock(
+      final Map<String, String[]> parameters, final Map<String, String[]> headers) {
+    final HttpServletRequest httpServletRequest = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(httpServletRequest.getMethod()).thenReturn("POST");
+    Mockito.when(httpServletRequest.getRequestURL()).thenReturn(
+        new StringBuffer("https://www.example.com/ctx/sign/request"));
+    Mockito.when(httpServletRequest.getScheme()).thenReturn("https");
+    Mockito.when(httpServletRequest.getServerPort()).thenReturn(443);
+    Mockito.when(httpServletRequest.getServerName()).thenReturn("www.example.com");
+    Mockito.when(httpServletRequest.getContextPath()).thenReturn("/ctx");
+    Mockito.when(httpServletRequest.getServletPath()).thenReturn("/sign/request");
+    Mockito.when(httpServletRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+    Mockito.when(httpServletRequest.getParameterMap()).thenReturn(parameters);
+    Mockito.when(httpServletRequest.getParameterValues(Mockito.anyString()))
+        .then(a -> parameters.get(a.getArgument(0, String.class)));
+    Mockito.when(httpServletRequest.getParameter(Mockito.anyString())).then(a -> {
+      final String[] values = parameters.get(a.getArgument(0, String.class));
+      return values != null ? values[0] : null;
+    });
+    Mockito.when(httpServletRequest.getHeaders(Mockito.anyString())).then(a -> {
+      final String[] values = headers.get(a.getArgument(0, String.class).toLowerCase());
+      return values != null ? Collections.enumeration(Arrays.asList(values)) : Collections.emptyEnumeration();
+    });
+    Mockito.when(httpServletRequest.getHeaderNames()).then(a -> Collections.enumeration(headers.keySet()));
+    return httpServletRequest;
+  }
+
 }
@@ -71,7 +71,8 @@ public class SignServiceController {
       // Should we write a response message back (HTTP status 200)?
       //
       if (result.getResponseAction().getBody() != null) {
-        // Add response headers ...
+        // Assign status (200, or 304 for conditional requests) and add response headers ...
+        response.setStatus(result.getResponseAction().getBody().getStatus());
         result.getResponseAction().getBody().getHeaders().forEach((n, v) -> response.addHeader(n, v));
 
         // Write response body ...
@@ -15,6 +15,7 @@
  */
 package se.swedenconnect.signservice.app.backend;
 
+import java.io.IOException;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +55,35 @@ public class SignServiceBackendController {
   @ResponseBody
   public RestProcessRequestResult processRequest(@RequestBody final RestProcessRequestInput input)
       throws UnrecoverableSignServiceException {
+    return this.process(input);
+  }
+
+  /**
+   * Binary version of {@link #processRequest(RestProcessRequestInput)}. The request and response bodies are the binary
+   * representations of {@link RestProcessRequestInput} and {@link RestProcessRequestResult}.
+   *
+   * @param input the binary representation of the context and user request
+   * @return the binary representation of the RestProcessRequestResult
+   * @throws IOException for invalid input
+   * @throws UnrecoverableSignServiceException for unrecoverable errors
+   */
+  @PostMapping(path = "/process", consumes = RestProcessRequestInput.BINARY_CONTENT_TYPE,
+      produces = RestProcessRequestInput.BINARY_CONTENT_TYPE)
+  @ResponseBody
+  public byte[] processBinaryRequest(@RequestBody final byte[] input)
+      throws IOException, UnrecoverableSignServiceException {
+    return this.process(RestProcessRequestInput.fromBinary(input)).toBinary();
+  }
+
+  /**
+   * Invokes the {@link SignServiceEngineManager}.
+   *
+   * @param input the context and user request
+   * @return a RestProcessRequestResult
+   * @throws UnrecoverableSignServiceException for unrecoverable errors
+   */
+  private RestProcessRequestResult process(final RestProcessRequestInput input)
+      throws UnrecoverableSignServiceException {
 
     final SignServiceContext context = Optional.ofNullable(input.getContext())
         .map(c -> DefaultSignServiceContext.deserialize(c))
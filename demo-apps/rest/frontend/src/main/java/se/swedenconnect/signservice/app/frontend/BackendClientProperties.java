@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.app.frontend;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Configuration properties for the HTTP client that the frontend uses when calling the backend.
+ */
+@Data
+public class BackendClientProperties {
+
+  /**
+   * The maximum number of pooled connections in total.
+   */
+  private int maxTotal = 100;
+
+  /**
+   * The maximum number of pooled connections per route (i.e., per backend host).
+   */
+  private int maxPerRoute = 50;
+
+  /**
+   * The timeout for establishing a connection to the backend.
+   */
+  private Duration connectTimeout = Duration.ofSeconds(5);
+
+  /**
+   * The timeout for waiting for a response from the backend.
+   */
+  private Duration responseTimeout = Duration.ofSeconds(30);
+
+  /**
+   * The maximum time to wait for a connection from the pool when all connections are in use.
+   */
+  private Duration connectionRequestTimeout = Duration.ofSeconds(10);
+
+  /**
+   * How long an idle connection is kept alive (unless the backend tells otherwise).
+   */
+  private Duration keepAlive = Duration.ofMinutes(2);
+
+  /**
+   * Whether HTTP/2 should be used. If set, the JDK HTTP client is used, and all requests are multiplexed over one
+   * connection to the backend (the pool settings do not apply).
+   */
+  private boolean http2 = false;
+
+}
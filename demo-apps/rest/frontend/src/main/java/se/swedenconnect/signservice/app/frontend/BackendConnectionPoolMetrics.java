@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.app.frontend;
+
+import java.util.Objects;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Metrics for the pool of connections to the backend. The metrics are exported over JMX when
+ * {@code spring.jmx.enabled} is set.
+ */
+@ManagedResource(objectName = "se.swedenconnect.signservice.frontend:name=BackendConnectionPool")
+public class BackendConnectionPoolMetrics {
+
+  /** The connection pool. */
+  private final ConnPoolControl<HttpRoute> pool;
+
+  /**
+   * Constructor.
+   *
+   * @param pool the connection pool
+   */
+  public BackendConnectionPoolMetrics(final ConnPoolControl<HttpRoute> pool) {
+    this.pool = Objects.requireNonNull(pool, "pool must not be null");
+  }
+
+  /**
+   * Gets the number of connections currently in use.
+   *
+   * @return the number of leased connections
+   */
+  @ManagedAttribute(description = "Number of connections in use")
+  public int getLeased() {
+    return this.pool.getTotalStats().getLeased();
+  }
+
+  /**
+   * Gets the number of idle connections.
+   *
+   * @return the number of available connections
+   */
+  @ManagedAttribute(description = "Number of idle connections")
+  public int getAvailable() {
+    return this.pool.getTotalStats().getAvailable();
+  }
+
+  /**
+   * Gets the number of requests waiting for a connection.
+   *
+   * @return the number of pending requests
+   */
+  @ManagedAttribute(description = "Number of requests waiting for a connection")
+  public int getPending() {
+    return this.pool.getTotalStats().getPending();
+  }
+
+  /**
+   * Gets the maximum number of connections.
+   *
+   * @return the max number of connections
+   */
+  @ManagedAttribute(description = "Maximum number of connections")
+  public int getMax() {
+    return this.pool.getTotalStats().getMax();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    final PoolStats stats = this.pool.getTotalStats();
+    return String.format("leased=%d, available=%d, pending=%d, max=%d",
+        stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.app.frontend;
+
+import java.net.http.HttpClient;
+import java.util.Objects;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Creates the HTTP clients that the frontend uses when calling the backend.
+ */
+public class BackendHttpClientFactory {
+
+  /** The client settings. */
+  private final BackendClientProperties properties;
+
+  /** The SSL context to use for TLS connections (null means the system default). */
+  private final SSLContext sslContext;
+
+  /**
+   * Constructor.
+   *
+   * @param properties the client settings
+   * @param sslContext the SSL context to use for TLS connections (null means the system default)
+   */
+  public BackendHttpClientFactory(final BackendClientProperties properties, final SSLContext sslContext) {
+    this.properties = Objects.requireNonNull(properties, "properties must not be null");
+    this.sslContext = sslContext;
+  }
+
+  /**
+   * Creates a pooled connection manager according to the settings.
+   *
+   * @return a PoolingHttpClientConnectionManager
+   */
+  public PoolingHttpClientConnectionManager createConnectionManager() {
+    final PoolingHttpClientConnectionManagerBuilder builder = PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(this.properties.getMaxTotal())
+        .setMaxConnPerRoute(this.properties.getMaxPerRoute())
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.of(this.properties.getConnectTimeout()))
+            .setSocketTimeout(Timeout.of(this.properties.getResponseTimeout()))
+            .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+            .build());
+    if (this.sslContext != null) {
+      // For this example we do not verify host names. DO NOT COPY AND USE IN PRODUCTION!
+      builder.setTlsSocketStrategy(new DefaultClientTlsStrategy(this.sslContext, NoopHostnameVerifier.INSTANCE));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a HTTP/1.1 client using the supplied connection manager.
+   *
+   * @param connectionManager the connection manager
+   * @return a CloseableHttpClient
+   */
+  public CloseableHttpClient createHttpClient(final HttpClientConnectionManager connectionManager) {
+    return HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(this.properties.getConnectionRequestTimeout()))
+            .setResponseTimeout(Timeout.of(this.properties.getResponseTimeout()))
+            .setConnectionKeepAlive(TimeValue.of(this.properties.getKeepAlive()))
+            .build())
+        .evictIdleConnections(TimeValue.of(this.properties.getKeepAlive()))
+        .disableRedirectHandling()
+        .build();
+  }
+
+  /**
+   * Creates a HTTP/2 capable client (falling back to HTTP/1.1 if the backend does not support HTTP/2).
+   *
+   * @return a HttpClient
+   */
+  public HttpClient createHttp2Client() {
+    final HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(this.properties.getConnectTimeout())
+        .followRedirects(HttpClient.Redirect.NEVER);
+    if (this.sslContext != null) {
+      builder.sslContext(this.sslContext);
+    }
+    return builder.build();
+  }
+
+}
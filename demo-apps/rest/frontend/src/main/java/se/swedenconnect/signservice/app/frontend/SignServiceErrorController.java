@@ -28,11 +28,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -88,7 +89,7 @@ public class SignServiceErrorController extends AbstractErrorController {
     // First check if this is an exception received from the backend (UnrecoverableSignServiceException) ...
     //
     try {
-      final HttpClientErrorException exception = this.getException(request, HttpClientErrorException.class);
+      final HttpStatusCodeException exception = this.getException(request, HttpStatusCodeException.class);
       if (exception != null) {
         final ErrorBody errorBody = objectMapper.readValue(exception.getResponseBodyAsString(), ErrorBody.class);
         messageCode = errorBody.getErrorCode();
@@ -128,12 +129,12 @@ public class SignServiceErrorController extends AbstractErrorController {
    * @return the exception or null
    */
   protected <T extends Exception> T getException(final HttpServletRequest request, final Class<T> exceptionClass) {
-    Exception e = (Exception) request.getAttribute("javax.servlet.error.exception");
+    Throwable e = (Throwable) request.getAttribute(RequestDispatcher.ERROR_EXCEPTION);
     while (e != null) {
       if (exceptionClass.isInstance(e)) {
         return exceptionClass.cast(e);
       }
-      e = (Exception) e.getCause();
+      e = e.getCause();
     }
     return null;
   }
@@ -16,28 +16,25 @@
 package se.swedenconnect.signservice.app.frontend;
 
 import java.io.IOException;
+import java.util.Optional;
 
 import javax.net.ssl.SSLContext;
 
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.BasicHttpClientConnectionManager;
-import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
-import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.core5.http.config.Registry;
-import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.core5.ssl.SSLContexts;
 import org.apache.hc.core5.ssl.TrustStrategy;
 import org.apache.tomcat.util.http.Rfc6265CookieProcessor;
 import org.apache.tomcat.util.http.SameSiteCookies;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.embedded.tomcat.TomcatContextCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.filter.CommonsRequestLoggingFilter;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -50,6 +47,7 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletResponse;
+import se.swedenconnect.signservice.core.http.HttpUserRequestFilter;
 
 /**
  * SignService application front-end main class.
@@ -57,6 +55,9 @@ import jakarta.servlet.http.HttpServletResponse;
 @SpringBootApplication
 public class SignServiceFrontend {
 
+  /** The property telling whether HTTP/2 is used when calling the backend. */
+  private static final String HTTP2_PROPERTY = "signservice.frontend.client.http2";
+
   /**
    * Program main.
    *
@@ -67,12 +68,13 @@ public class SignServiceFrontend {
   }
 
   /**
-   * Creates the {@link RestTemplate} that we use when communicating with the SignService backend.
+   * Creates the factory for the HTTP clients that we use when communicating with the SignService backend.
    *
-   * @return a RestTemplate
+   * @param config the frontend configuration
+   * @return a BackendHttpClientFactory
    */
   @Bean
-  RestTemplate restTemplate() {
+  BackendHttpClientFactory backendHttpClientFactory(final SignServiceFrontendConfigurationProperties config) {
     try {
       // For this example we trust all SSL/TLS certs. DO NOT COPY AND USE IN PRODUCTION!
       //
@@ -80,30 +82,79 @@ public class SignServiceFrontend {
       final SSLContext sslContext = SSLContexts.custom()
           .loadTrustMaterial(null, acceptingTrustStrategy)
           .build();
-      final SSLConnectionSocketFactory sslsf =
-          new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE);
-      final Registry<ConnectionSocketFactory> socketFactoryRegistry =
-          RegistryBuilder.<ConnectionSocketFactory> create()
-              .register("https", sslsf)
-              .register("http", new PlainConnectionSocketFactory())
-              .build();
-
-      final BasicHttpClientConnectionManager connectionManager =
-          new BasicHttpClientConnectionManager(socketFactoryRegistry);
-      final CloseableHttpClient httpClient = HttpClients.custom()
-          .setConnectionManager(connectionManager)
-          .disableRedirectHandling()
-          .build();
+      return new BackendHttpClientFactory(config.getClient(), sslContext);
+    }
+    catch (final Exception e) {
+      throw new IllegalArgumentException("Failed to configure SSL context", e);
+    }
+  }
 
-      final HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-      requestFactory.setHttpClient(httpClient);
+  /**
+   * Creates the pool of connections to the SignService backend. The pool is only used by the HTTP/1.1 client, so it is
+   * not created when HTTP/2 is enabled.
+   *
+   * @param clientFactory the client factory
+   * @return a PoolingHttpClientConnectionManager
+   */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = HTTP2_PROPERTY, havingValue = "false", matchIfMissing = true)
+  PoolingHttpClientConnectionManager backendConnectionManager(final BackendHttpClientFactory clientFactory) {
+    return clientFactory.createConnectionManager();
+  }
 
-      final RestTemplate restTemplate = new RestTemplate(requestFactory);
-      return restTemplate;
+  /**
+   * Creates the metrics for the backend connection pool (only when the HTTP/1.1 client is used).
+   *
+   * @param backendConnectionManager the connection pool
+   * @return a BackendConnectionPoolMetrics
+   */
+  @Bean
+  @ConditionalOnProperty(name = HTTP2_PROPERTY, havingValue = "false", matchIfMissing = true)
+  BackendConnectionPoolMetrics backendConnectionPoolMetrics(
+      final PoolingHttpClientConnectionManager backendConnectionManager) {
+    return new BackendConnectionPoolMetrics(backendConnectionManager);
+  }
+
+  /**
+   * Creates the {@link RestTemplate} that we use when communicating with the SignService backend.
+   *
+   * @param config the frontend configuration
+   * @param clientFactory the client factory
+   * @param backendConnectionManager the connection pool (not available when HTTP/2 is used)
+   * @return a RestTemplate
+   */
+  @Bean
+  RestTemplate restTemplate(final SignServiceFrontendConfigurationProperties config,
+      final BackendHttpClientFactory clientFactory,
+      final ObjectProvider<PoolingHttpClientConnectionManager> backendConnectionManager) {
+
+    final ClientHttpRequestFactory requestFactory;
+    if (config.getClient().isHttp2()) {
+      final JdkClientHttpRequestFactory jdkRequestFactory =
+          new JdkClientHttpRequestFactory(clientFactory.createHttp2Client());
+      jdkRequestFactory.setReadTimeout(config.getClient().getResponseTimeout());
+      requestFactory = jdkRequestFactory;
     }
-    catch (final Exception e) {
-      throw new IllegalArgumentException("Failed to configure restTemplate", e);
+    else {
+      requestFactory =
+          new HttpComponentsClientHttpRequestFactory(
+              clientFactory.createHttpClient(backendConnectionManager.getObject()));
     }
+    return new RestTemplate(requestFactory);
+  }
+
+  /**
+   * Creates the {@link HttpUserRequestFilter} telling which headers and parameters of the user request that are passed
+   * on to the backend.
+   *
+   * @param config the frontend configuration
+   * @return a HttpUserRequestFilter
+   */
+  @Bean
+  HttpUserRequestFilter httpUserRequestFilter(final SignServiceFrontendConfigurationProperties config) {
+    return new HttpUserRequestFilter(
+        Optional.ofNullable(config.getIncludeHeaders()).orElse(HttpUserRequestFilter.DEFAULT_HEADERS),
+        Optional.ofNullable(config.getIncludeParameters()).orElse(HttpUserRequestFilter.DEFAULT_PARAMETERS));
   }
 
   /**
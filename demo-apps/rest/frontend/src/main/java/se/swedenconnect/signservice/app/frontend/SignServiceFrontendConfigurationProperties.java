@@ -15,6 +15,8 @@
  */
 package se.swedenconnect.signservice.app.frontend;
 
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -38,4 +40,27 @@ public class SignServiceFrontendConfigurationProperties {
    */
   private String processPath;
 
+  /**
+   * The names of the request headers that are passed to the backend. If not assigned,
+   * {@link se.swedenconnect.signservice.core.http.HttpUserRequestFilter#DEFAULT_HEADERS} is used.
+   */
+  private List<String> includeHeaders;
+
+  /**
+   * The names of the request parameters that are passed to the backend. If not assigned,
+   * {@link se.swedenconnect.signservice.core.http.HttpUserRequestFilter#DEFAULT_PARAMETERS} is used.
+   */
+  private List<String> includeParameters;
+
+  /**
+   * Whether the binary representation of the process request input and result should be used when calling the
+   * backend, instead of JSON. The binary representation is smaller and faster to process.
+   */
+  private boolean binary = false;
+
+  /**
+   * Settings for the HTTP client used when calling the backend.
+   */
+  private BackendClientProperties client = new BackendClientProperties();
+
 }
@@ -16,8 +16,12 @@
 package se.swedenconnect.signservice.app.frontend;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.client.RestClientException;
@@ -31,6 +35,7 @@ import lombok.Setter;
 import se.swedenconnect.signservice.application.rest.RestProcessRequestInput;
 import se.swedenconnect.signservice.application.rest.RestProcessRequestResult;
 import se.swedenconnect.signservice.context.SignServiceContext;
+import se.swedenconnect.signservice.core.http.HttpUserRequestFilter;
 import se.swedenconnect.signservice.core.http.servletapi.ServletApiHttpUserRequest;
 
 /**
@@ -56,6 +61,13 @@ public class SignServiceFrontendController {
   @Setter
   private SignServiceFrontendConfigurationProperties config;
 
+  /**
+   * Tells which headers and parameters of the user request that are passed to the backend.
+   */
+  @Autowired
+  @Setter
+  private HttpUserRequestFilter httpUserRequestFilter;
+
   /**
    * The entry point for requests to the SignService application.
    *
@@ -75,16 +87,19 @@ public class SignServiceFrontendController {
     final String context = (String) session.getAttribute(SIGNSERVICE_CONTEXT_NAME);
 
     // Invoke the backend ...
-    // We pass the context (which may be null) and a mapping of the incoming request.
+    // We pass the context (which may be null) and a mapping of the incoming request. Only the headers and
+    // parameters that the backend uses are included in the mapping.
     //
+    final RestProcessRequestInput input =
+        new RestProcessRequestInput(context, new ServletApiHttpUserRequest(request, this.httpUserRequestFilter));
     final RestProcessRequestResult result;
     try {
-      result = this.restTemplate.postForObject(
-          this.config.getBackendUrl() + this.config.getProcessPath(),
-          new RestProcessRequestInput(context, new ServletApiHttpUserRequest(request)),
-          RestProcessRequestResult.class);
+      result = this.config.isBinary()
+          ? this.postBinary(input)
+          : this.restTemplate.postForObject(
+              this.config.getBackendUrl() + this.config.getProcessPath(), input, RestProcessRequestResult.class);
     }
-    catch (final RestClientException e) {
+    catch (final RestClientException | IOException e) {
       // If we got an error, we remove the context from the session ...
       session.removeAttribute(SIGNSERVICE_CONTEXT_NAME);
       throw e;
@@ -105,7 +120,8 @@ public class SignServiceFrontendController {
     // Should we write a response message back (HTTP status 200)?
     //
     if (result.getResponseAction().getBody() != null) {
-      // Add response headers ...
+      // Assign status (200, or 304 for conditional requests) and add response headers ...
+      response.setStatus(result.getResponseAction().getBody().getStatus());
       result.getResponseAction().getBody().getHeaders().forEach((n, v) -> response.addHeader(n, v));
 
       // Write response body ...
@@ -134,4 +150,29 @@ public class SignServiceFrontendController {
     throw new IOException("Invalid backend response");
   }
 
+  /**
+   * Posts the binary representation of the input to the backend.
+   *
+   * @param input the input
+   * @return the result
+   * @throws IOException if the result can not be decoded
+   * @throws RestClientException for errors received from the backend
+   */
+  RestProcessRequestResult postBinary(final RestProcessRequestInput input)
+      throws IOException, RestClientException {
+    final MediaType mediaType = MediaType.parseMediaType(RestProcessRequestInput.BINARY_CONTENT_TYPE);
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(mediaType);
+    // Errors from the backend (UnrecoverableSignServiceException) are always reported in JSON ...
+    headers.setAccept(List.of(mediaType, MediaType.APPLICATION_JSON));
+
+    final byte[] result = this.restTemplate.postForObject(
+        this.config.getBackendUrl() + this.config.getProcessPath(),
+        new HttpEntity<>(input.toBinary(), headers), byte[].class);
+    if (result == null) {
+      throw new IOException("No response from backend");
+    }
+    return RestProcessRequestResult.fromBinary(result);
+  }
+
 }
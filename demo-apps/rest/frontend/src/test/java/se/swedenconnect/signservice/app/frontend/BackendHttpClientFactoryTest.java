@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.app.frontend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test cases for BackendHttpClientFactory.
+ */
+public class BackendHttpClientFactoryTest {
+
+  private static final int CONCURRENT_USERS = 8;
+
+  private static HttpServer server;
+
+  private static ExecutorService serverExecutor;
+
+  private static URI uri;
+
+  private static URI blockingUri;
+
+  /** Requests to the blocking context wait until this latch is released. */
+  private static volatile CountDownLatch releaseLatch = new CountDownLatch(0);
+
+  /** Released once for each request that has reached the blocking context. */
+  private static final Semaphore arrived = new Semaphore(0);
+
+  /** The number of requests currently processed by the blocking context. */
+  private static final AtomicInteger inProgress = new AtomicInteger();
+
+  /** The max number of requests processed concurrently by the blocking context. */
+  private static final AtomicInteger maxInProgress = new AtomicInteger();
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/process", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      sendResponse(exchange);
+    });
+    server.createContext("/blocking", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+      arrived.release();
+      try {
+        releaseLatch.await(30, TimeUnit.SECONDS);
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inProgress.decrementAndGet();
+      sendResponse(exchange);
+    });
+    serverExecutor = Executors.newFixedThreadPool(CONCURRENT_USERS);
+    server.setExecutor(serverExecutor);
+    server.start();
+    uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/process");
+    blockingUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/blocking");
+  }
+
+  private static void sendResponse(final HttpExchange exchange) throws IOException {
+    final byte[] body = "{\"context\":\"ctx\"}".getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  @AfterAll
+  public static void stopServer() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testPoolSettings() throws Exception {
+    final BackendClientProperties properties = new BackendClientProperties();
+    properties.setMaxTotal(20);
+    properties.setMaxPerRoute(5);
+
+    try (final PoolingHttpClientConnectionManager manager =
+        new BackendHttpClientFactory(properties, null).createConnectionManager()) {
+      final BackendConnectionPoolMetrics metrics = new BackendConnectionPoolMetrics(manager);
+      Assertions.assertEquals(20, metrics.getMax());
+      Assertions.assertEquals(5, manager.getDefaultMaxPerRoute());
+      Assertions.assertEquals(0, metrics.getLeased());
+    }
+  }
+
+  @Test
+  public void testPoolLimitsConcurrentRequests() throws Exception {
+    final int poolSize = 3;
+    final BackendClientProperties properties = new BackendClientProperties();
+    properties.setMaxTotal(poolSize);
+    properties.setMaxPerRoute(poolSize);
+
+    releaseLatch = new CountDownLatch(1);
+    arrived.drainPermits();
+    maxInProgress.set(0);
+
+    final BackendHttpClientFactory factory = new BackendHttpClientFactory(properties, null);
+    final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_USERS);
+    try (final PoolingHttpClientConnectionManager manager = factory.createConnectionManager();
+        final CloseableHttpClient client = factory.createHttpClient(manager)) {
+
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < CONCURRENT_USERS; i++) {
+        results.add(executor.submit(() -> {
+          final HttpPost post = new HttpPost(blockingUri);
+          post.setEntity(new StringEntity("{}", ContentType.APPLICATION_JSON));
+          return client.execute(post, response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+          });
+        }));
+      }
+
+      // Wait until all pooled connections are blocked in the server ...
+      Assertions.assertTrue(arrived.tryAcquire(poolSize, 30, TimeUnit.SECONDS));
+
+      // All connections are leased, and no more requests get through until a connection is returned
+      final BackendConnectionPoolMetrics metrics = new BackendConnectionPoolMetrics(manager);
+      Assertions.assertEquals(poolSize, metrics.getLeased());
+      Assertions.assertEquals(0, metrics.getAvailable());
+      Assertions.assertFalse(arrived.tryAcquire(200, TimeUnit.MILLISECONDS));
+      Assertions.assertEquals(poolSize, inProgress.get());
+
+      releaseLatch.countDown();
+      for (final Future<Integer> f : results) {
+        Assertions.assertEquals(200, f.get(30, TimeUnit.SECONDS));
+      }
+      Assertions.assertEquals(poolSize, maxInProgress.get());
+      Assertions.assertEquals(0, metrics.getLeased());
+      Assertions.assertEquals(0, metrics.getPending());
+      Assertions.assertTrue(metrics.getAvailable() <= poolSize);
+    }
+    finally {
+      releaseLatch.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testHttp2Client() throws Exception {
+    final java.net.http.HttpClient client = new BackendHttpClientFactory(new BackendClientProperties(), null)
+        .createHttp2Client();
+    Assertions.assertEquals(java.net.http.HttpClient.Version.HTTP_2, client.version());
+
+    // The test server only talks HTTP/1.1, so the client should fall back ...
+    final java.net.http.HttpResponse<String> response = client.send(
+        java.net.http.HttpRequest.newBuilder(uri).POST(java.net.http.HttpRequest.BodyPublishers.ofString("{}")).build(),
+        java.net.http.HttpResponse.BodyHandlers.ofString());
+    Assertions.assertEquals(200, response.statusCode());
+  }
+
+}
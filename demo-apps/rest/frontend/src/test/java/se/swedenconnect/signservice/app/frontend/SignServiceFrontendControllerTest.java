@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.app.frontend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import se.swedenconnect.signservice.application.rest.RestProcessRequestInput;
+import se.swedenconnect.signservice.core.http.DefaultHttpUserRequest;
+import se.swedenconnect.signservice.engine.UnrecoverableErrorCodes;
+
+/**
+ * Test cases for SignServiceFrontendController.
+ */
+public class SignServiceFrontendControllerTest {
+
+  private static HttpServer server;
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+    // Acts as the backend reporting an UnrecoverableSignServiceException. Like Spring's error handling, the error is
+    // only written if the client accepts JSON ...
+    server.createContext("/process", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      final String accept = exchange.getRequestHeaders().getFirst("Accept");
+      if (accept != null && accept.contains("application/json")) {
+        sendError(exchange);
+      }
+      else {
+        exchange.sendResponseHeaders(500, -1);
+        exchange.close();
+      }
+    });
+    server.start();
+  }
+
+  @AfterAll
+  public static void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testBinaryBackendError() {
+    final SignServiceFrontendConfigurationProperties config = new SignServiceFrontendConfigurationProperties();
+    config.setBackendUrl("http://localhost:" + server.getAddress().getPort());
+    config.setProcessPath("/process");
+    config.setBinary(true);
+
+    final SignServiceFrontendController controller = new SignServiceFrontendController();
+    controller.setConfig(config);
+    controller.setRestTemplate(new RestTemplate());
+
+    final HttpServerErrorException e = Assertions.assertThrows(HttpServerErrorException.class,
+        () -> controller.postBinary(new RestProcessRequestInput(null, new DefaultHttpUserRequest())));
+
+    // The error code of the backend should be available for the error controller
+    final Map<?, ?> errorBody = Assertions.assertDoesNotThrow(
+        () -> new ObjectMapper().readValue(e.getResponseBodyAsString(), Map.class));
+    Assertions.assertEquals(UnrecoverableErrorCodes.SERVICE_UNAVAILABLE, errorBody.get("error-code"));
+    Assertions.assertEquals("Service is overloaded", errorBody.get("error-message"));
+  }
+
+  private static void sendError(final HttpExchange exchange) throws IOException {
+    final byte[] body = String.format("{\"status\":500,\"error\":\"Internal Server Error\",\"error-code\":\"%s\","
+        + "\"error-message\":\"Service is overloaded\"}", UnrecoverableErrorCodes.SERVICE_UNAVAILABLE)
+        .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(500, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+}
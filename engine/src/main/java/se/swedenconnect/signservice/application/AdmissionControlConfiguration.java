@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.application;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Configuration for the admission control of a SignService engine. See {@link AdmissionController}.
+ */
+public class AdmissionControlConfiguration {
+
+  /** The default maximum number of concurrent requests. */
+  public static final int DEFAULT_MAX_CONCURRENT = 20;
+
+  /** The default maximum number of waiting requests. */
+  public static final int DEFAULT_MAX_QUEUED = 50;
+
+  /** The default maximum time a request may wait before being admitted. */
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+
+  /** The maximum number of requests that an engine processes concurrently. */
+  private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+
+  /** The maximum number of requests that may wait to be processed. */
+  private int maxQueued = DEFAULT_MAX_QUEUED;
+
+  /** The maximum time a request may wait before being admitted. */
+  private Duration maxWait = DEFAULT_MAX_WAIT;
+
+  /**
+   * Gets the maximum number of requests that an engine processes concurrently. The default is
+   * {@value #DEFAULT_MAX_CONCURRENT}.
+   *
+   * @return the maximum number of concurrent requests
+   */
+  public int getMaxConcurrent() {
+    return this.maxConcurrent;
+  }
+
+  /**
+   * Assigns the maximum number of requests that an engine processes concurrently.
+   *
+   * @param maxConcurrent the maximum number of concurrent requests
+   */
+  public void setMaxConcurrent(final int maxConcurrent) {
+    if (maxConcurrent <= 0) {
+      throw new IllegalArgumentException("maxConcurrent must be greater than 0");
+    }
+    this.maxConcurrent = maxConcurrent;
+  }
+
+  /**
+   * Gets the maximum number of requests that may wait to be processed. The default is {@value #DEFAULT_MAX_QUEUED}.
+   *
+   * @return the maximum number of waiting requests
+   */
+  public int getMaxQueued() {
+    return this.maxQueued;
+  }
+
+  /**
+   * Assigns the maximum number of requests that may wait to be processed. A value of 0 means that requests are
+   * rejected directly if the maximum number of concurrent requests has been reached.
+   *
+   * @param maxQueued the maximum number of waiting requests
+   */
+  public void setMaxQueued(final int maxQueued) {
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("maxQueued must not be negative");
+    }
+    this.maxQueued = maxQueued;
+  }
+
+  /**
+   * Gets the maximum time a request may wait before being admitted. The default is 5 seconds.
+   *
+   * @return the maximum wait time
+   */
+  @Nonnull
+  public Duration getMaxWait() {
+    return this.maxWait;
+  }
+
+  /**
+   * Assigns the maximum time a request may wait before being admitted.
+   *
+   * @param maxWait the maximum wait time
+   */
+  public void setMaxWait(@Nonnull final Duration maxWait) {
+    this.maxWait = Objects.requireNonNull(maxWait, "maxWait must not be null");
+    if (maxWait.isNegative()) {
+      throw new IllegalArgumentException("maxWait must not be negative");
+    }
+  }
+
+}
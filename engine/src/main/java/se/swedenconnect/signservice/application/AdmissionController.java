@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Admission control for a SignService engine. The controller limits the number of requests that an engine processes
+ * concurrently and lets a bounded number of requests wait for a free slot.
+ * <p>
+ * Requests are either <i>priority</i> requests, i.e., requests that belong to a signature operation that is already
+ * in progress, or ordinary requests that start new operations. Waiting priority requests are always admitted before
+ * waiting ordinary requests. If the queue is full, an ordinary request is rejected directly, and a priority request
+ * evicts the most recently queued ordinary request. This means that users that have started a signature operation
+ * are allowed to finish it also under heavy load.
+ * </p>
+ * <p>
+ * A request that is not admitted within the configured maximum wait time is rejected. Rejections are fast and never
+ * lead to a request waiting longer than the maximum wait time.
+ * </p>
+ */
+public class AdmissionController {
+
+  /**
+   * The result of an admission attempt.
+   */
+  public enum Admission {
+
+    /** The request was admitted and {@link AdmissionController#release()} must be invoked when it is done. */
+    ADMITTED,
+
+    /** The request was rejected since the queue was full. */
+    QUEUE_FULL,
+
+    /** The request was rejected since it was not admitted within the maximum wait time. */
+    TIMEOUT;
+  }
+
+  /** The configuration. */
+  private final AdmissionControlConfiguration configuration;
+
+  /** Lock protecting the state. */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** The number of admitted requests. */
+  private int active = 0;
+
+  /** Waiting priority requests. */
+  private final Deque<Waiter> priorityQueue = new ArrayDeque<>();
+
+  /** Waiting ordinary requests. */
+  private final Deque<Waiter> queue = new ArrayDeque<>();
+
+  /** The number of rejected requests. */
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param configuration the configuration (if null, the default configuration is used)
+   */
+  public AdmissionController(@Nullable final AdmissionControlConfiguration configuration) {
+    this.configuration = Optional.ofNullable(configuration).orElseGet(AdmissionControlConfiguration::new);
+  }
+
+  /**
+   * Attempts to admit a request. If {@link Admission#ADMITTED} is returned the caller must invoke {@link #release()}
+   * when the request has been processed.
+   *
+   * @param priority whether the request belongs to an operation that is already in progress
+   * @return the result of the admission attempt
+   */
+  @Nonnull
+  public Admission acquire(final boolean priority) {
+    final Waiter waiter;
+    this.lock.lock();
+    try {
+      if (this.active < this.configuration.getMaxConcurrent()
+          && this.priorityQueue.isEmpty() && (priority || this.queue.isEmpty())) {
+        this.active++;
+        return Admission.ADMITTED;
+      }
+      if (this.priorityQueue.size() + this.queue.size() >= this.configuration.getMaxQueued()) {
+        if (!priority || this.queue.isEmpty()) {
+          this.rejected.incrementAndGet();
+          return Admission.QUEUE_FULL;
+        }
+        // Make room by evicting the most recently queued ordinary request ...
+        final Waiter evicted = this.queue.pollLast();
+        evicted.state = Admission.QUEUE_FULL;
+        evicted.condition.signal();
+      }
+      waiter = new Waiter(this.lock.newCondition());
+      (priority ? this.priorityQueue : this.queue).addLast(waiter);
+
+      long nanos = this.configuration.getMaxWait().toNanos();
+      try {
+        while (waiter.state == null && nanos > 0) {
+          nanos = waiter.condition.awaitNanos(nanos);
+        }
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (waiter.state == null) {
+        (priority ? this.priorityQueue : this.queue).remove(waiter);
+        waiter.state = Admission.TIMEOUT;
+      }
+      if (waiter.state != Admission.ADMITTED) {
+        this.rejected.incrementAndGet();
+      }
+      return waiter.state;
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Releases an admitted request and hands over its slot to the next waiting request (if any).
+   */
+  public void release() {
+    this.lock.lock();
+    try {
+      final Waiter next = Optional.ofNullable(this.priorityQueue.pollFirst()).orElseGet(this.queue::pollFirst);
+      if (next != null) {
+        // The slot is handed over, so the number of active requests is unchanged ...
+        next.state = Admission.ADMITTED;
+        next.condition.signal();
+      }
+      else if (this.active > 0) {
+        this.active--;
+      }
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of requests that currently are admitted.
+   *
+   * @return the number of active requests
+   */
+  public int getActive() {
+    this.lock.lock();
+    try {
+      return this.active;
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of requests that currently are waiting to be admitted.
+   *
+   * @return the number of waiting requests
+   */
+  public int getQueued() {
+    this.lock.lock();
+    try {
+      return this.priorityQueue.size() + this.queue.size();
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the total number of rejected requests.
+   *
+   * @return the number of rejected requests
+   */
+  public long getRejected() {
+    return this.rejected.get();
+  }
+
+  /**
+   * Gets the configuration for this controller.
+   *
+   * @return the configuration
+   */
+  @Nonnull
+  public AdmissionControlConfiguration getConfiguration() {
+    return this.configuration;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return String.format("active=%d, queued=%d, rejected=%d, max-concurrent=%d, max-queued=%d, max-wait=%s",
+        this.getActive(), this.getQueued(), this.getRejected(), this.configuration.getMaxConcurrent(),
+        this.configuration.getMaxQueued(), this.configuration.getMaxWait());
+  }
+
+  /**
+   * A waiting request.
+   */
+  private static class Waiter {
+
+    /** The condition that the waiting thread waits on. */
+    private final Condition condition;
+
+    /** The outcome (null while waiting). */
+    private Admission state;
+
+    Waiter(final Condition condition) {
+      this.condition = condition;
+    }
+  }
+
+}
@@ -17,7 +17,9 @@ package se.swedenconnect.signservice.application;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -29,6 +31,8 @@ import se.swedenconnect.signservice.core.http.HttpUserRequest;
 import se.swedenconnect.signservice.engine.SignServiceEngine;
 import se.swedenconnect.signservice.engine.UnrecoverableErrorCodes;
 import se.swedenconnect.signservice.engine.UnrecoverableSignServiceException;
+import se.swedenconnect.signservice.engine.session.EngineContext;
+import se.swedenconnect.signservice.engine.session.SignOperationState;
 
 /**
  * The main application bean. The SignService engine manager is responsible of routing every call to a matching engine.
@@ -42,6 +46,12 @@ public class DefaultSignServiceEngineManager implements SignServiceEngineManager
   /** The system audit logger. */
   private final AuditLogger systemAuditLogger;
 
+  /**
+   * Admission controllers for the engines that have admission control configured (indexed by engine name). May be
+   * updated while requests are being processed, hence the concurrent map.
+   */
+  private final Map<String, AdmissionController> admissionControllers = new ConcurrentHashMap<>();
+
   /**
    * Constructor accepting the list of SignService engines that are configured for the SignService application.
    *
@@ -86,6 +96,32 @@ public class DefaultSignServiceEngineManager implements SignServiceEngineManager
     log.debug("Engine '{}' is processing {} request [url: '{}']", engine.getName(), request.getMethod(),
         request.getRequestUrl());
 
+    // If admission control is configured for the engine, make sure that it is not overloaded. Requests that belong
+    // to an operation already in progress (i.e., the user is being authenticated or the signature is being
+    // created) are given priority ...
+    //
+    final AdmissionController admissionController = this.admissionControllers.get(engine.getName());
+    if (admissionController != null) {
+      final AdmissionController.Admission admission =
+          admissionController.acquire(isOperationInProgress(signServiceContext));
+      if (admission != AdmissionController.Admission.ADMITTED) {
+        final String reason = admission == AdmissionController.Admission.QUEUE_FULL ? "queue-full" : "timeout";
+        log.warn("Engine '{}' is overloaded, rejecting {} request [url: '{}', reason: '{}', {}]",
+            engine.getName(), request.getMethod(), request.getRequestUrl(), reason, admissionController);
+
+        this.systemAuditLogger.auditLog(AuditEventIds.EVENT_SYSTEM_OVERLOAD, (b) -> b
+            .parameter("url", request.getRequestUrl())
+            .parameter("engine-name", engine.getName())
+            .parameter("reason", reason)
+            .parameter("active", String.valueOf(admissionController.getActive()))
+            .parameter("queued", String.valueOf(admissionController.getQueued()))
+            .build());
+
+        throw new UnrecoverableSignServiceException(UnrecoverableErrorCodes.SERVICE_UNAVAILABLE,
+            "Service is overloaded - try again later");
+      }
+    }
+
     // Hand the request over to the engine ...
     //
     try {
@@ -110,6 +146,64 @@ public class DefaultSignServiceEngineManager implements SignServiceEngineManager
 
       throw e;
     }
+    finally {
+      if (admissionController != null) {
+        admissionController.release();
+      }
+    }
+  }
+
+  /**
+   * Tells whether the supplied context belongs to an operation that is in progress, i.e., whether the user is being
+   * authenticated or the signature is being created.
+   *
+   * @param signServiceContext the context (may be null)
+   * @return true if the operation is in progress and false otherwise
+   */
+  private static boolean isOperationInProgress(@Nullable final SignServiceContext signServiceContext) {
+    if (signServiceContext == null) {
+      return false;
+    }
+    try {
+      final SignOperationState state = new EngineContext(signServiceContext).getState();
+      return state == SignOperationState.AUTHN_ONGOING || state == SignOperationState.SIGNING;
+    }
+    catch (final IllegalStateException e) {
+      // Terminated, or not an engine context at all ...
+      return false;
+    }
+  }
+
+  /**
+   * Assigns admission control for an engine. Without admission control, the number of concurrent requests that an
+   * engine processes is not limited.
+   *
+   * @param engineName the engine name
+   * @param configuration the admission control configuration (null turns off admission control for the engine)
+   */
+  public void setAdmissionControl(@Nonnull final String engineName,
+      @Nullable final AdmissionControlConfiguration configuration) {
+    Objects.requireNonNull(engineName, "engineName must not be null");
+    if (this.engines.stream().noneMatch(e -> engineName.equals(e.getName()))) {
+      throw new IllegalArgumentException("No engine named '" + engineName + "'");
+    }
+    if (configuration == null) {
+      this.admissionControllers.remove(engineName);
+    }
+    else {
+      this.admissionControllers.put(engineName, new AdmissionController(configuration));
+    }
+  }
+
+  /**
+   * Gets the admission controller for an engine.
+   *
+   * @param engineName the engine name
+   * @return the admission controller, or null if no admission control is configured for the engine
+   */
+  @Nullable
+  public AdmissionController getAdmissionController(@Nonnull final String engineName) {
+    return this.admissionControllers.get(engineName);
   }
 
   /** {@inheritDoc} */
@@ -40,9 +40,10 @@ import se.swedenconnect.signservice.audit.AuditLoggerSingleton;
 import se.swedenconnect.signservice.authn.AuthenticationErrorCode;
 import se.swedenconnect.signservice.authn.AuthenticationResult;
 import se.swedenconnect.signservice.authn.AuthenticationResultChoice;
+import se.swedenconnect.signservice.authn.IdentityAssertion;
 import se.swedenconnect.signservice.authn.UserAuthenticationException;
+import se.swedenconnect.signservice.certificate.KeyAndCertificateHandler;
 import se.swedenconnect.signservice.context.SignServiceContext;
-import se.swedenconnect.signservice.core.attribute.IdentityAttribute;
 import se.swedenconnect.signservice.core.http.DefaultHttpResponseAction;
 import se.swedenconnect.signservice.core.http.HttpBodyAction;
 import se.swedenconnect.signservice.core.http.HttpResourceProvider;
@@ -87,6 +88,9 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
   /** The system audit logger. */
   private AuditLogger systemAuditLogger;
 
+  /** Optional preparer for generating signing keys during user authentication. */
+  private SigningKeyPreparer signingKeyPreparer;
+
   /**
    * Constructor.
    *
@@ -186,6 +190,7 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
               .map(SignRequestMessage::getRequestId)
               .orElseGet(() -> "-");
 
+          this.discardSigningKeyPreparation(context);
           context.resetContext();
           log.info("{}: New context has been created [id: '{}']", this.getName(), context.getId());
 
@@ -230,6 +235,7 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
               .build());
 
       if (context != null) {
+        this.discardSigningKeyPreparation(context);
         context.terminateContext();
       }
       throw e;
@@ -302,6 +308,10 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
         //
         context.updateState(SignOperationState.AUTHN_ONGOING);
 
+        // While the user is authenticating we may prepare the signing key ...
+        //
+        this.prepareSigningKey(signRequestMessage, context);
+
         return new DefaultSignServiceProcessingResult(context.getContext(), authnResult.getResponseAction());
       }
       else {
@@ -334,9 +344,16 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
       throws UnrecoverableSignServiceException {
 
     PkiCredential signingCredential = null;
+    PkiCredential preparedSigningKey = null;
     try {
       context.updateState(SignOperationState.SIGNING);
 
+      // Pick up the signing key if it was prepared during the user authentication ...
+      //
+      if (this.signingKeyPreparer != null) {
+        preparedSigningKey = this.signingKeyPreparer.take(context.removeSigningKeyPreparationId());
+      }
+
       // OK, we are called after the user has completed the authentication. However, we still have to
       // check that the authentication step gave us the information we need to continue the signature
       // operation. This is done in the "complete authentication" phase.
@@ -347,8 +364,16 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
       //
       final SignRequestMessage signRequestMessage = context.getSignRequest();
 
-      signingCredential = this.engineConfiguration.getKeyAndCertificateHandler().generateSigningCredential(
-          signRequestMessage, authnResult.getAssertion(), context.getContext());
+      if (preparedSigningKey != null) {
+        log.debug("{}: Using signing key prepared during user authentication [id: '{}', request-id: '{}']",
+            this.getName(), context.getId(), signRequestMessage.getRequestId());
+        signingCredential = this.engineConfiguration.getKeyAndCertificateHandler().generateSigningCredential(
+            signRequestMessage, authnResult.getAssertion(), preparedSigningKey, context.getContext());
+      }
+      else {
+        signingCredential = this.engineConfiguration.getKeyAndCertificateHandler().generateSigningCredential(
+            signRequestMessage, authnResult.getAssertion(), context.getContext());
+      }
 
       // Sign the requested tasks ...
       //
@@ -443,9 +468,10 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
       return this.createErrorResponse(httpRequest, context, e.getError());
     }
     finally {
-      if (signingCredential != null) {
+      final PkiCredential credentialToDestroy = signingCredential != null ? signingCredential : preparedSigningKey;
+      if (credentialToDestroy != null) {
         try {
-          signingCredential.destroy();
+          credentialToDestroy.destroy();
         }
         catch (final Exception e) {
           log.warn("{}: Error during destruction of user signing credential - {} [id: '{}']",
@@ -589,6 +615,39 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
     }
   }
 
+  /**
+   * If a {@link SigningKeyPreparer} has been installed, the method starts the generation of the signing key so that it
+   * is generated while the user is being authenticated. The ID of the preparation is saved in the context.
+   *
+   * @param signRequest the SignRequest message
+   * @param context the engine context
+   */
+  protected void prepareSigningKey(@Nonnull final SignRequestMessage signRequest,
+      @Nonnull final EngineContext context) {
+    if (this.signingKeyPreparer == null) {
+      return;
+    }
+    final KeyAndCertificateHandler handler = this.engineConfiguration.getKeyAndCertificateHandler();
+    final SignServiceContext signServiceContext = context.getContext();
+    final String preparationId = this.signingKeyPreparer.submit(
+        () -> handler.generateSigningKey(signRequest, signServiceContext));
+    context.putSigningKeyPreparationId(preparationId);
+
+    log.debug("{}: Started preparation of signing key [id: '{}', request-id: '{}', preparation-id: '{}']",
+        this.getName(), context.getId(), signRequest.getRequestId(), preparationId);
+  }
+
+  /**
+   * Discards any signing key preparation that was started for the operation.
+   *
+   * @param context the engine context
+   */
+  private void discardSigningKeyPreparation(@Nonnull final EngineContext context) {
+    if (this.signingKeyPreparer != null) {
+      this.signingKeyPreparer.discard(context.removeSigningKeyPreparationId());
+    }
+  }
+
   /**
    * Maps an {@link UserAuthenticationException} to a {@link SignServiceError} which controls how an error response is
    * sent back to the client.
@@ -654,7 +713,7 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
       // all mappings between certificate contents and attributes are provided in the request.
 
       // These are the attributes that were issued during the authentication phase ...
-      final List<IdentityAttribute<?>> issuedAttributes = authnResult.getAssertion().getIdentityAttributes();
+      final IdentityAssertion issuedAssertion = authnResult.getAssertion();
 
       for (final CertificateAttributeMapping m : certRequirements.getAttributeMappings()) {
         // We need to find an attribute for all mappings that are required and that do not
@@ -664,10 +723,7 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
           // At least one of the source attributes must be among the issued identity attributes ...
           //
           final boolean exists = m.getSources().stream()
-              .filter(i -> issuedAttributes.stream().filter(
-                  a -> a.getIdentifier().equals(i.getIdentifier())).findFirst().isPresent())
-              .findFirst()
-              .isPresent();
+              .anyMatch(i -> issuedAssertion.getIdentityAttribute(i.getIdentifier()) != null);
           if (!exists) {
             final String msg = String.format("None of the source attributes for certificate attribute '%s' "
                 + "was received from user authentication", m.getDestination().getIdentifier());
@@ -755,6 +811,7 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
 
       // Clear the sign service context ...
       //
+      this.discardSigningKeyPreparation(context);
       context.terminateContext();
 
       return new DefaultSignServiceProcessingResult(null, action);
@@ -845,4 +902,14 @@ public class DefaultSignServiceEngine implements SignServiceEngine {
     this.signRequestMessageVerifier = signRequestMessageVerifier;
   }
 
+  /**
+   * Assigns a {@link SigningKeyPreparer} that is used to generate the user signing key while the user is being
+   * authenticated. If not assigned, the key is generated after the user has been authenticated.
+   *
+   * @param signingKeyPreparer the signing key preparer
+   */
+  public void setSigningKeyPreparer(@Nullable final SigningKeyPreparer signingKeyPreparer) {
+    this.signingKeyPreparer = signingKeyPreparer;
+  }
+
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.engine;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.security.credential.PkiCredential;
+
+/**
+ * Performs the certificate independent preparation of a signature operation, i.e., the generation of the user signing
+ * key, on a background executor while the user is being authenticated.
+ * <p>
+ * The prepared keys are kept in memory by the preparer and are referenced using a preparation ID that the engine stores
+ * in the SignService context. If the user never returns (the operation is abandoned), or returns to another instance of
+ * the service, the prepared key is destroyed when it has reached its maximum age.
+ * </p>
+ * <p>
+ * An instance of this class may be shared by several engines.
+ * </p>
+ */
+@Slf4j
+public class SigningKeyPreparer {
+
+  /** Default maximum age of a prepared key. */
+  public static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(15);
+
+  /** Default time to wait for an ongoing preparation to complete when the result is requested. */
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(10);
+
+  /** The executor service running the preparations. */
+  private final ExecutorService executorService;
+
+  /** Whether we created the executor service (and should shut it down). */
+  private final boolean ownsExecutorService;
+
+  /** The ongoing and completed preparations, indexed by preparation ID. */
+  private final Map<String, Preparation> preparations = new ConcurrentHashMap<>();
+
+  /** The maximum age of a prepared key. */
+  private Duration maxAge = DEFAULT_MAX_AGE;
+
+  /** The maximum time to wait for an ongoing preparation. */
+  private Duration maxWait = DEFAULT_MAX_WAIT;
+
+  /**
+   * Constructor setting up a preparer using a fixed thread pool of daemon threads.
+   *
+   * @param threads the number of threads to use for preparations
+   */
+  public SigningKeyPreparer(final int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    this.executorService = Executors.newFixedThreadPool(threads, new PreparerThreadFactory());
+    this.ownsExecutorService = true;
+  }
+
+  /**
+   * Constructor setting up a preparer using the supplied executor service. The caller is responsible of shutting down
+   * the executor.
+   *
+   * @param executorService the executor service to use
+   */
+  public SigningKeyPreparer(@Nonnull final ExecutorService executorService) {
+    this.executorService = Objects.requireNonNull(executorService, "executorService must not be null");
+    this.ownsExecutorService = false;
+  }
+
+  /**
+   * Submits a key preparation task.
+   *
+   * @param task the task generating the key (the task may return null if the handler does not support preparation)
+   * @return the preparation ID that should be used in the call to {@link #take(String)}
+   */
+  @Nonnull
+  public String submit(@Nonnull final Callable<PkiCredential> task) {
+    this.purgeExpired();
+
+    final String id = UUID.randomUUID().toString();
+    final Preparation preparation = new Preparation(Instant.now());
+    preparation.setFuture(this.executorService.submit(() -> preparation.complete(task.call())));
+    this.preparations.put(id, preparation);
+    return id;
+  }
+
+  /**
+   * Gets (and removes) the prepared key for the given preparation ID. If the preparation is still running, the method
+   * waits at most the configured max wait time for it to complete.
+   *
+   * @param preparationId the preparation ID
+   * @return the prepared key, or null if no key is available (the caller should then generate the key itself)
+   */
+  @Nullable
+  public PkiCredential take(@Nullable final String preparationId) {
+    if (preparationId == null) {
+      return null;
+    }
+    final Preparation preparation = this.preparations.remove(preparationId);
+    if (preparation == null) {
+      log.debug("No prepared signing key available for preparation '{}'", preparationId);
+      return null;
+    }
+    if (preparation.isExpired(this.maxAge)) {
+      log.debug("Prepared signing key for preparation '{}' has expired", preparationId);
+      preparation.discard();
+      return null;
+    }
+    try {
+      preparation.getFuture().get(this.maxWait.toMillis(), TimeUnit.MILLISECONDS);
+      return preparation.claim();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      preparation.discard();
+      return null;
+    }
+    catch (final ExecutionException e) {
+      log.info("Preparation of signing key failed - {}", Optional.ofNullable(e.getCause()).orElse(e).getMessage());
+      return null;
+    }
+    catch (final TimeoutException e) {
+      log.info("Preparation of signing key did not complete within {}", this.maxWait);
+      preparation.discard();
+      return null;
+    }
+  }
+
+  /**
+   * Discards a preparation, for example when the operation is abandoned or has failed. Any prepared key is destroyed.
+   *
+   * @param preparationId the preparation ID
+   */
+  public void discard(@Nullable final String preparationId) {
+    if (preparationId == null) {
+      return;
+    }
+    Optional.ofNullable(this.preparations.remove(preparationId)).ifPresent(Preparation::discard);
+  }
+
+  /**
+   * Destroys all preparations that have reached their maximum age. The method is invoked on each call to
+   * {@link #submit(Callable)}, but may also be invoked by a scheduled task.
+   */
+  public void purgeExpired() {
+    this.preparations.entrySet().removeIf(e -> {
+      if (e.getValue().isExpired(this.maxAge)) {
+        log.debug("Discarding expired signing key preparation '{}'", e.getKey());
+        e.getValue().discard();
+        return true;
+      }
+      return false;
+    });
+  }
+
+  /**
+   * Gets the number of preparations currently held by the preparer.
+   *
+   * @return the number of preparations
+   */
+  public int size() {
+    return this.preparations.size();
+  }
+
+  /**
+   * Discards all preparations and shuts down the executor service (if created by this instance).
+   */
+  @PreDestroy
+  public void destroy() {
+    this.preparations.values().forEach(Preparation::discard);
+    this.preparations.clear();
+    if (this.ownsExecutorService) {
+      this.executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Assigns the maximum age of a prepared key. Default is {@link #DEFAULT_MAX_AGE}.
+   *
+   * @param maxAge the max age
+   */
+  public void setMaxAge(@Nonnull final Duration maxAge) {
+    this.maxAge = Objects.requireNonNull(maxAge, "maxAge must not be null");
+  }
+
+  /**
+   * Assigns the maximum time to wait for an ongoing preparation when the prepared key is requested. Default is
+   * {@link #DEFAULT_MAX_WAIT}.
+   *
+   * @param maxWait the max wait time
+   */
+  public void setMaxWait(@Nonnull final Duration maxWait) {
+    this.maxWait = Objects.requireNonNull(maxWait, "maxWait must not be null");
+  }
+
+  /**
+   * Holds an ongoing, or completed, preparation.
+   * <p>
+   * Cancelling the future does not stop a key generation that is already running. Therefore, the task hands over the
+   * generated key using {@link #complete(PkiCredential)}, and a key that is completed after the preparation has been
+   * discarded is destroyed directly.
+   * </p>
+   */
+  private static class Preparation {
+
+    /** When the preparation was submitted. */
+    private final Instant created;
+
+    /** The future for the running task. */
+    private volatile Future<PkiCredential> future;
+
+    /** The prepared key (guarded by this). */
+    private PkiCredential credential;
+
+    /** Whether the preparation has been discarded (guarded by this). */
+    private boolean discarded = false;
+
+    Preparation(final Instant created) {
+      this.created = created;
+    }
+
+    Future<PkiCredential> getFuture() {
+      return this.future;
+    }
+
+    void setFuture(final Future<PkiCredential> future) {
+      this.future = future;
+    }
+
+    boolean isExpired(final Duration maxAge) {
+      return Instant.now().isAfter(this.created.plus(maxAge));
+    }
+
+    /**
+     * Invoked by the task when the key has been generated.
+     *
+     * @param credential the generated key (may be null)
+     * @return the key, or null if the preparation has been discarded (and the key destroyed)
+     */
+    synchronized PkiCredential complete(final PkiCredential credential) {
+      if (this.discarded) {
+        destroy(credential);
+        return null;
+      }
+      this.credential = credential;
+      return credential;
+    }
+
+    /**
+     * Hands over the prepared key to the caller. After this call the preparation no longer owns the key.
+     *
+     * @return the key, or null if no key is available
+     */
+    synchronized PkiCredential claim() {
+      final PkiCredential claimed = this.discarded ? null : this.credential;
+      this.credential = null;
+      return claimed;
+    }
+
+    /**
+     * Cancels the preparation and destroys the prepared key. If the key generation is still running, the key is
+     * destroyed when it completes.
+     */
+    void discard() {
+      synchronized (this) {
+        this.discarded = true;
+        destroy(this.credential);
+        this.credential = null;
+      }
+      Optional.ofNullable(this.future).ifPresent(f -> f.cancel(true));
+    }
+
+    private static void destroy(final PkiCredential credential) {
+      if (credential == null) {
+        return;
+      }
+      try {
+        credential.destroy();
+      }
+      catch (final Exception e) {
+        log.debug("Failed to destroy prepared signing key - {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Thread factory creating daemon threads for the preparer.
+   */
+  private static class PreparerThreadFactory implements ThreadFactory {
+
+    /** Thread counter. */
+    private final AtomicInteger counter = new AtomicInteger(0);
+
+    /** {@inheritDoc} */
+    @Override
+    public Thread newThread(@Nonnull final Runnable r) {
+      final Thread thread = new Thread(r, "signservice-key-preparer-" + this.counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -47,6 +47,9 @@ public class EngineContext {
   /** Key for storing whether a sign message was displayed. */
   private static final String SIGN_MESSAGE_DISPLAYED_KEY = PREFIX + ".SignMessageDisplayed";
 
+  /** Key for storing the ID of a signing key preparation. */
+  private static final String SIGNING_KEY_PREPARATION_KEY = PREFIX + ".SigningKeyPreparation";
+
   /** The wrapped context. */
   private SignServiceContext context;
 
@@ -196,6 +199,29 @@ public class EngineContext {
     return this.context.get(SIGN_MESSAGE_DISPLAYED_KEY, Boolean.class);
   }
 
+  /**
+   * Adds the ID of a signing key preparation that was started before the user authentication was completed.
+   *
+   * @param preparationId the preparation ID
+   */
+  public void putSigningKeyPreparationId(final String preparationId) {
+    this.context.put(SIGNING_KEY_PREPARATION_KEY,
+        Objects.requireNonNull(preparationId, "preparationId must not be null"));
+  }
+
+  /**
+   * Gets, and removes, the ID of a signing key preparation.
+   *
+   * @return the preparation ID, or null if no preparation has been started
+   */
+  public String removeSigningKeyPreparationId() {
+    final String preparationId = this.context.get(SIGNING_KEY_PREPARATION_KEY, String.class);
+    if (preparationId != null) {
+      this.context.remove(SIGNING_KEY_PREPARATION_KEY);
+    }
+    return preparationId;
+  }
+
   /**
    * Predicate that tells whether this context is active or not
    *
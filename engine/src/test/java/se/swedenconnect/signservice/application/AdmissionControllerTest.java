@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.application;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.signservice.application.AdmissionController.Admission;
+
+/**
+ * Test cases for AdmissionController.
+ */
+public class AdmissionControllerTest {
+
+  @Test
+  public void testAdmitAndRelease() {
+    final AdmissionController controller = new AdmissionController(config(2, 0, Duration.ZERO));
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(true));
+    Assertions.assertEquals(2, controller.getActive());
+
+    // No queue - rejected directly ...
+    Assertions.assertEquals(Admission.QUEUE_FULL, controller.acquire(true));
+    Assertions.assertEquals(1, controller.getRejected());
+
+    controller.release();
+    Assertions.assertEquals(1, controller.getActive());
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+    controller.release();
+    controller.release();
+    Assertions.assertEquals(0, controller.getActive());
+    Assertions.assertNotNull(controller.toString());
+  }
+
+  @Test
+  public void testTimeout() {
+    final AdmissionController controller = new AdmissionController(config(1, 5, Duration.ofMillis(50)));
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+
+    // The timed out request should not hold a slot or a queue position ...
+    Assertions.assertEquals(Admission.TIMEOUT, controller.acquire(false));
+    Assertions.assertEquals(1, controller.getActive());
+    Assertions.assertEquals(0, controller.getQueued());
+    Assertions.assertEquals(1, controller.getRejected());
+
+    controller.release();
+    Assertions.assertEquals(0, controller.getActive());
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+    Assertions.assertEquals(1, controller.getActive());
+  }
+
+  @Test
+  public void testPriority() throws Exception {
+    final AdmissionController controller = new AdmissionController(config(1, 2, Duration.ofSeconds(5)));
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+
+    final List<String> order = new CopyOnWriteArrayList<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Admission> ordinary = executor.submit(() -> admit(controller, false, "ordinary", order));
+      awaitQueued(controller, 1);
+      final Future<Admission> priority = executor.submit(() -> admit(controller, true, "priority", order));
+      awaitQueued(controller, 2);
+
+      // The queue is full, an ordinary request is rejected directly ...
+      Assertions.assertEquals(Admission.QUEUE_FULL, controller.acquire(false));
+
+      controller.release();
+      Assertions.assertEquals(Admission.ADMITTED, priority.get(5, TimeUnit.SECONDS));
+      Assertions.assertEquals(Admission.ADMITTED, ordinary.get(5, TimeUnit.SECONDS));
+      Assertions.assertEquals(List.of("priority", "ordinary"), order);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPriorityEvictsOrdinary() throws Exception {
+    final AdmissionController controller = new AdmissionController(config(1, 1, Duration.ofSeconds(5)));
+    Assertions.assertEquals(Admission.ADMITTED, controller.acquire(false));
+
+    final List<String> order = new CopyOnWriteArrayList<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Admission> ordinary = executor.submit(() -> admit(controller, false, "ordinary", order));
+      awaitQueued(controller, 1);
+      final Future<Admission> priority = executor.submit(() -> admit(controller, true, "priority", order));
+
+      Assertions.assertEquals(Admission.QUEUE_FULL, ordinary.get(5, TimeUnit.SECONDS));
+      awaitQueued(controller, 1);
+      controller.release();
+      Assertions.assertEquals(Admission.ADMITTED, priority.get(5, TimeUnit.SECONDS));
+      Assertions.assertEquals(List.of("priority"), order);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConfiguration() {
+    final AdmissionControlConfiguration conf = new AdmissionControlConfiguration();
+    Assertions.assertEquals(AdmissionControlConfiguration.DEFAULT_MAX_CONCURRENT, conf.getMaxConcurrent());
+    Assertions.assertEquals(AdmissionControlConfiguration.DEFAULT_MAX_QUEUED, conf.getMaxQueued());
+    Assertions.assertEquals(AdmissionControlConfiguration.DEFAULT_MAX_WAIT, conf.getMaxWait());
+    Assertions.assertSame(AdmissionControlConfiguration.DEFAULT_MAX_WAIT,
+        new AdmissionController(null).getConfiguration().getMaxWait());
+
+    assertThatThrownBy(() -> conf.setMaxConcurrent(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> conf.setMaxQueued(-1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> conf.setMaxWait(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("maxWait must not be null");
+    assertThatThrownBy(() -> conf.setMaxWait(Duration.ofSeconds(-1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Admission admit(
+      final AdmissionController controller, final boolean priority, final String name, final List<String> order) {
+    final Admission admission = controller.acquire(priority);
+    if (admission == Admission.ADMITTED) {
+      order.add(name);
+      controller.release();
+    }
+    return admission;
+  }
+
+  private static void awaitQueued(final AdmissionController controller, final int queued) throws Exception {
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (controller.getQueued() != queued) {
+      if (System.currentTimeMillis() > deadline) {
+        Assertions.fail("Expected " + queued + " queued requests");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+  private static AdmissionControlConfiguration config(final int maxConcurrent, final int maxQueued,
+      final Duration maxWait) {
+    final AdmissionControlConfiguration conf = new AdmissionControlConfiguration();
+    conf.setMaxConcurrent(maxConcurrent);
+    conf.setMaxQueued(maxQueued);
+    conf.setMaxWait(maxWait);
+    return conf;
+  }
+
+}
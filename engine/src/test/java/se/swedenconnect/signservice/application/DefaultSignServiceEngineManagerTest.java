@@ -17,10 +17,16 @@ package se.swedenconnect.signservice.application;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -43,6 +49,8 @@ import se.swedenconnect.signservice.core.http.HttpUserRequest;
 import se.swedenconnect.signservice.engine.SignServiceEngine;
 import se.swedenconnect.signservice.engine.UnrecoverableErrorCodes;
 import se.swedenconnect.signservice.engine.UnrecoverableSignServiceException;
+import se.swedenconnect.signservice.engine.session.EngineContext;
+import se.swedenconnect.signservice.engine.session.SignOperationState;
 
 /**
  * Test cases for DefaultSignServiceEngineManager.
@@ -210,6 +218,146 @@ public class DefaultSignServiceEngineManagerTest {
 
   }
 
+  @Test
+  public void processOverload() throws Exception {
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final SignServiceProcessingResult result = Mockito.mock(SignServiceProcessingResult.class);
+
+    final SignServiceEngine engine = Mockito.mock(SignServiceEngine.class);
+    Mockito.when(engine.getName()).thenReturn("ENGINE");
+    Mockito.when(engine.canProcess(Mockito.any())).thenReturn(true);
+    Mockito.when(engine.processRequest(Mockito.any(), Mockito.any())).thenAnswer(i -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return result;
+    });
+
+    final TestAuditLogger audit = new TestAuditLogger();
+
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getRequestUrl()).thenReturn("https://www.example.com/sign/process");
+    Mockito.when(request.getMethod()).thenReturn("POST");
+
+    final DefaultSignServiceEngineManager manager = new DefaultSignServiceEngineManager(List.of(engine), audit);
+    Assertions.assertNull(manager.getAdmissionController("ENGINE"));
+
+    final AdmissionControlConfiguration conf = new AdmissionControlConfiguration();
+    conf.setMaxConcurrent(1);
+    conf.setMaxQueued(0);
+    conf.setMaxWait(Duration.ofSeconds(5));
+    manager.setAdmissionControl("ENGINE", conf);
+
+    assertThatThrownBy(() -> manager.setAdmissionControl("OTHER", conf))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("No engine named 'OTHER'");
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<SignServiceProcessingResult> first = executor.submit(() -> manager.processRequest(request, null));
+      Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+      assertThatThrownBy(() -> {
+        manager.processRequest(request, Mockito.mock(SignServiceContext.class));
+      }).isInstanceOf(UnrecoverableSignServiceException.class)
+          .extracting((e) -> ((UnrecoverableSignServiceException) e).getErrorCode())
+          .isEqualTo(UnrecoverableErrorCodes.SERVICE_UNAVAILABLE);
+
+      Assertions.assertEquals(AuditEventIds.EVENT_SYSTEM_OVERLOAD, audit.events.get(1).getId());
+      Assertions.assertEquals("queue-full", audit.events.get(1).getParameters().stream()
+          .filter(p -> "reason".equals(p.getName())).map(AuditEventParameter::getValue).findFirst().orElse(null));
+
+      release.countDown();
+      Assertions.assertSame(result, first.get(5, TimeUnit.SECONDS));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    // The slot should have been released ...
+    Assertions.assertEquals(0, manager.getAdmissionController("ENGINE").getActive());
+    Assertions.assertSame(result, manager.processRequest(request, null));
+    Assertions.assertEquals(1, manager.getAdmissionController("ENGINE").getRejected());
+
+    manager.setAdmissionControl("ENGINE", null);
+    Assertions.assertNull(manager.getAdmissionController("ENGINE"));
+  }
+
+  @Test
+  public void processOverloadPriority() throws Exception {
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final SignServiceProcessingResult result = Mockito.mock(SignServiceProcessingResult.class);
+
+    final SignServiceEngine engine = Mockito.mock(SignServiceEngine.class);
+    Mockito.when(engine.getName()).thenReturn("ENGINE");
+    Mockito.when(engine.canProcess(Mockito.any())).thenReturn(true);
+    Mockito.when(engine.processRequest(Mockito.any(), Mockito.any())).thenAnswer(i -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return result;
+    });
+
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getRequestUrl()).thenReturn("https://www.example.com/sign/process");
+    Mockito.when(request.getMethod()).thenReturn("POST");
+
+    final DefaultSignServiceEngineManager manager =
+        new DefaultSignServiceEngineManager(List.of(engine), new TestAuditLogger());
+
+    final AdmissionControlConfiguration conf = new AdmissionControlConfiguration();
+    conf.setMaxConcurrent(1);
+    conf.setMaxQueued(1);
+    conf.setMaxWait(Duration.ofSeconds(5));
+    manager.setAdmissionControl("ENGINE", conf);
+    final AdmissionController admissionController = manager.getAdmissionController("ENGINE");
+
+    // A context for an operation that has not yet started is not given priority ...
+    final SignServiceContext newContext = EngineContext.createSignServiceContext();
+
+    // But a context for an operation where the user is being authenticated is ...
+    final SignServiceContext ongoingContext = EngineContext.createSignServiceContext();
+    new EngineContext(ongoingContext).updateState(SignOperationState.AUTHN_ONGOING);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final Future<SignServiceProcessingResult> first = executor.submit(() -> manager.processRequest(request, null));
+      Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+      final Future<SignServiceProcessingResult> queued = executor.submit(() -> manager.processRequest(request, null));
+      final long deadline = System.currentTimeMillis() + 5000;
+      while (admissionController.getQueued() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assertions.assertEquals(1, admissionController.getQueued());
+
+      assertThatThrownBy(() -> {
+        manager.processRequest(request, newContext);
+      }).isInstanceOf(UnrecoverableSignServiceException.class)
+          .extracting((e) -> ((UnrecoverableSignServiceException) e).getErrorCode())
+          .isEqualTo(UnrecoverableErrorCodes.SERVICE_UNAVAILABLE);
+      Assertions.assertEquals(1, admissionController.getQueued());
+
+      // The in-progress operation should evict the queued request ...
+      final Future<SignServiceProcessingResult> priority =
+          executor.submit(() -> manager.processRequest(request, ongoingContext));
+
+      assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+          .hasCauseInstanceOf(UnrecoverableSignServiceException.class);
+
+      release.countDown();
+      Assertions.assertSame(result, first.get(5, TimeUnit.SECONDS));
+      Assertions.assertSame(result, priority.get(5, TimeUnit.SECONDS));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(0, admissionController.getActive());
+    Assertions.assertEquals(2, admissionController.getRejected());
+  }
+
   private static class TestAuditLogger extends AbstractAuditLogger {
 
     @Getter
@@ -18,12 +18,17 @@ package se.swedenconnect.signservice.engine;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.security.KeyException;
 import java.security.SignatureException;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
@@ -281,6 +286,7 @@ public class DefaultSignServiceEngineTest {
 
   private IdentityAssertion setupIdentityAssertion() {
     final IdentityAssertion ia = mock(IdentityAssertion.class);
+    when(ia.getIdentityAttribute(any())).thenCallRealMethod();
     when(ia.getScheme()).thenReturn("saml");
     when(ia.getIdentifier()).thenReturn("assertionID");
     when(ia.getAuthnContext()).thenReturn(new SimpleAuthnContextIdentifier("http://id.elegnamnden.se/loa/1.0/loa3"));
@@ -346,6 +352,93 @@ public class DefaultSignServiceEngineTest {
         auditLogger.getEvents().get(1).getId());
   }
 
+  @Test
+  public void testProcessSignRequestPreparedSigningKey() throws Exception {
+    final PkiCredential preparedKey = mock(PkiCredential.class);
+    final PkiCredential signingCred = mock(PkiCredential.class);
+    when(this.certHandler.generateSigningKey(any(), any())).thenReturn(preparedKey);
+    when(this.certHandler.generateSigningCredential(any(), any(), eq(preparedKey), any())).thenReturn(signingCred);
+
+    final SigningKeyPreparer preparer = new SigningKeyPreparer(1);
+    try {
+      final DefaultSignServiceEngine engine = new DefaultSignServiceEngine(
+          this.engineConfiguration, this.messageReplayChecker, this.systemAuditLogger);
+      engine.setSignRequestMessageVerifier(this.signRequestMessageVerifier);
+      engine.setSigningKeyPreparer(preparer);
+
+      SignServiceProcessingResult result = engine.processRequest(this.httpRequest, null);
+      Assertions.assertEquals(1, preparer.size());
+
+      when(this.httpRequest.getServerServletPath()).thenReturn(SAML_POST_PATH);
+      result = engine.processRequest(this.httpRequest, result.getSignServiceContext());
+      Assertions.assertEquals("SUCCESS", result.getResponseAction().getPost().getParameters().get("result-code"));
+      Assertions.assertEquals(0, preparer.size());
+
+      // The prepared key should have been used, and no new key should have been generated ...
+      verify(this.certHandler).generateSigningCredential(any(), any(), eq(preparedKey), any());
+      verify(this.certHandler, never()).generateSigningCredential(any(), any(), any());
+      verify(preparedKey, never()).destroy();
+    }
+    finally {
+      preparer.destroy();
+    }
+  }
+
+  @Test
+  public void testProcessSignRequestPreparedSigningKeyFailed() throws Exception {
+    when(this.certHandler.generateSigningKey(any(), any())).thenThrow(new KeyException("failed"));
+
+    final SigningKeyPreparer preparer = new SigningKeyPreparer(1);
+    try {
+      final DefaultSignServiceEngine engine = new DefaultSignServiceEngine(
+          this.engineConfiguration, this.messageReplayChecker, this.systemAuditLogger);
+      engine.setSignRequestMessageVerifier(this.signRequestMessageVerifier);
+      engine.setSigningKeyPreparer(preparer);
+
+      SignServiceProcessingResult result = engine.processRequest(this.httpRequest, null);
+
+      when(this.httpRequest.getServerServletPath()).thenReturn(SAML_POST_PATH);
+      result = engine.processRequest(this.httpRequest, result.getSignServiceContext());
+
+      // The engine falls back to generating the key when the credential is issued ...
+      Assertions.assertEquals("SUCCESS", result.getResponseAction().getPost().getParameters().get("result-code"));
+      verify(this.certHandler).generateSigningCredential(any(), any(), any());
+    }
+    finally {
+      preparer.destroy();
+    }
+  }
+
+  @Test
+  public void testProcessSignRequestPreparedSigningKeyDiscarded() throws Exception {
+    final PkiCredential preparedKey = mock(PkiCredential.class);
+    when(this.certHandler.generateSigningKey(any(), any())).thenReturn(preparedKey);
+
+    final SigningKeyPreparer preparer = new SigningKeyPreparer(1);
+    try {
+      final DefaultSignServiceEngine engine = new DefaultSignServiceEngine(
+          this.engineConfiguration, this.messageReplayChecker, this.systemAuditLogger);
+      engine.setSignRequestMessageVerifier(this.signRequestMessageVerifier);
+      engine.setSigningKeyPreparer(preparer);
+
+      SignServiceProcessingResult result = engine.processRequest(this.httpRequest, null);
+
+      when(this.httpRequest.getServerServletPath()).thenReturn(SAML_POST_PATH);
+      when(this.authnHandler.resumeAuthentication(any(), any())).thenThrow(
+          new UserAuthenticationException(AuthenticationErrorCode.USER_CANCEL, "msg"));
+      result = engine.processRequest(this.httpRequest, result.getSignServiceContext());
+      Assertions.assertEquals(SignServiceErrorCode.AUTHN_USER_CANCEL.name(),
+          result.getResponseAction().getPost().getParameters().get("result-code"));
+
+      // The operation failed, so the prepared key should be destroyed ...
+      Assertions.assertEquals(0, preparer.size());
+      verify(preparedKey, timeout(5000)).destroy();
+    }
+    finally {
+      preparer.destroy();
+    }
+  }
+
   @Test
   public void testProcessSignRequestAbandonedSession() throws Exception {
     final DefaultSignServiceEngine engine = new DefaultSignServiceEngine(
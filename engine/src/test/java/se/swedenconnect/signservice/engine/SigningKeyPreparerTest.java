@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.engine;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.security.credential.PkiCredential;
+
+/**
+ * Test cases for SigningKeyPreparer.
+ */
+public class SigningKeyPreparerTest {
+
+  private SigningKeyPreparer preparer;
+
+  @BeforeEach
+  public void setup() {
+    this.preparer = new SigningKeyPreparer(2);
+  }
+
+  @AfterEach
+  public void destroy() {
+    this.preparer.destroy();
+  }
+
+  @Test
+  public void testBadThreads() {
+    assertThatThrownBy(() -> new SigningKeyPreparer(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testNullExecutor() {
+    assertThatThrownBy(() -> new SigningKeyPreparer((ExecutorService) null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("executorService must not be null");
+  }
+
+  @Test
+  public void testSubmitAndTake() {
+    final PkiCredential credential = mock(PkiCredential.class);
+    final String id = this.preparer.submit(() -> credential);
+    Assertions.assertNotNull(id);
+    Assertions.assertEquals(1, this.preparer.size());
+
+    Assertions.assertSame(credential, this.preparer.take(id));
+    Assertions.assertEquals(0, this.preparer.size());
+
+    // A preparation can only be taken once
+    Assertions.assertNull(this.preparer.take(id));
+  }
+
+  @Test
+  public void testTakeUnknown() {
+    Assertions.assertNull(this.preparer.take(null));
+    Assertions.assertNull(this.preparer.take("unknown"));
+  }
+
+  @Test
+  public void testTaskFails() {
+    final String id = this.preparer.submit(() -> {
+      throw new IllegalStateException("failed");
+    });
+    Assertions.assertNull(this.preparer.take(id));
+  }
+
+  @Test
+  public void testTaskTimesOut() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    this.preparer.setMaxWait(Duration.ofMillis(50));
+    final String id = this.preparer.submit(() -> {
+      latch.await();
+      return mock(PkiCredential.class);
+    });
+    Assertions.assertNull(this.preparer.take(id));
+    latch.countDown();
+  }
+
+  @Test
+  public void testDiscard() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final SigningKeyPreparer p = new SigningKeyPreparer(executor);
+      final PkiCredential credential = mock(PkiCredential.class);
+      final String id = p.submit(() -> credential);
+
+      // Wait for completion (single threaded executor)
+      executor.submit(() -> {}).get();
+
+      p.discard(id);
+      Assertions.assertEquals(0, p.size());
+      verify(credential, times(1)).destroy();
+
+      // Should not fail
+      p.discard(id);
+      p.discard(null);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDiscardWhileRunning() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final PkiCredential credential = mock(PkiCredential.class);
+
+    // Key generation can not be interrupted ...
+    final String id = this.preparer.submit(() -> {
+      started.countDown();
+      while (release.getCount() > 0) {
+        try {
+          release.await();
+        }
+        catch (final InterruptedException e) {
+          // Ignore
+        }
+      }
+      return credential;
+    });
+    Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    this.preparer.discard(id);
+    verify(credential, times(0)).destroy();
+
+    // The key is destroyed when the generation completes ...
+    release.countDown();
+    verify(credential, timeout(5000).times(1)).destroy();
+  }
+
+  @Test
+  public void testDestroyedAfterTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final PkiCredential credential = mock(PkiCredential.class);
+    this.preparer.setMaxWait(Duration.ofMillis(50));
+    final String id = this.preparer.submit(() -> {
+      while (release.getCount() > 0) {
+        try {
+          release.await();
+        }
+        catch (final InterruptedException e) {
+          // Ignore
+        }
+      }
+      return credential;
+    });
+    Assertions.assertNull(this.preparer.take(id));
+    release.countDown();
+    verify(credential, timeout(5000).times(1)).destroy();
+  }
+
+  @Test
+  public void testExpired() throws Exception {
+    final PkiCredential credential = mock(PkiCredential.class);
+    this.preparer.setMaxAge(Duration.ofMillis(10));
+    final String id = this.preparer.submit(() -> credential);
+    Thread.sleep(50);
+
+    Assertions.assertNull(this.preparer.take(id));
+    verify(credential, times(1)).destroy();
+
+    this.preparer.submit(() -> credential);
+    Thread.sleep(50);
+    this.preparer.purgeExpired();
+    Assertions.assertEquals(0, this.preparer.size());
+  }
+
+  @Test
+  public void testExternalExecutor() {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final SigningKeyPreparer p = new SigningKeyPreparer(executor);
+      final PkiCredential credential = mock(PkiCredential.class);
+      Assertions.assertSame(credential, p.take(p.submit(() -> credential)));
+      p.destroy();
+      Assertions.assertFalse(executor.isShutdown());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -181,17 +181,10 @@ public class DefaultAttributeMapper implements AttributeMapper {
       @Nonnull final List<IdentityAttributeIdentifier> sources,
       @Nonnull final IdentityAssertion assertion) {
 
-    final List<IdentityAttribute<?>> identityAttributes = assertion.getIdentityAttributes();
-    if (identityAttributes == null || identityAttributes.isEmpty()) {
-      return null;
-    }
-
     for (final IdentityAttributeIdentifier source : sources) {
-      final Optional<IdentityAttribute<?>> attribute = identityAttributes.stream()
-          .filter(s -> Objects.equals(s.getIdentifier(), source.getIdentifier()))
-          .findFirst();
-      if (attribute.isPresent()) {
-        return attribute.get();
+      final IdentityAttribute<?> attribute = assertion.getIdentityAttribute(source.getIdentifier());
+      if (attribute != null) {
+        return attribute;
       }
     }
     // We found no match
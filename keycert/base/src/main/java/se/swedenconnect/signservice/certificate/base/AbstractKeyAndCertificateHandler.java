@@ -199,17 +199,22 @@ public abstract class AbstractKeyAndCertificateHandler extends AbstractSignServi
       @Nonnull final IdentityAssertion assertion, @Nonnull final SignServiceContext context)
       throws CertificateException, KeyException {
 
-    // Map attributes from the assertion to certificate attributes ...
+    // Map attributes from the assertion to certificate attributes before generating any keys ...
     //
-    List<AttributeMappingData> certAttributes = null;
-    try {
-      log.debug("Get mapping data from configured attribute mapper");
-      certAttributes = this.getAttributeMapper().mapCertificateAttributes(signRequest, assertion);
-    }
-    catch (final AttributeMappingException e) {
-      log.debug("Attribute mapping failed: {}", e.toString());
-      throw new CertificateException("Attribute mapping failed", e);
-    }
+    final List<AttributeMappingData> certAttributes = this.mapCertificateAttributes(signRequest, assertion);
+
+    // Obtain the credential (public and private key)
+    //
+    final ManagedPkiCredential signingKeyCredentials = this.generateSigningKey(signRequest, context);
+
+    return this.issueSigningCertificate(signingKeyCredentials, signRequest, assertion, certAttributes, context);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public ManagedPkiCredential generateSigningKey(@Nonnull final SignRequestMessage signRequest,
+      @Nonnull final SignServiceContext context) throws KeyException, CertificateException {
 
     // Get signature algorithm
     final SignatureAlgorithm algorithm = (SignatureAlgorithm) this.getAlgorithmRegistry().getAlgorithm(
@@ -217,15 +222,13 @@ public abstract class AbstractKeyAndCertificateHandler extends AbstractSignServi
             .map(SignatureRequirements::getSignatureAlgorithm)
             .orElseThrow(() -> new IllegalArgumentException("Signature algorithm must not be null")));
 
-    // Obtain the credential (public and private key)
-    //
-    final ManagedPkiCredential signingKeyCredentials;
     try {
       final String keyType = this.algorithmKeyTypes.get(algorithm.getKeyType());
       final String alias = this.keyProvider.generateCredential(keyType);
 
-      signingKeyCredentials = this.keyProvider.getCredential(alias);
+      final ManagedPkiCredential signingKeyCredentials = this.keyProvider.getCredential(alias);
       log.debug("Issued key pair for key type {}", algorithm.getKeyType());
+      return signingKeyCredentials;
     }
     catch (final NoSuchAlgorithmException e) {
       throw new KeyException("Algorithm not supported", e);
@@ -233,6 +236,60 @@ public abstract class AbstractKeyAndCertificateHandler extends AbstractSignServi
     catch (final PkiCredentialContainerException e) {
       throw new KeyException("Failed to generate key pair - " + e.getMessage(), e);
     }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public PkiCredential generateSigningCredential(@Nonnull final SignRequestMessage signRequest,
+      @Nonnull final IdentityAssertion assertion, @Nonnull final PkiCredential signingKey,
+      @Nonnull final SignServiceContext context) throws KeyException, CertificateException {
+
+    if (!ManagedPkiCredential.class.isInstance(signingKey)) {
+      throw new KeyException("Supplied signing key was not generated by this handler");
+    }
+    final List<AttributeMappingData> certAttributes = this.mapCertificateAttributes(signRequest, assertion);
+    return this.issueSigningCertificate(
+        ManagedPkiCredential.class.cast(signingKey), signRequest, assertion, certAttributes, context);
+  }
+
+  /**
+   * Maps attributes from the assertion to certificate attributes.
+   *
+   * @param signRequest the sign request
+   * @param assertion assertion providing asserted user identity
+   * @return the certificate attributes to include in the certificate
+   * @throws CertificateException if attribute mapping fails
+   */
+  @Nonnull
+  private List<AttributeMappingData> mapCertificateAttributes(@Nonnull final SignRequestMessage signRequest,
+      @Nonnull final IdentityAssertion assertion) throws CertificateException {
+    try {
+      log.debug("Get mapping data from configured attribute mapper");
+      return this.getAttributeMapper().mapCertificateAttributes(signRequest, assertion);
+    }
+    catch (final AttributeMappingException e) {
+      log.debug("Attribute mapping failed: {}", e.toString());
+      throw new CertificateException("Attribute mapping failed", e);
+    }
+  }
+
+  /**
+   * Issues the signing certificate chain for the supplied key pair and adds it to the credential.
+   *
+   * @param signingKeyCredentials the signing key pair
+   * @param signRequest the sign request
+   * @param assertion assertion providing asserted user identity
+   * @param certAttributes the certificate attributes to include in the certificate
+   * @param context signature context providing additional information
+   * @return the signing credential holding the issued certificate chain
+   * @throws CertificateException error obtaining a certificate for the signer
+   */
+  @Nonnull
+  private PkiCredential issueSigningCertificate(@Nonnull final ManagedPkiCredential signingKeyCredentials,
+      @Nonnull final SignRequestMessage signRequest, @Nonnull final IdentityAssertion assertion,
+      @Nonnull final List<AttributeMappingData> certAttributes, @Nonnull final SignServiceContext context)
+      throws CertificateException {
 
     // Get the signer certificate for the public key
     //
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.base.config;
+
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Optional;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.CertificatePolicyModel;
+import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.BasicConstraintsModel;
+import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.ExtendedKeyUsageModel;
+import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.KeyUsageModel;
+
+/**
+ * A pre-processed representation of a {@link CertificateProfileConfiguration}. The extension models that do not depend
+ * on the subject are created once when the template is created, so that issuing a certificate only has to add the
+ * subject specific parts.
+ * <p>
+ * Instances of this class are immutable and may be shared between threads.
+ * </p>
+ */
+public class CertificateProfileTemplate {
+
+  /** The extended key usage model (null if no EKU should be included). */
+  private final ExtendedKeyUsageModel extendedKeyUsageModel;
+
+  /** The certificate policy model (null if no policies should be included). */
+  private final CertificatePolicyModel certificatePolicyModel;
+
+  /** The basic constraints model. */
+  private final BasicConstraintsModel basicConstraintsModel;
+
+  /** The key usage model for RSA keys. */
+  private final KeyUsageModel rsaKeyUsageModel;
+
+  /** The key usage model for other key types. */
+  private final KeyUsageModel keyUsageModel;
+
+  /** The RSA key usage value. */
+  private final int rsaKeyUsage;
+
+  /** The key usage value for other key types. */
+  private final int keyUsage;
+
+  /**
+   * Constructor.
+   *
+   * @param profileConfiguration the profile configuration (if null, a default configuration is used)
+   * @throws IllegalArgumentException for invalid object identifiers in the configuration
+   */
+  public CertificateProfileTemplate(@Nullable final CertificateProfileConfiguration profileConfiguration)
+      throws IllegalArgumentException {
+
+    final CertificateProfileConfiguration conf =
+        Optional.ofNullable(profileConfiguration).orElseGet(CertificateProfileConfiguration::new);
+
+    if (conf.getExtendedKeyUsages() != null && !conf.getExtendedKeyUsages().isEmpty()) {
+      this.extendedKeyUsageModel = new ExtendedKeyUsageModel(conf.isExtendedKeyUsageCritical(),
+          conf.getExtendedKeyUsages().stream()
+              .map(s -> KeyPurposeId.getInstance(new ASN1ObjectIdentifier(s)))
+              .toArray(KeyPurposeId[]::new));
+    }
+    else {
+      this.extendedKeyUsageModel = null;
+    }
+    if (conf.getPolicies() != null && !conf.getPolicies().isEmpty()) {
+      this.certificatePolicyModel = new CertificatePolicyModel(conf.isPoliciesCritical(),
+          conf.getPolicies().stream().map(ASN1ObjectIdentifier::new).toArray(ASN1ObjectIdentifier[]::new));
+    }
+    else {
+      this.certificatePolicyModel = null;
+    }
+    this.basicConstraintsModel = new BasicConstraintsModel(false, conf.isBasicConstraintsCritical());
+
+    this.rsaKeyUsage = KeyUsageCalculator.getKeyUsageValue(true, conf.getUsageDirective());
+    this.rsaKeyUsageModel = new KeyUsageModel(this.rsaKeyUsage);
+    this.keyUsage = KeyUsageCalculator.getKeyUsageValue(false, conf.getUsageDirective());
+    this.keyUsageModel = new KeyUsageModel(this.keyUsage);
+  }
+
+  /**
+   * Gets the extended key usage model.
+   *
+   * @return the extended key usage model, or null if no extended key usage extension should be included
+   */
+  @Nullable
+  public ExtendedKeyUsageModel getExtendedKeyUsageModel() {
+    return this.extendedKeyUsageModel;
+  }
+
+  /**
+   * Gets the certificate policy model.
+   *
+   * @return the certificate policy model, or null if no certificate policies extension should be included
+   */
+  @Nullable
+  public CertificatePolicyModel getCertificatePolicyModel() {
+    return this.certificatePolicyModel;
+  }
+
+  /**
+   * Gets the basic constraints model.
+   *
+   * @return the basic constraints model
+   */
+  @Nonnull
+  public BasicConstraintsModel getBasicConstraintsModel() {
+    return this.basicConstraintsModel;
+  }
+
+  /**
+   * Gets the key usage model for the supplied subject public key.
+   *
+   * @param subjectPublicKey the subject public key
+   * @return the key usage model
+   */
+  @Nonnull
+  public KeyUsageModel getKeyUsageModel(@Nonnull final PublicKey subjectPublicKey) {
+    return RSAPublicKey.class.isInstance(subjectPublicKey) ? this.rsaKeyUsageModel : this.keyUsageModel;
+  }
+
+  /**
+   * Gets the key usage value for the supplied subject public key.
+   *
+   * @param subjectPublicKey the subject public key
+   * @return the key usage value
+   */
+  public int getKeyUsageValue(@Nonnull final PublicKey subjectPublicKey) {
+    return RSAPublicKey.class.isInstance(subjectPublicKey) ? this.rsaKeyUsage : this.keyUsage;
+  }
+
+}
@@ -38,12 +38,23 @@ public class KeyUsageCalculator {
    */
   public static int getKeyUsageValue(
       @Nonnull final PublicKey publicKey, @Nullable final SigningKeyUsageDirective usageDirective) {
+    return getKeyUsageValue(RSAPublicKey.class.isInstance(publicKey), usageDirective);
+  }
+
+  /**
+   * Calculates the key usage value based on whether the key is an RSA key and {link SigningKeyUsageDirective}.
+   *
+   * @param rsaKey whether the key is an RSA key
+   * @param usageDirective the usage directive (may be null)
+   * @return a key usage value
+   */
+  public static int getKeyUsageValue(final boolean rsaKey, @Nullable final SigningKeyUsageDirective usageDirective) {
 
     int keyUsage = KeyUsage.digitalSignature + KeyUsage.nonRepudiation;
 
     if (usageDirective != null) {
       if (usageDirective.isEncrypt()) {
-        keyUsage += (RSAPublicKey.class.isInstance(publicKey) ? KeyUsage.keyEncipherment : KeyUsage.keyAgreement);
+        keyUsage += (rsaKey ? KeyUsage.keyEncipherment : KeyUsage.keyAgreement);
       }
       if (usageDirective.isExcludeNonRepudiation()) {
         keyUsage -= KeyUsage.nonRepudiation;
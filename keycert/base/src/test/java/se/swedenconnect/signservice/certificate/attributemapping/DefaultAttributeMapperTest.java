@@ -17,6 +17,7 @@ package se.swedenconnect.signservice.certificate.attributemapping;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -171,6 +172,7 @@ class DefaultAttributeMapperTest {
 
     private static IdentityAssertion getTestAssertion() {
       IdentityAssertion assertion = mock(IdentityAssertion.class);
+      when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
       when(assertion.getIdentityAttributes()).thenReturn(List.of(
         getMockAttr(BCStyle.GIVENNAME.getId(), "Nisse", "Given name"),
         getMockAttr(BCStyle.SURNAME.getId(), "Hult", "Surname"),
@@ -17,6 +17,7 @@ package se.swedenconnect.signservice.certificate.base;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -265,6 +266,28 @@ public class AbstractKeyAndCertificateHandlerTest {
 
   }
 
+  @Test
+  public void testKeyAndCertGenPreparedKey() throws Exception {
+    final IdentityAssertion assertion = this.getTestAssertion();
+    final SignRequestMessage signRequest =
+        this.getSignRequest(XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, CertificateType.PKC, null);
+
+    final PkiCredential signingKey = this.handler.generateSigningKey(signRequest, new DefaultSignServiceContext("ctx"));
+    Assertions.assertNotNull(signingKey);
+
+    final PkiCredential credential = this.handler.generateSigningCredential(
+        signRequest, assertion, signingKey, new DefaultSignServiceContext("ctx"));
+    Assertions.assertSame(signingKey.getPrivateKey(), credential.getPrivateKey());
+    Assertions.assertEquals(signingKey.getPublicKey(), credential.getCertificate().getPublicKey());
+    assertDoesNotThrow(() -> credential.getCertificate().verify(credential.getPublicKey()));
+
+    assertThatThrownBy(() -> {
+      this.handler.generateSigningCredential(
+          signRequest, assertion, mock(PkiCredential.class), new DefaultSignServiceContext("ctx"));
+    }).isInstanceOf(KeyException.class)
+        .hasMessage("Supplied signing key was not generated by this handler");
+  }
+
   @Test
   public void testKeyAndCertGenEcdsa() throws Exception {
     final IdentityAssertion assertion = this.getTestAssertion();
@@ -336,6 +359,7 @@ public class AbstractKeyAndCertificateHandlerTest {
   public void testInvalidAssertion() throws Exception {
 
     final IdentityAssertion assertion = mock(IdentityAssertion.class);
+    when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
     when(assertion.getIdentifier()).thenReturn(null);
     when(assertion.getIdentityAttributes()).thenReturn(null);
 
@@ -401,6 +425,7 @@ public class AbstractKeyAndCertificateHandlerTest {
 
   private IdentityAssertion getTestAssertion() {
     final IdentityAssertion assertion = mock(IdentityAssertion.class);
+    when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
     final AuthnContextIdentifier aci = mock(AuthnContextIdentifier.class);
 
     when(aci.getIdentifier()).thenReturn("http://id.elegnamnden.se/loa/1.0/loa3");
@@ -421,6 +446,7 @@ public class AbstractKeyAndCertificateHandlerTest {
 
   private IdentityAssertion getTestAssertionNoCountry() {
     final IdentityAssertion assertion = mock(IdentityAssertion.class);
+    when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
     final AuthnContextIdentifier aci = mock(AuthnContextIdentifier.class);
 
     when(aci.getIdentifier()).thenReturn("http://id.elegnamnden.se/loa/1.0/loa3");
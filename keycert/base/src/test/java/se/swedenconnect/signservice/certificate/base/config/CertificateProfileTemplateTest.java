@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.base.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test cases for CertificateProfileTemplate.
+ */
+public class CertificateProfileTemplateTest {
+
+  @Test
+  public void testDefaults() {
+    final CertificateProfileTemplate template = new CertificateProfileTemplate(null);
+    Assertions.assertNull(template.getExtendedKeyUsageModel());
+    Assertions.assertNull(template.getCertificatePolicyModel());
+    Assertions.assertNotNull(template.getBasicConstraintsModel());
+
+    final int defaultKeyUsage = KeyUsage.digitalSignature + KeyUsage.nonRepudiation;
+    Assertions.assertEquals(defaultKeyUsage, template.getKeyUsageValue(Mockito.mock(RSAPublicKey.class)));
+    Assertions.assertEquals(defaultKeyUsage, template.getKeyUsageValue(Mockito.mock(ECPublicKey.class)));
+    Assertions.assertNotNull(template.getKeyUsageModel(Mockito.mock(RSAPublicKey.class)));
+  }
+
+  @Test
+  public void testProfile() {
+    final SigningKeyUsageDirective directive = new SigningKeyUsageDirective();
+    directive.setEncrypt(true);
+
+    final CertificateProfileTemplate template = new CertificateProfileTemplate(CertificateProfileConfiguration.builder()
+        .policies(List.of("1.2.3.4.5"))
+        .extendedKeyUsages(List.of("1.3.6.1.5.5.7.3.4"))
+        .usageDirective(directive)
+        .build());
+
+    Assertions.assertNotNull(template.getExtendedKeyUsageModel());
+    Assertions.assertNotNull(template.getCertificatePolicyModel());
+
+    final int defaultKeyUsage = KeyUsage.digitalSignature + KeyUsage.nonRepudiation;
+    Assertions.assertEquals(defaultKeyUsage + KeyUsage.keyEncipherment,
+        template.getKeyUsageValue(Mockito.mock(RSAPublicKey.class)));
+    Assertions.assertEquals(defaultKeyUsage + KeyUsage.keyAgreement,
+        template.getKeyUsageValue(Mockito.mock(ECPublicKey.class)));
+
+    // The models are created once
+    Assertions.assertSame(template.getKeyUsageModel(Mockito.mock(RSAPublicKey.class)),
+        template.getKeyUsageModel(Mockito.mock(RSAPublicKey.class)));
+  }
+
+  @Test
+  public void testBadOid() {
+    assertThatThrownBy(() -> new CertificateProfileTemplate(CertificateProfileConfiguration.builder()
+        .policies(List.of("not-an-oid"))
+        .build()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
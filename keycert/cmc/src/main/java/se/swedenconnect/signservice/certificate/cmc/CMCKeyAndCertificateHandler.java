@@ -15,6 +15,8 @@
  */
 package se.swedenconnect.signservice.certificate.cmc;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -37,6 +39,7 @@ import lombok.extern.slf4j.Slf4j;
 import se.idsec.signservice.security.certificate.CertificateUtils;
 import se.swedenconnect.ca.cmc.CMCException;
 import se.swedenconnect.ca.cmc.api.client.CMCClient;
+import se.swedenconnect.ca.cmc.api.client.CMCClientHttpConnector;
 import se.swedenconnect.ca.cmc.api.data.CMCFailType;
 import se.swedenconnect.ca.cmc.api.data.CMCResponse;
 import se.swedenconnect.ca.cmc.api.data.CMCResponseStatus;
@@ -54,9 +57,13 @@ import se.swedenconnect.signservice.core.types.InvalidRequestException;
 
 /**
  * CMC based key and certificate handler obtaining certificates from a remote CA using CMC.
+ * <p>
+ * The handler should be closed when it is no longer used. This closes the HTTP connector assigned using
+ * {@link #setHttpConnector(CMCClientHttpConnector)} (if it is {@link Closeable}).
+ * </p>
  */
 @Slf4j
-public class CMCKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertificateHandler {
+public class CMCKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertificateHandler implements Closeable {
 
   /** CMC Client for remote CA service used to issue certificates. */
   private final CMCClient cmcClient;
@@ -67,6 +74,9 @@ public class CMCKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertifica
   /** The certificate request format. */
   private final CertificateRequestFormat certificateRequestFormat;
 
+  /** The HTTP connector used by the CMC client (owned by the handler). */
+  private CMCClientHttpConnector httpConnector;
+
   /**
    * Constructor.
    *
@@ -100,6 +110,26 @@ public class CMCKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertifica
     }
   }
 
+  /**
+   * Assigns the HTTP connector that is used by the CMC client. The handler takes ownership of the connector, meaning
+   * that it is closed when the handler is closed.
+   *
+   * @param httpConnector the HTTP connector used by the CMC client
+   */
+  public void setHttpConnector(@Nullable final CMCClientHttpConnector httpConnector) {
+    this.httpConnector = httpConnector;
+  }
+
+  /**
+   * Closes the HTTP connector (if it is assigned and closeable).
+   */
+  @Override
+  public void close() throws IOException {
+    if (Closeable.class.isInstance(this.httpConnector)) {
+      Closeable.class.cast(this.httpConnector).close();
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
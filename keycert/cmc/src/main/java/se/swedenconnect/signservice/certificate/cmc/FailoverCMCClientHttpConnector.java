@@ -0,0 +1,578 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.cmc.api.client.CMCClientHttpConnector;
+import se.swedenconnect.ca.cmc.api.client.CMCHttpResponseData;
+
+/**
+ * A {@link CMCClientHttpConnector} that spreads CMC requests over a number of equivalent CA endpoints. The URL supplied
+ * by the CMC client is ignored, and the request is instead sent to one of the configured endpoints.
+ * <ul>
+ * <li>Endpoints are selected randomly, weighted by their observed latency and recent failures.</li>
+ * <li>Each endpoint has a circuit breaker. After a number of consecutive failures, the endpoint is not used until the
+ * open duration has passed. After that one single request (probe) is let through, and the circuit is closed if it
+ * succeeds.</li>
+ * <li>If a request fails before it has been sent to the CA, for example since the connection could not be established,
+ * the next endpoint is tried (failover). Certificate issuance is not idempotent, so a request that may have reached
+ * the CA is never sent again. This also applies to an HTTP error response, except for status 503 (service
+ * unavailable).</li>
+ * <li>If a hedge delay is configured and a request has still not been sent when this time has passed (the connector is
+ * waiting for a pooled connection or for the connection to be established), the request is also started against the
+ * next endpoint. The request that first gets a connection is sent, and the other one is aborted. Thus, a request is
+ * never sent to more than one CA node. Hedging requires that the requests are sent using a
+ * {@link PooledCMCClientHttpConnector}.</li>
+ * </ul>
+ */
+@Slf4j
+public class FailoverCMCClientHttpConnector implements CMCClientHttpConnector, Closeable {
+
+  /** Default number of consecutive failures before the circuit of an endpoint is opened. */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+  /** Default time an endpoint is kept out of use when its circuit has been opened. */
+  public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+  /** Weight given to the latest latency observation when updating the latency average. */
+  private static final double LATENCY_ALPHA = 0.2;
+
+  /** The endpoints. */
+  private final List<Endpoint> endpoints;
+
+  /** The connector used to send the requests. */
+  private final CMCClientHttpConnector connector;
+
+  /** Executor for hedged requests (created when hedging is configured). */
+  private volatile ExecutorService hedgeExecutor;
+
+  /** The number of consecutive failures before the circuit of an endpoint is opened. */
+  private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+  /** The time an endpoint is kept out of use when its circuit has been opened. */
+  private Duration openDuration = DEFAULT_OPEN_DURATION;
+
+  /** The hedge delay (null if hedging is not used). */
+  private volatile Duration hedgeDelay;
+
+  /**
+   * Constructor.
+   *
+   * @param requestUrls the URLs of the equivalent CA endpoints
+   * @param connector the connector used to send the requests
+   * @throws IllegalArgumentException for empty or invalid URLs
+   */
+  public FailoverCMCClientHttpConnector(@Nonnull final List<String> requestUrls,
+      @Nonnull final CMCClientHttpConnector connector) throws IllegalArgumentException {
+    Objects.requireNonNull(requestUrls, "requestUrls must not be null");
+    if (requestUrls.isEmpty()) {
+      throw new IllegalArgumentException("At least one request URL must be given");
+    }
+    this.endpoints = new ArrayList<>();
+    for (final String url : requestUrls) {
+      try {
+        this.endpoints.add(new Endpoint(new URL(url)));
+      }
+      catch (final MalformedURLException e) {
+        throw new IllegalArgumentException("Invalid CMC request URL - " + url, e);
+      }
+    }
+    this.connector = Objects.requireNonNull(connector, "connector must not be null");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CMCHttpResponseData sendCmcRequest(final byte[] cmcRequestBytes, final URL requestUrl,
+      final int connectTimeout, final int readTimeout) {
+
+    final List<Endpoint> candidates = this.selectCandidates();
+    CMCHttpResponseData response = null;
+    int pos = 0;
+    while (pos < candidates.size()) {
+      final Endpoint endpoint = candidates.get(pos++);
+      if (!endpoint.tryAcquire(System.currentTimeMillis())) {
+        // Another request is probing the endpoint
+        continue;
+      }
+      final Attempt attempt = new Attempt(endpoint, new AtomicBoolean(false));
+      // The attempt whose outcome decides whether we may fail over
+      Attempt outcome = attempt;
+      if (this.hedgeDelay == null) {
+        response = this.send(attempt, cmcRequestBytes, connectTimeout, readTimeout);
+      }
+      else {
+        final CompletableFuture<CMCHttpResponseData> first = CompletableFuture.supplyAsync(
+            () -> this.send(attempt, cmcRequestBytes, connectTimeout, readTimeout), this.hedgeExecutor);
+        try {
+          try {
+            response = first.get(this.hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+          }
+          catch (final TimeoutException e) {
+            final Attempt hedge = attempt.isSent() ? null : this.acquireHedge(candidates, pos, attempt);
+            if (hedge == null) {
+              response = first.get();
+            }
+            else {
+              pos = candidates.indexOf(hedge.getEndpoint()) + 1;
+              log.debug("CMC request to {} not sent within {} - starting hedged request to {}",
+                  endpoint.getUrl(), this.hedgeDelay, hedge.getEndpoint().getUrl());
+              final CompletableFuture<CMCHttpResponseData> second = CompletableFuture.supplyAsync(
+                  () -> this.send(hedge, cmcRequestBytes, connectTimeout, readTimeout), this.hedgeExecutor);
+              response = firstSent(attempt, first, hedge, second);
+              if (hedge.isSent()) {
+                outcome = hedge;
+              }
+            }
+          }
+        }
+        catch (final InterruptedException e) {
+          attempt.cancel();
+          Optional.ofNullable(attempt.getSibling()).ifPresent(Attempt::cancel);
+          Thread.currentThread().interrupt();
+          return new CMCHttpResponseData(null, 0, new IOException("Interrupted while sending CMC request", e));
+        }
+        catch (final ExecutionException e) {
+          response = new CMCHttpResponseData(null, 0, new IOException("Failed to send CMC request", e.getCause()));
+        }
+      }
+      if (isSuccess(response)) {
+        return response;
+      }
+      if (!this.mayFailover(outcome, response)) {
+        log.info("CMC request to {} failed after it was sent - not trying other endpoints",
+            outcome.getEndpoint().getUrl());
+        return response;
+      }
+      if (pos < candidates.size()) {
+        log.info("CMC request to {} failed before it was sent - trying next endpoint", outcome.getEndpoint().getUrl());
+      }
+    }
+    if (response == null) {
+      log.info("No CMC endpoint available - all circuits are open");
+      return new CMCHttpResponseData(null, 0, new IOException("All CMC endpoints are unavailable"));
+    }
+    return response;
+  }
+
+  /**
+   * Closes the hedge executor, and the underlying connector if it is {@link Closeable}.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.hedgeExecutor != null) {
+      this.hedgeExecutor.shutdownNow();
+    }
+    if (this.connector instanceof final Closeable c) {
+      c.close();
+    }
+  }
+
+  /**
+   * Assigns the number of consecutive failures before the circuit of an endpoint is opened. Default is
+   * {@value #DEFAULT_FAILURE_THRESHOLD}.
+   *
+   * @param failureThreshold the failure threshold
+   */
+  public void setFailureThreshold(final int failureThreshold) {
+    if (failureThreshold <= 0) {
+      throw new IllegalArgumentException("failureThreshold must be greater than 0");
+    }
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * Assigns the time an endpoint is kept out of use when its circuit has been opened. Default is
+   * {@link #DEFAULT_OPEN_DURATION}.
+   *
+   * @param openDuration the open duration
+   */
+  public void setOpenDuration(@Nonnull final Duration openDuration) {
+    this.openDuration = Objects.requireNonNull(openDuration, "openDuration must not be null");
+  }
+
+  /**
+   * Assigns the hedge delay, i.e., the time to wait for a request to be sent before the request is also started against
+   * another endpoint. If not assigned, hedging is not used.
+   *
+   * @param hedgeDelay the hedge delay
+   * @throws IllegalArgumentException if the requests are not sent using a {@link PooledCMCClientHttpConnector}
+   */
+  public synchronized void setHedgeDelay(@Nullable final Duration hedgeDelay) throws IllegalArgumentException {
+    if (hedgeDelay != null && !(this.connector instanceof PooledCMCClientHttpConnector)) {
+      throw new IllegalArgumentException("Hedged requests require a " + PooledCMCClientHttpConnector.class.getSimpleName());
+    }
+    this.hedgeDelay = hedgeDelay;
+    if (hedgeDelay != null && this.hedgeExecutor == null) {
+      final AtomicInteger counter = new AtomicInteger(0);
+      this.hedgeExecutor = Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, "cmc-hedge-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Tells whether the circuit of the given endpoint is open.
+   *
+   * @param requestUrl the endpoint URL
+   * @return true if the circuit is open and false otherwise
+   */
+  public boolean isCircuitOpen(@Nonnull final String requestUrl) {
+    return this.endpoints.stream()
+        .filter(e -> e.getUrl().toString().equals(requestUrl))
+        .anyMatch(e -> !e.isAvailable(System.currentTimeMillis()));
+  }
+
+  /**
+   * Selects the endpoints to try, in order. The first endpoint is selected randomly, weighted by the health of the
+   * endpoints, and the remaining ones are ordered by their health.
+   *
+   * @return the endpoints to use
+   */
+  private List<Endpoint> selectCandidates() {
+    final long now = System.currentTimeMillis();
+    final List<Endpoint> available = this.endpoints.stream()
+        .filter(e -> e.isAvailable(now))
+        .collect(Collectors.toList());
+    if (available.size() <= 1) {
+      return available;
+    }
+    // Snapshot the weights, they may be updated concurrently
+    final Map<Endpoint, Double> weights = new IdentityHashMap<>();
+    available.forEach(e -> weights.put(e, e.getWeight()));
+
+    final double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+    double r = ThreadLocalRandom.current().nextDouble() * total;
+    Endpoint selected = available.get(available.size() - 1);
+    for (final Endpoint e : available) {
+      r -= weights.get(e);
+      if (r <= 0) {
+        selected = e;
+        break;
+      }
+    }
+    available.remove(selected);
+    available.sort(Comparator.comparingDouble((Endpoint e) -> weights.get(e)).reversed());
+    available.add(0, selected);
+    return available;
+  }
+
+  /**
+   * Finds the next endpoint that can be used for a hedged request.
+   *
+   * @param candidates the candidate endpoints
+   * @param pos the position of the next candidate to consider
+   * @param attempt the attempt that is hedged
+   * @return the hedged attempt, or null if no endpoint is available
+   */
+  @Nullable
+  private Attempt acquireHedge(final List<Endpoint> candidates, final int pos, final Attempt attempt) {
+    for (int i = pos; i < candidates.size(); i++) {
+      if (candidates.get(i).tryAcquire(System.currentTimeMillis())) {
+        final Attempt hedge = new Attempt(candidates.get(i), attempt.getSendClaim());
+        hedge.setSibling(attempt);
+        attempt.setSibling(hedge);
+        return hedge;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sends the request to the endpoint of the given attempt and records the outcome.
+   */
+  private CMCHttpResponseData send(final Attempt attempt, final byte[] cmcRequestBytes, final int connectTimeout,
+      final int readTimeout) {
+    final Endpoint endpoint = attempt.getEndpoint();
+    final long start = System.nanoTime();
+    CMCHttpResponseData response;
+    try {
+      response = this.connector instanceof final PooledCMCClientHttpConnector pooled
+          ? pooled.sendCmcRequest(cmcRequestBytes, endpoint.getUrl(), connectTimeout, readTimeout, attempt)
+          : this.connector.sendCmcRequest(cmcRequestBytes, endpoint.getUrl(), connectTimeout, readTimeout);
+    }
+    catch (final RuntimeException e) {
+      response = new CMCHttpResponseData(null, 0, e);
+    }
+    if (isSuccess(response)) {
+      endpoint.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    else if (attempt.isAbandoned()) {
+      // The attempt lost against a hedged attempt - this says nothing about the health of the endpoint
+      endpoint.release();
+    }
+    else {
+      endpoint.recordFailure(System.currentTimeMillis(), this.failureThreshold, this.openDuration);
+    }
+    return response;
+  }
+
+  /**
+   * Tells whether a failed request may be sent to another endpoint, i.e., whether we know that it did not reach the CA.
+   */
+  private boolean mayFailover(final Attempt attempt, final CMCHttpResponseData response) {
+    if (response.getResponseCode() == 503) {
+      return true;
+    }
+    if (this.connector instanceof PooledCMCClientHttpConnector) {
+      return !attempt.isSent();
+    }
+    // We don't know when the request was sent, but these errors occur before a connection is established
+    for (Throwable t = response.getException(); t != null; t = t.getCause()) {
+      if (t instanceof ConnectException || t instanceof NoRouteToHostException || t instanceof UnknownHostException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Waits for the response of the attempt that gets to send its request. If none of the attempts is sent, the response
+   * of the last one to complete is returned.
+   */
+  private static CMCHttpResponseData firstSent(final Attempt firstAttempt,
+      final CompletableFuture<CMCHttpResponseData> first, final Attempt secondAttempt,
+      final CompletableFuture<CMCHttpResponseData> second) throws InterruptedException {
+    final CompletableFuture<CMCHttpResponseData> winner = new CompletableFuture<>();
+    final AtomicInteger remaining = new AtomicInteger(2);
+    for (final Map.Entry<Attempt, CompletableFuture<CMCHttpResponseData>> e : List.of(
+        Map.entry(firstAttempt, first), Map.entry(secondAttempt, second))) {
+      e.getValue().whenComplete((r, ex) -> {
+        final CMCHttpResponseData response =
+            ex != null ? new CMCHttpResponseData(null, 0, new IOException("Failed to send CMC request", ex)) : r;
+        if (e.getKey().isSent() || remaining.decrementAndGet() == 0) {
+          winner.complete(response);
+        }
+      });
+    }
+    try {
+      return winner.get();
+    }
+    catch (final InterruptedException e) {
+      firstAttempt.cancel();
+      secondAttempt.cancel();
+      throw e;
+    }
+    catch (final ExecutionException e) {
+      return new CMCHttpResponseData(null, 0, new IOException("Failed to send CMC request", e.getCause()));
+    }
+  }
+
+  private static boolean isSuccess(@Nullable final CMCHttpResponseData response) {
+    return response != null && response.getException() == null
+        && response.getResponseCode() >= 200 && response.getResponseCode() < 300;
+  }
+
+  /**
+   * An attempt to send a request to an endpoint. Attempts for the same request (the original and the hedged one) share
+   * a send claim, and only the attempt that gets the claim is sent. The other one is then aborted.
+   */
+  private static class Attempt implements PooledCMCClientHttpConnector.RequestControl {
+
+    /** The endpoint. */
+    private final Endpoint endpoint;
+
+    /** Claim shared by all attempts for the same request. */
+    private final AtomicBoolean sendClaim;
+
+    /** Whether this attempt was sent. */
+    private volatile boolean sent = false;
+
+    /** Whether this attempt was abandoned. */
+    private boolean abandoned = false;
+
+    /** Handle for aborting the request. */
+    private Cancellable cancellable;
+
+    /** The other attempt for the same request (if hedged). */
+    private Attempt sibling;
+
+    Attempt(final Endpoint endpoint, final AtomicBoolean sendClaim) {
+      this.endpoint = endpoint;
+      this.sendClaim = sendClaim;
+    }
+
+    Endpoint getEndpoint() {
+      return this.endpoint;
+    }
+
+    AtomicBoolean getSendClaim() {
+      return this.sendClaim;
+    }
+
+    boolean isSent() {
+      return this.sent;
+    }
+
+    synchronized boolean isAbandoned() {
+      return this.abandoned;
+    }
+
+    synchronized Attempt getSibling() {
+      return this.sibling;
+    }
+
+    synchronized void setSibling(final Attempt sibling) {
+      this.sibling = sibling;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void started(@Nonnull final Cancellable cancellable) {
+      this.cancellable = cancellable;
+      if (this.abandoned) {
+        cancellable.cancel();
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean beforeSend() {
+      if (this.isAbandoned() || !this.sendClaim.compareAndSet(false, true)) {
+        this.cancel();
+        return false;
+      }
+      this.sent = true;
+      final Attempt other = this.getSibling();
+      if (other != null) {
+        other.cancel();
+      }
+      return true;
+    }
+
+    /**
+     * Abandons the attempt, and aborts the request if it has not been sent.
+     */
+    synchronized void cancel() {
+      if (this.sent) {
+        return;
+      }
+      this.abandoned = true;
+      if (this.cancellable != null) {
+        this.cancellable.cancel();
+      }
+    }
+  }
+
+  /**
+   * The state for a CA endpoint.
+   */
+  private static class Endpoint {
+
+    /** The endpoint URL. */
+    private final URL url;
+
+    /** Average latency in milliseconds. */
+    private double averageLatency = 0;
+
+    /** The number of consecutive failures. */
+    private int consecutiveFailures = 0;
+
+    /** The time (millis since epoch) until the circuit is open (0 if the circuit is closed). */
+    private volatile long openUntil = 0;
+
+    /** Set while the single probe request of a half-open circuit is in progress. */
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+
+    Endpoint(final URL url) {
+      this.url = url;
+    }
+
+    URL getUrl() {
+      return this.url;
+    }
+
+    /**
+     * Tells whether the endpoint may be used, i.e., the circuit is closed or it is half-open and not being probed.
+     */
+    boolean isAvailable(final long now) {
+      return this.openUntil == 0 || now >= this.openUntil && !this.probing.get();
+    }
+
+    /**
+     * Acquires the right to send a request to the endpoint. If the circuit is half-open, only one caller gets the
+     * right to send a probe request.
+     */
+    boolean tryAcquire(final long now) {
+      if (this.openUntil == 0) {
+        return true;
+      }
+      return now >= this.openUntil && this.probing.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases an acquired probe without recording an outcome.
+     */
+    void release() {
+      this.probing.set(false);
+    }
+
+    synchronized double getWeight() {
+      return 1.0 / ((this.averageLatency + 1.0) * (this.consecutiveFailures + 1));
+    }
+
+    synchronized void recordSuccess(final long latency) {
+      this.averageLatency = this.averageLatency == 0
+          ? latency
+          : LATENCY_ALPHA * latency + (1 - LATENCY_ALPHA) * this.averageLatency;
+      this.consecutiveFailures = 0;
+      this.openUntil = 0;
+      this.probing.set(false);
+    }
+
+    synchronized void recordFailure(final long now, final int failureThreshold, final Duration openDuration) {
+      this.consecutiveFailures++;
+      if (this.probing.get() || this.consecutiveFailures >= failureThreshold) {
+        log.info("Opening circuit for CMC endpoint {} after {} consecutive failures", this.url,
+            this.consecutiveFailures);
+        this.openUntil = now + openDuration.toMillis();
+      }
+      this.probing.set(false);
+    }
+  }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.cmc.api.client.CMCClientHttpConnector;
+import se.swedenconnect.ca.cmc.api.client.CMCHttpResponseData;
+import se.swedenconnect.ca.cmc.api.client.impl.HttpProxyConfiguration;
+import se.swedenconnect.signservice.certificate.cmc.config.CMCHttpTransportConfiguration;
+
+/**
+ * A {@link CMCClientHttpConnector} that sends CMC requests using a pooled Apache HTTP client. Connections to the CA are
+ * kept alive and re-used between requests, and the number of concurrent requests sent to the CA may be limited.
+ * <p>
+ * The connector should be closed when it is no longer used.
+ * </p>
+ */
+@Slf4j
+public class PooledCMCClientHttpConnector implements CMCClientHttpConnector, Closeable {
+
+  /** The content type for CMC requests. */
+  public static final String CMC_REQUEST_CONTENT_TYPE = "application/pkcs7-mime";
+
+  /** Default value for the maximum number of pooled connections. */
+  public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 20;
+
+  /** Default value for the maximum number of pooled connections per route. */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+  /** Default connect timeout. */
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+  /** Default timeout for obtaining a connection from the pool. */
+  public static final Duration DEFAULT_CONNECTION_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+  /** Default keep-alive time for idle connections. */
+  public static final Duration DEFAULT_KEEP_ALIVE = Duration.ofSeconds(60);
+
+  /** Default time to wait for an in-flight permit. */
+  public static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(10);
+
+  /** Pooled connections that have been idle for this time are validated before they are re-used. */
+  private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+
+  /** The connection manager. */
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  /** The HTTP client. */
+  private final CloseableHttpClient httpClient;
+
+  /** The request configuration that per-request timeouts are applied on. */
+  private final RequestConfig defaultRequestConfig;
+
+  /** The configured connect timeout (null if the timeout given by the CMC client should be used). */
+  private final Duration connectTimeout;
+
+  /** The configured read timeout (null if the timeout given by the CMC client should be used). */
+  private final Duration readTimeout;
+
+  /** The overall request deadline (null if no deadline is applied). */
+  private final Duration requestDeadline;
+
+  /** Scheduler used to abort requests that pass their deadline (null if no deadline is applied). */
+  private final ScheduledExecutorService deadlineScheduler;
+
+  /** Limits the number of requests in flight (null if there is no limit). */
+  private final Semaphore inFlightPermits;
+
+  /** The time to wait for an in-flight permit. */
+  private final Duration acquireTimeout;
+
+  /** The number of requests that have been rejected since the in-flight limit was reached. */
+  private final AtomicLong rejectedRequests = new AtomicLong(0);
+
+  /**
+   * Constructor.
+   *
+   * @param configuration the transport configuration (if null, defaults are used)
+   * @param proxyConfiguration optional HTTP proxy configuration
+   */
+  public PooledCMCClientHttpConnector(@Nullable final CMCHttpTransportConfiguration configuration,
+      @Nullable final HttpProxyConfiguration proxyConfiguration) {
+
+    final CMCHttpTransportConfiguration conf =
+        Optional.ofNullable(configuration).orElseGet(CMCHttpTransportConfiguration::new);
+
+    final ConnectionConfig.Builder connectionConfig = ConnectionConfig.custom()
+        .setConnectTimeout(toTimeout(conf.getConnectTimeout(), DEFAULT_CONNECT_TIMEOUT))
+        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+    if (conf.getConnectionTimeToLive() != null) {
+      connectionConfig.setTimeToLive(TimeValue.ofMilliseconds(conf.getConnectionTimeToLive().toMillis()));
+    }
+    this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(positive(conf.getMaxConnectionsTotal(), DEFAULT_MAX_CONNECTIONS_TOTAL, "maxConnectionsTotal"))
+        .setMaxConnPerRoute(
+            positive(conf.getMaxConnectionsPerRoute(), DEFAULT_MAX_CONNECTIONS_PER_ROUTE, "maxConnectionsPerRoute"))
+        .setDefaultConnectionConfig(connectionConfig.build())
+        .build();
+
+    final TimeValue keepAlive = TimeValue.ofMilliseconds(
+        Optional.ofNullable(conf.getKeepAlive()).orElse(DEFAULT_KEEP_ALIVE).toMillis());
+
+    this.defaultRequestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(
+            toTimeout(conf.getConnectionRequestTimeout(), DEFAULT_CONNECTION_REQUEST_TIMEOUT))
+        .build();
+
+    final HttpClientBuilder builder = HttpClients.custom()
+        .setConnectionManager(this.connectionManager)
+        .setDefaultRequestConfig(this.defaultRequestConfig)
+        .setKeepAliveStrategy((response, context) -> {
+          // Honour a shorter keep-alive time announced by the CA
+          final TimeValue announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return announced != null && announced.compareTo(keepAlive) < 0 ? announced : keepAlive;
+        })
+        .evictExpiredConnections()
+        .evictIdleConnections(keepAlive)
+        .disableAutomaticRetries();
+
+    if (proxyConfiguration != null && StringUtils.isNotBlank(proxyConfiguration.getHost())) {
+      builder.setProxy(new HttpHost(proxyConfiguration.getHost(), proxyConfiguration.getPort()));
+      if (StringUtils.isNotBlank(proxyConfiguration.getUserName())) {
+        final BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(
+            new AuthScope(proxyConfiguration.getHost(), proxyConfiguration.getPort()),
+            new UsernamePasswordCredentials(proxyConfiguration.getUserName(),
+                Optional.ofNullable(proxyConfiguration.getPassword()).map(String::toCharArray).orElse(new char[0])));
+        builder.setDefaultCredentialsProvider(credentialsProvider);
+      }
+    }
+    this.httpClient = builder.build();
+
+    this.connectTimeout = conf.getConnectTimeout();
+    this.readTimeout = conf.getReadTimeout();
+    this.requestDeadline = conf.getRequestDeadline();
+    this.deadlineScheduler = this.requestDeadline != null
+        ? Executors.newSingleThreadScheduledExecutor(r -> {
+          final Thread thread = new Thread(r, "cmc-request-deadline");
+          thread.setDaemon(true);
+          return thread;
+        })
+        : null;
+
+    this.inFlightPermits = conf.getMaxInFlight() != null
+        ? new Semaphore(positive(conf.getMaxInFlight(), 0, "maxInFlight"), true)
+        : null;
+    this.acquireTimeout = Optional.ofNullable(conf.getAcquireTimeout()).orElse(DEFAULT_ACQUIRE_TIMEOUT);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CMCHttpResponseData sendCmcRequest(final byte[] cmcRequestBytes, final URL requestUrl,
+      final int connectTimeout, final int readTimeout) {
+    return this.sendCmcRequest(cmcRequestBytes, requestUrl, connectTimeout, readTimeout, null);
+  }
+
+  /**
+   * Sends a CMC request under the control of the supplied {@link RequestControl}.
+   *
+   * @param cmcRequestBytes the CMC request
+   * @param requestUrl the URL to send the request to
+   * @param connectTimeout the connect timeout (in millis) supplied by the CMC client
+   * @param readTimeout the read timeout (in millis) supplied by the CMC client
+   * @param control the request control (may be null)
+   * @return the response data
+   */
+  CMCHttpResponseData sendCmcRequest(final byte[] cmcRequestBytes, final URL requestUrl,
+      final int connectTimeout, final int readTimeout, @Nullable final RequestControl control) {
+
+    if (!this.acquirePermit()) {
+      this.rejectedRequests.incrementAndGet();
+      log.info("CMC request to {} rejected - maximum number of requests in flight has been reached", requestUrl);
+      return new CMCHttpResponseData(null, 0,
+          new IOException("Maximum number of CMC requests in flight has been reached"));
+    }
+    ScheduledFuture<?> deadline = null;
+    try {
+      final HttpPost post = new HttpPost(requestUrl.toURI());
+      final HttpEntity entity = new ByteArrayEntity(cmcRequestBytes, ContentType.create(CMC_REQUEST_CONTENT_TYPE));
+      post.setEntity(control != null ? new ControlledEntity(entity, control) : entity);
+      if (control != null) {
+        control.started(post);
+      }
+
+      post.setConfig(this.createRequestConfig(connectTimeout, readTimeout));
+      if (this.deadlineScheduler != null) {
+        deadline = this.deadlineScheduler.schedule(() -> {
+          log.info("CMC request to {} did not complete within {} - aborting", requestUrl, this.requestDeadline);
+          post.cancel();
+        }, this.requestDeadline.toMillis(), TimeUnit.MILLISECONDS);
+      }
+
+      return this.httpClient.execute(post, response -> {
+        final byte[] data = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()) : null;
+        if (response.getCode() >= 300) {
+          log.debug("CMC request to {} failed with status {}", requestUrl, response.getCode());
+          return new CMCHttpResponseData(data, response.getCode(),
+              new IOException("CMC request failed with HTTP status " + response.getCode()));
+        }
+        return new CMCHttpResponseData(data, response.getCode(), null);
+      });
+    }
+    catch (final IOException | URISyntaxException e) {
+      log.info("Failed to send CMC request to {} - {}", requestUrl, e.getMessage());
+      return new CMCHttpResponseData(null, 0, e);
+    }
+    finally {
+      if (deadline != null) {
+        deadline.cancel(false);
+      }
+      if (this.inFlightPermits != null) {
+        this.inFlightPermits.release();
+      }
+    }
+  }
+
+  /**
+   * Gets the statistics for the connection pool.
+   *
+   * @return the pool statistics
+   */
+  @Nonnull
+  public PoolStats getPoolStats() {
+    return this.connectionManager.getTotalStats();
+  }
+
+  /**
+   * Gets the number of requests that have been rejected because the maximum number of requests in flight was reached.
+   *
+   * @return the number of rejected requests
+   */
+  public long getRejectedRequests() {
+    return this.rejectedRequests.get();
+  }
+
+  /**
+   * Creates the request configuration for a request. Configured timeouts take precedence over the timeouts supplied
+   * by the CMC client.
+   *
+   * @param connectTimeout the connect timeout (in millis) supplied by the CMC client
+   * @param readTimeout the read timeout (in millis) supplied by the CMC client
+   * @return a request configuration
+   */
+  @SuppressWarnings("deprecation")
+  @Nonnull
+  RequestConfig createRequestConfig(final int connectTimeout, final int readTimeout) {
+    final RequestConfig.Builder builder = RequestConfig.copy(this.defaultRequestConfig);
+    Optional.ofNullable(this.connectTimeout)
+        .or(() -> connectTimeout > 0 ? Optional.of(Duration.ofMillis(connectTimeout)) : Optional.empty())
+        .ifPresent(t -> builder.setConnectTimeout(Timeout.ofMilliseconds(t.toMillis())));
+    Optional.ofNullable(this.readTimeout)
+        .or(() -> readTimeout > 0 ? Optional.of(Duration.ofMillis(readTimeout)) : Optional.empty())
+        .ifPresent(t -> builder.setResponseTimeout(Timeout.ofMilliseconds(t.toMillis())));
+    return builder.build();
+  }
+
+  /**
+   * Closes the HTTP client and its connection pool.
+   */
+  @Override
+  public void close() {
+    this.httpClient.close(CloseMode.GRACEFUL);
+    if (this.deadlineScheduler != null) {
+      this.deadlineScheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Controls a request that is sent on behalf of a {@link FailoverCMCClientHttpConnector}. The control decides, just
+   * before the request body is written, whether the request may be sent at all, and may abort the request.
+   */
+  interface RequestControl {
+
+    /**
+     * Invoked before the request is executed.
+     *
+     * @param cancellable handle that aborts the request
+     */
+    void started(@Nonnull final Cancellable cancellable);
+
+    /**
+     * Invoked when a connection has been obtained and the request body is about to be written.
+     *
+     * @return true if the request may be sent, and false if it should be abandoned
+     */
+    boolean beforeSend();
+  }
+
+  /**
+   * Entity that consults the {@link RequestControl} before it is written.
+   */
+  private static class ControlledEntity extends HttpEntityWrapper {
+
+    /** The request control. */
+    private final RequestControl control;
+
+    ControlledEntity(final HttpEntity entity, final RequestControl control) {
+      super(entity);
+      this.control = control;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeTo(final OutputStream outStream) throws IOException {
+      if (!this.control.beforeSend()) {
+        throw new IOException("CMC request abandoned before it was sent");
+      }
+      super.writeTo(outStream);
+    }
+  }
+
+  /**
+   * Acquires an in-flight permit.
+   *
+   * @return true if a permit was acquired and false otherwise
+   */
+  private boolean acquirePermit() {
+    if (this.inFlightPermits == null) {
+      return true;
+    }
+    try {
+      return this.inFlightPermits.tryAcquire(this.acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static Timeout toTimeout(@Nullable final Duration duration, @Nonnull final Duration defaultValue) {
+    return Timeout.ofMilliseconds(Optional.ofNullable(duration).orElse(defaultValue).toMillis());
+  }
+
+  private static int positive(@Nullable final Integer value, final int defaultValue, @Nonnull final String name) {
+    if (value == null) {
+      return defaultValue;
+    }
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be greater than 0");
+    }
+    return value;
+  }
+
+}
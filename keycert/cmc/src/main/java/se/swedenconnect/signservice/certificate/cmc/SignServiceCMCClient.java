@@ -17,8 +17,6 @@ package se.swedenconnect.signservice.certificate.cmc;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.x509.KeyPurposeId;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.operator.OperatorCreationException;
@@ -28,13 +26,9 @@ import se.swedenconnect.ca.cmc.api.CMCMessageException;
 import se.swedenconnect.ca.cmc.api.client.impl.PreConfiguredCMCClient;
 import se.swedenconnect.ca.cmc.model.admin.response.StaticCAInformation;
 import se.swedenconnect.ca.engine.ca.models.cert.CertNameModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.CertificatePolicyModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.BasicConstraintsModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.ExtendedKeyUsageModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.KeyUsageModel;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.signservice.certificate.base.config.CertificateProfileConfiguration;
-import se.swedenconnect.signservice.certificate.base.config.KeyUsageCalculator;
+import se.swedenconnect.signservice.certificate.base.config.CertificateProfileTemplate;
 
 import java.net.MalformedURLException;
 import java.security.NoSuchAlgorithmException;
@@ -49,9 +43,12 @@ import java.util.Optional;
 public class SignServiceCMCClient extends PreConfiguredCMCClient {
 
   /**
-   * Optional certificate profile to be adopted in issued certificates.
+   * The pre-processed certificate profile to be adopted in issued certificates.
    */
-  private CertificateProfileConfiguration profileConfiguration;
+  private CertificateProfileTemplate profileTemplate = new CertificateProfileTemplate(null);
+
+  /** The CA certificate holder (created from {@code caCertificate} when first needed). */
+  private CaCertificateHolder caCertificateHolder;
 
   /**
    * Constructor for the CMC Client
@@ -93,9 +90,8 @@ public class SignServiceCMCClient extends PreConfiguredCMCClient {
 
     try {
       final StaticCAInformation caInformation = this.getStaticCAInformation();
-      final X509CertificateHolder caIssuerCert = new JcaX509CertificateHolder(this.caCertificate);
       final CMCCertificateModelBuilder certModelBuilder = CMCCertificateModelBuilder.getInstance(
-          subjectPublicKey, caIssuerCert, caInformation.getCaAlgorithm());
+          subjectPublicKey, this.getCaCertificateHolder(), caInformation.getCaAlgorithm());
 
       certModelBuilder
           .subject(subject)
@@ -104,21 +100,16 @@ public class SignServiceCMCClient extends PreConfiguredCMCClient {
 
       // Apply certificate profile
       //
-      final CertificateProfileConfiguration conf =
-          Optional.ofNullable(this.profileConfiguration).orElseGet(CertificateProfileConfiguration::new);
-
-      if (conf.getExtendedKeyUsages() != null && !conf.getExtendedKeyUsages().isEmpty()) {
-        certModelBuilder.extendedKeyUsage(new ExtendedKeyUsageModel(conf.isExtendedKeyUsageCritical(),
-            conf.getExtendedKeyUsages().stream().map(s -> KeyPurposeId.getInstance(new ASN1ObjectIdentifier(s)))
-                .toArray(KeyPurposeId[]::new)));
+      final CertificateProfileTemplate template = this.profileTemplate;
+      if (template.getExtendedKeyUsageModel() != null) {
+        certModelBuilder.extendedKeyUsage(template.getExtendedKeyUsageModel());
       }
-      if (conf.getPolicies() != null && !conf.getPolicies().isEmpty()) {
-        certModelBuilder.certificatePolicy(new CertificatePolicyModel(conf.isPoliciesCritical(),
-            conf.getPolicies().stream().map(ASN1ObjectIdentifier::new).toArray(ASN1ObjectIdentifier[]::new)));
+      if (template.getCertificatePolicyModel() != null) {
+        certModelBuilder.certificatePolicy(template.getCertificatePolicyModel());
       }
       certModelBuilder
-          .basicConstraints(new BasicConstraintsModel(false, conf.isBasicConstraintsCritical()))
-          .keyUsage(new KeyUsageModel(KeyUsageCalculator.getKeyUsageValue(subjectPublicKey, conf.getUsageDirective())));
+          .basicConstraints(template.getBasicConstraintsModel())
+          .keyUsage(template.getKeyUsageModel(subjectPublicKey));
 
       if (includeCrlDPs) {
         certModelBuilder.crlDistributionPoints(caInformation.getCrlDpURLs());
@@ -134,13 +125,50 @@ public class SignServiceCMCClient extends PreConfiguredCMCClient {
     }
   }
 
+  /**
+   * Gets the CA certificate as a {@link X509CertificateHolder}. The holder is created once and re-used for as long as
+   * the CA certificate remains the same.
+   *
+   * @return the CA certificate holder
+   * @throws CertificateEncodingException for encoding errors
+   */
+  @Nonnull
+  private X509CertificateHolder getCaCertificateHolder() throws CertificateEncodingException {
+    final X509Certificate currentCaCertificate = this.caCertificate;
+    final CaCertificateHolder cached = this.caCertificateHolder;
+    if (cached != null && cached.certificate == currentCaCertificate) {
+      return cached.holder;
+    }
+    final CaCertificateHolder holder =
+        new CaCertificateHolder(currentCaCertificate, new JcaX509CertificateHolder(currentCaCertificate));
+    this.caCertificateHolder = holder;
+    return holder.holder;
+  }
+
   /**
    * Optional certificate profile to be adopted in issued certificates.
    *
    * @param profileConfiguration certificate profile configuration
    */
   public void setProfileConfiguration(@Nullable final CertificateProfileConfiguration profileConfiguration) {
-    this.profileConfiguration = profileConfiguration;
+    this.profileTemplate = new CertificateProfileTemplate(profileConfiguration);
+  }
+
+  /**
+   * Holds the CA certificate and its corresponding holder object.
+   */
+  private static class CaCertificateHolder {
+
+    /** The CA certificate. */
+    private final X509Certificate certificate;
+
+    /** The certificate holder. */
+    private final X509CertificateHolder holder;
+
+    CaCertificateHolder(final X509Certificate certificate, final X509CertificateHolder holder) {
+      this.certificate = certificate;
+      this.holder = holder;
+    }
   }
 
 }
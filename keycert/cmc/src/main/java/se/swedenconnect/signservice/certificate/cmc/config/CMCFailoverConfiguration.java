@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import se.swedenconnect.signservice.certificate.cmc.FailoverCMCClientHttpConnector;
+
+/**
+ * Configuration for sending CMC requests to several equivalent CA endpoints (see
+ * {@link FailoverCMCClientHttpConnector}).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CMCFailoverConfiguration {
+
+  /**
+   * URLs for additional CA endpoints that are equivalent to the endpoint given by the CMC request URL.
+   */
+  private List<String> additionalRequestUrls;
+
+  /**
+   * The number of consecutive failures before an endpoint is taken out of use. Defaults to
+   * {@value FailoverCMCClientHttpConnector#DEFAULT_FAILURE_THRESHOLD}.
+   */
+  private Integer failureThreshold;
+
+  /**
+   * The time an endpoint is kept out of use after it has failed. Defaults to 30 seconds.
+   */
+  private Duration openDuration;
+
+  /**
+   * If assigned, a request that has not been sent within this time (it is waiting for a connection) is also started
+   * against another endpoint. The request that first gets a connection is sent and the other one is aborted, so a
+   * request is never sent to more than one endpoint. Requires that {@code cmcHttpTransport} is configured.
+   */
+  private Duration hedgeDelay;
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc.config;
+
+import java.time.Duration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import se.swedenconnect.signservice.certificate.cmc.PooledCMCClientHttpConnector;
+
+/**
+ * Configuration for the pooled HTTP transport ({@link PooledCMCClientHttpConnector}) used when sending CMC requests to
+ * the remote CA. Settings that are not assigned get the defaults given by {@link PooledCMCClientHttpConnector}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CMCHttpTransportConfiguration {
+
+  /**
+   * The maximum number of pooled connections in total.
+   */
+  private Integer maxConnectionsTotal;
+
+  /**
+   * The maximum number of pooled connections per route (i.e., per CA host).
+   */
+  private Integer maxConnectionsPerRoute;
+
+  /**
+   * The timeout for establishing a connection to the CA.
+   */
+  private Duration connectTimeout;
+
+  /**
+   * The maximum time to wait for data from the CA once the request has been sent. If not assigned, the read timeout
+   * given by the CMC client is used.
+   */
+  private Duration readTimeout;
+
+  /**
+   * The deadline for a complete CMC request, i.e., the time from when the request is sent until the full response has
+   * been received. The request is aborted if the deadline is passed. If not assigned, no overall deadline is applied.
+   */
+  private Duration requestDeadline;
+
+  /**
+   * The maximum time to wait for a connection from the pool.
+   */
+  private Duration connectionRequestTimeout;
+
+  /**
+   * The time an idle connection is kept alive in the pool (unless the CA states a shorter time).
+   */
+  private Duration keepAlive;
+
+  /**
+   * The maximum time to live for a pooled connection. If not assigned, connections are not closed because of their age.
+   */
+  private Duration connectionTimeToLive;
+
+  /**
+   * The maximum number of CMC requests that may be in flight at the same time.
+   */
+  private Integer maxInFlight;
+
+  /**
+   * The maximum time to wait for an in-flight permit when {@link #maxInFlight} has been reached. After this time the
+   * request is rejected.
+   */
+  private Duration acquireTimeout;
+
+}
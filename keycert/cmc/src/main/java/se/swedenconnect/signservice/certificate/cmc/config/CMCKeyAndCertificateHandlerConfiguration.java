@@ -77,6 +77,23 @@ public class CMCKeyAndCertificateHandlerConfiguration extends AbstractKeyAndCert
   @Getter
   private HttpProxyConfiguration cmcClientProxy;
 
+  /**
+   * Configuration for a pooled HTTP transport used to send CMC requests. If assigned, connections to the CA are pooled
+   * and kept alive, and the configured timeouts and concurrency limits are applied. If not assigned, a new connection
+   * is opened for each CMC request.
+   */
+  @Setter
+  @Getter
+  private CMCHttpTransportConfiguration cmcHttpTransport;
+
+  /**
+   * Configuration for sending CMC requests to several equivalent CA endpoints, with failover and optional hedged
+   * requests. If not assigned, all requests are sent to {@link #cmcRequestUrl}.
+   */
+  @Setter
+  @Getter
+  private CMCFailoverConfiguration cmcFailover;
+
   /**
    * Certificate request format (crmf or pkcs10).
    */
@@ -19,6 +19,8 @@ import java.net.MalformedURLException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -29,6 +31,7 @@ import org.bouncycastle.operator.OperatorCreationException;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.cmc.api.client.CMCClientHttpConnector;
 import se.swedenconnect.ca.cmc.api.client.impl.ProxyCMCClientHttpConnector;
 import se.swedenconnect.security.algorithms.AlgorithmRegistry;
 import se.swedenconnect.security.credential.PkiCredential;
@@ -40,6 +43,8 @@ import se.swedenconnect.signservice.certificate.base.config.AbstractKeyAndCertif
 import se.swedenconnect.signservice.certificate.base.config.CertificateProfileConfiguration;
 import se.swedenconnect.signservice.certificate.cmc.CMCKeyAndCertificateHandler;
 import se.swedenconnect.signservice.certificate.cmc.CertificateRequestFormat;
+import se.swedenconnect.signservice.certificate.cmc.FailoverCMCClientHttpConnector;
+import se.swedenconnect.signservice.certificate.cmc.PooledCMCClientHttpConnector;
 import se.swedenconnect.signservice.certificate.cmc.RemoteCaInformation;
 import se.swedenconnect.signservice.certificate.cmc.SignServiceCMCClient;
 import se.swedenconnect.signservice.core.config.BeanLoader;
@@ -100,7 +105,12 @@ public class CMCKeyAndCertificateHandlerFactory extends AbstractKeyAndCertificat
     try {
       final SignServiceCMCClient cmcClient = new SignServiceCMCClient(
           requestURL, clientCredential, signingAlgorithm, responderCertificate, caInformation);
-      cmcClient.setCmcClientHttpConnector(new ProxyCMCClientHttpConnector(conf.getCmcClientProxy()));
+      final CMCClientHttpConnector httpConnector = conf.getCmcHttpTransport() != null
+          ? new PooledCMCClientHttpConnector(conf.getCmcHttpTransport(), conf.getCmcClientProxy())
+          : new ProxyCMCClientHttpConnector(conf.getCmcClientProxy());
+      final CMCClientHttpConnector clientHttpConnector =
+          this.createFailoverConnector(requestURL, conf.getCmcFailover(), httpConnector);
+      cmcClient.setCmcClientHttpConnector(clientHttpConnector);
       if (conf.getProfileConfiguration() != null) {
         cmcClient.setProfileConfiguration(profileConfiguration);
       }
@@ -109,8 +119,10 @@ public class CMCKeyAndCertificateHandlerFactory extends AbstractKeyAndCertificat
           ? CertificateRequestFormat.pkcs10
           : conf.getCertificateRequestFormat();
 
-      return new CMCKeyAndCertificateHandler(keyProvider, algorithmKeyTypeMap, attributeMapper, algorithmRegistry,
-          cmcClient, certificateRequestFormat);
+      final CMCKeyAndCertificateHandler handler = new CMCKeyAndCertificateHandler(keyProvider, algorithmKeyTypeMap,
+          attributeMapper, algorithmRegistry, cmcClient, certificateRequestFormat);
+      handler.setHttpConnector(clientHttpConnector);
+      return handler;
     }
     catch (final CertificateEncodingException | MalformedURLException | NoSuchAlgorithmException
         | OperatorCreationException e) {
@@ -120,4 +132,30 @@ public class CMCKeyAndCertificateHandlerFactory extends AbstractKeyAndCertificat
 
   }
 
-}
+  /**
+   * If failover is configured, the supplied connector is wrapped in a {@link FailoverCMCClientHttpConnector}.
+   *
+   * @param requestUrl the CMC request URL
+   * @param failover the failover configuration (may be null)
+   * @param httpConnector the connector sending the requests
+   * @return a connector
+   */
+  @Nonnull
+  private CMCClientHttpConnector createFailoverConnector(@Nonnull final String requestUrl,
+      @Nullable final CMCFailoverConfiguration failover, @Nonnull final CMCClientHttpConnector httpConnector) {
+    if (failover == null || failover.getAdditionalRequestUrls() == null
+        || failover.getAdditionalRequestUrls().isEmpty()) {
+      return httpConnector;
+    }
+    final List<String> requestUrls = new ArrayList<>();
+    requestUrls.add(requestUrl);
+    requestUrls.addAll(failover.getAdditionalRequestUrls());
+
+    final FailoverCMCClientHttpConnector connector = new FailoverCMCClientHttpConnector(requestUrls, httpConnector);
+    Optional.ofNullable(failover.getFailureThreshold()).ifPresent(connector::setFailureThreshold);
+    Optional.ofNullable(failover.getOpenDuration()).ifPresent(connector::setOpenDuration);
+    connector.setHedgeDelay(failover.getHedgeDelay());
+    return connector;
+  }
+
+}
\ No newline at end of file
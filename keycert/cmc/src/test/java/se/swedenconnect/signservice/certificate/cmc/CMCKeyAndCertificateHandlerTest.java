@@ -17,7 +17,9 @@
 package se.swedenconnect.signservice.certificate.cmc;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -135,6 +137,19 @@ class CMCKeyAndCertificateHandlerTest {
     return cmcClient;
   }
 
+  @Test
+  void testClose() throws Exception {
+    final TestCAHolder caHolder = TestServices.getTestCAs().get(TestCA.INSTANCE1);
+    final SignServiceCMCClient cmcClient = getCMCClient(caHolder.getCscaService());
+    final PooledCMCClientHttpConnector connector = mock(PooledCMCClientHttpConnector.class);
+    cmcClient.setCmcClientHttpConnector(connector);
+    final CMCKeyAndCertificateHandler handler = new CMCKeyAndCertificateHandler(keyProvider, null, attributeMapper,
+        null, cmcClient, CertificateRequestFormat.crmf);
+    handler.setHttpConnector(connector);
+    handler.close();
+    verify(connector).close();
+  }
+
   @Test
   void obtainSigningCertificate() throws Exception {
 
@@ -363,6 +378,7 @@ class CMCKeyAndCertificateHandlerTest {
 
     private static IdentityAssertion getTestAssertion() {
       IdentityAssertion assertion = mock(IdentityAssertion.class);
+      when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
       when(assertion.getIdentityAttributes()).thenReturn(List.of(
           getMockAttr(CertAttributes.GIVENNAME.getId(), "Nisse", "Given name"),
           getMockAttr(CertAttributes.SURNAME.getId(), "Hult", "Surname"),
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.Security;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.ca.cmc.api.CMCCaApi;
+import se.swedenconnect.ca.cmc.api.client.CMCClientHttpConnector;
+import se.swedenconnect.ca.cmc.api.client.CMCHttpResponseData;
+import se.swedenconnect.signservice.certificate.cmc.config.CMCHttpTransportConfiguration;
+import se.swedenconnect.signservice.certificate.cmc.testutils.CMCApiFactory;
+import se.swedenconnect.signservice.certificate.cmc.testutils.LocalCMCCaServer;
+import se.swedenconnect.signservice.certificate.cmc.testutils.ca.TestCA;
+import se.swedenconnect.signservice.certificate.cmc.testutils.ca.TestServices;
+
+/**
+ * Test cases for FailoverCMCClientHttpConnector.
+ */
+public class FailoverCMCClientHttpConnectorTest {
+
+  private static final byte[] REQUEST = new byte[] { 1, 2, 3 };
+
+  private static CMCCaApi cmcCaApi;
+
+  private LocalCMCCaServer server1;
+
+  private LocalCMCCaServer server2;
+
+  private FailoverCMCClientHttpConnector connector;
+
+  @BeforeAll
+  public static void init() {
+    if (Security.getProvider("BC") == null) {
+      Security.insertProviderAt(new BouncyCastleProvider(), 2);
+    }
+    TestServices.addCa(TestCA.INSTANCE1);
+    cmcCaApi = CMCApiFactory.getCMCApi(TestServices.getTestCAs().get(TestCA.INSTANCE1).getCscaService());
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.server1 = new LocalCMCCaServer(cmcCaApi);
+    this.server2 = new LocalCMCCaServer(cmcCaApi);
+    this.connector = new FailoverCMCClientHttpConnector(
+        List.of(this.server1.getRequestUrl(), this.server2.getRequestUrl()),
+        new PooledCMCClientHttpConnector(null, null));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    this.connector.close();
+    this.server1.close();
+    this.server2.close();
+  }
+
+  @Test
+  public void testBadArguments() {
+    assertThatThrownBy(() -> new FailoverCMCClientHttpConnector(List.of(), mock(CMCClientHttpConnector.class)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new FailoverCMCClientHttpConnector(List.of("not-a-url"),
+        mock(CMCClientHttpConnector.class)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new FailoverCMCClientHttpConnector(List.of("http://localhost/cmc"), null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("connector must not be null");
+    assertThatThrownBy(() -> this.connector.setFailureThreshold(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testSpreadsRequests() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      Assertions.assertEquals(200, this.send().getResponseCode());
+    }
+    Assertions.assertEquals(20, this.server1.getRequestCount().get() + this.server2.getRequestCount().get());
+  }
+
+  @Test
+  public void testFailover() throws Exception {
+    this.server1.setFailureStatus(503);
+    this.connector.setFailureThreshold(2);
+
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertEquals(200, this.send().getResponseCode());
+    }
+    // The first endpoint should have been taken out of use after two failures
+    Assertions.assertTrue(this.server1.getRequestCount().get() <= 2);
+    Assertions.assertTrue(this.connector.isCircuitOpen(this.server1.getRequestUrl()));
+    Assertions.assertFalse(this.connector.isCircuitOpen(this.server2.getRequestUrl()));
+  }
+
+  @Test
+  public void testFailoverConnectionRefused() throws Exception {
+    this.server1.close();
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertEquals(200, this.send().getResponseCode());
+    }
+    Assertions.assertEquals(5, this.server2.getRequestCount().get());
+  }
+
+  @Test
+  public void testNoFailoverAfterSent() throws Exception {
+    // An error status means that the CA may have processed the request
+    this.server1.setFailureStatus(500);
+    this.server2.setFailureStatus(500);
+    Assertions.assertEquals(500, this.send().getResponseCode());
+    Assertions.assertEquals(1, this.server1.getRequestCount().get() + this.server2.getRequestCount().get());
+
+    // The same goes for a request that times out
+    this.server1.setFailureStatus(0);
+    this.server2.setFailureStatus(0);
+    this.server1.setLatency(Duration.ofSeconds(1));
+    this.server2.setLatency(Duration.ofSeconds(1));
+    final CMCHttpResponseData response =
+        this.connector.sendCmcRequest(REQUEST, new URL("http://localhost/ignored"), 1000, 200);
+    Assertions.assertNotNull(response.getException());
+    Assertions.assertEquals(2, this.server1.getRequestCount().get() + this.server2.getRequestCount().get());
+  }
+
+  @Test
+  public void testCircuitCloses() throws Exception {
+    this.server1.setFailureStatus(500);
+    this.server2.setFailureStatus(500);
+    this.connector.setFailureThreshold(1);
+    this.connector.setOpenDuration(Duration.ofMillis(100));
+
+    Assertions.assertNotNull(this.send().getException());
+    Assertions.assertNotNull(this.send().getException());
+
+    // All circuits are open
+    final CMCHttpResponseData response = this.send();
+    Assertions.assertNotNull(response.getException());
+    Assertions.assertEquals(2, this.server1.getRequestCount().get() + this.server2.getRequestCount().get());
+
+    Thread.sleep(150);
+    this.server1.setFailureStatus(0);
+    this.server2.setFailureStatus(0);
+    Assertions.assertEquals(200, this.send().getResponseCode());
+  }
+
+  @Test
+  public void testSingleProbe() throws Exception {
+    final LocalCMCCaServer server = new LocalCMCCaServer(cmcCaApi);
+    try (final FailoverCMCClientHttpConnector singleConnector = new FailoverCMCClientHttpConnector(
+        List.of(server.getRequestUrl()), new PooledCMCClientHttpConnector(null, null))) {
+      singleConnector.setFailureThreshold(1);
+      singleConnector.setOpenDuration(Duration.ofMillis(50));
+
+      server.setFailureStatus(503);
+      Assertions.assertEquals(503, this.send(singleConnector).getResponseCode());
+      Assertions.assertTrue(singleConnector.isCircuitOpen(server.getRequestUrl()));
+
+      Thread.sleep(100);
+      server.setFailureStatus(0);
+      server.setLatency(Duration.ofMillis(500));
+      final CompletableFuture<CMCHttpResponseData> probe =
+          CompletableFuture.supplyAsync(() -> this.sendUnchecked(singleConnector));
+      while (server.getRequestCount().get() < 2) {
+        Thread.sleep(10);
+      }
+      // The probe is in progress - other requests are not let through
+      for (int i = 0; i < 3; i++) {
+        final CMCHttpResponseData response = this.send(singleConnector);
+        Assertions.assertNotNull(response.getException());
+        Assertions.assertEquals(0, response.getResponseCode());
+      }
+      Assertions.assertEquals(200, probe.get().getResponseCode());
+      Assertions.assertEquals(2, server.getRequestCount().get());
+      Assertions.assertFalse(singleConnector.isCircuitOpen(server.getRequestUrl()));
+    }
+    finally {
+      server.close();
+    }
+  }
+
+  @Test
+  public void testHedgingNotSentRequest() throws Exception {
+    final PooledCMCClientHttpConnector pooled = new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder().maxConnectionsPerRoute(1).build(), null);
+    try (final FailoverCMCClientHttpConnector hedgingConnector = new FailoverCMCClientHttpConnector(
+        List.of(this.server1.getRequestUrl(), this.server2.getRequestUrl()), pooled)) {
+      hedgingConnector.setHedgeDelay(Duration.ofMillis(50));
+
+      // Occupy the only connection to the first endpoint, so that requests to it wait for a connection
+      this.server1.setLatency(Duration.ofSeconds(2));
+      final CompletableFuture<CMCHttpResponseData> occupying = CompletableFuture.supplyAsync(
+          () -> pooled.sendCmcRequest(REQUEST, toUrl(this.server1.getRequestUrl()), 1000, 5000));
+      while (this.server1.getRequestCount().get() == 0) {
+        Thread.sleep(10);
+      }
+
+      for (int i = 0; i < 3; i++) {
+        final long start = System.currentTimeMillis();
+        Assertions.assertEquals(200, this.send(hedgingConnector).getResponseCode());
+        Assertions.assertTrue(System.currentTimeMillis() - start < 1500);
+      }
+      // The waiting requests to the first endpoint were aborted and never sent
+      Assertions.assertEquals(3, this.server2.getRequestCount().get());
+      Assertions.assertEquals(200, occupying.get().getResponseCode());
+      Assertions.assertEquals(1, this.server1.getRequestCount().get());
+    }
+  }
+
+  @Test
+  public void testNoHedgingSentRequest() throws Exception {
+    this.server1.setLatency(Duration.ofMillis(300));
+    this.server2.setLatency(Duration.ofMillis(300));
+    this.connector.setHedgeDelay(Duration.ofMillis(50));
+
+    // Both requests are sent before the hedge delay has passed - no hedged requests are sent
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals(200, this.send().getResponseCode());
+    }
+    Assertions.assertEquals(3, this.server1.getRequestCount().get() + this.server2.getRequestCount().get());
+  }
+
+  @Test
+  public void testHedgingRequiresPooledConnector() {
+    final FailoverCMCClientHttpConnector c = new FailoverCMCClientHttpConnector(
+        List.of("http://localhost/cmc"), mock(CMCClientHttpConnector.class));
+    assertThatThrownBy(() -> c.setHedgeDelay(Duration.ofMillis(50)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private CMCHttpResponseData send(final FailoverCMCClientHttpConnector c) throws Exception {
+    return c.sendCmcRequest(REQUEST, new URL("http://localhost/ignored"), 1000, 5000);
+  }
+
+  private CMCHttpResponseData sendUnchecked(final FailoverCMCClientHttpConnector c) {
+    try {
+      return this.send(c);
+    }
+    catch (final Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static URL toUrl(final String url) {
+    try {
+      return new URL(url);
+    }
+    catch (final MalformedURLException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private CMCHttpResponseData send() throws Exception {
+    // The URL is ignored by the connector
+    return this.connector.sendCmcRequest(REQUEST, new URL("http://localhost/ignored"), 1000, 5000);
+  }
+
+}
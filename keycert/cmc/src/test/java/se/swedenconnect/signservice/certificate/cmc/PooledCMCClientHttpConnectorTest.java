@@ -0,0 +1,243 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.xml.security.signature.XMLSignature;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.ca.cmc.api.client.CMCHttpResponseData;
+import se.swedenconnect.ca.cmc.api.data.CMCResponse;
+import se.swedenconnect.ca.cmc.api.data.CMCStatusType;
+import se.swedenconnect.ca.engine.ca.attribute.CertAttributes;
+import se.swedenconnect.ca.engine.ca.issuer.CAService;
+import se.swedenconnect.ca.engine.ca.models.cert.AttributeTypeAndValueModel;
+import se.swedenconnect.ca.engine.ca.models.cert.CertificateModel;
+import se.swedenconnect.ca.engine.ca.models.cert.impl.ExplicitCertNameModel;
+import se.swedenconnect.security.credential.BasicCredential;
+import se.swedenconnect.security.credential.utils.X509Utils;
+import se.swedenconnect.signservice.certificate.cmc.config.CMCHttpTransportConfiguration;
+import se.swedenconnect.signservice.certificate.cmc.testutils.CMCApiFactory;
+import se.swedenconnect.signservice.certificate.cmc.testutils.LocalCMCCaServer;
+import se.swedenconnect.signservice.certificate.cmc.testutils.TestCredentials;
+import se.swedenconnect.signservice.certificate.cmc.testutils.ca.TestCA;
+import se.swedenconnect.signservice.certificate.cmc.testutils.ca.TestServices;
+
+/**
+ * Test cases for PooledCMCClientHttpConnector.
+ */
+public class PooledCMCClientHttpConnectorTest {
+
+  private static CAService caService;
+
+  private LocalCMCCaServer server;
+
+  @BeforeAll
+  public static void init() {
+    if (Security.getProvider("BC") == null) {
+      Security.insertProviderAt(new BouncyCastleProvider(), 2);
+    }
+    TestServices.addCa(TestCA.INSTANCE1);
+    caService = TestServices.getTestCAs().get(TestCA.INSTANCE1).getCscaService();
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.server = new LocalCMCCaServer(CMCApiFactory.getCMCApi(caService));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    this.server.close();
+  }
+
+  @Test
+  public void testIssueCertificates() throws Exception {
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(null, null)) {
+      final SignServiceCMCClient cmcClient = this.getCMCClient(this.server.getRequestUrl());
+      cmcClient.setCmcClientHttpConnector(connector);
+
+      final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+      generator.initialize(256);
+
+      for (int i = 0; i < 3; i++) {
+        final KeyPair keyPair = generator.generateKeyPair();
+        final CertificateModel certificateModel = cmcClient.getCertificateModelBuilder(keyPair.getPublic(),
+            new ExplicitCertNameModel(List.of(AttributeTypeAndValueModel.builder()
+                .attributeType(CertAttributes.CN)
+                .value("Test User " + i)
+                .build())),
+            true, true).build();
+
+        final CMCResponse response = cmcClient.issueCertificate(certificateModel, null, null, null);
+        Assertions.assertEquals(CMCStatusType.success, response.getResponseStatus().getStatus());
+        Assertions.assertEquals(keyPair.getPublic(), response.getReturnCertificates().get(0).getPublicKey());
+      }
+      Assertions.assertEquals(3, this.server.getRequestCount().get());
+
+      // The connection should have been kept alive and returned to the pool
+      Assertions.assertEquals(0, connector.getPoolStats().getLeased());
+      Assertions.assertEquals(1, connector.getPoolStats().getAvailable());
+    }
+  }
+
+  @Test
+  public void testHttpError() throws Exception {
+    this.server.setFailureStatus(500);
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(null, null)) {
+      final CMCHttpResponseData response =
+          connector.sendCmcRequest(new byte[] { 1, 2, 3 }, new URL(this.server.getRequestUrl()), 1000, 1000);
+      Assertions.assertEquals(500, response.getResponseCode());
+      Assertions.assertNotNull(response.getException());
+    }
+  }
+
+  @Test
+  public void testConnectionRefused() throws Exception {
+    final String url = this.server.getRequestUrl();
+    this.server.close();
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(null, null)) {
+      final CMCHttpResponseData response = connector.sendCmcRequest(new byte[] { 1, 2, 3 }, new URL(url), 1000, 1000);
+      Assertions.assertInstanceOf(IOException.class, response.getException());
+    }
+  }
+
+  @Test
+  public void testReadTimeout() throws Exception {
+    this.server.setLatency(Duration.ofSeconds(2));
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder().readTimeout(Duration.ofMillis(100)).build(), null)) {
+      final CMCHttpResponseData response =
+          connector.sendCmcRequest(new byte[] { 1, 2, 3 }, new URL(this.server.getRequestUrl()), 1000, 10000);
+      Assertions.assertNotNull(response.getException());
+    }
+  }
+
+  @Test
+  public void testRequestDeadline() throws Exception {
+    this.server.setLatency(Duration.ofSeconds(2));
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder().requestDeadline(Duration.ofMillis(100)).build(), null)) {
+      final long start = System.currentTimeMillis();
+      final CMCHttpResponseData response =
+          connector.sendCmcRequest(new byte[] { 1, 2, 3 }, new URL(this.server.getRequestUrl()), 1000, 10000);
+      Assertions.assertNotNull(response.getException());
+      Assertions.assertTrue(System.currentTimeMillis() - start < 1500);
+    }
+  }
+
+  @Test
+  public void testMaxInFlight() throws Exception {
+    this.server.setLatency(Duration.ofMillis(500));
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder()
+            .maxInFlight(1)
+            .acquireTimeout(Duration.ofMillis(10))
+            .build(),
+        null)) {
+
+      final URL url = new URL(this.server.getRequestUrl());
+      final CompletableFuture<CMCHttpResponseData> first =
+          CompletableFuture.supplyAsync(() -> connector.sendCmcRequest(new byte[] { 1, 2, 3 }, url, 1000, 5000));
+
+      // Wait until the first request has reached the server
+      while (this.server.getRequestCount().get() == 0) {
+        Thread.sleep(10);
+      }
+      final CMCHttpResponseData rejected = connector.sendCmcRequest(new byte[] { 1, 2, 3 }, url, 1000, 5000);
+      Assertions.assertNotNull(rejected.getException());
+      Assertions.assertEquals(1, connector.getRejectedRequests());
+
+      Assertions.assertEquals(200, first.get().getResponseCode());
+      Assertions.assertEquals(1, this.server.getRequestCount().get());
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testRequestTimeouts() throws Exception {
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(null, null)) {
+      final RequestConfig config = connector.createRequestConfig(1500, 2500);
+      Assertions.assertEquals(Timeout.ofMilliseconds(1500), config.getConnectTimeout());
+      Assertions.assertEquals(Timeout.ofMilliseconds(2500), config.getResponseTimeout());
+      Assertions.assertNotNull(config.getConnectionRequestTimeout());
+    }
+    try (final PooledCMCClientHttpConnector connector = new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder()
+            .connectTimeout(Duration.ofMillis(100))
+            .readTimeout(Duration.ofMillis(200))
+            .build(),
+        null)) {
+      final RequestConfig config = connector.createRequestConfig(1500, 2500);
+      Assertions.assertEquals(Timeout.ofMilliseconds(100), config.getConnectTimeout());
+      Assertions.assertEquals(Timeout.ofMilliseconds(200), config.getResponseTimeout());
+    }
+  }
+
+  @Test
+  public void testBadConfiguration() {
+    assertThatThrownBy(() -> new PooledCMCClientHttpConnector(
+        CMCHttpTransportConfiguration.builder().maxInFlight(0).build(), null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("maxInFlight must be greater than 0");
+  }
+
+  private SignServiceCMCClient getCMCClient(final String requestUrl) throws Exception {
+    final RemoteCaInformation caInformation = RemoteCaInformation.builder()
+        .caAlgorithm(caService.getCaAlgorithm())
+        .caCertificateChain(caService.getCACertificateChain().stream()
+            .map(PooledCMCClientHttpConnectorTest::toCertificate)
+            .collect(Collectors.toList()))
+        .ocspResponderUrl(caService.getOCSPResponderURL())
+        .crlDpUrls(caService.getCrlDpURLs())
+        .build();
+
+    return new SignServiceCMCClient(requestUrl,
+        new BasicCredential(TestCredentials.cMCClientSignerCertificate, TestCredentials.privateCMCClientSignerECKey),
+        XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, TestCredentials.cMCCaSignerCertificate, caInformation);
+  }
+
+  private static X509Certificate toCertificate(final X509CertificateHolder holder) {
+    try {
+      return X509Utils.decodeCertificate(holder.getEncoded());
+    }
+    catch (final CertificateException | IOException e) {
+      throw new SecurityException("Failed to decode certificate", e);
+    }
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.cmc.testutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.cmc.api.CMCCaApi;
+import se.swedenconnect.ca.cmc.api.data.CMCResponse;
+
+/**
+ * An in-process CMC CA that receives CMC requests over HTTP on the loopback interface and processes them using a
+ * {@link CMCCaApi}. Used for integration and load tests of the CMC transport.
+ */
+@Slf4j
+public class LocalCMCCaServer implements Closeable {
+
+  /** The path where CMC requests are received. */
+  public static final String CMC_PATH = "/cmc";
+
+  /** The HTTP server. */
+  private final HttpServer server;
+
+  /** The executor for the server. */
+  private final ExecutorService executor;
+
+  /** The CMC API processing the requests. */
+  private final CMCCaApi cmcCaApi;
+
+  /** Latency added before each request is processed. */
+  @Setter
+  private Duration latency;
+
+  /** If set, all requests are answered with this HTTP status. */
+  @Setter
+  private int failureStatus;
+
+  /** The number of received requests. */
+  @Getter
+  private final AtomicInteger requestCount = new AtomicInteger(0);
+
+  /**
+   * Constructor starting the server on a free port.
+   *
+   * @param cmcCaApi the CMC API processing the requests
+   * @throws IOException if the server can not be started
+   */
+  public LocalCMCCaServer(final CMCCaApi cmcCaApi) throws IOException {
+    this.cmcCaApi = cmcCaApi;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.createContext(CMC_PATH, this::handle);
+    this.executor = Executors.newCachedThreadPool();
+    this.server.setExecutor(this.executor);
+    this.server.start();
+  }
+
+  /**
+   * Gets the CMC request URL for this server.
+   *
+   * @return the request URL
+   */
+  public String getRequestUrl() {
+    return String.format("http://%s:%d%s", this.server.getAddress().getHostString(), this.server.getAddress().getPort(),
+        CMC_PATH);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    this.requestCount.incrementAndGet();
+    try {
+      final byte[] request;
+      try (final InputStream is = exchange.getRequestBody()) {
+        request = is.readAllBytes();
+      }
+      if (this.latency != null) {
+        try {
+          Thread.sleep(this.latency.toMillis());
+        }
+        catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      if (this.failureStatus > 0) {
+        exchange.sendResponseHeaders(this.failureStatus, -1);
+        return;
+      }
+      final CMCResponse cmcResponse = this.cmcCaApi.processRequest(request);
+      final byte[] response = cmcResponse.getCmcResponseBytes();
+      exchange.getResponseHeaders().add("Content-Type", "application/pkcs7-mime");
+      exchange.sendResponseHeaders(200, response.length);
+      try (final OutputStream os = exchange.getResponseBody()) {
+        os.write(response);
+      }
+    }
+    catch (final IOException e) {
+      log.debug("Local CMC CA failed to process request - {}", e.getMessage());
+      throw e;
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+}
@@ -15,16 +15,18 @@
  */
 package se.swedenconnect.signservice.certificate.simple;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.cert.X509CRLHolder;
@@ -36,6 +38,7 @@ import lombok.extern.slf4j.Slf4j;
 import se.idsec.signservice.security.certificate.CertificateUtils;
 import se.swedenconnect.ca.engine.ca.issuer.CAService;
 import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuanceException;
+import se.swedenconnect.ca.engine.ca.repository.CARepository;
 import se.swedenconnect.ca.engine.ca.models.cert.CertNameModel;
 import se.swedenconnect.ca.engine.ca.models.cert.CertificateModel;
 import se.swedenconnect.ca.engine.ca.models.cert.impl.AbstractCertificateModelBuilder;
@@ -44,8 +47,13 @@ import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.security.credential.container.PkiCredentialContainer;
 import se.swedenconnect.signservice.certificate.attributemapping.AttributeMapper;
 import se.swedenconnect.signservice.certificate.base.AbstractCaEngineKeyAndCertificateHandler;
+import se.swedenconnect.signservice.certificate.simple.ca.CachingOCSPResponder;
+import se.swedenconnect.signservice.certificate.simple.ca.NoStorageCARepository;
+import se.swedenconnect.signservice.certificate.simple.ca.PublishedCrl;
+import se.swedenconnect.signservice.certificate.simple.ca.ScheduledCrlPublisher;
 import se.swedenconnect.signservice.context.SignServiceContext;
 import se.swedenconnect.signservice.core.http.DefaultHttpBodyAction;
+import se.swedenconnect.signservice.core.http.EntityTags;
 import se.swedenconnect.signservice.core.http.HttpBodyAction;
 import se.swedenconnect.signservice.core.http.HttpResourceProvider;
 import se.swedenconnect.signservice.core.http.HttpUserRequest;
@@ -53,10 +61,14 @@ import se.swedenconnect.signservice.core.types.InvalidRequestException;
 
 /**
  * A simple key and certificate handler.
+ * <p>
+ * The handler should be closed when it is no longer used. This stops the CRL publisher and the OCSP responder, and closes
+ * the CA repository (if assigned).
+ * </p>
  */
 @Slf4j
 public class SimpleKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertificateHandler
-    implements HttpResourceProvider {
+    implements HttpResourceProvider, Closeable {
 
   /** CA service used to issue certificates */
   private final CAService caService;
@@ -67,6 +79,15 @@ public class SimpleKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertif
   /** The CA chain. */
   private final List<X509Certificate> caChain;
 
+  /** Cached encoding of the current CRL. */
+  private volatile PublishedCrl publishedCrl;
+
+  /** Publishes CRL:s in the background (owned by the handler). */
+  private ScheduledCrlPublisher crlPublisher;
+
+  /** The repository of the CA service (owned by the handler). */
+  private CARepository caRepository;
+
   /**
    * Constructor.
    *
@@ -98,6 +119,43 @@ public class SimpleKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertif
     }
   }
 
+  /**
+   * Assigns a publisher that publishes CRL:s in the background. The handler takes ownership of the publisher, meaning
+   * that it is stopped when the handler is closed.
+   *
+   * @param crlPublisher the CRL publisher
+   */
+  public void setCrlPublisher(@Nullable final ScheduledCrlPublisher crlPublisher) {
+    this.crlPublisher = crlPublisher;
+  }
+
+  /**
+   * Assigns the repository used by the CA service. The handler takes ownership of the repository, meaning that it is
+   * closed when the handler is closed (if it is {@link Closeable}).
+   *
+   * @param caRepository the CA repository
+   */
+  public void setCaRepository(@Nullable final CARepository caRepository) {
+    this.caRepository = caRepository;
+  }
+
+  /**
+   * Stops the CRL publisher and the OCSP responder of the CA service (if they are {@link Closeable}), and closes the
+   * CA repository (if assigned). The repository is closed last, since the others use it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.crlPublisher != null) {
+      this.crlPublisher.close();
+    }
+    if (this.caService.getOCSPResponder() instanceof final Closeable ocspResponder) {
+      ocspResponder.close();
+    }
+    if (this.caRepository instanceof final Closeable closeable) {
+      closeable.close();
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
@@ -154,28 +212,65 @@ public class SimpleKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertif
   @Override
   public HttpBodyAction getResource(@Nonnull final HttpUserRequest httpRequest) throws IOException {
 
+    final HttpResourceProvider ocspProvider = this.getOcspResourceProvider(httpRequest);
+    if (ocspProvider != null) {
+      return ocspProvider.getResource(httpRequest);
+    }
+
     log.debug("Request to download CRL [{}]", httpRequest.getClientIpAddress());
 
     if (!this.supports(httpRequest)) {
       log.info("Invalid call to getResource on {}", this.getClass().getSimpleName());
       throw new IOException("Invalid call");
     }
-    final X509CRLHolder crl = this.caService.getCurrentCrl();
+    final PublishedCrl crl = this.getPublishedCrl();
+    if (crl == null) {
+      log.info("No CRL is available");
+      throw new IOException("No CRL available");
+    }
 
     final DefaultHttpBodyAction action = new DefaultHttpBodyAction();
+    action.addHeader("ETag", crl.getEtag());
+    action.addHeader("Last-Modified",
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(crl.getThisUpdate().atZone(ZoneOffset.UTC)));
+    Optional.ofNullable(crl.getNextUpdate()).ifPresent(n -> action.addHeader("Expires",
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(n.atZone(ZoneOffset.UTC))));
+
+    // If the client already has the current CRL, tell it so instead of sending it again ...
+    //
+    if (EntityTags.matches(crl.getEtag(), httpRequest.getHeader("If-None-Match"))) {
+      log.debug("CRL has not been modified, responding with 304");
+      action.setStatus(304);
+      action.setContents(new byte[0]);
+      return action;
+    }
+
     action.addHeader("Content-Type", "application/octet-stream");
     action.addHeader("Content-disposition", "attachment; filename=cacrl.crl");
+    action.setContents(crl.getEncoding());
+    return action;
+  }
 
-    try (final ByteArrayInputStream bis = new ByteArrayInputStream(crl.getEncoded());
-        final ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-      final byte[] buffer = new byte[4096];
-      int numBytesRead;
-      while ((numBytesRead = bis.read(buffer)) > 0) {
-        os.write(buffer, 0, numBytesRead);
-      }
-      action.setContents(os.toByteArray());
+  /**
+   * Gets the current CRL. The encoding of the CRL is cached until the CA service returns a new CRL (the CA repository
+   * is expected to return the same CRL object until a new CRL is published, see {@link NoStorageCARepository}).
+   *
+   * @return the current CRL, or null if no CRL is available
+   * @throws IOException for encoding errors
+   */
+  @Nullable
+  private PublishedCrl getPublishedCrl() throws IOException {
+    final X509CRLHolder crl = this.caService.getCurrentCrl();
+    if (crl == null) {
+      return null;
     }
-    return action;
+    final PublishedCrl cached = this.publishedCrl;
+    if (cached != null && cached.getCrl() == crl) {
+      return cached;
+    }
+    final PublishedCrl published = new PublishedCrl(crl);
+    this.publishedCrl = published;
+    return published;
   }
 
   /** {@inheritDoc} */
@@ -184,7 +279,26 @@ public class SimpleKeyAndCertificateHandler extends AbstractCaEngineKeyAndCertif
     if (!"GET".equals(httpRequest.getMethod())) {
       return false;
     }
+    if (this.getOcspResourceProvider(httpRequest) != null) {
+      return true;
+    }
     return this.crlPublishPath != null && this.crlPublishPath.equalsIgnoreCase(httpRequest.getServerServletPath());
   }
 
+  /**
+   * If the OCSP responder of the CA service serves OCSP requests over HTTP (see {@link CachingOCSPResponder}), and it
+   * supports the supplied request, the responder is returned.
+   *
+   * @param httpRequest the HTTP request
+   * @return a resource provider, or null
+   */
+  @Nullable
+  private HttpResourceProvider getOcspResourceProvider(@Nonnull final HttpUserRequest httpRequest) {
+    if (this.caService.getOCSPResponder() instanceof final HttpResourceProvider provider
+        && provider.supports(httpRequest)) {
+      return provider;
+    }
+    return null;
+  }
+
 }
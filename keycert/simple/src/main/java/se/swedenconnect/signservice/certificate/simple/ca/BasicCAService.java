@@ -17,35 +17,32 @@ package se.swedenconnect.signservice.certificate.simple.ca;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.x509.KeyPurposeId;
 import org.bouncycastle.cert.X509CertificateHolder;
 import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuer;
 import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuerModel;
 import se.swedenconnect.ca.engine.ca.issuer.impl.AbstractCAService;
 import se.swedenconnect.ca.engine.ca.issuer.impl.BasicCertificateIssuer;
 import se.swedenconnect.ca.engine.ca.models.cert.CertNameModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.CertificatePolicyModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.BasicConstraintsModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.ExtendedKeyUsageModel;
-import se.swedenconnect.ca.engine.ca.models.cert.extension.impl.simple.KeyUsageModel;
 import se.swedenconnect.ca.engine.ca.models.cert.impl.DefaultCertificateModelBuilder;
 import se.swedenconnect.ca.engine.ca.repository.CARepository;
+import se.swedenconnect.ca.engine.revocation.CertificateRevocationException;
 import se.swedenconnect.ca.engine.revocation.crl.CRLIssuer;
 import se.swedenconnect.ca.engine.revocation.crl.CRLIssuerModel;
 import se.swedenconnect.ca.engine.revocation.crl.impl.SynchronizedCRLIssuer;
 import se.swedenconnect.ca.engine.revocation.ocsp.OCSPResponder;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.signservice.certificate.base.config.CertificateProfileConfiguration;
-import se.swedenconnect.signservice.certificate.base.config.KeyUsageCalculator;
+import se.swedenconnect.signservice.certificate.base.config.CertificateProfileTemplate;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -74,9 +71,9 @@ public class BasicCAService extends AbstractCAService<DefaultCertificateModelBui
   private String ocspResponderUrl;
 
   /**
-   * Optional certificate profile to be adopted in issued certificates.
+   * The pre-processed certificate profile to be adopted in issued certificates.
    */
-  private CertificateProfileConfiguration profileConfiguration;
+  private CertificateProfileTemplate profileTemplate = new CertificateProfileTemplate(null);
 
   /**
    * Constructor.
@@ -93,10 +90,45 @@ public class BasicCAService extends AbstractCAService<DefaultCertificateModelBui
       @Nonnull final CARepository caRepository, @Nonnull final CertificateIssuerModel issuerModel,
       @Nullable final CRLIssuerModel crlIssuerModel)
       throws NoSuchAlgorithmException, CertificateException, CRLException {
+    this(caCredential, null, caRepository, issuerModel, crlIssuerModel);
+  }
+
+  /**
+   * Constructor setting up a CA service that issues certificates using a pool of issuer credentials (see
+   * {@link PooledCertificateIssuer}). This is useful when signing with the CA key is slow, for example when the key
+   * is held in an HSM, and several sessions (or HSM:s) may be used for the same key.
+   *
+   * @param caCredential the CA credential (private key and certificates)
+   * @param additionalIssuerCredentials additional credentials for issuing certificates (must hold the same key and
+   *          subject as the CA credential)
+   * @param caRepository repository for storing issued certificates
+   * @param issuerModel model for issuing certificates
+   * @param crlIssuerModel model for publishing CRL:s (optional)
+   * @throws NoSuchAlgorithmException algorithm is not supported
+   * @throws CertificateException for certificate errors, or if the additional credentials do not match the CA
+   *           credential
+   * @throws CRLException if a CRL cannot be published
+   */
+  public BasicCAService(@Nonnull final PkiCredential caCredential,
+      @Nullable final List<PkiCredential> additionalIssuerCredentials,
+      @Nonnull final CARepository caRepository, @Nonnull final CertificateIssuerModel issuerModel,
+      @Nullable final CRLIssuerModel crlIssuerModel)
+      throws NoSuchAlgorithmException, CertificateException, CRLException {
     super(caCredential, caRepository);
 
     // Setup service
-    this.certificateIssuer = new BasicCertificateIssuer(issuerModel, caCredential);
+    if (additionalIssuerCredentials == null || additionalIssuerCredentials.isEmpty()) {
+      this.certificateIssuer = new BasicCertificateIssuer(issuerModel, caCredential);
+    }
+    else {
+      final List<CertificateIssuer> issuers = new ArrayList<>();
+      issuers.add(new BasicCertificateIssuer(issuerModel, caCredential));
+      for (final PkiCredential credential : additionalIssuerCredentials) {
+        assertEquivalentCredential(caCredential, credential);
+        issuers.add(new BasicCertificateIssuer(issuerModel, credential));
+      }
+      this.certificateIssuer = new PooledCertificateIssuer(issuers);
+    }
     this.crlDistributionPoints = new ArrayList<>();
     if (crlIssuerModel != null) {
       this.crlIssuer =
@@ -177,6 +209,18 @@ public class BasicCAService extends AbstractCAService<DefaultCertificateModelBui
         Objects.requireNonNull(ocspResponderCertificate, "ocspResponderCertificate must not be null");
   }
 
+  /**
+   * Revokes the certificate and removes any cached OCSP responses for it (see {@link CachingOCSPResponder}).
+   */
+  @Override
+  public void revokeCertificate(@Nonnull final BigInteger serialNumber, final int reason,
+      @Nonnull final Date revocationDate) throws CertificateRevocationException {
+    super.revokeCertificate(serialNumber, reason, revocationDate);
+    if (this.ocspResponder instanceof final CachingOCSPResponder cachingResponder) {
+      cachingResponder.invalidate(serialNumber);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   protected DefaultCertificateModelBuilder getBaseCertificateModelBuilder(
@@ -198,32 +242,48 @@ public class BasicCAService extends AbstractCAService<DefaultCertificateModelBui
 
     // Apply certificate profile
     //
-    final CertificateProfileConfiguration conf =
-        Optional.ofNullable(this.profileConfiguration).orElseGet(CertificateProfileConfiguration::new);
-
-    if (conf.getExtendedKeyUsages() != null && !conf.getExtendedKeyUsages().isEmpty()) {
-      certModelBuilder.extendedKeyUsage(new ExtendedKeyUsageModel(conf.isExtendedKeyUsageCritical(),
-          conf.getExtendedKeyUsages().stream().map(s -> KeyPurposeId.getInstance(new ASN1ObjectIdentifier(s)))
-              .toArray(KeyPurposeId[]::new)));
+    final CertificateProfileTemplate template = this.profileTemplate;
+    if (template.getExtendedKeyUsageModel() != null) {
+      certModelBuilder.extendedKeyUsage(template.getExtendedKeyUsageModel());
     }
-    if (conf.getPolicies() != null && !conf.getPolicies().isEmpty()) {
-      certModelBuilder.certificatePolicy(new CertificatePolicyModel(conf.isPoliciesCritical(),
-          conf.getPolicies().stream().map(ASN1ObjectIdentifier::new).toArray(ASN1ObjectIdentifier[]::new)));
+    if (template.getCertificatePolicyModel() != null) {
+      certModelBuilder.certificatePolicy(template.getCertificatePolicyModel());
     }
     certModelBuilder
-        .basicConstraints(new BasicConstraintsModel(false, conf.isBasicConstraintsCritical()))
-        .keyUsage(new KeyUsageModel(KeyUsageCalculator.getKeyUsageValue(subjectPublicKey, conf.getUsageDirective())));
+        .basicConstraints(template.getBasicConstraintsModel())
+        .keyUsage(template.getKeyUsageModel(subjectPublicKey));
 
     return certModelBuilder;
   }
 
+  /**
+   * Asserts that an additional issuer credential holds the same key, and has the same subject, as the CA credential.
+   *
+   * @param caCredential the CA credential
+   * @param credential the credential to check
+   * @throws CertificateException if the credential does not match the CA credential
+   */
+  private static void assertEquivalentCredential(
+      @Nonnull final PkiCredential caCredential, @Nonnull final PkiCredential credential) throws CertificateException {
+    Objects.requireNonNull(credential, "additionalIssuerCredentials must not contain null");
+    if (!caCredential.getPublicKey().equals(credential.getPublicKey())) {
+      throw new CertificateException(
+          String.format("Issuer credential '%s' does not hold the CA key", credential.getName()));
+    }
+    if (credential.getCertificate() != null && !caCredential.getCertificate().getSubjectX500Principal()
+        .equals(credential.getCertificate().getSubjectX500Principal())) {
+      throw new CertificateException(
+          String.format("Issuer credential '%s' does not have the CA subject name", credential.getName()));
+    }
+  }
+
   /**
    * Assigns the certificate profile to be adopted in issued certificates.
    *
    * @param profileConfiguration certificate profile configuration
    */
   public void setProfileConfiguration(@Nullable final CertificateProfileConfiguration profileConfiguration) {
-    this.profileConfiguration = profileConfiguration;
+    this.profileTemplate = new CertificateProfileTemplate(profileConfiguration);
   }
 
 }
@@ -20,9 +20,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuerModel;
 import se.swedenconnect.ca.engine.ca.repository.CARepository;
 import se.swedenconnect.ca.engine.revocation.crl.CRLIssuerModel;
@@ -61,6 +63,9 @@ public class BasicCAServiceBuilder {
 
   // Fields that can be set by the builder setters
 
+  /** Additional credentials for issuing certificates using the CA key. */
+  private List<PkiCredential> additionalIssuerCredentials;
+
   /** The certificate validity period. */
   private Duration certificateValidity = DEFAULT_CERTIFICATE_VALIDITY;
 
@@ -128,8 +133,8 @@ public class BasicCAServiceBuilder {
    */
   @Nonnull
   public BasicCAService build() throws NoSuchAlgorithmException, CertificateException, CRLException {
-    return new BasicCAService(
-        this.caCredential, this.caRepository, this.getCertificateIssuerModel(), this.getCrlIssuerModel());
+    return new BasicCAService(this.caCredential, this.additionalIssuerCredentials, this.caRepository,
+        this.getCertificateIssuerModel(), this.getCrlIssuerModel());
   }
 
   /**
@@ -196,6 +201,21 @@ public class BasicCAServiceBuilder {
     return this;
   }
 
+  /**
+   * Assigns additional credentials for issuing certificates. The credentials must hold the same key, and have the same
+   * subject, as the CA credential, for example when several HSM sessions (or HSM:s) are used for the CA key.
+   * Certificates are then issued using the least loaded credential (see {@link PooledCertificateIssuer}).
+   *
+   * @param additionalIssuerCredentials additional issuer credentials
+   * @return this builder
+   */
+  @Nonnull
+  public BasicCAServiceBuilder additionalIssuerCredentials(
+      @Nullable final List<PkiCredential> additionalIssuerCredentials) {
+    this.additionalIssuerCredentials = additionalIssuerCredentials;
+    return this;
+  }
+
   /**
    * Assigns the CRL start offset time.
    *
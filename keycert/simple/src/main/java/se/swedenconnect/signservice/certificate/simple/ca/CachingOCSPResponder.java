@@ -0,0 +1,534 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serial;
+import java.math.BigInteger;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.OCSPRequest;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.engine.revocation.CertificateRevocationException;
+import se.swedenconnect.ca.engine.revocation.ocsp.OCSPResponder;
+import se.swedenconnect.signservice.core.http.DefaultHttpBodyAction;
+import se.swedenconnect.signservice.core.http.EntityTags;
+import se.swedenconnect.signservice.core.http.HttpBodyAction;
+import se.swedenconnect.signservice.core.http.HttpResourceProvider;
+import se.swedenconnect.signservice.core.http.HttpUserRequest;
+
+/**
+ * An {@link OCSPResponder} that caches the signed responses of another OCSP responder, keyed by certificate serial
+ * number, so that the number of signature operations is proportional to the number of queried certificates rather than
+ * to the number of queries.
+ * <p>
+ * Only requests for a single certificate without extensions (i.e., without a nonce) are served from the cache, unless
+ * {@link #setIgnoreNonce(boolean)} has been set. Also, the issuer hashes of the request must match the CA certificate.
+ * Other requests are passed to the underlying responder. Only "good" and "revoked" responses are cached, and the cache
+ * holds at most {@link #setMaxSize(int) maxSize} responses (the least recently used responses are evicted).
+ * </p>
+ * <p>
+ * Cached responses are re-signed by a background task when they have reached the refresh interval, provided that they
+ * have been requested since they were signed (other responses are dropped from the cache). The responses for a
+ * certificate are removed from the cache when the certificate is revoked, see {@link #invalidate(BigInteger)}.
+ * </p>
+ * <p>
+ * The responder is also a {@link HttpResourceProvider} that handles OCSP GET requests (RFC 6960, appendix A.1) sent to
+ * the configured path and serves the responses with caching headers (RFC 5019).
+ * </p>
+ */
+@Slf4j
+public class CachingOCSPResponder implements OCSPResponder, HttpResourceProvider, Closeable {
+
+  /** Default interval for re-signing cached responses. */
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(1);
+
+  /** Default maximum number of cached responses. */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  /** Media type for OCSP responses. */
+  private static final String OCSP_RESPONSE_CONTENT_TYPE = "application/ocsp-response";
+
+  /** The underlying responder. */
+  private final OCSPResponder responder;
+
+  /** The certificate of the CA whose certificates are queried. */
+  private final X509CertificateHolder issuerCertificate;
+
+  /** For checking the issuer hashes of requests. */
+  private final DigestCalculatorProvider digestCalculatorProvider;
+
+  /** The path (relative to the application root) where OCSP GET requests are received. */
+  private final String ocspPath;
+
+  /** Cached responses, by serial number and in access order (all access is synchronized on the map). */
+  private final ResponseCache cache = new ResponseCache();
+
+  /** The maximum number of cached responses. */
+  private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  /** Incremented each time responses are invalidated. */
+  private final AtomicLong invalidations = new AtomicLong(0);
+
+  /** The interval for re-signing cached responses. */
+  private Duration refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+  /** Whether requests including a nonce may be served from the cache. */
+  private boolean ignoreNonce = false;
+
+  /** Scheduler for refreshing responses. */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructor.
+   *
+   * @param responder the OCSP responder that signs responses
+   * @param issuerCertificate the certificate of the CA whose certificates are queried
+   * @param ocspPath the path (relative to the application root) where OCSP GET requests are received (may be null if
+   *          responses are not served via {@link #getResource(HttpUserRequest)})
+   */
+  public CachingOCSPResponder(@Nonnull final OCSPResponder responder,
+      @Nonnull final X509CertificateHolder issuerCertificate, @Nullable final String ocspPath) {
+    this.responder = Objects.requireNonNull(responder, "responder must not be null");
+    this.issuerCertificate = Objects.requireNonNull(issuerCertificate, "issuerCertificate must not be null");
+    this.ocspPath = ocspPath;
+    try {
+      this.digestCalculatorProvider = new JcaDigestCalculatorProviderBuilder().build();
+    }
+    catch (final OperatorCreationException e) {
+      throw new SecurityException("Failed to create digest calculator provider", e);
+    }
+  }
+
+  /**
+   * Starts the background refresh of cached responses.
+   */
+  public synchronized void start() {
+    if (this.scheduler != null) {
+      return;
+    }
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "ocsp-response-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long period = Math.max(this.refreshInterval.toMillis() / 4, 1000L);
+    this.scheduler.scheduleAtFixedRate(this::refresh, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public OCSPResp handleRequest(@Nonnull final OCSPRequest ocspRequest) throws CertificateRevocationException {
+    final CertificateID id = this.getCacheableId(new OCSPReq(ocspRequest));
+    if (id == null) {
+      return this.responder.handleRequest(ocspRequest);
+    }
+    try {
+      return this.getResponse(id).getResponse();
+    }
+    catch (final IOException e) {
+      log.info("Failed to get OCSP response for {} - {}", id.getSerialNumber().toString(16), e.getMessage(), e);
+      return this.responder.handleRequest(ocspRequest);
+    }
+  }
+
+  /**
+   * Removes all cached responses for the given certificate. Should be invoked when a certificate is revoked.
+   *
+   * @param serialNumber the certificate serial number
+   */
+  public void invalidate(@Nonnull final BigInteger serialNumber) {
+    this.invalidations.incrementAndGet();
+    synchronized (this.cache) {
+      this.cache.remove(serialNumber);
+    }
+  }
+
+  /**
+   * Re-signs the cached responses that have reached the refresh interval. Responses that have not been requested since
+   * they were signed are removed from the cache.
+   */
+  public void refresh() {
+    final Instant now = Instant.now();
+    final List<CachedResponse> responses;
+    synchronized (this.cache) {
+      responses = new ArrayList<>(this.cache.values());
+    }
+    for (final CachedResponse cached : responses) {
+      if (cached.getExpires(this.refreshInterval).isAfter(now)) {
+        continue;
+      }
+      if (!cached.isUsed()) {
+        synchronized (this.cache) {
+          this.cache.remove(cached.getId().getSerialNumber(), cached);
+        }
+        continue;
+      }
+      try {
+        this.sign(cached.getId());
+      }
+      catch (final IOException e) {
+        log.warn("Failed to refresh OCSP response for {} - {}",
+            cached.getId().getSerialNumber().toString(16), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return the number of cached responses
+   */
+  public int size() {
+    synchronized (this.cache) {
+      return this.cache.size();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public HttpBodyAction getResource(@Nonnull final HttpUserRequest httpRequest) throws IOException {
+    if (!this.supports(httpRequest)) {
+      log.info("Invalid call to getResource on {}", this.getClass().getSimpleName());
+      throw new IOException("Invalid call");
+    }
+    String encodedRequest = httpRequest.getServerServletPath().substring(this.ocspPath.length() + 1);
+    if (encodedRequest.contains("%")) {
+      encodedRequest = URLDecoder.decode(encodedRequest, StandardCharsets.UTF_8);
+    }
+    final OCSPReq ocspRequest;
+    try {
+      ocspRequest = new OCSPReq(Base64.getDecoder().decode(encodedRequest));
+    }
+    catch (final IllegalArgumentException e) {
+      throw new IOException("Invalid OCSP request encoding", e);
+    }
+
+    final DefaultHttpBodyAction action = new DefaultHttpBodyAction();
+    action.addHeader("Content-Type", OCSP_RESPONSE_CONTENT_TYPE);
+
+    final CertificateID id = this.getCacheableId(ocspRequest);
+    if (id == null) {
+      action.addHeader("Cache-Control", "no-cache");
+      action.setContents(this.responder.handleRequest(OCSPRequest.getInstance(ocspRequest.getEncoded())).getEncoded());
+      return action;
+    }
+    final CachedResponse cached = this.getResponse(id);
+    final Instant expires = cached.getExpires(this.refreshInterval);
+    final long maxAge = Math.max(Duration.between(Instant.now(), expires).getSeconds(), 0L);
+    action.addHeader("Cache-Control", String.format("max-age=%d, public, no-transform, must-revalidate", maxAge));
+    action.addHeader("ETag", cached.getEtag());
+    action.addHeader("Last-Modified",
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(cached.getProducedAt().atZone(ZoneOffset.UTC)));
+    action.addHeader("Expires", DateTimeFormatter.RFC_1123_DATE_TIME.format(expires.atZone(ZoneOffset.UTC)));
+    action.setContents(cached.getEncoding());
+    return action;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean supports(@Nonnull final HttpUserRequest httpRequest) {
+    if (this.ocspPath == null || !"GET".equals(httpRequest.getMethod())) {
+      return false;
+    }
+    final String path = httpRequest.getServerServletPath();
+    return path != null && path.length() > this.ocspPath.length() + 1
+        && path.regionMatches(true, 0, this.ocspPath + "/", 0, this.ocspPath.length() + 1);
+  }
+
+  /**
+   * Stops the background refresh.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.scheduler != null) {
+      this.scheduler.shutdownNow();
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Assigns the interval for re-signing cached responses. The default is {@link #DEFAULT_REFRESH_INTERVAL}. This is
+   * also the max age of responses served via {@link #getResource(HttpUserRequest)}, unless the next update time of the
+   * response is earlier.
+   *
+   * @param refreshInterval the refresh interval
+   */
+  public void setRefreshInterval(@Nonnull final Duration refreshInterval) {
+    this.refreshInterval = Objects.requireNonNull(refreshInterval, "refreshInterval must not be null");
+    if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+      throw new IllegalArgumentException("refreshInterval must be positive");
+    }
+  }
+
+  /**
+   * Assigns the maximum number of cached responses. The default is {@link #DEFAULT_MAX_SIZE}.
+   *
+   * @param maxSize the maximum number of cached responses
+   */
+  public void setMaxSize(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be greater than 0");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Tells whether requests including a nonce may be served from the cache (in which case the response does not
+   * include the nonce, see RFC 5019). The default is {@code false}.
+   *
+   * @param ignoreNonce whether the nonce of requests may be ignored
+   */
+  public void setIgnoreNonce(final boolean ignoreNonce) {
+    this.ignoreNonce = ignoreNonce;
+  }
+
+  /**
+   * Gets the cached response for the given certificate ID, or signs a new one if there is no valid cached response.
+   */
+  private CachedResponse getResponse(final CertificateID id) throws IOException {
+    final CachedResponse cached;
+    synchronized (this.cache) {
+      cached = this.cache.get(id.getSerialNumber());
+    }
+    if (cached != null && !cached.getId().equals(id)) {
+      // Another hash algorithm than the cached response was signed for, the response is not cached
+      return this.sign(id, false);
+    }
+    // Responses older than twice the refresh interval are not used (the refresh has failed), and neither are
+    // responses that have passed their next update time
+    final Instant now = Instant.now();
+    if (cached != null && cached.getProducedAt().plus(this.refreshInterval.multipliedBy(2)).isAfter(now)
+        && (cached.getNextUpdate() == null || cached.getNextUpdate().isAfter(now))) {
+      cached.markUsed();
+      return cached;
+    }
+    return this.sign(id);
+  }
+
+  /**
+   * Lets the underlying responder sign a response for the certificate ID, and caches it if successful.
+   */
+  private CachedResponse sign(final CertificateID id) throws IOException {
+    return this.sign(id, true);
+  }
+
+  /**
+   * Lets the underlying responder sign a response for the certificate ID, and caches it if requested and if it holds
+   * a "good" or "revoked" status.
+   */
+  private CachedResponse sign(final CertificateID id, final boolean cache) throws IOException {
+    final long generation = this.invalidations.get();
+    final OCSPResp response;
+    try {
+      response = this.responder.handleRequest(
+          OCSPRequest.getInstance(new OCSPReqBuilder().addRequest(id).build().getEncoded()));
+    }
+    catch (final OCSPException e) {
+      throw new IOException("Failed to create OCSP request - " + e.getMessage(), e);
+    }
+    final CachedResponse cached = new CachedResponse(id, response);
+    if (!cache || !cached.isCacheable()) {
+      return cached;
+    }
+    synchronized (this.cache) {
+      // The certificate may have been revoked while we were signing
+      if (this.invalidations.get() == generation) {
+        this.cache.put(id.getSerialNumber(), cached);
+      }
+    }
+    return cached;
+  }
+
+  /**
+   * Gets the certificate ID of a request that may be served from the cache.
+   */
+  @Nullable
+  private CertificateID getCacheableId(final OCSPReq ocspRequest) {
+    final Req[] requests = ocspRequest.getRequestList();
+    if (requests.length != 1 || requests[0].getSingleRequestExtensions() != null) {
+      return null;
+    }
+    if (ocspRequest.hasExtensions()) {
+      final boolean onlyNonce = ocspRequest.getExtensionOIDs().size() == 1
+          && ocspRequest.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce) != null;
+      if (!this.ignoreNonce || !onlyNonce) {
+        return null;
+      }
+    }
+    final CertificateID id = requests[0].getCertID();
+    try {
+      return id.matchesIssuer(this.issuerCertificate, this.digestCalculatorProvider) ? id : null;
+    }
+    catch (final OCSPException e) {
+      log.debug("Failed to check issuer of OCSP request - {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * A cached response.
+   */
+  private static class CachedResponse {
+
+    /** The certificate ID. */
+    private final CertificateID id;
+
+    /** The response. */
+    private final OCSPResp response;
+
+    /** The response encoding. */
+    private final byte[] encoding;
+
+    /** The entity tag for the response. */
+    private final String etag;
+
+    /** When the response was signed. */
+    private final Instant producedAt;
+
+    /** The next update time of the response (null if not given). */
+    private final Instant nextUpdate;
+
+    /** Whether the response holds a "good" or "revoked" status. */
+    private final boolean cacheable;
+
+    /** Whether the response has been requested since it was signed. */
+    private volatile boolean used = false;
+
+    CachedResponse(final CertificateID id, final OCSPResp response) throws IOException {
+      this.id = id;
+      this.response = response;
+      this.encoding = response.getEncoded();
+      this.etag = EntityTags.calculate(this.encoding);
+      this.producedAt = Instant.now();
+
+      Instant nextUpdate = null;
+      boolean cacheable = false;
+      if (response.getStatus() == OCSPResp.SUCCESSFUL) {
+        try {
+          final SingleResp[] responses = ((BasicOCSPResp) response.getResponseObject()).getResponses();
+          if (responses.length == 1) {
+            nextUpdate = responses[0].getNextUpdate() != null ? responses[0].getNextUpdate().toInstant() : null;
+            cacheable = !(responses[0].getCertStatus() instanceof UnknownStatus);
+          }
+        }
+        catch (final OCSPException | ClassCastException e) {
+          log.debug("Failed to parse OCSP response - {}", e.getMessage());
+        }
+      }
+      this.nextUpdate = nextUpdate;
+      this.cacheable = cacheable;
+    }
+
+    CertificateID getId() {
+      return this.id;
+    }
+
+    OCSPResp getResponse() {
+      return this.response;
+    }
+
+    byte[] getEncoding() {
+      return this.encoding;
+    }
+
+    String getEtag() {
+      return this.etag;
+    }
+
+    Instant getProducedAt() {
+      return this.producedAt;
+    }
+
+    Instant getNextUpdate() {
+      return this.nextUpdate;
+    }
+
+    /**
+     * Gets the time when the response should be refreshed, i.e., after the refresh interval, or at the next update
+     * time of the response if that is earlier.
+     */
+    Instant getExpires(final Duration refreshInterval) {
+      final Instant expires = this.producedAt.plus(refreshInterval);
+      return this.nextUpdate != null && this.nextUpdate.isBefore(expires) ? this.nextUpdate : expires;
+    }
+
+    boolean isCacheable() {
+      return this.cacheable;
+    }
+
+    boolean isUsed() {
+      return this.used;
+    }
+
+    void markUsed() {
+      this.used = true;
+    }
+  }
+
+  /**
+   * The response cache. Evicts the least recently used response when the cache is full.
+   */
+  private class ResponseCache extends LinkedHashMap<BigInteger, CachedResponse> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    ResponseCache() {
+      super(16, 0.75f, true);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<BigInteger, CachedResponse> eldest) {
+      return this.size() > CachingOCSPResponder.this.maxSize;
+    }
+  }
+
+}
@@ -0,0 +1,1207 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.engine.ca.repository.CARepository;
+import se.swedenconnect.ca.engine.ca.repository.CertificateRecord;
+import se.swedenconnect.ca.engine.ca.repository.SortBy;
+import se.swedenconnect.ca.engine.ca.repository.impl.SerializableCertificateRecord;
+import se.swedenconnect.ca.engine.revocation.CertificateRevocationException;
+import se.swedenconnect.ca.engine.revocation.crl.CRLMetadata;
+import se.swedenconnect.ca.engine.revocation.crl.CRLRevocationDataProvider;
+import se.swedenconnect.ca.engine.revocation.crl.RevokedCertificate;
+
+/**
+ * A CA repository that persists issued certificates and their revocation status to append-only segment files in a
+ * directory.
+ * <p>
+ * An index of all certificates (excluding the certificate encodings, which are read from file when needed) is kept in
+ * memory, ordered by serial number, issue date and expiry date, so that lookups, revocation and paging are fast also
+ * for large repositories.
+ * </p>
+ * <p>
+ * Writes are group committed, i.e., concurrent writes are collected and written (and synced to disk) together by a
+ * writer thread. When expired certificates are removed, the segment with the least live data is compacted by writing
+ * its remaining records to a new file that replaces the segment file.
+ * </p>
+ * <p>
+ * The repository should be closed when it is no longer used.
+ * </p>
+ */
+@Slf4j
+public class FileCARepository implements CARepository, CRLRevocationDataProvider, Closeable {
+
+  /** Default maximum size of a segment file. */
+  public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+  /** Segments with less than this share of live records are compacted. */
+  private static final double COMPACTION_THRESHOLD = 0.5;
+
+  /** The maximum number of writes committed together. */
+  private static final int MAX_GROUP_COMMIT = 1024;
+
+  /** Record type for an added certificate (including its revocation status). */
+  private static final byte PUT_RECORD = 1;
+
+  /** Record type for a revocation. */
+  private static final byte REVOKE_RECORD = 2;
+
+  /** The record header size (length + checksum). */
+  private static final int HEADER_SIZE = 8;
+
+  /** Name prefix for segment files. */
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  /** Name suffix for segment files. */
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  /** Name suffix for a segment file being written by compaction. */
+  private static final String COMPACTION_SUFFIX = ".compact";
+
+  /** The maximum number of remembered page positions. */
+  private static final int MAX_PAGE_CURSORS = 32;
+
+  /** The name of the file holding the prune cutoff time. */
+  private static final String PRUNE_CUTOFF_FILE = "prune-cutoff";
+
+  /** The repository directory. */
+  private final Path directory;
+
+  /** CRL file for storing the latest CRL. */
+  private final File crlFile;
+
+  /** The maximum segment size. */
+  private final long maxSegmentSize;
+
+  /** Whether writes are synced to disk before they are acknowledged. */
+  private final boolean syncWrites;
+
+  /** The index of all certificates, ordered by serial number. */
+  private final ConcurrentSkipListMap<BigInteger, Entry> index = new ConcurrentSkipListMap<>();
+
+  /** Certificates ordered by issue date. */
+  private final ConcurrentSkipListSet<SortKey> byIssueDate = new ConcurrentSkipListSet<>();
+
+  /** Certificates ordered by expiry date. */
+  private final ConcurrentSkipListSet<SortKey> byExpiryDate = new ConcurrentSkipListSet<>();
+
+  /** The serial numbers of all revoked certificates. */
+  private final ConcurrentSkipListSet<BigInteger> revoked = new ConcurrentSkipListSet<>();
+
+  /** The number of certificates. */
+  private final AtomicInteger certificateCount = new AtomicInteger(0);
+
+  /** The number of revoked certificates. */
+  private final AtomicInteger revokedCount = new AtomicInteger(0);
+
+  /** Counts updates of the repository (invalidates the remembered page positions). */
+  private final AtomicLong modifications = new AtomicLong(0);
+
+  /** The start positions of the pages following the latest paged queries (by query). */
+  private final Map<String, PageCursor> pageCursors = new ConcurrentHashMap<>();
+
+  /** Serial numbers of certificates that are being added. */
+  private final Set<BigInteger> reserved = ConcurrentHashMap.newKeySet();
+
+  /** Locks for updates of certificates (striped by serial number). */
+  private final Object[] locks = new Object[64];
+
+  /** The segments, ordered by their ID. */
+  private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+  /** Lock held while compacting segments. */
+  private final Object compactionLock = new Object();
+
+  /** The segment currently written to (only modified by the writer thread). */
+  private volatile Segment activeSegment;
+
+  /** Pending writes. */
+  private final BlockingQueue<PendingWrite> writeQueue = new LinkedBlockingQueue<>();
+
+  /** Queued to stop the writer (the writer is not interrupted since that would close the segment channel). */
+  private final PendingWrite stopWriter = new PendingWrite(ByteBuffer.allocate(0));
+
+  /** The writer thread. */
+  private final Thread writer;
+
+  /** Certificates that expired before this time (millis) have been removed. */
+  private volatile long pruneCutoff = 0;
+
+  /** The current CRL number. */
+  private BigInteger crlNumber = BigInteger.ZERO;
+
+  /** The current CRL (null if no CRL has been published). */
+  private volatile PublishedCrl publishedCrl;
+
+  /** Whether the repository has been closed. */
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor using the default segment size and synced writes.
+   *
+   * @param directory the directory where certificates are stored (created if it does not exist)
+   * @param crlFileLocation CRL file location (the file does not have to exist)
+   * @throws IOException for errors reading the repository
+   */
+  public FileCARepository(@Nonnull final String directory, @Nonnull final String crlFileLocation)
+      throws IOException {
+    this(directory, crlFileLocation, DEFAULT_MAX_SEGMENT_SIZE, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory where certificates are stored (created if it does not exist)
+   * @param crlFileLocation CRL file location (the file does not have to exist)
+   * @param maxSegmentSize the maximum size of a segment file
+   * @param syncWrites whether writes should be synced to disk before they are acknowledged
+   * @throws IOException for errors reading the repository
+   */
+  public FileCARepository(@Nonnull final String directory, @Nonnull final String crlFileLocation,
+      final long maxSegmentSize, final boolean syncWrites) throws IOException {
+    this.directory = Path.of(Objects.requireNonNull(directory, "directory must not be null"));
+    this.crlFile = new File(Objects.requireNonNull(crlFileLocation, "crlFileLocation must not be null"));
+    if (maxSegmentSize <= 0) {
+      throw new IllegalArgumentException("maxSegmentSize must be greater than 0");
+    }
+    this.maxSegmentSize = maxSegmentSize;
+    this.syncWrites = syncWrites;
+    for (int i = 0; i < this.locks.length; i++) {
+      this.locks[i] = new Object();
+    }
+
+    Files.createDirectories(this.directory);
+    this.load();
+
+    if (this.crlFile.canRead()) {
+      try (final InputStream is = new FileInputStream(this.crlFile)) {
+        this.publishedCrl = new PublishedCrl(new X509CRLHolder(is));
+        this.crlNumber = this.publishedCrl.getCrlNumber();
+      }
+    }
+
+    this.writer = new Thread(this::writeLoop, "ca-repository-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<BigInteger> getAllCertificates() {
+    return new ArrayList<>(this.index.keySet());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public CertificateRecord getCertificate(@Nonnull final BigInteger serialNumber) {
+    try {
+      return this.toRecord(this.index.get(serialNumber));
+    }
+    catch (final IOException e) {
+      log.warn("Failed to read certificate {} - {}", serialNumber.toString(16), e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addCertificate(@Nonnull final X509CertificateHolder certificate) throws IOException {
+    final BigInteger serialNumber = certificate.getSerialNumber();
+    if (!this.reserved.add(serialNumber)) {
+      throw new IOException("This certificate already exists in the certificate repository");
+    }
+    try {
+      if (this.index.containsKey(serialNumber)) {
+        throw new IOException("This certificate already exists in the certificate repository");
+      }
+      final byte[] encoding = certificate.getEncoded();
+      final Entry entry = new Entry(serialNumber, certificate.getNotBefore().getTime(),
+          certificate.getNotAfter().getTime(), false, 0, 0L, null, 0L, encoding.length, null);
+      final Location location = this.write(encodePut(entry, encoding));
+      try {
+        final Entry stored = entry.relocate(location.segment(), location.certificateOffset(entry.serialNumber));
+        synchronized (this.lock(serialNumber)) {
+          location.segment().live.incrementAndGet();
+          this.index.put(serialNumber, stored);
+          this.byIssueDate.add(new SortKey(stored.issueDate, serialNumber));
+          this.byExpiryDate.add(new SortKey(stored.expiryDate, serialNumber));
+          this.certificateCount.incrementAndGet();
+          this.modifications.incrementAndGet();
+        }
+      }
+      finally {
+        location.segment().pending.decrementAndGet();
+      }
+    }
+    finally {
+      this.reserved.remove(serialNumber);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void revokeCertificate(@Nonnull final BigInteger serialNumber, final int reason,
+      @Nonnull final Date revocationTime) throws CertificateRevocationException {
+    if (serialNumber == null) {
+      throw new CertificateRevocationException("Null Serial number");
+    }
+    synchronized (this.lock(serialNumber)) {
+      final Entry entry = this.index.get(serialNumber);
+      if (entry == null) {
+        throw new CertificateRevocationException("No such certificate (" + serialNumber.toString(16) + ")");
+      }
+      final Location location;
+      try {
+        location = this.write(encodeRevoke(serialNumber, reason, revocationTime.getTime()));
+      }
+      catch (final IOException e) {
+        throw new CertificateRevocationException("Failed to store revocation - " + e.getMessage());
+      }
+      try {
+        location.segment().live.incrementAndGet();
+        if (entry.revokeSegment != null) {
+          entry.revokeSegment.live.decrementAndGet();
+        }
+        this.index.put(serialNumber, entry.revoke(reason, revocationTime.getTime(), location.segment()));
+      }
+      finally {
+        location.segment().pending.decrementAndGet();
+      }
+      if (this.revoked.add(serialNumber)) {
+        this.revokedCount.incrementAndGet();
+        this.modifications.incrementAndGet();
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public CRLRevocationDataProvider getCRLRevocationDataProvider() {
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getCertificateCount(final boolean notRevoked) {
+    return notRevoked
+        ? this.certificateCount.get() - this.revokedCount.get()
+        : this.certificateCount.get();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<CertificateRecord> getCertificateRange(final int page, final int pageSize, final boolean notRevoked,
+      @Nullable final SortBy sortBy, final boolean descending) {
+
+    final String query = String.format("%s:%b:%b:%d", sortBy, descending, notRevoked, pageSize);
+    if (sortBy == SortBy.issueDate) {
+      return this.getCertificateRange(descending ? this.byIssueDate.descendingSet() : this.byIssueDate,
+          SortKey::serialNumber, query, page, pageSize, notRevoked);
+    }
+    return this.getCertificateRange(descending ? this.index.descendingKeySet() : this.index.keySet(),
+        s -> s, query, page, pageSize, notRevoked);
+  }
+
+  /**
+   * Gets a page of certificates in the order given by {@code keys}.
+   * <p>
+   * Skipped certificates are only counted (no index lookups or reads). Also, the position where the next page starts
+   * is remembered, so that a client that pages through the repository does not have to skip all previous pages for
+   * each page. The remembered positions are valid until the repository is updated.
+   * </p>
+   */
+  @SuppressWarnings("unchecked")
+  private <K> List<CertificateRecord> getCertificateRange(final NavigableSet<K> keys,
+      final Function<K, BigInteger> toSerialNumber, final String query, final int page, final int pageSize,
+      final boolean notRevoked) {
+
+    final long modification = this.modifications.get();
+    final PageCursor cursor = this.pageCursors.get(query);
+    final Iterator<K> iterator;
+    long skip;
+    if (cursor != null && cursor.modification == modification && cursor.page <= page) {
+      iterator = keys.tailSet((K) cursor.key, true).iterator();
+      skip = (long) (page - cursor.page) * pageSize;
+    }
+    else {
+      iterator = keys.iterator();
+      skip = (long) page * pageSize;
+    }
+    while (skip > 0 && iterator.hasNext()) {
+      final K key = iterator.next();
+      if (!notRevoked || !this.revoked.contains(toSerialNumber.apply(key))) {
+        skip--;
+      }
+    }
+
+    final List<CertificateRecord> result = new ArrayList<>();
+    while (result.size() < pageSize && iterator.hasNext()) {
+      final Entry entry = this.index.get(toSerialNumber.apply(iterator.next()));
+      if (entry == null || notRevoked && entry.revoked) {
+        continue;
+      }
+      try {
+        result.add(this.toRecord(entry));
+      }
+      catch (final IOException e) {
+        log.warn("Failed to read certificate {} - {}", entry.serialNumber.toString(16), e.getMessage(), e);
+      }
+    }
+
+    // Remember where the next page starts
+    while (iterator.hasNext()) {
+      final K key = iterator.next();
+      if (!notRevoked || !this.revoked.contains(toSerialNumber.apply(key))) {
+        if (this.pageCursors.size() >= MAX_PAGE_CURSORS) {
+          this.pageCursors.clear();
+        }
+        this.pageCursors.put(query, new PageCursor(modification, page + 1, key));
+        break;
+      }
+    }
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<BigInteger> removeExpiredCerts(final int gracePeriodSeconds) throws IOException {
+    final long cutoff = System.currentTimeMillis() - gracePeriodSeconds * 1000L;
+
+    // Persist the cutoff first, so that removed certificates are not loaded again if the repository is restarted
+    // before their records have been compacted away.
+    if (cutoff > this.pruneCutoff) {
+      final Path tmp = this.directory.resolve(PRUNE_CUTOFF_FILE + ".tmp");
+      Files.writeString(tmp, Long.toString(cutoff), StandardCharsets.UTF_8);
+      Files.move(tmp, this.directory.resolve(PRUNE_CUTOFF_FILE),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      this.pruneCutoff = cutoff;
+    }
+
+    final List<BigInteger> removed = new ArrayList<>();
+    for (final SortKey key : this.byExpiryDate.headSet(new SortKey(cutoff, BigInteger.ZERO))) {
+      synchronized (this.lock(key.serialNumber())) {
+        final Entry entry = this.index.remove(key.serialNumber());
+        if (entry == null) {
+          continue;
+        }
+        this.byExpiryDate.remove(key);
+        this.byIssueDate.remove(new SortKey(entry.issueDate, entry.serialNumber));
+        if (this.revoked.remove(entry.serialNumber)) {
+          this.revokedCount.decrementAndGet();
+        }
+        this.certificateCount.decrementAndGet();
+        this.modifications.incrementAndGet();
+        entry.putSegment.live.decrementAndGet();
+        if (entry.revokeSegment != null) {
+          entry.revokeSegment.live.decrementAndGet();
+        }
+        removed.add(entry.serialNumber);
+      }
+    }
+    this.compact();
+    return removed;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<RevokedCertificate> getRevokedCertificates() {
+    final List<RevokedCertificate> result = new ArrayList<>();
+    for (final BigInteger serialNumber : this.revoked) {
+      final Entry entry = this.index.get(serialNumber);
+      if (entry != null && entry.revoked) {
+        result.add(new RevokedCertificate(serialNumber, new Date(entry.revocationTime), entry.reason));
+      }
+    }
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized BigInteger getNextCrlNumber() {
+    this.crlNumber = this.crlNumber.add(BigInteger.ONE);
+    return this.crlNumber;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void publishNewCrl(@Nonnull final X509CRLHolder crl) throws IOException {
+    final PublishedCrl newCrl = new PublishedCrl(crl);
+    FileUtils.writeByteArrayToFile(this.crlFile, newCrl.getEncoding());
+    this.publishedCrl = newCrl;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public X509CRLHolder getCurrentCrl() {
+    final PublishedCrl crl = this.publishedCrl;
+    return crl != null ? crl.getCrl() : null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public CRLMetadata getCurrentCRLMetadata() {
+    final PublishedCrl currentCrl = this.publishedCrl;
+    if (currentCrl == null) {
+      // No CRL is available. Return empty metadata to allow initial CRL creation;
+      return CRLMetadata.builder()
+          .crlNumber(BigInteger.ZERO)
+          .issueTime(Instant.ofEpochMilli(0L))
+          .nextUpdate(Instant.ofEpochMilli(0L))
+          .revokedCertCount(0)
+          .build();
+    }
+    return CRLMetadata.builder()
+        .crlNumber(this.crlNumber)
+        .issueTime(currentCrl.getThisUpdate())
+        .nextUpdate(currentCrl.getNextUpdate())
+        .revokedCertCount(currentCrl.getRevokedCertCount())
+        .build();
+  }
+
+  /**
+   * Gets the number of segment files.
+   *
+   * @return the number of segment files
+   */
+  public int getSegmentCount() {
+    return this.segments.size();
+  }
+
+  /**
+   * Stops the writer and closes all segment files.
+   */
+  @Override
+  public void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.writeQueue.add(this.stopWriter);
+    try {
+      this.writer.join(5000);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (final Segment segment : this.segments.values()) {
+      segment.close();
+    }
+  }
+
+  /**
+   * Compacts segment files. Segments that have no live records are deleted, and the segment with the smallest share of
+   * live records (if below the compaction threshold) is rewritten.
+   * <p>
+   * Compaction uses its own lock and never goes through the writer, so it does not block writes or the CRL number.
+   * Since the writer may switch to a new segment at any time, the active segment, and any segment created after it,
+   * are left alone. Also, segments holding records that have been written but not yet indexed are left alone.
+   * </p>
+   *
+   * @throws IOException for write errors
+   */
+  private void compact() throws IOException {
+    synchronized (this.compactionLock) {
+      final Segment active = this.activeSegment;
+      Segment candidate = null;
+      for (final Segment segment : new ArrayList<>(this.segments.values())) {
+        if (segment.id >= active.id) {
+          continue;
+        }
+        // The pending count is read before the live count, since a writing thread counts its record as live before
+        // it is no longer counted as pending ...
+        if (segment.pending.get() > 0) {
+          continue;
+        }
+        if (segment.live.get() <= 0) {
+          this.deleteSegment(segment);
+        }
+        else if (segment.getLiveRatio() < COMPACTION_THRESHOLD
+            && (candidate == null || segment.getLiveRatio() < candidate.getLiveRatio())) {
+          candidate = segment;
+        }
+      }
+      if (candidate != null) {
+        this.rewriteSegment(candidate);
+      }
+    }
+  }
+
+  /**
+   * Writes the live records of a segment to a new file that replaces the segment file. The new file keeps the ID (and
+   * thereby the replay order) of the segment, so records written to later segments meanwhile still take precedence.
+   *
+   * @param candidate the segment to rewrite
+   * @throws IOException for write errors
+   */
+  private void rewriteSegment(final Segment candidate) throws IOException {
+    log.debug("Compacting segment {} ({} of {} records live)", candidate.id, candidate.live.get(), candidate.records);
+
+    final List<Entry> moved = new ArrayList<>();
+    final List<Long> offsets = new ArrayList<>();
+    final Path tmp = this.directory.resolve(candidate.path.getFileName() + COMPACTION_SUFFIX);
+    try (final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      long position = 0;
+      for (final BigInteger serialNumber : new LinkedHashSet<>(candidate.readSerialNumbers())) {
+        final Entry entry = this.index.get(serialNumber);
+        if (entry == null || entry.putSegment != candidate && entry.revokeSegment != candidate) {
+          continue;
+        }
+        final ByteBuffer data = encodePut(entry, this.readCertificate(entry));
+        moved.add(entry);
+        offsets.add(position);
+        while (data.hasRemaining()) {
+          position += channel.write(data, position);
+        }
+      }
+      channel.force(false);
+    }
+    Files.move(tmp, candidate.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    final Segment compacted = new Segment(candidate.id, candidate.path);
+    compacted.records = moved.size();
+    this.segments.put(compacted.id, compacted);
+
+    for (int i = 0; i < moved.size(); i++) {
+      final Entry entry = moved.get(i);
+      final long certificateOffset = new Location(compacted, offsets.get(i)).certificateOffset(entry.serialNumber);
+      synchronized (this.lock(entry.serialNumber)) {
+        final Entry current = this.index.get(entry.serialNumber);
+        if (current == entry) {
+          // The rewritten put record holds the complete state of the certificate
+          current.putSegment.live.decrementAndGet();
+          if (current.revokeSegment != null) {
+            current.revokeSegment.live.decrementAndGet();
+          }
+          compacted.live.incrementAndGet();
+          this.index.put(current.serialNumber, current.relocate(compacted, certificateOffset));
+        }
+        else if (current != null && current.putSegment == candidate) {
+          // Revoked meanwhile - the revocation record is in a later segment and overrides the rewritten record
+          compacted.live.incrementAndGet();
+          this.index.put(current.serialNumber, current.moveCertificate(compacted, certificateOffset));
+        }
+        // Otherwise the certificate was removed meanwhile, or its rewritten record is overridden by a later one
+      }
+    }
+
+    // Readers still holding entries for the old segment retry with the current entry (see readCertificate)
+    candidate.close();
+    if (compacted.live.get() <= 0) {
+      this.deleteSegment(compacted);
+    }
+  }
+
+  private void deleteSegment(final Segment segment) throws IOException {
+    log.debug("Deleting segment {}", segment.id);
+    this.segments.remove(segment.id);
+    segment.close();
+    Files.deleteIfExists(segment.path);
+  }
+
+  /**
+   * Loads the repository from the segment files.
+   */
+  private void load() throws IOException {
+    final Path cutoffFile = this.directory.resolve(PRUNE_CUTOFF_FILE);
+    if (Files.exists(cutoffFile)) {
+      this.pruneCutoff = Long.parseLong(Files.readString(cutoffFile, StandardCharsets.UTF_8).trim());
+    }
+
+    final List<Integer> ids = new ArrayList<>();
+    try (final var files = Files.list(this.directory)) {
+      files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+          .map(n -> Integer.parseInt(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+          .forEach(ids::add);
+    }
+    Collections.sort(ids);
+
+    for (int i = 0; i < ids.size(); i++) {
+      final Segment segment = new Segment(ids.get(i), this.segmentPath(ids.get(i)));
+      this.segments.put(segment.id, segment);
+      segment.replay(this, i == ids.size() - 1);
+    }
+    for (final Entry entry : this.index.values()) {
+      this.byIssueDate.add(new SortKey(entry.issueDate, entry.serialNumber));
+      this.byExpiryDate.add(new SortKey(entry.expiryDate, entry.serialNumber));
+      if (entry.revoked) {
+        this.revoked.add(entry.serialNumber);
+      }
+    }
+    this.certificateCount.set(this.index.size());
+    this.revokedCount.set(this.revoked.size());
+
+    if (this.segments.isEmpty() || this.segments.lastEntry().getValue().size >= this.maxSegmentSize) {
+      this.rollSegment();
+    }
+    else {
+      this.activeSegment = this.segments.lastEntry().getValue();
+    }
+    log.info("Loaded {} certificate(s) from {} segment(s) in {}", this.index.size(), this.segments.size(),
+        this.directory);
+  }
+
+  /**
+   * Applies a record during load.
+   */
+  private void apply(final Segment segment, final ByteBuffer payload, final long payloadOffset) {
+    final byte type = payload.get();
+    final BigInteger serialNumber = readSerialNumber(payload);
+    final Entry current = this.index.get(serialNumber);
+    if (type == PUT_RECORD) {
+      final long issueDate = payload.getLong();
+      final long expiryDate = payload.getLong();
+      final boolean isRevoked = payload.get() != 0;
+      final int reason = payload.getInt();
+      final long revocationTime = payload.getLong();
+      final int certificateLength = payload.getInt();
+      final long certificateOffset = payloadOffset + payload.position();
+
+      if (current != null) {
+        current.putSegment.live.decrementAndGet();
+        if (current.revokeSegment != null) {
+          current.revokeSegment.live.decrementAndGet();
+        }
+      }
+      if (expiryDate < this.pruneCutoff) {
+        this.index.remove(serialNumber);
+        return;
+      }
+      segment.live.incrementAndGet();
+      this.index.put(serialNumber, new Entry(serialNumber, issueDate, expiryDate, isRevoked, reason, revocationTime,
+          segment, certificateOffset, certificateLength, null));
+    }
+    else if (type == REVOKE_RECORD && current != null) {
+      if (current.revokeSegment != null) {
+        current.revokeSegment.live.decrementAndGet();
+      }
+      segment.live.incrementAndGet();
+      this.index.put(serialNumber, current.revoke(payload.getInt(), payload.getLong(), segment));
+    }
+  }
+
+  /**
+   * Writes a record and waits until it has been committed.
+   */
+  private Location write(final ByteBuffer data) throws IOException {
+    return await(this.submit(data));
+  }
+
+  /**
+   * Submits a record for writing.
+   */
+  private CompletableFuture<Location> submit(final ByteBuffer data) throws IOException {
+    if (this.closed) {
+      throw new IOException("Repository has been closed");
+    }
+    final PendingWrite write = new PendingWrite(data);
+    this.writeQueue.add(write);
+    return write.result;
+  }
+
+  private static Location await(final CompletableFuture<Location> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for write", e);
+    }
+    catch (final ExecutionException e) {
+      throw e.getCause() instanceof final IOException ioe ? ioe : new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * The writer loop. All pending writes are written in one go, and synced together.
+   */
+  private void writeLoop() {
+    final List<PendingWrite> batch = new ArrayList<>();
+    boolean stopped = false;
+    while (!stopped) {
+      try {
+        batch.add(this.writeQueue.take());
+      }
+      catch (final InterruptedException e) {
+        continue;
+      }
+      this.writeQueue.drainTo(batch, MAX_GROUP_COMMIT - 1);
+      stopped = batch.remove(this.stopWriter);
+      final List<Location> locations = new ArrayList<>(batch.size());
+      try {
+        for (final PendingWrite write : batch) {
+          if (this.activeSegment.size >= this.maxSegmentSize) {
+            this.activeSegment.sync();
+            this.rollSegment();
+          }
+          locations.add(this.activeSegment.append(write.data));
+        }
+        if (this.syncWrites) {
+          this.activeSegment.sync();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).result.complete(locations.get(i));
+        }
+      }
+      catch (final IOException e) {
+        log.error("Failed to write to CA repository - {}", e.getMessage(), e);
+        // The records will not be indexed by the callers ...
+        locations.forEach(l -> l.segment().pending.decrementAndGet());
+        batch.forEach(w -> w.result.completeExceptionally(e));
+      }
+      batch.clear();
+    }
+    final IOException closedException = new IOException("Repository has been closed");
+    this.writeQueue.forEach(w -> w.result.completeExceptionally(closedException));
+  }
+
+  private void rollSegment() throws IOException {
+    final int id = this.segments.isEmpty() ? 1 : this.segments.lastKey() + 1;
+    final Segment segment = new Segment(id, this.segmentPath(id));
+    this.segments.put(id, segment);
+    this.activeSegment = segment;
+  }
+
+  private Path segmentPath(final int id) {
+    return this.directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+  }
+
+  private Object lock(final BigInteger serialNumber) {
+    return this.locks[Math.floorMod(serialNumber.hashCode(), this.locks.length)];
+  }
+
+  /**
+   * Creates a certificate record for an entry.
+   */
+  private CertificateRecord toRecord(@Nullable final Entry entry) throws IOException {
+    if (entry == null) {
+      return null;
+    }
+    return new SerializableCertificateRecord(this.readCertificate(entry), entry.serialNumber,
+        new Date(entry.issueDate), new Date(entry.expiryDate), entry.revoked,
+        entry.revoked ? entry.reason : null, entry.revoked ? new Date(entry.revocationTime) : null);
+  }
+
+  /**
+   * Reads the certificate encoding for an entry. If the segment has been compacted meanwhile, the current entry is
+   * used.
+   */
+  private byte[] readCertificate(final Entry entry) throws IOException {
+    try {
+      return entry.putSegment.read(entry.certificateOffset, entry.certificateLength);
+    }
+    catch (final ClosedChannelException e) {
+      final Entry current = this.index.get(entry.serialNumber);
+      if (current == null || current == entry) {
+        throw e;
+      }
+      return current.putSegment.read(current.certificateOffset, current.certificateLength);
+    }
+  }
+
+  private static ByteBuffer encodePut(final Entry entry, final byte[] certificate) {
+    final byte[] serial = entry.serialNumber.toByteArray();
+    final ByteBuffer payload = ByteBuffer.allocate(1 + 4 + serial.length + 8 + 8 + 1 + 4 + 8 + 4 + certificate.length);
+    payload.put(PUT_RECORD)
+        .putInt(serial.length).put(serial)
+        .putLong(entry.issueDate)
+        .putLong(entry.expiryDate)
+        .put((byte) (entry.revoked ? 1 : 0))
+        .putInt(entry.reason)
+        .putLong(entry.revocationTime)
+        .putInt(certificate.length).put(certificate);
+    return frame(payload);
+  }
+
+  private static ByteBuffer encodeRevoke(final BigInteger serialNumber, final int reason, final long revocationTime) {
+    final byte[] serial = serialNumber.toByteArray();
+    final ByteBuffer payload = ByteBuffer.allocate(1 + 4 + serial.length + 4 + 8);
+    payload.put(REVOKE_RECORD)
+        .putInt(serial.length).put(serial)
+        .putInt(reason)
+        .putLong(revocationTime);
+    return frame(payload);
+  }
+
+  /**
+   * Adds the record header (payload length and checksum).
+   */
+  private static ByteBuffer frame(final ByteBuffer payload) {
+    final CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    final ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + payload.capacity());
+    data.putInt(payload.capacity()).putInt((int) crc.getValue()).put(payload.array());
+    data.flip();
+    return data;
+  }
+
+  private static BigInteger readSerialNumber(final ByteBuffer payload) {
+    final byte[] serial = new byte[payload.getInt()];
+    payload.get(serial);
+    return new BigInteger(serial);
+  }
+
+  /**
+   * The location of a written record.
+   */
+  private static class Location {
+
+    private final Segment segment;
+
+    private final long offset;
+
+    Location(final Segment segment, final long offset) {
+      this.segment = segment;
+      this.offset = offset;
+    }
+
+    Segment segment() {
+      return this.segment;
+    }
+
+    /**
+     * Gets the file offset of the certificate encoding of a put record written at this location.
+     */
+    long certificateOffset(final BigInteger serialNumber) {
+      return this.offset + HEADER_SIZE + 1 + 4 + serialNumber.toByteArray().length + 8 + 8 + 1 + 4 + 8 + 4;
+    }
+  }
+
+  /**
+   * A pending write.
+   */
+  private static class PendingWrite {
+
+    private final ByteBuffer data;
+
+    private final CompletableFuture<Location> result = new CompletableFuture<>();
+
+    PendingWrite(final ByteBuffer data) {
+      this.data = data;
+    }
+  }
+
+  /**
+   * The position where a page starts.
+   */
+  private static class PageCursor {
+
+    private final long modification;
+
+    private final int page;
+
+    private final Object key;
+
+    PageCursor(final long modification, final int page, final Object key) {
+      this.modification = modification;
+      this.page = page;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Sort key for the date indexes.
+   */
+  private static class SortKey implements Comparable<SortKey> {
+
+    private static final Comparator<SortKey> COMPARATOR =
+        Comparator.comparingLong((SortKey k) -> k.time).thenComparing(k -> k.serialNumber);
+
+    private final long time;
+
+    private final BigInteger serialNumber;
+
+    SortKey(final long time, final BigInteger serialNumber) {
+      this.time = time;
+      this.serialNumber = serialNumber;
+    }
+
+    BigInteger serialNumber() {
+      return this.serialNumber;
+    }
+
+    @Override
+    public int compareTo(final SortKey o) {
+      return COMPARATOR.compare(this, o);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof final SortKey k && this.time == k.time && this.serialNumber.equals(k.serialNumber);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.time, this.serialNumber);
+    }
+  }
+
+  /**
+   * An index entry for a certificate. Entries are immutable, an update replaces the entry in the index.
+   */
+  private static class Entry {
+
+    private final BigInteger serialNumber;
+    private final long issueDate;
+    private final long expiryDate;
+    private final boolean revoked;
+    private final int reason;
+    private final long revocationTime;
+
+    /** The segment holding the put record for the certificate. */
+    private final Segment putSegment;
+
+    /** The offset of the certificate encoding within the put segment. */
+    private final long certificateOffset;
+
+    /** The length of the certificate encoding. */
+    private final int certificateLength;
+
+    /** The segment holding the revocation record (null if the revocation status is given by the put record). */
+    private final Segment revokeSegment;
+
+    Entry(final BigInteger serialNumber, final long issueDate, final long expiryDate, final boolean revoked,
+        final int reason, final long revocationTime, final Segment putSegment, final long certificateOffset,
+        final int certificateLength, final Segment revokeSegment) {
+      this.serialNumber = serialNumber;
+      this.issueDate = issueDate;
+      this.expiryDate = expiryDate;
+      this.revoked = revoked;
+      this.reason = reason;
+      this.revocationTime = revocationTime;
+      this.putSegment = putSegment;
+      this.certificateOffset = certificateOffset;
+      this.certificateLength = certificateLength;
+      this.revokeSegment = revokeSegment;
+    }
+
+    Entry relocate(final Segment segment, final long offset) {
+      return new Entry(this.serialNumber, this.issueDate, this.expiryDate, this.revoked, this.reason,
+          this.revocationTime, segment, offset, this.certificateLength, null);
+    }
+
+    Entry moveCertificate(final Segment segment, final long offset) {
+      return new Entry(this.serialNumber, this.issueDate, this.expiryDate, this.revoked, this.reason,
+          this.revocationTime, segment, offset, this.certificateLength, this.revokeSegment);
+    }
+
+    Entry revoke(final int reason, final long revocationTime, final Segment segment) {
+      return new Entry(this.serialNumber, this.issueDate, this.expiryDate, true, reason, revocationTime,
+          this.putSegment, this.certificateOffset, this.certificateLength, segment);
+    }
+  }
+
+  /**
+   * A segment file.
+   */
+  private static class Segment {
+
+    private final int id;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    /** The number of live (referenced) records in the segment. */
+    private final AtomicInteger live = new AtomicInteger(0);
+
+    /**
+     * The number of records written to the segment that have not yet been indexed (counted as live) by the thread that
+     * requested the write.
+     */
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    /** The total number of records in the segment. */
+    private volatile int records = 0;
+
+    /** The size of the segment. */
+    private volatile long size;
+
+    Segment(final int id, final Path path) throws IOException {
+      this.id = id;
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.size = this.channel.size();
+    }
+
+    double getLiveRatio() {
+      return this.records == 0 ? 1.0 : (double) this.live.get() / this.records;
+    }
+
+    /**
+     * Appends a record (only invoked by the writer thread). The record is counted as pending until the thread that
+     * requested the write has indexed it.
+     */
+    Location append(final ByteBuffer data) throws IOException {
+      final long offset = this.size;
+      long position = offset;
+      while (data.hasRemaining()) {
+        position += this.channel.write(data, position);
+      }
+      this.size = position;
+      this.records++;
+      this.pending.incrementAndGet();
+      return new Location(this, offset);
+    }
+
+    void sync() throws IOException {
+      this.channel.force(false);
+    }
+
+    byte[] read(final long offset, final int length) throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        final int read = this.channel.read(buffer, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of segment " + this.id);
+        }
+        position += read;
+      }
+      return buffer.array();
+    }
+
+    /**
+     * Replays all records of the segment. A damaged record at the end of the last segment (from an interrupted write)
+     * is truncated.
+     */
+    void replay(final FileCARepository repository, final boolean last) throws IOException {
+      this.scan((payload, payloadOffset) -> repository.apply(this, payload, payloadOffset), last);
+    }
+
+    /**
+     * Reads the serial numbers of all records in the segment.
+     */
+    List<BigInteger> readSerialNumbers() throws IOException {
+      final List<BigInteger> serialNumbers = new ArrayList<>();
+      this.scan((payload, payloadOffset) -> {
+        payload.get();
+        serialNumbers.add(readSerialNumber(payload));
+      }, false);
+      return serialNumbers;
+    }
+
+    private void scan(final RecordConsumer consumer, final boolean truncateDamaged) throws IOException {
+      final long end = this.size;
+      long position = 0;
+      int count = 0;
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (position + HEADER_SIZE <= end) {
+        header.clear();
+        this.channel.read(header, position);
+        header.flip();
+        final int length = header.getInt();
+        final int checksum = header.getInt();
+        if (length <= 0 || position + HEADER_SIZE + length > end) {
+          break;
+        }
+        final byte[] payload = this.read(position + HEADER_SIZE, length);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        consumer.accept(ByteBuffer.wrap(payload), position + HEADER_SIZE);
+        position += HEADER_SIZE + length;
+        count++;
+      }
+      if (position < end) {
+        if (truncateDamaged) {
+          log.warn("Truncating damaged record at end of segment {} (offset {})", this.id, position);
+          this.channel.truncate(position);
+          this.size = position;
+        }
+        else {
+          log.warn("Damaged record in segment {} (offset {})", this.id, position);
+        }
+      }
+      this.records = count;
+    }
+
+    void close() {
+      try {
+        this.channel.close();
+      }
+      catch (final IOException e) {
+        log.debug("Failed to close segment {} - {}", this.id, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Consumer for records read from a segment.
+   */
+  @FunctionalInterface
+  private interface RecordConsumer {
+    void accept(ByteBuffer payload, long payloadOffset);
+  }
+
+}
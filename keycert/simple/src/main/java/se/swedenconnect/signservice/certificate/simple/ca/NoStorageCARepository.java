@@ -27,8 +27,6 @@ import java.util.List;
 import java.util.Objects;
 
 import org.apache.commons.io.FileUtils;
-import org.bouncycastle.asn1.x509.CRLNumber;
-import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.cert.X509CertificateHolder;
 
@@ -47,7 +45,8 @@ import se.swedenconnect.ca.engine.revocation.crl.RevokedCertificate;
  * This CA repository does not store any certificates at all. It may be useful for simple deployments where no
  * revocation of certificates is provided.
  * <p>
- * A CRL file is however created in order to facilitate creation of an empty CRL.
+ * A CRL file is however created in order to facilitate creation of an empty CRL. The current CRL is also kept in
+ * memory, and is only updated when a new CRL is published.
  * </p>
  */
 @Slf4j
@@ -59,6 +58,9 @@ public class NoStorageCARepository implements CARepository, CRLRevocationDataPro
   /** CRL file for storing the latest CRL. */
   private final File crlFile;
 
+  /** The current CRL (null if no CRL has been published). */
+  private volatile PublishedCrl publishedCrl;
+
   /**
    * Constructor.
    *
@@ -72,10 +74,8 @@ public class NoStorageCARepository implements CARepository, CRLRevocationDataPro
     if (this.crlFile.canRead()) {
       // If published CRL exists. Get CRL number from current CRL.
       try (final InputStream is = new FileInputStream(this.crlFile)) {
-        final X509CRLHolder crlHolder = new X509CRLHolder(is);
-        final Extension crlNumberExtension = crlHolder.getExtension(Extension.cRLNumber);
-        final CRLNumber crlNumberFromCrl = CRLNumber.getInstance(crlNumberExtension.getParsedValue());
-        this.crlNumber = crlNumberFromCrl.getCRLNumber();
+        this.publishedCrl = new PublishedCrl(new X509CRLHolder(is));
+        this.crlNumber = this.publishedCrl.getCrlNumber();
       }
     }
   }
@@ -166,26 +166,37 @@ public class NoStorageCARepository implements CARepository, CRLRevocationDataPro
   /** {@inheritDoc} */
   @Override
   public void publishNewCrl(@Nonnull final X509CRLHolder crl) throws IOException {
-    FileUtils.writeByteArrayToFile(this.crlFile, crl.getEncoded());
+    final PublishedCrl newCrl = new PublishedCrl(crl);
+    FileUtils.writeByteArrayToFile(this.crlFile, newCrl.getEncoding());
+    this.publishedCrl = newCrl;
   }
 
   /** {@inheritDoc} */
   @Override
   public X509CRLHolder getCurrentCrl() {
-    try {
-      return new X509CRLHolder(new FileInputStream(this.crlFile));
-    }
-    catch (final Exception e) {
+    final PublishedCrl crl = this.publishedCrl;
+    if (crl == null) {
       log.debug("No current CRL is available. Returning null");
       return null;
     }
+    return crl.getCrl();
+  }
+
+  /**
+   * Gets the current CRL along with its encoding.
+   *
+   * @return the current CRL, or null if no CRL has been published
+   */
+  @Nullable
+  PublishedCrl getPublishedCrl() {
+    return this.publishedCrl;
   }
 
   /** {@inheritDoc} */
   @Override
   @Nonnull
   public CRLMetadata getCurrentCRLMetadata() {
-    final X509CRLHolder currentCrl = getCurrentCrl();
+    final PublishedCrl currentCrl = this.publishedCrl;
     if (currentCrl == null) {
       log.debug("No CRL file is available - Resetting CRL metadata to support initial CRL creation");
       // No CRL is available. Return empty metadata to allow initial CRL creation;
@@ -200,9 +211,9 @@ public class NoStorageCARepository implements CARepository, CRLRevocationDataPro
     log.debug("Returning CRL metadata from current CRL");
     return CRLMetadata.builder()
       .crlNumber(crlNumber)
-      .issueTime(currentCrl.getThisUpdate().toInstant())
-      .nextUpdate(currentCrl.getNextUpdate().toInstant())
-      .revokedCertCount(currentCrl.getRevokedCertificates().size())
+      .issueTime(currentCrl.getThisUpdate())
+      .nextUpdate(currentCrl.getNextUpdate())
+      .revokedCertCount(currentCrl.getRevokedCertCount())
       .build();
   }
 }
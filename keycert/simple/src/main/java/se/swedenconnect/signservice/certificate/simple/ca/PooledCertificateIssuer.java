@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+
+import jakarta.annotation.Nonnull;
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuanceException;
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuer;
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuerModel;
+import se.swedenconnect.ca.engine.ca.models.cert.CertificateModel;
+
+/**
+ * A {@link CertificateIssuer} that distributes certificate issuance over a pool of equivalent issuers, for example
+ * issuers using several HSM sessions (or HSM:s) for the same CA key. Each certificate is issued by the issuer having
+ * the least number of ongoing issuances (ties are broken in a round-robin fashion).
+ * <p>
+ * All issuers of the pool must use the same issuer model and CA key (since issued certificates are built using the
+ * same CA certificate).
+ * </p>
+ */
+public class PooledCertificateIssuer extends CertificateIssuer {
+
+  /** The pooled issuers. */
+  private final List<PooledIssuer> issuers;
+
+  /** Used to select the starting point when looking for the least loaded issuer. */
+  private final AtomicInteger next = new AtomicInteger(0);
+
+  /**
+   * Constructor.
+   *
+   * @param issuers the issuers of the pool
+   */
+  public PooledCertificateIssuer(@Nonnull final List<? extends CertificateIssuer> issuers) {
+    super(getIssuerModel(issuers));
+    this.issuers = new ArrayList<>(issuers.size());
+    issuers.forEach(i -> this.issuers.add(new PooledIssuer(Objects.requireNonNull(i, "issuer must not be null"))));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public X509CertificateHolder issueCertificate(@Nonnull final CertificateModel model)
+      throws CertificateIssuanceException {
+    final PooledIssuer issuer = this.select();
+    try {
+      return issuer.getIssuer().issueCertificate(model);
+    }
+    finally {
+      issuer.getInFlight().decrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the issuer model of the pool, i.e., the model of the first issuer.
+   *
+   * @param issuers the issuers of the pool
+   * @return the issuer model
+   */
+  private static CertificateIssuerModel getIssuerModel(final List<? extends CertificateIssuer> issuers) {
+    Objects.requireNonNull(issuers, "issuers must not be null");
+    if (issuers.isEmpty()) {
+      throw new IllegalArgumentException("issuers must not be empty");
+    }
+    return Objects.requireNonNull(issuers.get(0), "issuer must not be null").getCertificateIssuerModel();
+  }
+
+  /**
+   * Gets the number of issuers in the pool.
+   *
+   * @return the pool size
+   */
+  public int size() {
+    return this.issuers.size();
+  }
+
+  /**
+   * Selects the least loaded issuer, and reserves it (increments its in-flight count).
+   *
+   * @return the selected issuer
+   */
+  private PooledIssuer select() {
+    final int size = this.issuers.size();
+    final int start = Math.floorMod(this.next.getAndIncrement(), size);
+    while (true) {
+      PooledIssuer selected = null;
+      int selectedLoad = Integer.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        final PooledIssuer candidate = this.issuers.get((start + i) % size);
+        final int load = candidate.getInFlight().get();
+        if (load < selectedLoad) {
+          selected = candidate;
+          selectedLoad = load;
+          if (load == 0) {
+            break;
+          }
+        }
+      }
+      // Another thread may have picked the same issuer meanwhile - if so, look again
+      if (selected.getInFlight().compareAndSet(selectedLoad, selectedLoad + 1)) {
+        return selected;
+      }
+    }
+  }
+
+  /**
+   * An issuer and its number of ongoing issuances.
+   */
+  private static class PooledIssuer {
+
+    /** The issuer. */
+    private final CertificateIssuer issuer;
+
+    /** The number of ongoing issuances. */
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    PooledIssuer(final CertificateIssuer issuer) {
+      this.issuer = issuer;
+    }
+
+    CertificateIssuer getIssuer() {
+      return this.issuer;
+    }
+
+    AtomicInteger getInFlight() {
+      return this.inFlight;
+    }
+  }
+
+}
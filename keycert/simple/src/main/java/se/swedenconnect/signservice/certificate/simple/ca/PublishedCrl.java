@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Objects;
+
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLHolder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import se.swedenconnect.signservice.core.http.EntityTags;
+
+/**
+ * A published CRL along with its encoding and the data needed to serve it over HTTP. The encoding and derived data are
+ * calculated once when the CRL is published, so that serving the CRL does not require any processing.
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ */
+public class PublishedCrl {
+
+  /** The CRL. */
+  private final X509CRLHolder crl;
+
+  /** The DER encoding of the CRL. */
+  private final byte[] encoding;
+
+  /** The ETag for the CRL. */
+  private final String etag;
+
+  /** The CRL number (zero if the CRL has no CRL number extension). */
+  private final BigInteger crlNumber;
+
+  /**
+   * Constructor.
+   *
+   * @param crl the CRL
+   * @throws IOException if the CRL can not be encoded
+   */
+  public PublishedCrl(@Nonnull final X509CRLHolder crl) throws IOException {
+    this.crl = Objects.requireNonNull(crl, "crl must not be null");
+    this.encoding = crl.getEncoded();
+    this.etag = EntityTags.calculate(this.encoding);
+
+    final Extension crlNumberExtension = crl.getExtension(Extension.cRLNumber);
+    this.crlNumber = crlNumberExtension != null
+        ? CRLNumber.getInstance(crlNumberExtension.getParsedValue()).getCRLNumber()
+        : BigInteger.ZERO;
+  }
+
+  /**
+   * Gets the CRL.
+   *
+   * @return the CRL
+   */
+  @Nonnull
+  public X509CRLHolder getCrl() {
+    return this.crl;
+  }
+
+  /**
+   * Gets the DER encoding of the CRL. Note that the internal array is returned and must not be modified.
+   *
+   * @return the encoding
+   */
+  @Nonnull
+  public byte[] getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * Gets the (strong) ETag for the CRL, including quotes.
+   *
+   * @return the ETag
+   */
+  @Nonnull
+  public String getEtag() {
+    return this.etag;
+  }
+
+  /**
+   * Gets the CRL number.
+   *
+   * @return the CRL number
+   */
+  @Nonnull
+  public BigInteger getCrlNumber() {
+    return this.crlNumber;
+  }
+
+  /**
+   * Gets the issuance time of the CRL.
+   *
+   * @return the issuance time
+   */
+  @Nonnull
+  public Instant getThisUpdate() {
+    return this.crl.getThisUpdate().toInstant();
+  }
+
+  /**
+   * Gets the time when the next CRL will be issued.
+   *
+   * @return the next update time, or null if not set
+   */
+  @Nullable
+  public Instant getNextUpdate() {
+    return this.crl.getNextUpdate() != null ? this.crl.getNextUpdate().toInstant() : null;
+  }
+
+  /**
+   * Gets the number of revoked certificates in the CRL.
+   *
+   * @return the number of revoked certificates
+   */
+  public int getRevokedCertCount() {
+    return this.crl.getRevokedCertificates().size();
+  }
+
+}
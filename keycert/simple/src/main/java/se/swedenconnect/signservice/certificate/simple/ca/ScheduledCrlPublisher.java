@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.cert.X509CRLHolder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import se.swedenconnect.ca.engine.ca.issuer.CAService;
+
+/**
+ * Publishes new CRL:s on a background thread ahead of the next update time of the current CRL. This means that a CRL
+ * never has to be issued on the request path.
+ */
+@Slf4j
+public class ScheduledCrlPublisher implements Closeable {
+
+  /** Default time before the next update time of the current CRL that a new CRL is published. */
+  public static final Duration DEFAULT_REFRESH_MARGIN = Duration.ofMinutes(30);
+
+  /** The minimum time between two publications. */
+  private static final Duration MIN_INTERVAL = Duration.ofSeconds(1);
+
+  /** The time to wait before a new attempt is made if publishing fails. */
+  private static final Duration RETRY_INTERVAL = Duration.ofMinutes(1);
+
+  /** The CA service. */
+  private final CAService caService;
+
+  /** The time before next update that a new CRL should be published. */
+  private final Duration refreshMargin;
+
+  /** The scheduler. */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Constructor.
+   *
+   * @param caService the CA service that publishes CRL:s
+   * @param refreshMargin the time before the next update time of the current CRL that a new CRL is published (if
+   *          null, {@link #DEFAULT_REFRESH_MARGIN} is used). The margin is never larger than half of the CRL validity
+   *          time.
+   */
+  public ScheduledCrlPublisher(@Nonnull final CAService caService, @Nullable final Duration refreshMargin) {
+    this.caService = Objects.requireNonNull(caService, "caService must not be null");
+    this.refreshMargin = Optional.ofNullable(refreshMargin).orElse(DEFAULT_REFRESH_MARGIN);
+    if (this.refreshMargin.isNegative()) {
+      throw new IllegalArgumentException("refreshMargin must not be negative");
+    }
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "crl-publisher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts the publisher.
+   */
+  public void start() {
+    this.schedule(this.getDelay(this.caService.getCurrentCrl()));
+  }
+
+  /**
+   * Stops the publisher.
+   */
+  @Override
+  public void close() {
+    this.scheduler.shutdownNow();
+  }
+
+  /**
+   * Calculates the time until the next CRL should be published.
+   *
+   * @param crl the current CRL
+   * @return the delay
+   */
+  @Nonnull
+  Duration getDelay(@Nullable final X509CRLHolder crl) {
+    if (crl == null || crl.getNextUpdate() == null) {
+      return Duration.ZERO;
+    }
+    final Instant thisUpdate = crl.getThisUpdate().toInstant();
+    final Instant nextUpdate = crl.getNextUpdate().toInstant();
+    final Duration halfValidity = Duration.between(thisUpdate, nextUpdate).dividedBy(2);
+    final Duration margin = this.refreshMargin.compareTo(halfValidity) > 0 ? halfValidity : this.refreshMargin;
+    final Duration delay = Duration.between(Instant.now(), nextUpdate.minus(margin));
+    return delay.isNegative() ? Duration.ZERO : delay;
+  }
+
+  private void schedule(final Duration delay) {
+    if (this.scheduler.isShutdown()) {
+      return;
+    }
+    log.debug("Next CRL will be published in {}", delay);
+    this.scheduler.schedule(this::publish, delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void publish() {
+    try {
+      final X509CRLHolder crl = this.caService.publishNewCrl();
+      log.debug("Published new CRL, next update: {}", crl != null ? crl.getNextUpdate() : null);
+      if (crl == null) {
+        // The CA does not issue CRL:s
+        return;
+      }
+      final Duration delay = this.getDelay(crl);
+      this.schedule(delay.compareTo(MIN_INTERVAL) < 0 ? MIN_INTERVAL : delay);
+    }
+    catch (final Exception e) {
+      log.warn("Failed to publish new CRL - {}", e.getMessage(), e);
+      this.schedule(RETRY_INTERVAL);
+    }
+  }
+
+}
@@ -16,6 +16,7 @@
 package se.swedenconnect.signservice.certificate.simple.config;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -23,10 +24,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.xml.security.signature.XMLSignature;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import lombok.Getter;
 import lombok.Setter;
 import se.swedenconnect.signservice.certificate.base.config.AbstractKeyAndCertificateHandlerConfiguration;
 import se.swedenconnect.signservice.certificate.simple.SimpleKeyAndCertificateHandler;
+import se.swedenconnect.signservice.certificate.simple.ca.CachingOCSPResponder;
 import se.swedenconnect.signservice.core.config.PkiCredentialConfiguration;
 
 /**
@@ -47,6 +50,15 @@ public class SimpleKeyAndCertificateHandlerConfiguration extends AbstractKeyAndC
   @Getter
   private PkiCredentialConfiguration caCredential;
 
+  /**
+   * Additional credentials for issuing certificates. These must hold the same key, and have the same subject, as the CA
+   * credential, and may be used to let several HSM sessions (or HSM:s) share the issuance load. Certificates are issued
+   * using the least loaded credential.
+   */
+  @Setter
+  @Getter
+  private List<PkiCredentialConfiguration> additionalIssuerCredentials;
+
   /**
    * The CA signing algorithm. Defaults to {@value XMLSignature#ALGO_ID_SIGNATURE_RSA_SHA256} or
    * {@value XMLSignature#ALGO_ID_SIGNATURE_ECDSA_SHA256} depending on the type of client credentials used.
@@ -95,6 +107,38 @@ public class SimpleKeyAndCertificateHandlerConfiguration extends AbstractKeyAndC
   @Setter
   private String crlFileLocation;
 
+  /**
+   * The time before the next update time of the current CRL that a new CRL is published by a background task. The
+   * default is 30 minutes (but never more than half of the CRL validity).
+   */
+  @Getter
+  @Setter
+  private Duration crlRefreshMargin;
+
+  /**
+   * A directory where issued certificates (and their revocation status) are persisted. If not set, issued certificates
+   * are not stored.
+   */
+  @Getter
+  @Setter
+  private String repositoryDirectory;
+
+  /**
+   * The path to where OCSP requests (GET) are received. Relative to {@code baseUrl}. If set, the CA runs an OCSP
+   * responder that signs responses using the CA credential, and caches them (see {@link CachingOCSPResponder}). This
+   * requires that {@code repositoryDirectory} is set.
+   */
+  @Getter
+  private String ocspPath;
+
+  /**
+   * The interval for re-signing cached OCSP responses. The default is
+   * {@link CachingOCSPResponder#DEFAULT_REFRESH_INTERVAL}.
+   */
+  @Getter
+  @Setter
+  private Duration ocspRefreshInterval;
+
   /**
    * Assigns the application base URL. Must not end with a slash.
    *
@@ -121,6 +165,20 @@ public class SimpleKeyAndCertificateHandlerConfiguration extends AbstractKeyAndC
     }
   }
 
+  /**
+   * Assigns the path to where OCSP requests are received. Relative to {@code baseUrl}.
+   *
+   * @param ocspPath the OCSP path
+   */
+  public void setOcspPath(@Nullable final String ocspPath) {
+    this.ocspPath = Optional.ofNullable(ocspPath)
+      .filter(StringUtils::isNotBlank)
+      .orElse(null);
+    if (this.ocspPath != null && !this.ocspPath.startsWith("/")) {
+      throw new IllegalArgumentException("The ocspPath must be null or begin with a '/'");
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nonnull
@@ -20,6 +20,8 @@ import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.xml.security.signature.XMLSignature;
+import se.swedenconnect.ca.engine.revocation.ocsp.OCSPModel;
+import se.swedenconnect.ca.engine.revocation.ocsp.impl.RepositoryBasedOCSPResponder;
 import se.swedenconnect.security.algorithms.AlgorithmRegistry;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.security.credential.container.PkiCredentialContainer;
@@ -31,6 +33,9 @@ import se.swedenconnect.signservice.certificate.base.config.CertificateProfileCo
 import se.swedenconnect.signservice.certificate.simple.SimpleKeyAndCertificateHandler;
 import se.swedenconnect.signservice.certificate.simple.ca.BasicCAService;
 import se.swedenconnect.signservice.certificate.simple.ca.BasicCAServiceBuilder;
+import se.swedenconnect.signservice.certificate.simple.ca.CachingOCSPResponder;
+import se.swedenconnect.signservice.certificate.simple.ca.FileCARepository;
+import se.swedenconnect.signservice.certificate.simple.ca.ScheduledCrlPublisher;
 import se.swedenconnect.signservice.core.config.BeanLoader;
 import se.swedenconnect.signservice.core.config.HandlerConfiguration;
 
@@ -38,8 +43,10 @@ import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Factory for creating {@link SimpleKeyAndCertificateHandler} instances.
@@ -70,6 +77,10 @@ public class SimpleKeyAndCertificateHandlerFactory extends AbstractKeyAndCertifi
         .map(c -> c.resolvePkiCredential(beanLoader))
         .orElseThrow(() -> new IllegalArgumentException("Missing CA credential"));
 
+    final List<PkiCredential> additionalIssuerCredentials = Optional.ofNullable(conf.getAdditionalIssuerCredentials())
+        .map(l -> l.stream().map(c -> c.resolvePkiCredential(beanLoader)).collect(Collectors.toList()))
+        .orElse(null);
+
     String caSigningAlgorithm = conf.getCaSigningAlgorithm();
     if (StringUtils.isBlank(caSigningAlgorithm)) {
       if ("RSA".equals(caCredential.getPublicKey().getAlgorithm())) {
@@ -107,9 +118,15 @@ public class SimpleKeyAndCertificateHandlerFactory extends AbstractKeyAndCertifi
     // Set up a CA service
     //
     final BasicCAService caService;
+    FileCARepository caRepository = null;
     try {
-      final BasicCAServiceBuilder builder =
-          BasicCAServiceBuilder.getInstance(caCredential, crlDp, caSigningAlgorithm, crlFileLocation);
+      if (StringUtils.isNotBlank(conf.getRepositoryDirectory())) {
+        caRepository = new FileCARepository(conf.getRepositoryDirectory(), crlFileLocation);
+      }
+      final BasicCAServiceBuilder builder = caRepository != null
+          ? BasicCAServiceBuilder.getInstance(caCredential, crlDp, caSigningAlgorithm, caRepository)
+          : BasicCAServiceBuilder.getInstance(caCredential, crlDp, caSigningAlgorithm, crlFileLocation);
+      builder.additionalIssuerCredentials(additionalIssuerCredentials);
       if (conf.getCertValidity() != null) {
         builder.certificateValidity(conf.getCertValidity());
       }
@@ -120,20 +137,72 @@ public class SimpleKeyAndCertificateHandlerFactory extends AbstractKeyAndCertifi
       if (profileConfiguration != null) {
         caService.setProfileConfiguration(profileConfiguration);
       }
+      if (conf.getOcspPath() != null) {
+        if (caRepository == null) {
+          throw new IllegalArgumentException("Repository directory must be set when OCSP path is set");
+        }
+        final String baseUrl = Optional.ofNullable(conf.getBaseUrl())
+            .filter(StringUtils::isNotBlank)
+            .orElseThrow(() -> new IllegalArgumentException("Base URL must be set when OCSP path is set"));
+        final CachingOCSPResponder ocspResponder = new CachingOCSPResponder(
+            new RepositoryBasedOCSPResponder(caCredential,
+                new OCSPModel(caService.getCaCertificate(), caSigningAlgorithm), caRepository),
+            caService.getCaCertificate(), conf.getOcspPath());
+        if (conf.getOcspRefreshInterval() != null) {
+          ocspResponder.setRefreshInterval(conf.getOcspRefreshInterval());
+        }
+        caService.setOcspResponder(ocspResponder, baseUrl + conf.getOcspPath(), caCredential.getCertificate());
+      }
+    }
+    catch (final IllegalArgumentException e) {
+      closeRepository(caRepository);
+      throw e;
     }
     catch (final IOException e) {
+      closeRepository(caRepository);
       final String msg = String.format("Failed to set up a CA repository - %s", e.getMessage());
       log.info("{}", msg, e);
       throw new IllegalArgumentException(msg, e);
     }
     catch (final NoSuchAlgorithmException | CRLException | CertificateException e) {
+      closeRepository(caRepository);
       final String msg = "Failed to set up a CA service - " + e.getMessage();
       log.info("{}", msg, e);
       throw new IllegalArgumentException(msg, e);
     }
 
-    return new SimpleKeyAndCertificateHandler(
+    final SimpleKeyAndCertificateHandler handler = new SimpleKeyAndCertificateHandler(
         keyProvider, algorithmKeyTypes, attributeMapper, algorithmRegistry, caService, crlDpPath);
+
+    // The repository is closed when the handler is closed.
+    //
+    handler.setCaRepository(caRepository);
+
+    // Publish CRL:s ahead of their next update time, so that this is never done on the request path.
+    // The publisher is stopped when the handler is closed.
+    //
+    final ScheduledCrlPublisher crlPublisher = new ScheduledCrlPublisher(caService, conf.getCrlRefreshMargin());
+    handler.setCrlPublisher(crlPublisher);
+    crlPublisher.start();
+
+    // The OCSP responder (if any) is stopped when the handler is closed.
+    //
+    if (caService.getOCSPResponder() instanceof final CachingOCSPResponder ocspResponder) {
+      ocspResponder.start();
+    }
+
+    return handler;
+  }
+
+  /**
+   * Closes a repository that was created for a CA service that could not be set up.
+   *
+   * @param caRepository the repository (may be null)
+   */
+  private static void closeRepository(@Nullable final FileCARepository caRepository) {
+    if (caRepository != null) {
+      caRepository.close();
+    }
   }
 
 }
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import se.idsec.utils.printcert.PrintCertificate;
 import se.swedenconnect.ca.engine.ca.attribute.CertAttributes;
@@ -46,6 +47,8 @@ import se.swedenconnect.signservice.certificate.attributemapping.AttributeMapper
 import se.swedenconnect.signservice.certificate.attributemapping.DefaultAttributeMapper;
 import se.swedenconnect.signservice.certificate.simple.ca.BasicCAServiceBuilder;
 import se.swedenconnect.signservice.certificate.simple.ca.DefaultSelfSignedCaCertificateGenerator;
+import se.swedenconnect.signservice.certificate.simple.ca.FileCARepository;
+import se.swedenconnect.signservice.certificate.simple.ca.ScheduledCrlPublisher;
 import se.swedenconnect.signservice.certificate.simple.ca.SelfSignedCaCertificateGenerator;
 import se.swedenconnect.signservice.context.DefaultSignServiceContext;
 import se.swedenconnect.signservice.core.attribute.IdentityAttribute;
@@ -76,6 +79,7 @@ import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -272,6 +276,39 @@ class SimpleKeyAndCertificateHandlerTest {
     final HttpBodyAction action = defaultHandler.getResource(request);
 
     Assertions.assertTrue(action.getContents().length > 0);
+    Assertions.assertNotNull(action.getHeaders().get("ETag"));
+    Assertions.assertNotNull(action.getHeaders().get("Last-Modified"));
+
+    // The same CRL should be served until a new CRL is published
+    final HttpBodyAction action2 = defaultHandler.getResource(request);
+    Assertions.assertArrayEquals(action.getContents(), action2.getContents());
+    Assertions.assertEquals(action.getHeaders().get("ETag"), action2.getHeaders().get("ETag"));
+
+    // Conditional request for the current CRL
+    Mockito.when(request.getHeader("If-None-Match")).thenReturn(action.getHeaders().get("ETag"));
+    final HttpBodyAction action3 = defaultHandler.getResource(request);
+    Assertions.assertEquals(304, action3.getStatus());
+    Assertions.assertEquals(0, action3.getContents().length);
+    Assertions.assertEquals(action.getHeaders().get("ETag"), action3.getHeaders().get("ETag"));
+
+    Mockito.when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+    final HttpBodyAction action4 = defaultHandler.getResource(request);
+    Assertions.assertEquals(200, action4.getStatus());
+    Assertions.assertArrayEquals(action.getContents(), action4.getContents());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    final ScheduledCrlPublisher crlPublisher = mock(ScheduledCrlPublisher.class);
+    final SimpleKeyAndCertificateHandler handler = new SimpleKeyAndCertificateHandler(
+        new SoftPkiCredentialContainer("BC", "Test1234"), null, defaultAttributeMapper, null, caService, crlPath);
+    handler.setCrlPublisher(crlPublisher);
+    final FileCARepository caRepository = mock(FileCARepository.class);
+    handler.setCaRepository(caRepository);
+    handler.close();
+    final InOrder inOrder = Mockito.inOrder(crlPublisher, caRepository);
+    inOrder.verify(crlPublisher).close();
+    inOrder.verify(caRepository).close();
   }
 
   @Test
@@ -358,6 +395,7 @@ class SimpleKeyAndCertificateHandlerTest {
 
     private static IdentityAssertion getTestAssertion() {
       final IdentityAssertion assertion = mock(IdentityAssertion.class);
+      when(assertion.getIdentityAttribute(any())).thenCallRealMethod();
       when(assertion.getIdentityAttributes()).thenReturn(List.of(
           getMockAttr(CertAttributes.GIVENNAME.getId(), "Nisse", "Given name"),
           getMockAttr(CertAttributes.SURNAME.getId(), "Hult", "Surname"),
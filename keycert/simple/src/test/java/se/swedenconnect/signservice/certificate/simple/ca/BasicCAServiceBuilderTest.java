@@ -15,11 +15,16 @@
  */
 package se.swedenconnect.signservice.certificate.simple.ca;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.xml.security.signature.XMLSignature;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -29,6 +34,7 @@ import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuerModel;
 import se.swedenconnect.ca.engine.ca.models.cert.AttributeTypeAndValueModel;
 import se.swedenconnect.ca.engine.ca.models.cert.impl.DefaultCertificateModelBuilder;
 import se.swedenconnect.ca.engine.ca.models.cert.impl.ExplicitCertNameModel;
+import se.swedenconnect.security.credential.BasicCredential;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.security.credential.container.ManagedPkiCredential;
 import se.swedenconnect.security.credential.container.PkiCredentialContainer;
@@ -39,6 +45,7 @@ import se.swedenconnect.signservice.certificate.base.config.SigningKeyUsageDirec
 
 import java.io.File;
 import java.security.Security;
+import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.util.List;
@@ -116,4 +123,48 @@ class BasicCAServiceBuilderTest {
     final PrintCertificate printCert = new PrintCertificate(issuedCert);
     log.info("issued certificate:\n{}", printCert.toString(true, true, true));
   }
+
+  @Test
+  void additionalIssuerCredentials() throws Exception {
+    final PkiCredentialContainer caKeyProvider = new SoftPkiCredentialContainer("BC", "Test1234");
+    final ManagedPkiCredential caCredential =
+        caKeyProvider.getCredential(caKeyProvider.generateCredential(KeyGenType.EC_P256));
+    final X509Certificate caCertificate = new DefaultSelfSignedCaCertificateGenerator().generate(
+        caCredential,
+        new CertificateIssuerModel(XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, Duration.ofDays(365)),
+        new ExplicitCertNameModel(List.of(
+            new AttributeTypeAndValueModel(CertAttributes.C, "SE"),
+            new AttributeTypeAndValueModel(CertAttributes.CN, "Test CA"))));
+    caCredential.setCertificate(caCertificate);
+
+    // A second credential for the same key (e.g., another HSM session)
+    final BasicCAService caService = BasicCAServiceBuilder.getInstance(caCredential,
+            "http://localhost/testCa.crl",
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256,
+            new File(caDir, TEST_CRL).toString())
+        .additionalIssuerCredentials(List.of(new BasicCredential(caCertificate, caCredential.getPrivateKey())))
+        .build();
+    assertTrue(caService.getCertificateIssuer() instanceof PooledCertificateIssuer);
+    assertEquals(2, ((PooledCertificateIssuer) caService.getCertificateIssuer()).size());
+
+    final PkiCredential subjectKeys = caKeyProvider.getCredential(caKeyProvider.generateCredential(KeyGenType.EC_P256));
+    for (int i = 0; i < 2; i++) {
+      final X509CertificateHolder issuedCert = caService.issueCertificate(caService.getBaseCertificateModelBuilder(
+          new ExplicitCertNameModel(List.of(new AttributeTypeAndValueModel(CertAttributes.CN, "Signer"))),
+          subjectKeys.getPublicKey(),
+          caService.getCaCertificate(), caService.getCertificateIssuer().getCertificateIssuerModel()).build());
+      assertTrue(issuedCert.isSignatureValid(
+          new JcaContentVerifierProviderBuilder().build(caCertificate.getPublicKey())));
+    }
+
+    // A credential for another key is not accepted
+    final PkiCredential otherKey = caKeyProvider.getCredential(caKeyProvider.generateCredential(KeyGenType.EC_P256));
+    assertThatThrownBy(() -> BasicCAServiceBuilder.getInstance(caCredential,
+            "http://localhost/testCa.crl",
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256,
+            new File(caDir, TEST_CRL).toString())
+        .additionalIssuerCredentials(List.of(otherKey))
+        .build())
+        .isInstanceOf(CertificateException.class);
+  }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.OCSPRequest;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import se.swedenconnect.ca.engine.revocation.ocsp.OCSPResponder;
+import se.swedenconnect.signservice.core.http.HttpBodyAction;
+import se.swedenconnect.signservice.core.http.HttpUserRequest;
+
+/**
+ * Test cases for CachingOCSPResponder.
+ */
+public class CachingOCSPResponderTest {
+
+  private static final String OCSP_PATH = "/sign/ocsp";
+
+  private static final BigInteger UNKNOWN_SERIAL = BigInteger.valueOf(666);
+
+  private static ContentSigner signer;
+
+  private static X509CertificateHolder caCertificate;
+
+  private static X509CertificateHolder otherCertificate;
+
+  private final AtomicInteger signatures = new AtomicInteger(0);
+
+  private Date nextUpdate;
+
+  private OCSPResponder delegate;
+
+  private CachingOCSPResponder responder;
+
+  @BeforeAll
+  public static void init() throws Exception {
+    final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    final KeyPair keyPair = generator.generateKeyPair();
+    signer = new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate());
+    final X500Name name = new X500Name("CN=Test CA");
+    caCertificate = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(),
+        new Date(System.currentTimeMillis() + 3600000L), name, keyPair.getPublic()).build(signer);
+    final X500Name otherName = new X500Name("CN=Other CA");
+    otherCertificate = new JcaX509v3CertificateBuilder(otherName, BigInteger.ONE, new Date(),
+        new Date(System.currentTimeMillis() + 3600000L), otherName, keyPair.getPublic()).build(signer);
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.delegate = Mockito.mock(OCSPResponder.class);
+    Mockito.when(this.delegate.handleRequest(Mockito.any())).thenAnswer(a -> {
+      this.signatures.incrementAndGet();
+      final OCSPReq request = new OCSPReq((OCSPRequest) a.getArgument(0));
+      final BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(new RespID(new X500Name("CN=OCSP")));
+      final CertificateID id = request.getRequestList()[0].getCertID();
+      builder.addResponse(id,
+          UNKNOWN_SERIAL.equals(id.getSerialNumber()) ? new UnknownStatus() : CertificateStatus.GOOD,
+          new Date(), this.nextUpdate, null);
+      return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, builder.build(signer, null, new Date()));
+    });
+    this.nextUpdate = null;
+    this.responder = new CachingOCSPResponder(this.delegate, caCertificate, OCSP_PATH);
+  }
+
+  @AfterEach
+  public void destroy() {
+    this.responder.close();
+  }
+
+  @Test
+  public void testCached() throws Exception {
+    final OCSPResp response = this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    Assertions.assertEquals(OCSPResp.SUCCESSFUL, response.getStatus());
+    Assertions.assertSame(response, this.responder.handleRequest(createRequest(BigInteger.TEN, false)));
+    Assertions.assertEquals(1, this.signatures.get());
+    Assertions.assertEquals(1, this.responder.size());
+
+    this.responder.handleRequest(createRequest(BigInteger.TWO, false));
+    Assertions.assertEquals(2, this.signatures.get());
+    Assertions.assertEquals(2, this.responder.size());
+  }
+
+  @Test
+  public void testNonce() throws Exception {
+    this.responder.handleRequest(createRequest(BigInteger.TEN, true));
+    this.responder.handleRequest(createRequest(BigInteger.TEN, true));
+    Assertions.assertEquals(2, this.signatures.get());
+    Assertions.assertEquals(0, this.responder.size());
+
+    this.responder.setIgnoreNonce(true);
+    this.responder.handleRequest(createRequest(BigInteger.TEN, true));
+    this.responder.handleRequest(createRequest(BigInteger.TEN, true));
+    Assertions.assertEquals(3, this.signatures.get());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    final OCSPResp response = this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    this.responder.invalidate(BigInteger.TEN);
+    Assertions.assertEquals(0, this.responder.size());
+    Assertions.assertNotSame(response, this.responder.handleRequest(createRequest(BigInteger.TEN, false)));
+    Assertions.assertEquals(2, this.signatures.get());
+  }
+
+  @Test
+  public void testRefresh() throws Exception {
+    this.responder.setRefreshInterval(Duration.ofMillis(50));
+    final OCSPResp response = this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    this.responder.handleRequest(createRequest(BigInteger.TWO, false));
+
+    // Only used responses are re-signed
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    Thread.sleep(100);
+    this.responder.refresh();
+    Assertions.assertEquals(3, this.signatures.get());
+    Assertions.assertEquals(1, this.responder.size());
+    Assertions.assertNotSame(response, this.responder.handleRequest(createRequest(BigInteger.TEN, false)));
+    Assertions.assertEquals(3, this.signatures.get());
+  }
+
+  @Test
+  public void testGetResource() throws Exception {
+    final String encoded = Base64.getEncoder().encodeToString(new OCSPReq(createRequest(BigInteger.TEN, false)).getEncoded());
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+    Mockito.when(request.getServerServletPath()).thenReturn(OCSP_PATH + "/" + encoded);
+
+    Assertions.assertTrue(this.responder.supports(request));
+    final HttpBodyAction action = this.responder.getResource(request);
+    Assertions.assertEquals(OCSPResp.SUCCESSFUL, new OCSPResp(action.getContents()).getStatus());
+    Assertions.assertEquals("application/ocsp-response", action.getHeaders().get("Content-Type"));
+    Assertions.assertTrue(action.getHeaders().get("Cache-Control").startsWith("max-age="));
+    Assertions.assertNotNull(action.getHeaders().get("ETag"));
+    Assertions.assertNotNull(action.getHeaders().get("Expires"));
+
+    final HttpBodyAction action2 = this.responder.getResource(request);
+    Assertions.assertArrayEquals(action.getContents(), action2.getContents());
+    Assertions.assertEquals(1, this.signatures.get());
+
+    // URL-encoded request
+    Mockito.when(request.getServerServletPath()).thenReturn(OCSP_PATH + "/" + encoded.replace("+", "%2B"));
+    Assertions.assertArrayEquals(action.getContents(), this.responder.getResource(request).getContents());
+  }
+
+  @Test
+  public void testGetResourceError() {
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getMethod()).thenReturn("POST");
+    Mockito.when(request.getServerServletPath()).thenReturn(OCSP_PATH + "/abc");
+    Assertions.assertFalse(this.responder.supports(request));
+    assertThatThrownBy(() -> this.responder.getResource(request))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Invalid call");
+
+    Mockito.when(request.getMethod()).thenReturn("GET");
+    Mockito.when(request.getServerServletPath()).thenReturn(OCSP_PATH + "/not-base64!");
+    assertThatThrownBy(() -> this.responder.getResource(request))
+        .isInstanceOf(IOException.class);
+
+    Mockito.when(request.getServerServletPath()).thenReturn("/other");
+    Assertions.assertFalse(this.responder.supports(request));
+    Assertions.assertFalse(new CachingOCSPResponder(this.delegate, caCertificate, null).supports(request));
+  }
+
+  @Test
+  public void testOtherIssuer() throws Exception {
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false, otherCertificate, CertificateID.HASH_SHA1));
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false, otherCertificate, CertificateID.HASH_SHA1));
+    Assertions.assertEquals(2, this.signatures.get());
+    Assertions.assertEquals(0, this.responder.size());
+  }
+
+  @Test
+  public void testUnknownNotCached() throws Exception {
+    this.responder.handleRequest(createRequest(UNKNOWN_SERIAL, false));
+    this.responder.handleRequest(createRequest(UNKNOWN_SERIAL, false));
+    Assertions.assertEquals(2, this.signatures.get());
+    Assertions.assertEquals(0, this.responder.size());
+  }
+
+  @Test
+  public void testOneResponsePerSerialNumber() throws Exception {
+    final AlgorithmIdentifier sha256 = new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256);
+    final OCSPResp response = this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    final OCSPResp response2 =
+        this.responder.handleRequest(createRequest(BigInteger.TEN, false, caCertificate, sha256));
+    Assertions.assertNotSame(response, response2);
+    Assertions.assertSame(response, this.responder.handleRequest(createRequest(BigInteger.TEN, false)));
+    Assertions.assertEquals(2, this.signatures.get());
+    Assertions.assertEquals(1, this.responder.size());
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    this.responder.setMaxSize(2);
+    final OCSPResp response = this.responder.handleRequest(createRequest(BigInteger.ONE, false));
+    this.responder.handleRequest(createRequest(BigInteger.TWO, false));
+    // Use 1, so that 2 is the least recently used response
+    this.responder.handleRequest(createRequest(BigInteger.ONE, false));
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    Assertions.assertEquals(2, this.responder.size());
+    Assertions.assertSame(response, this.responder.handleRequest(createRequest(BigInteger.ONE, false)));
+    Assertions.assertEquals(3, this.signatures.get());
+    this.responder.handleRequest(createRequest(BigInteger.TWO, false));
+    Assertions.assertEquals(4, this.signatures.get());
+
+    assertThatThrownBy(() -> this.responder.setMaxSize(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testMaxAgeNextUpdate() throws Exception {
+    this.nextUpdate = new Date(System.currentTimeMillis() + 60000L);
+    final String encoded =
+        Base64.getEncoder().encodeToString(new OCSPReq(createRequest(BigInteger.TEN, false)).getEncoded());
+    final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+    Mockito.when(request.getServerServletPath()).thenReturn(OCSP_PATH + "/" + encoded);
+
+    final HttpBodyAction action = this.responder.getResource(request);
+    final String cacheControl = action.getHeaders().get("Cache-Control");
+    final long maxAge = Long.parseLong(cacheControl.substring("max-age=".length(), cacheControl.indexOf(',')));
+    Assertions.assertTrue(maxAge <= 60, cacheControl);
+
+    // Responses past their next update time are not served
+    this.nextUpdate = new Date(System.currentTimeMillis() - 1000L);
+    this.responder.invalidate(BigInteger.TEN);
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    this.responder.handleRequest(createRequest(BigInteger.TEN, false));
+    Assertions.assertEquals(3, this.signatures.get());
+  }
+
+  private static OCSPRequest createRequest(final BigInteger serialNumber, final boolean nonce) throws Exception {
+    return createRequest(serialNumber, nonce, caCertificate, CertificateID.HASH_SHA1);
+  }
+
+  private static OCSPRequest createRequest(final BigInteger serialNumber, final boolean nonce,
+      final X509CertificateHolder issuer, final AlgorithmIdentifier hashAlgorithm) throws Exception {
+    final CertificateID id = new CertificateID(
+        new JcaDigestCalculatorProviderBuilder().build().get(hashAlgorithm), issuer, serialNumber);
+    final OCSPReqBuilder builder = new OCSPReqBuilder().addRequest(id);
+    if (nonce) {
+      builder.setRequestExtensions(new Extensions(new Extension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce, false,
+          new DEROctetString(BigInteger.valueOf(System.nanoTime()).toByteArray()))));
+    }
+    return OCSPRequest.getInstance(builder.build().getEncoded());
+  }
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.ca.engine.ca.repository.CertificateRecord;
+import se.swedenconnect.ca.engine.ca.repository.SortBy;
+import se.swedenconnect.ca.engine.revocation.CertificateRevocationException;
+import se.swedenconnect.ca.engine.revocation.crl.RevokedCertificate;
+
+/**
+ * Test cases for FileCARepository.
+ */
+public class FileCARepositoryTest {
+
+  private static final long DAY = 24L * 60L * 60L * 1000L;
+
+  private static KeyPair keyPair;
+
+  private static ContentSigner signer;
+
+  private File repoDir;
+
+  private File crlFile;
+
+  private FileCARepository repository;
+
+  @BeforeAll
+  public static void init() throws Exception {
+    final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    keyPair = generator.generateKeyPair();
+    signer = new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate());
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    this.repoDir = new File(System.getProperty("user.dir"), "target/test/file-ca-repo");
+    this.crlFile = new File(System.getProperty("user.dir"), "target/test/file-ca-repo.crl");
+    FileUtils.deleteDirectory(this.repoDir);
+    FileUtils.deleteQuietly(this.crlFile);
+    this.repository = this.open(1024 * 1024);
+  }
+
+  @AfterEach
+  public void destroy() {
+    this.repository.close();
+  }
+
+  @Test
+  public void testAddAndGet() throws Exception {
+    final X509CertificateHolder cert = createCertificate(1, 0, 365);
+    this.repository.addCertificate(cert);
+
+    final CertificateRecord record = this.repository.getCertificate(BigInteger.ONE);
+    Assertions.assertNotNull(record);
+    Assertions.assertArrayEquals(cert.getEncoded(), record.getCertificate());
+    Assertions.assertEquals(cert.getNotAfter(), record.getExpiryDate());
+    Assertions.assertFalse(record.isRevoked());
+    Assertions.assertNull(this.repository.getCertificate(BigInteger.TWO));
+    Assertions.assertEquals(List.of(BigInteger.ONE), this.repository.getAllCertificates());
+
+    assertThatThrownBy(() -> this.repository.addCertificate(cert))
+        .isInstanceOf(IOException.class)
+        .hasMessage("This certificate already exists in the certificate repository");
+  }
+
+  @Test
+  public void testRevoke() throws Exception {
+    this.repository.addCertificate(createCertificate(1, 0, 365));
+    this.repository.addCertificate(createCertificate(2, 0, 365));
+
+    final Date revocationTime = new Date((System.currentTimeMillis() / 1000L) * 1000L);
+    this.repository.revokeCertificate(BigInteger.TWO, 1, revocationTime);
+
+    final CertificateRecord record = this.repository.getCertificate(BigInteger.TWO);
+    Assertions.assertTrue(record.isRevoked());
+    Assertions.assertEquals(1, record.getReason());
+    Assertions.assertEquals(revocationTime, record.getRevocationTime());
+
+    final List<RevokedCertificate> revoked = this.repository.getRevokedCertificates();
+    Assertions.assertEquals(1, revoked.size());
+    Assertions.assertEquals(BigInteger.TWO, revoked.get(0).getCertificateSerialNumber());
+
+    Assertions.assertEquals(2, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(1, this.repository.getCertificateCount(true));
+
+    assertThatThrownBy(() -> this.repository.revokeCertificate(BigInteger.TEN, 0, revocationTime))
+        .isInstanceOf(CertificateRevocationException.class);
+  }
+
+  @Test
+  public void testRange() throws Exception {
+    // Serial numbers in reverse order of issuance
+    for (int i = 1; i <= 10; i++) {
+      this.repository.addCertificate(createCertificate(i, -i, 365));
+    }
+    this.repository.revokeCertificate(BigInteger.valueOf(5), 0, new Date());
+
+    Assertions.assertEquals(List.of(BigInteger.valueOf(4), BigInteger.valueOf(5), BigInteger.valueOf(6)),
+        serials(this.repository.getCertificateRange(1, 3, false, SortBy.serialNumber, false)));
+    Assertions.assertEquals(List.of(BigInteger.valueOf(7), BigInteger.valueOf(6), BigInteger.valueOf(4)),
+        serials(this.repository.getCertificateRange(1, 3, true, SortBy.serialNumber, true)));
+    Assertions.assertEquals(List.of(BigInteger.valueOf(10), BigInteger.valueOf(9)),
+        serials(this.repository.getCertificateRange(0, 2, false, SortBy.issueDate, false)));
+    Assertions.assertEquals(List.of(BigInteger.TEN),
+        serials(this.repository.getCertificateRange(3, 3, false, SortBy.issueDate, true)));
+    Assertions.assertTrue(this.repository.getCertificateRange(5, 3, false, null, false).isEmpty());
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    final List<X509CertificateHolder> certs = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      certs.add(createCertificate(i, 0, 365));
+      this.repository.addCertificate(certs.get(i - 1));
+    }
+    this.repository.revokeCertificate(BigInteger.valueOf(3), 4, new Date());
+    this.repository.close();
+
+    this.repository = this.open(1024 * 1024);
+    Assertions.assertEquals(5, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(4, this.repository.getCertificateCount(true));
+    Assertions.assertTrue(this.repository.getCertificate(BigInteger.valueOf(3)).isRevoked());
+    Assertions.assertArrayEquals(certs.get(3).getEncoded(),
+        this.repository.getCertificate(BigInteger.valueOf(4)).getCertificate());
+  }
+
+  @Test
+  public void testDamagedTail() throws Exception {
+    this.repository.addCertificate(createCertificate(1, 0, 365));
+    this.repository.close();
+
+    final File segment = this.repoDir.listFiles((d, n) -> n.endsWith(".log"))[0];
+    final long size = segment.length();
+    FileUtils.writeByteArrayToFile(segment, new byte[] { 0, 0, 0, 100, 1, 2, 3 }, true);
+
+    this.repository = this.open(1024 * 1024);
+    Assertions.assertNotNull(this.repository.getCertificate(BigInteger.ONE));
+    Assertions.assertEquals(size, segment.length());
+
+    this.repository.addCertificate(createCertificate(2, 0, 365));
+    Assertions.assertNotNull(this.repository.getCertificate(BigInteger.TWO));
+  }
+
+  @Test
+  public void testRemoveExpiredAndCompact() throws Exception {
+    this.repository.close();
+    // Small segments, so that each segment holds a few certificates
+    this.repository = this.open(2048);
+
+    final List<BigInteger> expected = new ArrayList<>();
+    for (int i = 1; i <= 30; i++) {
+      final boolean expired = i % 3 != 0;
+      this.repository.addCertificate(createCertificate(i, -30, expired ? -1 : 365));
+      if (expired) {
+        expected.add(BigInteger.valueOf(i));
+      }
+    }
+    this.repository.revokeCertificate(BigInteger.valueOf(3), 0, new Date());
+    final int segmentsBefore = this.repository.getSegmentCount();
+    Assertions.assertTrue(segmentsBefore > 2);
+    final long sizeBefore = this.segmentsSize();
+
+    final List<BigInteger> removed = this.repository.removeExpiredCerts(0);
+    Assertions.assertEquals(expected, removed.stream().sorted().collect(Collectors.toList()));
+    Assertions.assertEquals(10, this.repository.getCertificateCount(false));
+
+    // Compact a few more times, each run compacts one segment
+    for (int i = 0; i < segmentsBefore; i++) {
+      this.repository.removeExpiredCerts(0);
+    }
+    // Compacted segments are rewritten (keeping their ID), so it is the size of the segment files that shrinks
+    Assertions.assertTrue(this.segmentsSize() < sizeBefore);
+    for (int i = 3; i <= 30; i += 3) {
+      Assertions.assertNotNull(this.repository.getCertificate(BigInteger.valueOf(i)), "Missing " + i);
+    }
+    Assertions.assertTrue(this.repository.getCertificate(BigInteger.valueOf(3)).isRevoked());
+
+    // Removed certificates are not loaded again
+    this.repository.close();
+    this.repository = this.open(2048);
+    Assertions.assertEquals(10, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(9, this.repository.getCertificateCount(true));
+    Assertions.assertNull(this.repository.getCertificate(BigInteger.ONE));
+  }
+
+  @Test
+  public void testCompactionDoesNotHoldRepositoryMonitor() throws Exception {
+    this.repository.close();
+    this.repository = this.open(2048);
+    for (int i = 1; i <= 20; i++) {
+      this.repository.addCertificate(createCertificate(i, -30, i % 4 != 0 ? -1 : 365));
+    }
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // getNextCrlNumber synchronizes on the repository, compaction must not
+      synchronized (this.repository) {
+        final Future<List<BigInteger>> removed = executor.submit(() -> this.repository.removeExpiredCerts(0));
+        Assertions.assertEquals(15, removed.get(10, TimeUnit.SECONDS).size());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    for (int i = 4; i <= 20; i += 4) {
+      Assertions.assertNotNull(this.repository.getCertificate(BigInteger.valueOf(i)), "Missing " + i);
+    }
+    Assertions.assertEquals(BigInteger.ONE, this.repository.getNextCrlNumber());
+  }
+
+  @Test
+  public void testCompactionThenRevoke() throws Exception {
+    this.repository.close();
+    this.repository = this.open(2048);
+    for (int i = 1; i <= 20; i++) {
+      this.repository.addCertificate(createCertificate(i, -30, i % 4 != 0 ? -1 : 365));
+    }
+    for (int i = 0; i < 10; i++) {
+      this.repository.removeExpiredCerts(0);
+    }
+    this.repository.revokeCertificate(BigInteger.valueOf(8), 1, new Date());
+    for (int i = 0; i < 10; i++) {
+      this.repository.removeExpiredCerts(0);
+    }
+    this.repository.close();
+
+    this.repository = this.open(2048);
+    Assertions.assertEquals(5, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(4, this.repository.getCertificateCount(true));
+    Assertions.assertTrue(this.repository.getCertificate(BigInteger.valueOf(8)).isRevoked());
+    Assertions.assertFalse(this.repository.getCertificate(BigInteger.valueOf(12)).isRevoked());
+  }
+
+  @Test
+  public void testPaging() throws Exception {
+    for (int i = 1; i <= 50; i++) {
+      this.repository.addCertificate(createCertificate(i, -i, 365));
+    }
+    for (final boolean descending : List.of(false, true)) {
+      final List<BigInteger> paged = new ArrayList<>();
+      for (int page = 0; page < 8; page++) {
+        paged.addAll(serials(this.repository.getCertificateRange(page, 7, false, SortBy.serialNumber, descending)));
+      }
+      final List<BigInteger> expected = IntStream.rangeClosed(1, 50)
+          .mapToObj(BigInteger::valueOf)
+          .sorted(descending ? Comparator.reverseOrder() : Comparator.naturalOrder())
+          .collect(Collectors.toList());
+      Assertions.assertEquals(expected, paged);
+    }
+
+    // Pages after an update
+    Assertions.assertEquals(List.of(BigInteger.valueOf(40), BigInteger.valueOf(39)),
+        serials(this.repository.getCertificateRange(5, 2, true, SortBy.issueDate, false)));
+    this.repository.revokeCertificate(BigInteger.valueOf(38), 0, new Date());
+    Assertions.assertEquals(List.of(BigInteger.valueOf(37), BigInteger.valueOf(36)),
+        serials(this.repository.getCertificateRange(6, 2, true, SortBy.issueDate, false)));
+    Assertions.assertEquals(List.of(BigInteger.valueOf(40), BigInteger.valueOf(39)),
+        serials(this.repository.getCertificateRange(5, 2, true, SortBy.issueDate, false)));
+  }
+
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 1; i <= 200; i++) {
+        final X509CertificateHolder cert = createCertificate(i, 0, 365);
+        futures.add(executor.submit(() -> {
+          this.repository.addCertificate(cert);
+          return null;
+        }));
+      }
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(200, this.repository.getCertificateCount(false));
+    this.repository.close();
+
+    this.repository = this.open(1024 * 1024);
+    Assertions.assertEquals(200, this.repository.getCertificateCount(false));
+  }
+
+  @Test
+  public void testConcurrentAddAndCompaction() throws Exception {
+    this.repository.close();
+    // Small segments, so that the writer switches segments often while compaction runs
+    this.repository = this.open(1024);
+
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final ExecutorService executor = Executors.newFixedThreadPool(9);
+    try {
+      final Future<?> compaction = executor.submit(() -> {
+        while (writing.get()) {
+          this.repository.removeExpiredCerts(0);
+        }
+        return null;
+      });
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 1; i <= 300; i++) {
+        final int serial = i;
+        final X509CertificateHolder cert = createCertificate(i, -30, i % 3 != 0 ? -1 : 365);
+        futures.add(executor.submit(() -> {
+          this.repository.addCertificate(cert);
+          if (serial % 6 == 0) {
+            this.repository.revokeCertificate(BigInteger.valueOf(serial), 0, new Date());
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> f : futures) {
+        f.get(30, TimeUnit.SECONDS);
+      }
+      writing.set(false);
+      compaction.get(30, TimeUnit.SECONDS);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    this.repository.removeExpiredCerts(0);
+
+    // Writes after compaction must not go to a deleted segment
+    this.repository.addCertificate(createCertificate(301, 0, 365));
+
+    for (int i = 3; i <= 300; i += 3) {
+      final CertificateRecord record = this.repository.getCertificate(BigInteger.valueOf(i));
+      Assertions.assertNotNull(record, "Missing " + i);
+      Assertions.assertEquals(i % 6 == 0, record.isRevoked());
+    }
+    Assertions.assertEquals(101, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(51, this.repository.getCertificateCount(true));
+
+    this.repository.close();
+    this.repository = this.open(1024);
+    Assertions.assertEquals(101, this.repository.getCertificateCount(false));
+    Assertions.assertEquals(51, this.repository.getCertificateCount(true));
+    Assertions.assertNotNull(this.repository.getCertificate(BigInteger.valueOf(301)));
+  }
+
+  @Test
+  public void testClosed() throws Exception {
+    this.repository.close();
+    assertThatThrownBy(() -> this.repository.addCertificate(createCertificate(1, 0, 365)))
+        .isInstanceOf(IOException.class);
+  }
+
+  private FileCARepository open(final long maxSegmentSize) throws IOException {
+    return new FileCARepository(this.repoDir.getAbsolutePath(), this.crlFile.getAbsolutePath(), maxSegmentSize, true);
+  }
+
+  private long segmentsSize() {
+    return Arrays.stream(this.repoDir.listFiles((d, n) -> n.endsWith(".log"))).mapToLong(File::length).sum();
+  }
+
+  private static List<BigInteger> serials(final List<CertificateRecord> records) {
+    return records.stream().map(CertificateRecord::getSerialNumber).collect(Collectors.toList());
+  }
+
+  private static X509CertificateHolder createCertificate(final int serial, final int notBeforeDays,
+      final int notAfterDays) {
+    final long base = (System.currentTimeMillis() / DAY) * DAY;
+    final X500Name name = new X500Name("CN=Test " + serial);
+    return new JcaX509v3CertificateBuilder(name, BigInteger.valueOf(serial),
+        new Date(base + notBeforeDays * DAY + serial * 1000L), new Date(base + notAfterDays * DAY), name,
+        keyPair.getPublic()).build(signer);
+  }
+
+}
@@ -17,6 +17,7 @@ package se.swedenconnect.signservice.certificate.simple.ca;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -108,6 +109,18 @@ class NoStorageCARepositoryTest {
             + "kPJHhuPMG1zJxtTtHDwRGWaQ=="));
     repository.publishNewCrl(crlHolder);
     assertEquals(crlHolder, repository.getCurrentCrl());
+
+    // The CRL is kept in memory
+    assertSame(repository.getCurrentCrl(), repository.getCurrentCrl());
+    assertNotNull(repository.getPublishedCrl());
+    assertEquals(BigInteger.ONE, repository.getPublishedCrl().getCrlNumber());
+    assertEquals(crlHolder.getThisUpdate().toInstant(), repository.getCurrentCRLMetadata().getIssueTime());
+
+    // A new repository instance should read the published CRL
+    final NoStorageCARepository repository2 = new NoStorageCARepository(new File(caDir, "test.crl").getAbsolutePath());
+    assertEquals(crlHolder, repository2.getCurrentCrl());
+    assertEquals(repository.getPublishedCrl().getEtag(), repository2.getPublishedCrl().getEtag());
+    assertEquals(BigInteger.TWO, repository2.getNextCrlNumber());
   }
 
 }
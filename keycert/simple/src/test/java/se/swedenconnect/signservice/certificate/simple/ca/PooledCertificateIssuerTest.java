@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuanceException;
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuer;
+import se.swedenconnect.ca.engine.ca.issuer.CertificateIssuerModel;
+import se.swedenconnect.ca.engine.ca.models.cert.CertificateModel;
+
+/**
+ * Test cases for PooledCertificateIssuer.
+ */
+public class PooledCertificateIssuerTest {
+
+  /** Simulated time for one signature (e.g., using an HSM). */
+  private static final long SIGNING_TIME = 20;
+
+  @Test
+  public void testEmpty() {
+    assertThatThrownBy(() -> new PooledCertificateIssuer(List.of()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new PooledCertificateIssuer(null))
+        .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void testIssue() throws Exception {
+    final SlowIssuer issuer1 = new SlowIssuer();
+    final SlowIssuer issuer2 = new SlowIssuer();
+    final PooledCertificateIssuer pool = new PooledCertificateIssuer(List.of(issuer1, issuer2));
+    Assertions.assertEquals(2, pool.size());
+    Assertions.assertSame(issuer1.getCertificateIssuerModel(), pool.getCertificateIssuerModel());
+
+    // Sequential issuance is spread over the issuers
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertNotNull(pool.issueCertificate(Mockito.mock(CertificateModel.class)));
+    }
+    Assertions.assertEquals(10, issuer1.getIssued() + issuer2.getIssued());
+    Assertions.assertTrue(issuer1.getIssued() > 0);
+    Assertions.assertTrue(issuer2.getIssued() > 0);
+  }
+
+  @Test
+  public void testLeastLoaded() throws Exception {
+    final SlowIssuer issuer1 = new SlowIssuer();
+    final SlowIssuer issuer2 = new SlowIssuer();
+    final PooledCertificateIssuer pool = new PooledCertificateIssuer(List.of(issuer1, issuer2));
+
+    // Two concurrent issuances should use one issuer each
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<X509CertificateHolder> f1 = executor.submit(() -> pool.issueCertificate(null));
+      final Future<X509CertificateHolder> f2 = executor.submit(() -> pool.issueCertificate(null));
+      f1.get();
+      f2.get();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(1, issuer1.getIssued());
+    Assertions.assertEquals(1, issuer2.getIssued());
+    Assertions.assertEquals(1, issuer1.getMaxConcurrent());
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    final CertificateIssuer failing = Mockito.mock(CertificateIssuer.class);
+    Mockito.when(failing.issueCertificate(Mockito.any())).thenThrow(new CertificateIssuanceException("failed"));
+    final PooledCertificateIssuer pool = new PooledCertificateIssuer(List.of(failing));
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> pool.issueCertificate(null))
+          .isInstanceOf(CertificateIssuanceException.class);
+    }
+  }
+
+  @Test
+  public void testParallelDispatch() throws Exception {
+    for (final int poolSize : new int[] { 1, 2, 4, 8 }) {
+      for (final int perIssuer : new int[] { 1, 2 }) {
+        final int requests = poolSize * perIssuer;
+        final CountDownLatch entered = new CountDownLatch(requests);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<BlockingIssuer> issuers = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) {
+          issuers.add(new BlockingIssuer(entered, release));
+        }
+        final PooledCertificateIssuer pool = new PooledCertificateIssuer(issuers);
+        final ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+          final List<Future<X509CertificateHolder>> futures = new ArrayList<>();
+          for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> pool.issueCertificate(null)));
+          }
+          // All requests are dispatched at the same time, and spread evenly over the issuers
+          Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS),
+              String.format("Pool size %d: only %d of %d requests dispatched", poolSize,
+                  requests - entered.getCount(), requests));
+          for (final BlockingIssuer issuer : issuers) {
+            Assertions.assertEquals(perIssuer, issuer.getConcurrent());
+          }
+          release.countDown();
+          for (final Future<X509CertificateHolder> f : futures) {
+            Assertions.assertNotNull(f.get(10, TimeUnit.SECONDS));
+          }
+        }
+        finally {
+          release.countDown();
+          executor.shutdownNow();
+        }
+        for (final BlockingIssuer issuer : issuers) {
+          Assertions.assertEquals(perIssuer, issuer.getIssued());
+          Assertions.assertEquals(perIssuer, issuer.getMaxConcurrent());
+        }
+      }
+    }
+  }
+
+  /**
+   * An issuer that blocks until it is released.
+   */
+  private static class BlockingIssuer extends CertificateIssuer {
+
+    private final X509CertificateHolder certificate = Mockito.mock(X509CertificateHolder.class);
+
+    private final CountDownLatch entered;
+
+    private final CountDownLatch release;
+
+    private final AtomicInteger issued = new AtomicInteger(0);
+
+    private final AtomicInteger concurrent = new AtomicInteger(0);
+
+    private final AtomicInteger maxConcurrent = new AtomicInteger(0);
+
+    BlockingIssuer(final CountDownLatch entered, final CountDownLatch release) {
+      super(Mockito.mock(CertificateIssuerModel.class));
+      this.entered = entered;
+      this.release = release;
+    }
+
+    @Override
+    public X509CertificateHolder issueCertificate(final CertificateModel model) {
+      this.maxConcurrent.accumulateAndGet(this.concurrent.incrementAndGet(), Math::max);
+      this.entered.countDown();
+      try {
+        if (!this.release.await(10, TimeUnit.SECONDS)) {
+          return null;
+        }
+        this.issued.incrementAndGet();
+        return this.certificate;
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      finally {
+        this.concurrent.decrementAndGet();
+      }
+    }
+
+    int getIssued() {
+      return this.issued.get();
+    }
+
+    int getConcurrent() {
+      return this.concurrent.get();
+    }
+
+    int getMaxConcurrent() {
+      return this.maxConcurrent.get();
+    }
+  }
+
+  /**
+   * An issuer that is slow and only handles one issuance at the time (like a single HSM session).
+   */
+  private static class SlowIssuer extends CertificateIssuer {
+
+    private final X509CertificateHolder certificate = Mockito.mock(X509CertificateHolder.class);
+
+    private final AtomicInteger issued = new AtomicInteger(0);
+
+    private final AtomicInteger concurrent = new AtomicInteger(0);
+
+    private final AtomicInteger maxConcurrent = new AtomicInteger(0);
+
+    SlowIssuer() {
+      super(Mockito.mock(CertificateIssuerModel.class));
+    }
+
+    @Override
+    public X509CertificateHolder issueCertificate(final CertificateModel model) {
+      this.maxConcurrent.accumulateAndGet(this.concurrent.incrementAndGet(), Math::max);
+      try {
+        synchronized (this) {
+          Thread.sleep(SIGNING_TIME);
+        }
+        this.issued.incrementAndGet();
+        return this.certificate;
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      finally {
+        this.concurrent.decrementAndGet();
+      }
+    }
+
+    int getIssued() {
+      return this.issued.get();
+    }
+
+    int getMaxConcurrent() {
+      return this.maxConcurrent.get();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022-2025 Sweden Connect
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.swedenconnect.signservice.certificate.simple.ca;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.bouncycastle.cert.X509CRLHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import se.swedenconnect.ca.engine.ca.issuer.CAService;
+
+/**
+ * Test cases for ScheduledCrlPublisher.
+ */
+public class ScheduledCrlPublisherTest {
+
+  @Test
+  public void testBadArguments() {
+    assertThatThrownBy(() -> new ScheduledCrlPublisher(null, null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("caService must not be null");
+    assertThatThrownBy(() -> new ScheduledCrlPublisher(mock(CAService.class), Duration.ofMinutes(-1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testDelay() {
+    try (final ScheduledCrlPublisher publisher =
+        new ScheduledCrlPublisher(mock(CAService.class), Duration.ofMinutes(10))) {
+
+      Assertions.assertEquals(Duration.ZERO, publisher.getDelay(null));
+
+      final Instant now = Instant.now();
+      final Duration delay = publisher.getDelay(crl(now, now.plus(Duration.ofHours(2))));
+      Assertions.assertTrue(delay.compareTo(Duration.ofMinutes(109)) > 0);
+      Assertions.assertTrue(delay.compareTo(Duration.ofMinutes(110)) <= 0);
+
+      // The margin should never be more than half of the validity
+      final Duration delay2 = publisher.getDelay(crl(now, now.plus(Duration.ofMinutes(10))));
+      Assertions.assertTrue(delay2.compareTo(Duration.ofMinutes(4)) > 0);
+      Assertions.assertTrue(delay2.compareTo(Duration.ofMinutes(5)) <= 0);
+
+      // Already passed
+      Assertions.assertEquals(Duration.ZERO,
+          publisher.getDelay(crl(now.minus(Duration.ofHours(2)), now.minus(Duration.ofHours(1)))));
+    }
+  }
+
+  @Test
+  public void testPublishesWhenNoCrl() throws Exception {
+    final CAService caService = mock(CAService.class);
+    final Instant now = Instant.now();
+    final X509CRLHolder crl = crl(now, now.plus(Duration.ofHours(2)));
+    when(caService.publishNewCrl()).thenReturn(crl);
+
+    try (final ScheduledCrlPublisher publisher = new ScheduledCrlPublisher(caService, null)) {
+      publisher.start();
+      verify(caService, timeout(2000).times(1)).publishNewCrl();
+    }
+  }
+
+  private static X509CRLHolder crl(final Instant thisUpdate, final Instant nextUpdate) {
+    final X509CRLHolder crl = mock(X509CRLHolder.class);
+    when(crl.getThisUpdate()).thenReturn(Date.from(thisUpdate));
+    when(crl.getNextUpdate()).thenReturn(Date.from(nextUpdate));
+    return crl;
+  }
+
+}
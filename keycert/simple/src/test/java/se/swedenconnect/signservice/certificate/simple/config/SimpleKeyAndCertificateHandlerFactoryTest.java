@@ -23,6 +23,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import se.swedenconnect.security.algorithms.AlgorithmRegistrySingleton;
 import se.swedenconnect.signservice.certificate.CertificateAttributeType;
 import se.swedenconnect.signservice.certificate.KeyAndCertificateHandler;
@@ -36,6 +37,7 @@ import se.swedenconnect.signservice.certificate.simple.SimpleKeyAndCertificateHa
 import se.swedenconnect.signservice.core.config.HandlerConfiguration;
 import se.swedenconnect.signservice.core.config.PkiCredentialConfiguration;
 import se.swedenconnect.signservice.core.config.PkiCredentialConfigurationProperties;
+import se.swedenconnect.signservice.core.http.HttpUserRequest;
 
 import java.io.File;
 import java.io.IOException;
@@ -198,6 +200,38 @@ public class SimpleKeyAndCertificateHandlerFactoryTest {
         .hasMessage("CRL file location must be set");
   }
 
+  @Test
+  public void testOcsp() throws Exception {
+    final SimpleKeyAndCertificateHandlerConfiguration config = this.getFullConfig();
+    config.setRepositoryDirectory(CRL_DIR + "/ocsp-repo");
+    config.setOcspPath("/ca/ocsp");
+    config.setOcspRefreshInterval(Duration.ofMinutes(10));
+    final SimpleKeyAndCertificateHandlerFactory factory = new SimpleKeyAndCertificateHandlerFactory();
+
+    final SimpleKeyAndCertificateHandler handler = (SimpleKeyAndCertificateHandler) factory.create(config);
+    try {
+      final HttpUserRequest request = Mockito.mock(HttpUserRequest.class);
+      Mockito.when(request.getMethod()).thenReturn("GET");
+      Mockito.when(request.getServerServletPath()).thenReturn("/ca/ocsp/MAA=");
+      Assertions.assertTrue(handler.supports(request));
+    }
+    finally {
+      handler.close();
+    }
+  }
+
+  @Test
+  public void testOcspWithoutRepository() {
+    final SimpleKeyAndCertificateHandlerConfiguration config = this.getFullConfig();
+    config.setOcspPath("/ca/ocsp");
+    final SimpleKeyAndCertificateHandlerFactory factory = new SimpleKeyAndCertificateHandlerFactory();
+
+    assertThatThrownBy(() -> factory.create(config)).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Repository directory must be set when OCSP path is set");
+    assertThatThrownBy(() -> config.setOcspPath("ca/ocsp")).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The ocspPath must be null or begin with a '/'");
+  }
+
   @Test
   public void testMissingCaCredential() {
     final SimpleKeyAndCertificateHandlerConfiguration config = this.getFullConfig();
@@ -17,6 +17,7 @@ package se.swedenconnect.signservice.spring.config;
 
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationEventPublisher;
@@ -28,6 +29,8 @@ import org.springframework.context.annotation.Import;
 import se.swedenconnect.security.credential.factory.PkiCredentialFactory;
 import se.swedenconnect.signservice.application.SignServiceEngineManager;
 import se.swedenconnect.signservice.audit.actuator.ActuatorAuditLoggerFactory;
+import se.swedenconnect.signservice.audit.actuator.AuditStoreEndpoint;
+import se.swedenconnect.signservice.audit.store.StoreAuditLoggerFactory;
 import se.swedenconnect.signservice.config.BeanRegistrator;
 import se.swedenconnect.signservice.config.DefaultSignServiceFactory;
 import se.swedenconnect.signservice.config.SignServiceConfigurationProperties;
@@ -65,18 +68,43 @@ public class SignServiceConfiguration {
   @Autowired
   private SignServiceConfigurationProperties properties;
 
+  /**
+   * Creates the factory for {@code StoreAuditLogger}:s. It is a bean so that the stores it opens can be queried
+   * through the {@link AuditStoreEndpoint}, and so that the stores are closed when the application context is closed.
+   *
+   * @return a StoreAuditLoggerFactory bean
+   */
+  @Bean
+  StoreAuditLoggerFactory storeAuditLoggerFactory() {
+    return new StoreAuditLoggerFactory();
+  }
+
+  /**
+   * Creates the actuator endpoint for querying the audit stores.
+   *
+   * @param storeAuditLoggerFactory the factory holding the audit stores
+   * @return an AuditStoreEndpoint bean
+   */
+  @ConditionalOnAvailableEndpoint
+  @Bean
+  AuditStoreEndpoint auditStoreEndpoint(final StoreAuditLoggerFactory storeAuditLoggerFactory) {
+    return new AuditStoreEndpoint(storeAuditLoggerFactory::getStores);
+  }
+
   /**
    * Creates the {@link HandlerFactoryRegistry} bean that is needed for handler configuration and creation.
    *
+   * @param storeAuditLoggerFactory the factory for audit store loggers
    * @return a HandlerFactoryRegistry bean
    */
   @Bean
-  HandlerFactoryRegistry handlerFactoryRegistry() {
+  HandlerFactoryRegistry handlerFactoryRegistry(final StoreAuditLoggerFactory storeAuditLoggerFactory) {
     final ActuatorAuditLoggerFactory actuatorFactory = new ActuatorAuditLoggerFactory();
     actuatorFactory.setPublisher(this.applicationEventPublisher);
     final HandlerFactoryRegistry factoryRegistry = new HandlerFactoryRegistry();
-    // Pre-load it with the special factory used to create ActuatorAuditLogger:s.
+    // Pre-load it with the special factories used to create ActuatorAuditLogger:s and StoreAuditLogger:s.
     factoryRegistry.addFactory(actuatorFactory);
+    factoryRegistry.addFactory(storeAuditLoggerFactory);
     return factoryRegistry;
   }
 